@@ -141,6 +141,34 @@ public class AsyncEventQueueStats extends GatewaySenderStats {
         (LOAD_BALANCE_TIME,
          "Total time spent load balancing this sender",
          "nanoseconds"),
+      f.createLongCounter
+        (BATCH_ACK_TIME,
+         "Total time spent dispatching batches to the listener.",
+         "nanoseconds"),
+      f.createLongCounter
+        (BATCHES_ACKED,
+         "Number of batches whose dispatch time was recorded.",
+         "operations"),
+      f.createLongGauge
+        (ADAPTIVE_BATCH_SIZE,
+         "Batch size currently chosen by adaptive batching.",
+         "operations"),
+      f.createLongGauge
+        (ADAPTIVE_BATCH_TIME_INTERVAL,
+         "Batch time interval currently chosen by adaptive batching.",
+         "milliseconds"),
+      f.createLongCounter
+        (BATCH_ADJUSTMENTS,
+         "Number of times adaptive batching changed the batch size or time interval.",
+         "operations"),
+      f.createLongGauge
+        (EVENT_QUEUE_HEAP_MEMORY,
+         "Heap memory used by the queued events held in memory by this member.",
+         "bytes"),
+      f.createLongGauge
+        (EVENT_QUEUE_OFF_HEAP_MEMORY,
+         "Off-heap memory used by the queued event values copied off-heap by this member.",
+         "bytes"),
   });
 
   // Initialize id fields
@@ -170,6 +198,13 @@ public class AsyncEventQueueStats extends GatewaySenderStats {
   loadBalancesCompletedId = type.nameToId(LOAD_BALANCES_COMPLETED);
   loadBalancesInProgressId = type.nameToId(LOAD_BALANCES_IN_PROGRESS);
   loadBalanceTimeId = type.nameToId(LOAD_BALANCE_TIME);
+  batchAckTimeId = type.nameToId(BATCH_ACK_TIME);
+  batchesAckedId = type.nameToId(BATCHES_ACKED);
+  adaptiveBatchSizeId = type.nameToId(ADAPTIVE_BATCH_SIZE);
+  adaptiveBatchTimeIntervalId = type.nameToId(ADAPTIVE_BATCH_TIME_INTERVAL);
+  batchAdjustmentsId = type.nameToId(BATCH_ADJUSTMENTS);
+  eventQueueHeapMemoryId = type.nameToId(EVENT_QUEUE_HEAP_MEMORY);
+  eventQueueOffHeapMemoryId = type.nameToId(EVENT_QUEUE_OFF_HEAP_MEMORY);
   }
   
   /**
@@ -33,6 +33,7 @@ import com.gemstone.gemfire.cache.query.QueryService;
 import com.gemstone.gemfire.cache.query.SelectResults;
 import com.gemstone.gemfire.cache.query.Struct;
 import com.gemstone.gemfire.cache.query.TypeMismatchException;
+import com.gemstone.gemfire.cache.query.internal.index.BitmapConjunction;
 import com.gemstone.gemfire.cache.query.internal.parse.OQLLexerTokenTypes;
 import com.gemstone.gemfire.cache.query.internal.types.StructTypeImpl;
 import com.gemstone.gemfire.cache.query.types.ObjectType;
@@ -169,11 +170,20 @@ public abstract class AbstractGroupOrRangeJunction extends
       // CompiledUndefined or RangeJunctionEvaluator, BUT it cannot be
       // a single RangeJunction within a GroupJunction.
       //The interpretation of isConditioning etc is not provided for RangeEvaluators
-      result = (newOperands.filterOperand).filterEvaluate(context, result,
-          this.completeExpansion, newOperands.iterateOperand, this.indpndntItr,
-          true /* this is necessarily an ANDjunction */,
-          newOperands.filterOperand.isConditioningNeededForIndex(this.indpndntItr.length == 1 ? this.indpndntItr[0] : null, context, this.completeExpansion),
-          true /* evaluate projection */);
+      if (newOperands.bitmapConjunction != null) {
+        context.cachePut(BitmapConjunction.CONTEXT_KEY, newOperands.bitmapConjunction);
+      }
+      try {
+        result = (newOperands.filterOperand).filterEvaluate(context, result,
+            this.completeExpansion, newOperands.iterateOperand, this.indpndntItr,
+            true /* this is necessarily an ANDjunction */,
+            newOperands.filterOperand.isConditioningNeededForIndex(this.indpndntItr.length == 1 ? this.indpndntItr[0] : null, context, this.completeExpansion),
+            true /* evaluate projection */);
+      } finally {
+        if (newOperands.bitmapConjunction != null) {
+          context.cachePut(BitmapConjunction.CONTEXT_KEY, null);
+        }
+      }
     }
     else {
       // With multiple filter conditions, the newOperands.filterOperand is bound
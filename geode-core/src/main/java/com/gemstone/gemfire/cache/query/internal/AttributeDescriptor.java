@@ -17,19 +17,22 @@
 
 package com.gemstone.gemfire.cache.query.internal;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.lang.reflect.Modifier;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import com.gemstone.gemfire.SystemFailure;
 import com.gemstone.gemfire.cache.EntryDestroyedException;
 import com.gemstone.gemfire.cache.query.NameNotFoundException;
 import com.gemstone.gemfire.cache.query.QueryInvocationTargetException;
@@ -50,9 +53,63 @@ import com.gemstone.gemfire.pdx.JSONFormatter;
 
 
 public class AttributeDescriptor {
+  /**
+   * Whether attributes are read through method handles bound to their
+   * accessor method or field instead of through reflection.
+   *
+   * @since 9.0
+   */
+  public static final boolean USE_METHOD_HANDLES = Boolean.valueOf(
+      System.getProperty("gemfire.Query.USE_METHOD_HANDLES", "true")).booleanValue();
+
+  private static final MethodType READ_TYPE = MethodType.methodType(Object.class, Object.class);
+
+  private static final String TOKEN_CLASS_PREFIX = "com.gemstone.gemfire.internal.cache.Token$";
+
   private final String _name;
-  /** cache for remembering the correct Member for a class and attribute */
-  private static final ConcurrentMap _cache = new ConcurrentHashMap();
+  /**
+   * The accessor this descriptor used last. Descriptors kept by compiled
+   * queries mostly read objects of one class, for which this avoids the
+   * cache lookup.
+   */
+  private volatile Accessor _lastAccessor;
+  /** cache for remembering the correct Accessor for a class and attribute */
+  private static final ConcurrentMap<Class, ConcurrentMap<String, Accessor>> _cache = new ConcurrentHashMap<Class, ConcurrentMap<String, Accessor>>();
+
+  /**
+   * The Member an attribute is read from, and the method handle that reads
+   * it if one could be created.
+   */
+  static final class Accessor {
+    final Class targetClass;
+    final Member member;
+    /** of type (Object)Object, null if the member is read by reflection */
+    final MethodHandle handle;
+
+    Accessor(Class targetClass, Member member) {
+      this.targetClass = targetClass;
+      this.member = member;
+      this.handle = USE_METHOD_HANDLES ? createHandle(member) : null;
+    }
+
+    private static MethodHandle createHandle(Member m) {
+      if (Modifier.isStatic(m.getModifiers())) {
+        // static members do not take the target
+        return null;
+      }
+      try {
+        MethodHandle handle;
+        if (m instanceof Method) {
+          handle = MethodHandles.lookup().unreflect((Method)m);
+        } else {
+          handle = MethodHandles.lookup().unreflectGetter((Field)m);
+        }
+        return handle.asType(READ_TYPE);
+      } catch (IllegalAccessException e) {
+        return null;
+      }
+    }
+  }
   
   
   
@@ -90,20 +147,18 @@ public class AttributeDescriptor {
   throws NameNotFoundException, QueryInvocationTargetException {
     Support.Assert(target != null);
     Support.Assert(target != QueryService.UNDEFINED);
-    Member m;
-    if (target.getClass().getName().startsWith("com.gemstone.gemfire.internal.cache.Token$")) {
+    if (target.getClass().getName().startsWith(TOKEN_CLASS_PREFIX)) {
       return QueryService.UNDEFINED;
-    } else {
-      m = getReadMember(resolutionClass);
     }
+    Accessor accessor = getAccessor(resolutionClass);
+    if (accessor.handle != null) {
+      return invoke(accessor, target);
+    }
+    Member m = accessor.member;
     try {
       if (m instanceof Method) {
         try {
-          if (target.getClass().getName().startsWith("com.gemstone.gemfire.internal.cache.Token$")) {
-            return QueryService.UNDEFINED;
-          } else {            
-            return ((Method)m).invoke(target, (Object[])null);
-          }
+          return ((Method)m).invoke(target, (Object[])null);
         } catch (EntryDestroyedException e) {
           //eat the Exception
           return QueryService.UNDEFINED;
@@ -123,11 +178,7 @@ public class AttributeDescriptor {
         }
       } else {
         try {
-          if (target.getClass().getName().startsWith("com.gemstone.gemfire.internal.cache.Token$")) {
-            return QueryService.UNDEFINED;
-          } else {
-            return ((Field)m).get(target);
-          }  
+          return ((Field)m).get(target);
         } catch (IllegalAccessException e) {
           throw new NameNotFoundException(LocalizedStrings.AttributeDescriptor_FIELD_0_IN_CLASS_1_IS_NOT_ACCESSIBLE_TO_THE_QUERY_PROCESSOR.toLocalizedString(new Object[] {m.getName(), target.getClass().getName()}), e);
         } catch (EntryDestroyedException e) {
@@ -139,6 +190,27 @@ public class AttributeDescriptor {
       return QueryService.UNDEFINED;
     }
   }
+
+  /**
+   * Reads the attribute through the accessor's method handle, translating
+   * exceptions the way {@link Method#invoke} would be handled.
+   */
+  private static Object invoke(Accessor accessor, Object target)
+  throws QueryInvocationTargetException {
+    try {
+      return accessor.handle.invokeExact(target);
+    } catch (EntryDestroyedException e) {
+      return QueryService.UNDEFINED;
+    } catch (VirtualMachineError err) {
+      SystemFailure.initiateFailure(err);
+      // If this ever returns, rethrow the error.  We're poisoned
+      // now, so don't let this thread continue.
+      throw err;
+    } catch (Throwable t) {
+      // like Method.invoke, wrap whatever the accessor threw
+      throw new QueryInvocationTargetException(t);
+    }
+  }
   
   
   /* this method is not yet used. Here to support Update statements */
@@ -192,26 +264,46 @@ public class AttributeDescriptor {
   
   Member getReadMember(Class targetClass)
   throws NameNotFoundException {
+    return getAccessor(targetClass).member;
+  }
+
+  private Accessor getAccessor(Class targetClass)
+  throws NameNotFoundException {
+    Accessor last = _lastAccessor;
+    if (last != null && last.targetClass == targetClass) {
+      return last;
+    }
     // mapping: public field (same name), method (getAttribute()),
     // method (attribute())    
-    List key = new ArrayList();
-    key.add(targetClass);
-    key.add(_name);
-    
-    Member m = (Member)_cache.get(key);
-    if (m != null)
-      return m;
+    ConcurrentMap<String, Accessor> accessors = _cache.get(targetClass);
+    if (accessors != null) {
+      Accessor accessor = accessors.get(_name);
+      if (accessor != null) {
+        _lastAccessor = accessor;
+        return accessor;
+      }
+    } else {
+      accessors = new ConcurrentHashMap<String, Accessor>();
+      ConcurrentMap<String, Accessor> old = _cache.putIfAbsent(targetClass, accessors);
+      if (old != null) {
+        accessors = old;
+      }
+    }
     
-    m = getReadField(targetClass);
+    Member m = getReadField(targetClass);
     if (m == null)
       m = getReadMethod(targetClass);
-    if (m != null)
-      _cache.putIfAbsent(key, m);
-    else
+    if (m == null)
       throw new NameNotFoundException(LocalizedStrings.AttributeDescriptor_NO_PUBLIC_ATTRIBUTE_NAMED_0_WAS_FOUND_IN_CLASS_1.toLocalizedString(new Object[] {_name, targetClass.getName()}));
     // override security for nonpublic derived classes with public members
     ((AccessibleObject)m).setAccessible(true);
-    return m;
+    Accessor accessor = new Accessor(targetClass, m);
+    Accessor old = accessors.putIfAbsent(_name, accessor);
+    if (old != null) {
+      accessor = old;
+    }
+    _lastAccessor = accessor;
+    return accessor;
   }
   
   
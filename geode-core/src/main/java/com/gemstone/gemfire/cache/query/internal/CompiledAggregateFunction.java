@@ -16,12 +16,14 @@
  */
 package com.gemstone.gemfire.cache.query.internal;
 
+import com.gemstone.gemfire.cache.query.Aggregator;
 import com.gemstone.gemfire.cache.query.AmbiguousNameException;
 import com.gemstone.gemfire.cache.query.FunctionDomainException;
 import com.gemstone.gemfire.cache.query.NameResolutionException;
 import com.gemstone.gemfire.cache.query.QueryInvocationTargetException;
 import com.gemstone.gemfire.cache.query.TypeMismatchException;
 import com.gemstone.gemfire.cache.query.internal.aggregate.AvgBucketNode;
+import com.gemstone.gemfire.cache.query.internal.aggregate.AvgDataStoreNode;
 import com.gemstone.gemfire.cache.query.internal.aggregate.AvgDistinct;
 import com.gemstone.gemfire.cache.query.internal.aggregate.AvgDistinctPRQueryNode;
 import com.gemstone.gemfire.cache.query.internal.aggregate.AvgPRQueryNode;
@@ -31,6 +33,7 @@ import com.gemstone.gemfire.cache.query.internal.aggregate.CountDistinctPRQueryN
 import com.gemstone.gemfire.cache.query.internal.aggregate.SumDistinctPRQueryNode;
 import com.gemstone.gemfire.cache.query.internal.aggregate.CountPRQueryNode;
 import com.gemstone.gemfire.cache.query.internal.aggregate.DistinctAggregator;
+import com.gemstone.gemfire.cache.query.internal.aggregate.DistinctDataStoreNode;
 import com.gemstone.gemfire.cache.query.internal.aggregate.MaxMin;
 import com.gemstone.gemfire.cache.query.internal.aggregate.Avg;
 import com.gemstone.gemfire.cache.query.internal.aggregate.Sum;
@@ -72,6 +75,9 @@ public class CompiledAggregateFunction extends AbstractCompiledValue {
       NameResolutionException, QueryInvocationTargetException {
     boolean isPRQueryNode = context.getIsPRQueryNode();
     boolean isBucketNode = context.getBucketList() != null;
+    if (context.getCombineBucketResults()) {
+      return getDataStoreNodeAggregator();
+    }
     switch (this.aggFuncType) {
 
     case OQLLexerTokenTypes.SUM:
@@ -115,6 +121,38 @@ public class CompiledAggregateFunction extends AbstractCompiledValue {
 
   }
 
+  /**
+   * Returns the aggregator that combines the results of the bucket node
+   * aggregators on a data store, producing a result of the same form for the
+   * PR query node.
+   */
+  private Aggregator getDataStoreNodeAggregator() {
+    switch (this.aggFuncType) {
+
+    case OQLLexerTokenTypes.SUM:
+      return this.distinctOnly ? new DistinctDataStoreNode() : new Sum();
+
+    case OQLLexerTokenTypes.MAX:
+      return new MaxMin(true);
+
+    case OQLLexerTokenTypes.MIN:
+      return new MaxMin(false);
+
+    case OQLLexerTokenTypes.AVG:
+      return this.distinctOnly ? new DistinctDataStoreNode()
+          : new AvgDataStoreNode();
+
+    case OQLLexerTokenTypes.COUNT:
+      return this.distinctOnly ? new DistinctDataStoreNode()
+          : new CountPRQueryNode();
+
+    default:
+      throw new UnsupportedOperationException(
+          "Aggregate function not implemented");
+
+    }
+  }
+
   private String getStringRep() {
     switch (this.aggFuncType) {
 
@@ -117,7 +117,8 @@ public class CompiledComparison extends AbstractCompiledValue implements
           break;
         case FUNCTION:
         case PATH:
-          right = new PdxString((String) right);
+          // compare against the serialized bytes instead of serializing right
+          return TypeUtils.compareResult(((PdxString) left).compareTo((String) right), _operator);
         }
       }
     } else if (right instanceof PdxString) {
@@ -130,7 +131,7 @@ public class CompiledComparison extends AbstractCompiledValue implements
         break;
       case FUNCTION:
       case PATH:
-        left = new PdxString((String) left);
+        return TypeUtils.compareResult(-((PdxString) right).compareTo((String) left), _operator);
       }
     }
    return TypeUtils.compare(left,right,_operator);
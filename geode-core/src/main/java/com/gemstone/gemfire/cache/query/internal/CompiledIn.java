@@ -128,10 +128,17 @@ public class CompiledIn extends AbstractCompiledValue implements Indexable {
       while (iterator.hasNext()) {
         Object evalObj = evalElm;
         Object collnObj = iterator.next();
+        // compare PdxStrings against the serialized bytes without decoding them
         if (evalElm instanceof PdxString && collnObj instanceof String) {
-          evalObj = ((PdxString) evalElm).toString();
+          if (((PdxString) evalElm).compareTo((String) collnObj) == 0) {
+            return Boolean.TRUE;
+          }
+          continue;
         } else if (collnObj instanceof PdxString && evalElm instanceof String) {
-          collnObj = ((PdxString) collnObj).toString();
+          if (((PdxString) collnObj).compareTo((String) evalElm) == 0) {
+            return Boolean.TRUE;
+          }
+          continue;
         }
         if (TypeUtils.compare(evalObj, collnObj, OQLLexerTokenTypes.TOK_EQ).equals(Boolean.TRUE)) {
           return Boolean.TRUE;
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gemstone.gemfire.cache.query.internal;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.gemstone.gemfire.internal.cache.CachePerfStats;
+
+/**
+ * A bounded, least recently used cache of compiled queries, keyed by the
+ * query string. New queries with a cached query string share its compiled
+ * tree, so the query is neither parsed nor has its order by and group by
+ * types resolved again. A compiled tree is shared the same way a single
+ * query's tree is shared by its concurrent executions. It is not immutable:
+ * CompiledSelect transforms itself on its first execution and remembers
+ * the types it resolved, but those changes depend only on the query string
+ * and the region's indexes, so they are the same for every query sharing
+ * the tree.
+ * 
+ * A compiled query is dropped when an index is created or removed on a
+ * region it refers to. Queries whose FROM clause takes a region from a bind
+ * argument are dropped on any index change. A query compiled across an
+ * index change is not cached.
+ * 
+ * @since 9.0
+ */
+public class CompiledQueryCache {
+
+  /**
+   * System property for the maximum number of compiled queries kept by a
+   * cache. Zero disables the cache.
+   */
+  public static final int MAX_SIZE = Integer.getInteger(
+      "gemfire.Query.COMPILED_QUERY_CACHE_SIZE", 1000).intValue();
+
+  /**
+   * A compiled query and the paths of the regions it refers to
+   */
+  public static final class Entry {
+    final CompiledValue compiledQuery;
+    final boolean traceRequested;
+    // null if the query may refer to any region
+    final Set<String> regionPaths;
+
+    Entry(CompiledValue compiledQuery, boolean traceRequested, Set<String> regionPaths) {
+      this.compiledQuery = compiledQuery;
+      this.traceRequested = traceRequested;
+      this.regionPaths = regionPaths;
+    }
+  }
+
+  private final CachePerfStats stats;
+
+  // guarded by compiledQueries
+  private long indexVersion;
+
+  private final Map<String, Entry> compiledQueries;
+
+  public CompiledQueryCache(CachePerfStats stats) {
+    this(MAX_SIZE, stats);
+  }
+
+  public CompiledQueryCache(final int maxSize, CachePerfStats stats) {
+    this.stats = stats;
+    this.compiledQueries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+
+  /**
+   * Returns the current index version, to be passed to {@link #put} once the
+   * query has been compiled.
+   */
+  public long getIndexVersion() {
+    synchronized (this.compiledQueries) {
+      return this.indexVersion;
+    }
+  }
+
+  /**
+   * Returns the compiled query for the query string, or null if it is not
+   * cached.
+   */
+  public Entry get(String queryString) {
+    Entry entry;
+    synchronized (this.compiledQueries) {
+      entry = this.compiledQueries.get(queryString);
+    }
+    if (entry != null) {
+      this.stats.incCompiledQueryCacheHits();
+    } else {
+      this.stats.incCompiledQueryCacheMisses();
+    }
+    return entry;
+  }
+
+  /**
+   * Caches a query compiled at the given index version, unless an index has
+   * changed since.
+   */
+  public void put(String queryString, CompiledValue compiledQuery,
+      boolean traceRequested, long indexVersion) {
+    Entry entry = new Entry(compiledQuery, traceRequested, getRegionPaths(compiledQuery));
+    synchronized (this.compiledQueries) {
+      if (indexVersion == this.indexVersion) {
+        this.compiledQueries.put(queryString, entry);
+      }
+    }
+  }
+
+  /**
+   * Invalidates the compiled queries that refer to a region when one of its
+   * indexes is created or removed.
+   */
+  public void indexesChanged(String regionPath) {
+    synchronized (this.compiledQueries) {
+      this.indexVersion++;
+      for (Iterator<Entry> it = this.compiledQueries.values().iterator(); it.hasNext();) {
+        Set<String> regionPaths = it.next().regionPaths;
+        if (regionPaths == null || regionPaths.contains(regionPath)) {
+          it.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the paths of the regions a compiled query refers to, or null if
+   * its FROM clause may take a region from a bind argument.
+   */
+  static Set<String> getRegionPaths(CompiledValue compiledQuery) {
+    Set<String> regionPaths = new HashSet<String>();
+    return addRegionPaths(compiledQuery, false, regionPaths) ? regionPaths : null;
+  }
+
+  private static boolean addRegionPaths(CompiledValue node, boolean inFromClause,
+      Set<String> regionPaths) {
+    if (node instanceof CompiledRegion) {
+      regionPaths.add(((CompiledRegion)node).getRegionPath());
+    } else if (node instanceof CompiledBindArgument && inFromClause) {
+      return false;
+    }
+    inFromClause |= node instanceof CompiledIteratorDef;
+    for (Object child : node.getChildren()) {
+      if (child != null && !addRegionPaths((CompiledValue)child, inFromClause, regionPaths)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int size() {
+    synchronized (this.compiledQueries) {
+      return this.compiledQueries.size();
+    }
+  }
+}
@@ -69,11 +69,15 @@ public class CompiledSelect extends AbstractCompiledValue {
   private CompiledValue limit;
   //Shobhit: counts the no of results satisfying where condition for
   // count(*) non-distinct queries where no indexes are used.
-  private int countStartQueryResult = 0;
+  // the key of the count of a count(*) query in the execution cache
+  private final Object countStartQueryResultKey = new Object();
   
   protected List<CompiledValue> groupBy = null;
   //Are not serialized and are recreated when compiling the query
   private List<String> hints;
+  // number of workers requested by a PARALLEL hint; 0 means the member default
+  private boolean parallelHint = false;
+  private int parallelism = 0;
   protected boolean transformationDone = false;
   protected ObjectType cachedElementTypeForOrderBy = null;
   private boolean hasUnmappedOrderByCols = false; 
@@ -94,6 +98,15 @@ public class CompiledSelect extends AbstractCompiledValue {
    */
   private final static String CLAUSE_EVALUATED = "Evaluated";
 
+  /**
+   * Hint that asks for the query to be split across worker threads on each
+   * member that hosts its data, e.g. <code>&lt;HINT 'PARALLEL'&gt;</code> or
+   * <code>&lt;HINT 'PARALLEL(8)'&gt;</code>. Like any other hint it is also
+   * kept in the index hints, so that an index named PARALLEL can still be
+   * hinted.
+   */
+  public static final String PARALLEL_HINT = "PARALLEL";
+
   public CompiledSelect(boolean distinct, boolean count, CompiledValue whereClause,
                         List iterators, List projAttrs,List<CompiledSortCriterion> orderByAttrs, CompiledValue limit,
                         List<String> hints, List<CompiledValue> groupByClause) {
@@ -105,6 +118,7 @@ public class CompiledSelect extends AbstractCompiledValue {
     this.count = count;
     this.limit = limit;
     this.hints = hints;
+    findParallelHint(hints);
     this.groupBy = groupByClause;
      
   }
@@ -136,6 +150,61 @@ public class CompiledSelect extends AbstractCompiledValue {
     return this.distinct;
   }
   
+  /**
+   * Looks for a {@link #PARALLEL_HINT} in the given hints.
+   */
+  private void findParallelHint(List<String> hints) {
+    if (hints == null) {
+      return;
+    }
+    for (String hint : hints) {
+      int workers = parseParallelHint(hint);
+      if (workers >= 0) {
+        this.parallelHint = true;
+        this.parallelism = workers;
+      }
+    }
+  }
+
+  /**
+   * @return -1 if the hint is not a {@link #PARALLEL_HINT}, 0 if it does not
+   *         give a number of workers, otherwise the number of workers
+   */
+  static int parseParallelHint(String hint) {
+    String h = hint.trim();
+    if (h.equalsIgnoreCase(PARALLEL_HINT)) {
+      return 0;
+    }
+    if (h.length() > PARALLEL_HINT.length() + 2
+        && h.regionMatches(true, 0, PARALLEL_HINT, 0, PARALLEL_HINT.length())
+        && h.charAt(PARALLEL_HINT.length()) == '(' && h.endsWith(")")) {
+      try {
+        int workers = Integer.parseInt(h.substring(PARALLEL_HINT.length() + 1, h.length() - 1).trim());
+        if (workers > 0) {
+          return workers;
+        }
+      } catch (NumberFormatException ignore) {
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return true if the query was hinted to run in parallel on each member
+   * @see #PARALLEL_HINT
+   */
+  public boolean isParallelHinted() {
+    return this.parallelHint;
+  }
+
+  /**
+   * @return the number of workers given in the parallel hint, or 0 to use
+   *         the member default
+   */
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
   public boolean isGroupBy() { 
     return this.groupBy != null;
   }
@@ -519,11 +588,12 @@ public class CompiledSelect extends AbstractCompiledValue {
                 canApplyOrderByAtIndex = true;
                 if (this.orderByAttrs.size() == 1) {
                   needsTopLevelOrdering = false;
-                  //If there is a limit present and we are executing on a partitioned region
-                  //we should use a sorted set
+                  //If there is a limit present and we are executing on several buckets
+                  //of a partitioned region we should use a sorted set. The index of a
+                  //single bucket returns its top rows in order, ending the scan at the limit
                   if (this.limit != null) {
                     //Currently check bucket list to determine if it's a pr query
-                    if (context.getBucketList() != null && context.getBucketList().size() > 0) {
+                    if (context.getBucketList() != null && context.getBucketList().size() > 1) {
                       needsTopLevelOrdering = true;
                     } 
                   }
@@ -611,7 +681,7 @@ public class CompiledSelect extends AbstractCompiledValue {
         if (this.count) {
           SelectResults res = (SelectResults) result;
           
-          if ((this.distinct || evalAsFilters || countStartQueryResult == 0)) {
+          if ((this.distinct || evalAsFilters || getCountStartQueryResult(context)[0] == 0)) {
             // Retrun results as it is as distinct is applied
             // at coordinator node for PR queries.
             if (context.getBucketList() != null && this.distinct) {
@@ -626,7 +696,7 @@ public class CompiledSelect extends AbstractCompiledValue {
             result = countResult;
 
           } else {
-            ((ResultsBag)res).addAndGetOccurence(countStartQueryResult);
+            ((ResultsBag)res).addAndGetOccurence(getCountStartQueryResult(context)[0]);
           }
         }
       }
@@ -843,7 +913,7 @@ public class CompiledSelect extends AbstractCompiledValue {
       if (this.whereClause == null && iterators.size() == 1 && isCount() && !isDistinct() && 
           sr instanceof QRegion) {
         QRegion qr = (QRegion)sr;
-        countStartQueryResult = qr.getRegion().size();
+        getCountStartQueryResult(context)[0] = qr.getRegion().size();
         return 1;
       }
 
@@ -953,7 +1023,8 @@ public class CompiledSelect extends AbstractCompiledValue {
   }
 
   private SelectResults prepareEmptyResultSet(ExecutionContext context, boolean ignoreOrderBy)
-      throws TypeMismatchException, AmbiguousNameException
+      throws TypeMismatchException, AmbiguousNameException, FunctionDomainException,
+      NameResolutionException, QueryInvocationTargetException
  {
     // Asif:if no projection attributes or '*'as projection attribute
     // & more than one/RunTimeIterator then create a StrcutSet.
@@ -986,6 +1057,7 @@ public class CompiledSelect extends AbstractCompiledValue {
             results = this.distinct ? new SortedStructSet(comparator,
                 (StructTypeImpl) elementType) : new SortedStructBag(comparator,
                 (StructTypeImpl) elementType, nullValuesAtStart);
+            applyLimitToSortedResults(results, context);
 
           }
         } else {
@@ -999,6 +1071,7 @@ public class CompiledSelect extends AbstractCompiledValue {
                 : new OrderByComparator(this.orderByAttrs, elementType, context);
             results = this.distinct ? new SortedResultSet(comparator)
                 : new SortedResultsBag(comparator, nullValuesAtStart);
+            applyLimitToSortedResults(results, context);
           }
           results.setElementType(elementType);
         }
@@ -1030,12 +1103,48 @@ public class CompiledSelect extends AbstractCompiledValue {
                                                                      * value
                                                                      */,
           context.getCachePerfStats());
-      countStartQueryResult = 0;
+      getCountStartQueryResult(context)[0] = 0;
 
     }
    return results;   
   }
   
+  /**
+   * Returns the holder of the count of a count(*) query. The count is kept in
+   * the execution cache as this CompiledSelect is shared by the concurrent
+   * executions of the query.
+   */
+  private int[] getCountStartQueryResult(ExecutionContext context) {
+    int[] count = (int[]) context.cacheGet(this.countStartQueryResultKey);
+    if (count == null) {
+      count = new int[1];
+      context.cachePut(this.countStartQueryResultKey, count);
+    }
+    return count;
+  }
+
+  /**
+   * Bounds the sorted results of an order by query with a limit to the limit,
+   * so that only the top rows are kept as they are added. On a partitioned
+   * region each bucket then returns at most limit rows for the n-way merge.
+   */
+  private void applyLimitToSortedResults(SelectResults results,
+      ExecutionContext context) throws FunctionDomainException,
+      TypeMismatchException, NameResolutionException,
+      QueryInvocationTargetException {
+    int limitValue = evaluateLimitValue(context, this.limit);
+    if (limitValue < 0) {
+      return;
+    }
+    if (results instanceof SortedResultsBag) {
+      ((SortedResultsBag) results).setMaxSize(limitValue);
+    } else if (results instanceof SortedStructSet) {
+      ((SortedStructSet) results).setMaxSize(limitValue);
+    } else if (results instanceof SortedResultSet) {
+      ((SortedResultSet) results).setMaxSize(limitValue);
+    }
+  }
+
   protected ObjectType prepareResultType(ExecutionContext context)
       throws TypeMismatchException, AmbiguousNameException
   {
@@ -1233,10 +1342,10 @@ public class CompiledSelect extends AbstractCompiledValue {
       // Shobhit: Add count value to the counter for this select expression.
       // Don't care about Order By for count(*).
       if (isCount() && !this.distinct) {
-        // Counter is local to CompileSelect and not available in ResultSet
-        // until
+        // Counter is kept in the execution cache and not available in
+        // ResultSet until
         // the end of evaluate call to this CompiledSelect object.
-        this.countStartQueryResult++;
+        getCountStartQueryResult(context)[0]++;
         occurence = 1;
       } else {
         // if order by is present
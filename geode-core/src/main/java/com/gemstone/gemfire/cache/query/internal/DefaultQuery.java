@@ -50,11 +50,13 @@ import com.gemstone.gemfire.cache.query.RegionNotFoundException;
 import com.gemstone.gemfire.cache.query.SelectResults;
 import com.gemstone.gemfire.cache.query.TypeMismatchException;
 import com.gemstone.gemfire.cache.query.internal.cq.InternalCqQuery;
+import com.gemstone.gemfire.cache.query.internal.index.IndexManager;
 import com.gemstone.gemfire.internal.NanoTimer;
 import com.gemstone.gemfire.internal.cache.BucketRegion;
 import com.gemstone.gemfire.internal.cache.CachePerfStats;
 import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
 import com.gemstone.gemfire.internal.cache.LocalDataSet;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
 import com.gemstone.gemfire.internal.cache.PRQueryProcessor;
 import com.gemstone.gemfire.internal.cache.PartitionedRegion;
 import com.gemstone.gemfire.internal.cache.TXManagerImpl;
@@ -98,6 +100,14 @@ public class DefaultQuery implements Query {
 
   public static int TEST_COMPILED_QUERY_CLEAR_TIME = -1;
 
+  /**
+   * System property with the time in milliseconds a query waits for the
+   * pending updates of asynchronously maintained indexes before it is
+   * evaluated. By default queries do not wait.
+   */
+  public static final long ASYNC_INDEX_WAIT_TIME = Long.getLong(
+      "gemfire.Query.ASYNC_INDEX_WAIT_TIME", 0).longValue();
+
   // Use to represent null result.
   // Used while adding PR results to the results-queue, which is a blocking queue.
   public static final Object NULL_RESULT = new Object();
@@ -270,18 +280,30 @@ public class DefaultQuery implements Query {
    */
   public DefaultQuery(String queryString, Cache cache, boolean isForRemote) {
     this.queryString = queryString;
-    QCompiler compiler = new QCompiler();
-    this.compiledQuery = compiler.compileQuery(queryString);
-    CompiledSelect cs = this.getSimpleSelect();
-    if(cs != null && !isForRemote && (cs.isGroupBy() || cs.isOrderBy())) {
-      QueryExecutionContext ctx = new QueryExecutionContext(null, cache);
-      try {
-        cs.computeDependencies(ctx);       
-      }catch(QueryException qe) {
-        throw new QueryInvalidException("",qe);
+    CompiledQueryCache queryCache = isForRemote || !(cache instanceof GemFireCacheImpl) ? null
+        : ((GemFireCacheImpl)cache).getCompiledQueryCache();
+    CompiledQueryCache.Entry cached = queryCache == null ? null : queryCache.get(queryString);
+    if (cached != null) {
+      this.compiledQuery = cached.compiledQuery;
+      this.traceOn = (cached.traceRequested || QUERY_VERBOSE);
+    } else {
+      long indexVersion = queryCache == null ? 0 : queryCache.getIndexVersion();
+      QCompiler compiler = new QCompiler();
+      this.compiledQuery = compiler.compileQuery(queryString);
+      CompiledSelect cs = this.getSimpleSelect();
+      if(cs != null && !isForRemote && (cs.isGroupBy() || cs.isOrderBy())) {
+        QueryExecutionContext ctx = new QueryExecutionContext(null, cache);
+        try {
+          cs.computeDependencies(ctx);       
+        }catch(QueryException qe) {
+          throw new QueryInvalidException("",qe);
+        }
+      }
+      this.traceOn = (compiler.isTraceRequested() || QUERY_VERBOSE);
+      if (queryCache != null) {
+        queryCache.put(queryString, this.compiledQuery, compiler.isTraceRequested(), indexVersion);
       }
     }
-    this.traceOn = (compiler.isTraceRequested() || QUERY_VERBOSE);
     this.cache = cache;
     this.stats = new DefaultQueryStatistics();
   }
@@ -566,6 +588,9 @@ public class DefaultQuery implements Query {
       if (DefaultQuery.testHook != null) {
         DefaultQuery.testHook.doTestHook(6);
       }
+      if (ASYNC_INDEX_WAIT_TIME > 0) {
+        waitForAsyncIndexUpdates(context);
+      }
       try {
         // two-pass evaluation.
         // first pre-compute dependencies, cached in the context.
@@ -605,6 +630,36 @@ public class DefaultQuery implements Query {
   }
 
 
+  /**
+   * Waits for the asynchronous index updates of the regions and local buckets
+   * this query runs on, so that updates made before the query are visible
+   * through the indexes.
+   */
+  private void waitForAsyncIndexUpdates(ExecutionContext context) {
+    long deadline = System.currentTimeMillis() + ASYNC_INDEX_WAIT_TIME;
+    for (Iterator itr = getRegionsInQuery(context.bindArguments).iterator(); itr.hasNext(); ) {
+      Region rgn = this.cache.getRegion((String)itr.next());
+      if (rgn instanceof PartitionedRegion) {
+        PartitionedRegion pr = (PartitionedRegion)rgn;
+        if (context.getBucketList() == null || pr.getDataStore() == null) {
+          continue;
+        }
+        for (Object bucketId : context.getBucketList()) {
+          waitForAsyncIndexUpdates(pr.getDataStore().getLocalBucketById((Integer)bucketId), deadline);
+        }
+      } else if (rgn instanceof LocalRegion) {
+        waitForAsyncIndexUpdates((LocalRegion)rgn, deadline);
+      }
+    }
+  }
+
+  private void waitForAsyncIndexUpdates(LocalRegion rgn, long deadline) {
+    IndexManager indexManager = rgn == null ? null : rgn.getIndexManager();
+    if (indexManager != null && !indexManager.isIndexMaintenanceTypeSynchronous()) {
+      indexManager.waitForAsyncIndexUpdates(Math.max(0, deadline - System.currentTimeMillis()));
+    }
+  }
+
   private QueryExecutor checkQueryOnPR(Object[] parameters) throws RegionNotFoundException {
 
     // check for PartititionedRegions. If a PartitionedRegion is referred to in the query,
@@ -89,6 +89,11 @@ public class ExecutionContext {
   private boolean distinct = false;
   private Object currentProjectionField = null;
   private boolean isPRQueryNode = false;
+  /**
+   * Set on a data store that combines the group by results of its buckets
+   * before sending them to the PR query node
+   */
+  private boolean combineBucketResults = false;
   /**
    * Param specialIteratorVar name of special variable to use to denote the
    * current iteration element. Used to implement the "this" var in the query
@@ -730,5 +735,13 @@ public class ExecutionContext {
   public boolean getIsPRQueryNode() {
     return this.isPRQueryNode;
   }
+
+  public void setCombineBucketResults(boolean combineBucketResults) {
+    this.combineBucketResults = combineBucketResults;
+  }
+
+  public boolean getCombineBucketResults() {
+    return this.combineBucketResults;
+  }
   
 }
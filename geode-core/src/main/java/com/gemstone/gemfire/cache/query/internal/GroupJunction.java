@@ -20,11 +20,19 @@
 package com.gemstone.gemfire.cache.query.internal;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import com.gemstone.gemfire.cache.query.FunctionDomainException;
+import com.gemstone.gemfire.cache.query.Index;
 import com.gemstone.gemfire.cache.query.NameResolutionException;
 import com.gemstone.gemfire.cache.query.QueryInvocationTargetException;
 import com.gemstone.gemfire.cache.query.TypeMismatchException;
+import com.gemstone.gemfire.cache.query.internal.index.AbstractIndex;
+import com.gemstone.gemfire.cache.query.internal.index.BitmapConjunction;
+import com.gemstone.gemfire.cache.query.internal.index.IndexManager;
 
 /**
  * This structure contains the filter evaluable and iter evaluable
@@ -81,6 +89,7 @@ public class GroupJunction extends AbstractGroupOrRangeJunction {
     List evalOperands = new ArrayList(_operands.length);
     int indexCount = 0;
     boolean foundPreferredCondition = false; 
+    BitmapConjunction bitmapConjunction = null;
     if (this.getOperator() == LITERAL_and) {
       if (context instanceof QueryExecutionContext && ((QueryExecutionContext)context).hasHints() && ((QueryExecutionContext)context).hasMultiHints()) {
         //Hint was provided, so allow multi index usage
@@ -170,6 +179,7 @@ public class GroupJunction extends AbstractGroupOrRangeJunction {
           }
         }
         evalOperands.add(0, currentBestFilter);
+        bitmapConjunction = getBitmapConjunction(currentBestFilter, context);
       }
     }else {
       indexCount =_operands.length ;
@@ -181,7 +191,121 @@ public class GroupJunction extends AbstractGroupOrRangeJunction {
     if(getIterOperands() != null) {
       evalOperands.add(getIterOperands());
     }
-    return createOrganizedOperandsObject(indexCount,evalOperands);    
+    OrganizedOperands result = createOrganizedOperandsObject(indexCount,evalOperands);
+    result.bitmapConjunction = bitmapConjunction;
+    return result;
+  }
+
+  /**
+   * Collects the equality and IN conditions on bitmap indexes that the
+   * lookup of the filter of this AND junction can be restricted by. None are
+   * collected when the junction has a subquery, whose own index lookups must
+   * not be restricted.
+   * @return the conditions, or null if there are none
+   * @see BitmapConjunction
+   */
+  private BitmapConjunction getBitmapConjunction(Filter filter,
+      ExecutionContext context) throws FunctionDomainException,
+      TypeMismatchException, NameResolutionException,
+      QueryInvocationTargetException {
+    IndexInfo filterInfo = getBitmapIndexInfo((CompiledValue)filter, context);
+    if (filterInfo == null || containsSelect(getIterOperands())) {
+      return null;
+    }
+    List<IndexInfo> infos = new ArrayList<IndexInfo>();
+    List<CompiledValue> operands = new ArrayList<CompiledValue>();
+    for (int i = 0; i < _operands.length; i++) {
+      if (containsSelect(_operands[i])) {
+        return null;
+      }
+      IndexInfo info = _operands[i] == filter ? null : getBitmapIndexInfo(_operands[i], context);
+      if (info != null) {
+        infos.add(info);
+        operands.add(_operands[i]);
+      }
+    }
+    if (infos.isEmpty()) {
+      return null;
+    }
+    Collection filterKeys = getBitmapIndexKeys((CompiledValue)filter, filterInfo, context);
+    if (filterKeys == null) {
+      return null;
+    }
+    BitmapConjunction conjunction = new BitmapConjunction(
+        ((Index)filterInfo._getIndex()).getName(), filterKeys);
+    for (int i = 0; i < infos.size(); i++) {
+      Collection keys = getBitmapIndexKeys(operands.get(i), infos.get(i), context);
+      if (keys != null) {
+        conjunction.addCondition(((Index)infos.get(i)._getIndex()).getName(), keys);
+      }
+    }
+    return conjunction.isEmpty() ? null : conjunction;
+  }
+
+  /**
+   * @return the index info of an equality or IN condition on a bitmap index,
+   *         or null
+   */
+  private static IndexInfo getBitmapIndexInfo(CompiledValue operand,
+      ExecutionContext context) throws TypeMismatchException,
+      NameResolutionException {
+    IndexInfo[] infos;
+    if (operand instanceof CompiledComparison
+        && ((CompiledComparison)operand).getOperator() == TOK_EQ) {
+      infos = ((CompiledComparison)operand).getIndexInfo(context);
+    } else if (operand instanceof CompiledIn) {
+      infos = ((CompiledIn)operand).getIndexInfo(context);
+    } else {
+      return null;
+    }
+    if (infos == null || infos.length != 1 || infos[0]._operator() != TOK_EQ
+        || ((AbstractIndex)infos[0]._getIndex()).isMapType()
+        || !IndexManager.isBitmapIndex(((Index)infos[0]._getIndex()).getName())) {
+      return null;
+    }
+    return infos[0];
+  }
+
+  /**
+   * @return the keys an equality or IN condition looks up, or null if they
+   *         are not a collection
+   */
+  private static Collection getBitmapIndexKeys(CompiledValue operand,
+      IndexInfo info, ExecutionContext context) throws FunctionDomainException,
+      TypeMismatchException, NameResolutionException,
+      QueryInvocationTargetException {
+    Object key = info.evaluateIndexKey(context);
+    if (!(operand instanceof CompiledIn)) {
+      return Collections.singleton(key);
+    } else if (key instanceof Collection) {
+      return (Collection)key;
+    } else if (key instanceof Object[]) {
+      return Arrays.asList((Object[])key);
+    }
+    return null;
+  }
+
+  private static boolean containsSelect(CompiledValue value) {
+    if (value == null) {
+      return false;
+    }
+    if (value instanceof CompiledSelect) {
+      return true;
+    }
+    List children = value.getChildren();
+    if (value instanceof AbstractGroupOrRangeJunction) {
+      AbstractGroupOrRangeJunction junction = (AbstractGroupOrRangeJunction)value;
+      if (containsSelect(junction.getIterOperands())) {
+        return true;
+      }
+      children = Arrays.asList(junction._operands);
+    }
+    for (Iterator itr = children.iterator(); itr.hasNext();) {
+      if (containsSelect((CompiledValue)itr.next())) {
+        return true;
+      }
+    }
+    return false;
   }
   
   public int getSizeEstimate(ExecutionContext context)throws FunctionDomainException, TypeMismatchException, NameResolutionException, QueryInvocationTargetException  {
@@ -19,8 +19,12 @@ package com.gemstone.gemfire.cache.query.internal;
 
 
 import java.util.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.*;
 
+import com.gemstone.gemfire.SystemFailure;
 import com.gemstone.gemfire.cache.query.*;
 import com.gemstone.gemfire.cache.query.internal.types.TypeUtils;
 import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
@@ -38,6 +42,8 @@ public class MethodDispatch
     private String _methodName;
     private Class[] _argTypes;
     private Method _method; // remember the right method
+    // invokes _method as (Object, Object[])Object, null if reflection is used
+    private MethodHandle _handle;
     
     
     public MethodDispatch(Class targetClass, String methodName, List argTypes)
@@ -51,6 +57,35 @@ public class MethodDispatch
             // override security in case this is a method on a nonpublic class
             // with a public method
         _method.setAccessible(true);
+        if (AttributeDescriptor.USE_METHOD_HANDLES)
+            _handle = createHandle(_method);
+    }
+
+    /**
+     * Returns a handle invoking the method with an argument array, or null
+     * if the method is better invoked through reflection. Methods with
+     * primitive parameters are left to reflection, whose argument conversions
+     * and errors the query engine relies on.
+     */
+    private static MethodHandle createHandle(Method method)
+    {
+        if (Modifier.isStatic(method.getModifiers()))
+            return null;
+        Class[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++)
+            if (parameterTypes[i].isPrimitive())
+                return null;
+        try
+        {
+            return MethodHandles.lookup().unreflect(method)
+                .asFixedArity()
+                .asSpreader(Object[].class, parameterTypes.length)
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+        }
+        catch (IllegalAccessException e)
+        {
+            return null;
+        }
     }
 
     
@@ -60,6 +95,25 @@ public class MethodDispatch
     {
         Object[] argsArray = args.toArray();
         
+        if (_handle != null)
+        {
+            try
+            {
+                return _handle.invokeExact(target, argsArray);
+            }
+            catch (VirtualMachineError err)
+            {
+                SystemFailure.initiateFailure(err);
+                // If this ever returns, rethrow the error.  We're poisoned
+                // now, so don't let this thread continue.
+                throw err;
+            }
+            catch (Throwable t)
+            {
+                    // like Method.invoke, wrap whatever the method threw
+                throw new QueryInvocationTargetException(t);
+            }
+        }
        
         try
         {
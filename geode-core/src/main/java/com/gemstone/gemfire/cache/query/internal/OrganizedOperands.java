@@ -21,6 +21,8 @@
  */
 package com.gemstone.gemfire.cache.query.internal;
 
+import com.gemstone.gemfire.cache.query.internal.index.BitmapConjunction;
+
 /**
  * Helper class object which gets created during organization of operands in a
  * GroupJunction or a CompiledJunction. The filterOperand refers to a filter
@@ -51,4 +53,9 @@ class OrganizedOperands  {
    * as evident from the the auxFilterEvauate function of this class.
    */
   boolean isSingleFilter;
+  /**
+   * The bitmap index conditions that restrict the index lookup of a single
+   * filter operand of an AND junction, or null.
+   */
+  BitmapConjunction bitmapConjunction;
 }
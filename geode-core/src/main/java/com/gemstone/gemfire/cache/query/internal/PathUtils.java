@@ -60,6 +60,16 @@ public class PathUtils {
   }
   
   public static Object evaluateAttribute(Object target, String attribute)
+  throws NameNotFoundException, QueryInvocationTargetException {
+    return evaluateAttribute(target, attribute, null);
+  }
+
+  /**
+   * Evaluates the attribute using the given descriptor, which callers that
+   * evaluate the same attribute for many targets keep to reuse its
+   * resolved accessors. A new descriptor is used if it is null.
+   */
+  public static Object evaluateAttribute(Object target, String attribute, AttributeDescriptor attributeDescriptor)
   throws NameNotFoundException, QueryInvocationTargetException {
     if(target instanceof Struct){
       Struct struct = (Struct)target;
@@ -69,8 +79,11 @@ public class PathUtils {
         throw new NameNotFoundException(attribute);
       }
     }
+    if (attributeDescriptor == null) {
+      attributeDescriptor = new AttributeDescriptor(attribute);
+    }
     try {
-      return new AttributeDescriptor(attribute).read(target);
+      return attributeDescriptor.read(target);
     } catch (NameNotFoundException nfe) {
       if (DefaultQueryService.QUERY_HETEROGENEOUS_OBJECTS ||
           DefaultQueryService.TEST_QUERY_HETEROGENEOUS_OBJECTS) {
@@ -81,26 +94,6 @@ public class PathUtils {
     }
   }
 
-  /*
-   * This was added as part of CQ performance changes.
-   * The change is done to re-use the AttributeDescriptor object instead of creating
-   * it each time. 
-   */
-  /*
-  public static Object evaluateAttribute(Object target, String attribute, AttributeDescriptor attributeDescriptor)
-  throws NameNotFoundException, QueryInvocationTargetException {
-    if(target instanceof Struct){
-      Struct struct = (Struct)target;
-      try{
-        return struct.get(attribute);
-      }catch(Exception e){
-        throw new NameNotFoundException(attribute);
-      }
-    }
-    return attributeDescriptor.read(target);
-  }
-  */
-  
   /**
    * @param pathArray the path starting with an attribute on
    * the initial type.
@@ -40,6 +40,8 @@ public final class SortedResultSet extends TreeSet implements SelectResults, Ord
 
   private ObjectType elementType;
 
+  private int maxSize = -1;
+
   public SortedResultSet() {
   }
 
@@ -80,6 +82,25 @@ public final class SortedResultSet extends TreeSet implements SelectResults, Ord
     this.elementType = elementType;
   }
 
+  /**
+   * Bounds the set to the first maxSize elements in sort order, evicting the
+   * last element whenever an addition goes past the bound.
+   * 
+   * @param maxSize the number of elements to keep
+   */
+  void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  @Override
+  public boolean add(Object element) {
+    boolean added = super.add(element);
+    if (this.maxSize > -1 && size() > this.maxSize) {
+      pollLast();
+    }
+    return added;
+  }
+
   public List asList() {
     return new ArrayList(this);
   }
@@ -43,6 +43,7 @@ public class SortedResultsBag<E> extends Bag implements Ordered {
   private final Map<E, Integer> sortedMap;
   private final boolean orderedDataAddition;
   private final boolean emitNullAtStart; 
+  private int maxSize = -1;
 
   /**
    * Constructor for unordered input
@@ -147,6 +148,52 @@ public class SortedResultsBag<E> extends Bag implements Ordered {
     this.emitNullAtStart = nullAtStart;
   }
 
+  /**
+   * Bounds an unordered input bag to the first maxSize elements in sort order.
+   * The last element is evicted whenever an addition goes past the bound, so
+   * an order by query with a limit holds at most limit elements while it is
+   * evaluated.
+   * 
+   * @param maxSize the number of elements to keep
+   */
+  void setMaxSize(int maxSize) {
+    assert !this.orderedDataAddition;
+    this.maxSize = maxSize;
+  }
+
+  @Override
+  public boolean add(Object element) {
+    boolean added = super.add(element);
+    evictBeyondMaxSize();
+    return added;
+  }
+
+  @Override
+  public int addAndGetOccurence(Object element) {
+    int occurence = super.addAndGetOccurence(element);
+    evictBeyondMaxSize();
+    return occurence;
+  }
+
+  private void evictBeyondMaxSize() {
+    if (this.maxSize < 0) {
+      return;
+    }
+    while (this.size > this.maxSize) {
+      if (this.numNulls > 0
+          && (!this.emitNullAtStart || this.sortedMap.isEmpty())) {
+        this.numNulls--;
+      } else {
+        Map.Entry<E, Integer> last = ((TreeMap<E, Integer>) this.sortedMap)
+            .pollLastEntry();
+        if (last.getValue() > 1) {
+          this.sortedMap.put(last.getKey(), last.getValue() - 1);
+        }
+      }
+      this.size--;
+    }
+  }
+
   @Override
   public boolean isModifiable() {
     return false;
@@ -46,6 +46,8 @@ public final class SortedStructSet extends TreeSet implements SelectResults,
    */
   private boolean modifiable = true;
 
+  private int maxSize = -1;
+
   /** Creates a new instance of StructSet */
   public SortedStructSet() {
   };
@@ -109,7 +111,21 @@ public final class SortedStructSet extends TreeSet implements SelectResults,
    * For internal use. Just add the Object[] values for a struct with same type
    */
   public boolean addFieldValues(Object[] fieldValues) {
-    return super.add(fieldValues);
+    boolean added = super.add(fieldValues);
+    if (this.maxSize > -1 && size() > this.maxSize) {
+      pollLast();
+    }
+    return added;
+  }
+
+  /**
+   * Bounds the set to the first maxSize structs in sort order, evicting the
+   * last struct whenever an addition goes past the bound.
+   * 
+   * @param maxSize the number of structs to keep
+   */
+  void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
   }
 
   /**
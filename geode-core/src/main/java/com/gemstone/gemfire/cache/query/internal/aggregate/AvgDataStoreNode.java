@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.aggregate;
+
+/**
+ * Combines the non distinct averages of the buckets hosted by a data store
+ * before they are sent to the PR query node. Like {@link AvgBucketNode} the
+ * result is a two element array of the number of values & their sum.
+ * 
+ * @since 9.0
+ */
+public class AvgDataStoreNode extends Sum {
+  private int count = 0;
+
+  /**
+   * Takes the two element array computed by {@link AvgBucketNode} for a
+   * bucket.
+   */
+  @Override
+  public void accumulate(Object value) {
+    Object[] array = (Object[]) value;
+    this.count += ((Integer) array[0]).intValue();
+    super.accumulate(array[1]);
+  }
+
+  @Override
+  public Object terminate() {
+    return new Object[] { Integer.valueOf(count), super.terminate() };
+  }
+}
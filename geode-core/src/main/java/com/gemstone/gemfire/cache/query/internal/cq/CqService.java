@@ -36,6 +36,7 @@ import com.gemstone.gemfire.cache.query.QueryInvalidException;
 import com.gemstone.gemfire.cache.query.RegionNotFoundException;
 import com.gemstone.gemfire.distributed.internal.DistributionAdvisor.Profile;
 import com.gemstone.gemfire.internal.cache.EventID;
+import com.gemstone.gemfire.internal.cache.FilterProfile;
 import com.gemstone.gemfire.internal.cache.FilterRoutingInfo;
 import com.gemstone.gemfire.internal.cache.tier.sockets.CacheClientNotifier;
 import com.gemstone.gemfire.internal.cache.tier.sockets.ClientProxyMembershipID;
@@ -190,6 +191,21 @@ public interface CqService {
 
   public abstract void processEvents(CacheEvent event, Profile localProfile,
       Profile[] profiles, FilterRoutingInfo frInfo) throws CqException;
+
+  /**
+   * Called after a CQ has been added to the CQ map of a filter profile.
+   * @param profile the filter profile
+   * @param serverCqName the name the CQ has in the profile
+   * @param cq the CQ
+   */
+  public void cqAdded(FilterProfile profile, String serverCqName, ServerCQ cq);
+
+  /**
+   * Called after a CQ has been removed from the CQ map of a filter profile.
+   * @param profile the filter profile
+   * @param serverCqName the name the CQ had in the profile
+   */
+  public void cqRemoved(FilterProfile profile, String serverCqName);
   
   public UserAttributes getUserAttributes(String cqName);
   
@@ -37,6 +37,7 @@ import com.gemstone.gemfire.cache.query.QueryInvalidException;
 import com.gemstone.gemfire.cache.query.RegionNotFoundException;
 import com.gemstone.gemfire.distributed.internal.DistributionAdvisor.Profile;
 import com.gemstone.gemfire.internal.cache.EventID;
+import com.gemstone.gemfire.internal.cache.FilterProfile;
 import com.gemstone.gemfire.internal.cache.FilterRoutingInfo;
 import com.gemstone.gemfire.internal.cache.tier.sockets.CacheClientNotifier;
 import com.gemstone.gemfire.internal.cache.tier.sockets.ClientProxyMembershipID;
@@ -152,6 +153,14 @@ public class MissingCqService implements CqService {
     throw new IllegalStateException("CqService is not available.");
   }
 
+  @Override
+  public void cqAdded(FilterProfile profile, String serverCqName, ServerCQ cq) {
+  }
+
+  @Override
+  public void cqRemoved(FilterProfile profile, String serverCqName) {
+  }
+
   @Override
   public UserAttributes getUserAttributes(String cqName) {
     throw new IllegalStateException("CqService is not available.");
@@ -669,6 +669,30 @@ public abstract class AbstractIndex implements IndexProtocol
     }
   }
 
+  /**
+   * Adds the projection of a row whose projected values were read from an
+   * index entry, rather than evaluated on the value of its region entry.
+   */
+  void applyIndexOnlyProjection(ExecutionContext context, Collection result,
+      Object[] values, SelectResults intermediateResults, boolean isIntersection)
+      throws QueryInvocationTargetException
+  {
+    for (int i = 0; i < values.length; i++) {
+      values[i] = deserializePdxForLocalDistinctQuery(context, values[i]);
+    }
+    boolean isStruct = result instanceof SelectResults 
+        && ((SelectResults)result).getCollectionType().getElementType() != null
+        && ((SelectResults)result).getCollectionType().getElementType().isStructType();
+    if (isStruct) {
+      this.addToStructsWithUnionOrIntersection(result, intermediateResults,
+          isIntersection, values);
+    }
+    else {
+      this.addToResultsWithUnionOrIntersection(result, intermediateResults,
+          isIntersection, values[0]);
+    }
+  }
+
   // For local queries with distinct, deserialize all PdxInstances
   // as we do not have a way to compare Pdx and non Pdx objects in case
   // the cache has a mix of pdx and non pdx objects.
@@ -959,6 +983,13 @@ public abstract class AbstractIndex implements IndexProtocol
     public void incNumMapIndexKeys(long numKeys) {
     }
 
+    public void incBitmapBytes(long delta) {
+    }
+
+    public long getBitmapBytes() {
+      return 0L;
+    }
+
     public void incUpdateTime(long delta)
     {
     }
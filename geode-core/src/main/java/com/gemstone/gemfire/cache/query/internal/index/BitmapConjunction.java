@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.gemstone.gemfire.cache.query.Index;
+import com.gemstone.gemfire.cache.query.TypeMismatchException;
+import com.gemstone.gemfire.cache.query.internal.types.TypeUtils;
+
+/**
+ * The equality and IN conditions of an AND junction that are on bitmap
+ * indexes. The index lookup of the condition that is evaluated as the filter
+ * of the junction only reads the entries that are also in the bitmaps of the
+ * other conditions: the bitmaps of the keys of a condition are OR-ed, and the
+ * results of the conditions AND-ed, before any entry is read.
+ * <p>
+ * The other conditions are still evaluated on the entries that are read, so
+ * a condition that cannot be combined, for instance because its index is not
+ * a bitmap index of the same region, only costs the pruning it would have
+ * done.
+ * <p>
+ * The junction puts its conjunction in the execution context, under
+ * {@link #CONTEXT_KEY}, while its filter is evaluated.
+ *
+ * @see BitmapIndexStore
+ * @since 9.0
+ */
+public class BitmapConjunction {
+
+  /** The key of the conjunction in the execution context cache */
+  public static final Object CONTEXT_KEY = new Object();
+
+  private final String filterIndexName;
+
+  private final Collection<Object> filterKeys;
+
+  private final List<String> indexNames = new ArrayList<String>();
+
+  private final List<Collection<Object>> keys = new ArrayList<Collection<Object>>();
+
+  // the mask computed for each index manager, that is each region or bucket
+  private final Map<IndexManager, CompressedBitmap> masks =
+      new IdentityHashMap<IndexManager, CompressedBitmap>();
+
+  /**
+   * @param filterIndexName the name of the index of the filter condition
+   * @param filterKeys the keys the filter condition looks up
+   */
+  public BitmapConjunction(String filterIndexName, Collection filterKeys)
+      throws TypeMismatchException {
+    this.filterIndexName = filterIndexName;
+    this.filterKeys = toIndexKeys(filterKeys);
+  }
+
+  /**
+   * Adds a condition that the entries must match one of the keys of an index.
+   */
+  public void addCondition(String indexName, Collection keys)
+      throws TypeMismatchException {
+    this.indexNames.add(indexName);
+    this.keys.add(toIndexKeys(keys));
+  }
+
+  public boolean isEmpty() {
+    return this.indexNames.isEmpty();
+  }
+
+  /**
+   * @return true if the lookup of a key in an index is the lookup of the
+   *         filter condition
+   */
+  boolean appliesTo(Index index, Object indexKey) {
+    return index.getName().equals(this.filterIndexName)
+        && this.filterKeys.contains(indexKey);
+  }
+
+  /**
+   * @return the ordinals of the entries that match the other conditions, or
+   *         null if none of them could be combined
+   */
+  synchronized CompressedBitmap getMask(BitmapIndexStore store, IndexManager indexManager) {
+    if (indexManager == null) {
+      return null;
+    }
+    if (this.masks.containsKey(indexManager)) {
+      return this.masks.get(indexManager);
+    }
+    CompressedBitmap mask = null;
+    for (int i = 0; i < this.indexNames.size(); i++) {
+      Index index = indexManager.getIndex(this.indexNames.get(i));
+      if (!(index instanceof CompactRangeIndex)
+          || index.getName().equals(this.filterIndexName)) {
+        continue;
+      }
+      IndexStore other = ((CompactRangeIndex)index).getIndexStorage();
+      if (!(other instanceof BitmapIndexStore)
+          || ((BitmapIndexStore)other).getEntryOrdinals() != store.getEntryOrdinals()) {
+        continue;
+      }
+      CompressedBitmap matches = null;
+      for (Object key : this.keys.get(i)) {
+        CompressedBitmap bitmap = ((BitmapIndexStore)other).getBitmap(key);
+        matches = matches == null ? bitmap : CompressedBitmap.or(matches, bitmap);
+      }
+      if (matches == null) {
+        matches = new CompressedBitmap();
+      }
+      mask = mask == null ? matches : CompressedBitmap.and(mask, matches);
+    }
+    this.masks.put(indexManager, mask);
+    return mask;
+  }
+
+  private static Collection<Object> toIndexKeys(Collection keys)
+      throws TypeMismatchException {
+    List<Object> indexKeys = new ArrayList<Object>(keys.size());
+    for (Object key : keys) {
+      key = TypeUtils.indexKeyFor(key);
+      indexKeys.add(key == null ? IndexManager.NULL : key);
+    }
+    return indexKeys;
+  }
+}
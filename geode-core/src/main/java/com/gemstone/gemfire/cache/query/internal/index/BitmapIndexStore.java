@@ -0,0 +1,682 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.gemstone.gemfire.cache.EntryDestroyedException;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionAttributes;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.TypeMismatchException;
+import com.gemstone.gemfire.cache.query.internal.index.AbstractIndex.InternalIndexStatistics;
+import com.gemstone.gemfire.cache.query.internal.types.TypeUtils;
+import com.gemstone.gemfire.internal.cache.CachedDeserializable;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.cache.RegionEntry;
+import com.gemstone.gemfire.internal.cache.Token;
+import com.gemstone.gemfire.internal.cache.persistence.query.CloseableIterator;
+
+/**
+ * An index storage for compact range indexes on fields with few distinct
+ * values. Each key maps to a {@link CompressedBitmap} of the ordinals its
+ * entries have in the {@link EntryOrdinals} of the region, instead of a
+ * collection of the entries, so a key with many entries takes about two bytes,
+ * and at most one bit, per entry.
+ * <p>
+ * The bitmap indexes of a region share the ordinals, so the bitmaps of several
+ * keys and indexes can be combined with each other before any entry is read.
+ * An equality lookup can be restricted by such a combination, see
+ * {@link #get(Object, CompressedBitmap)}.
+ * <p>
+ * The {@link IndexManager#NULL} and {@link QueryService#UNDEFINED} keys are
+ * kept in a map of their own, so range iterators do not return them. Writers
+ * serialize on the store. Readers iterate over copies of the bitmaps, taken
+ * while synchronized on the store.
+ *
+ * @see IndexManager#BITMAP_INDEXES_PROP
+ * @since 9.0
+ */
+public class BitmapIndexStore implements IndexStore {
+
+  /** Map for valueOf(indexedExpression)=>bitmap of entry ordinals */
+  private final ConcurrentNavigableMap<Object, CompressedBitmap> valueToBitmapMap =
+      new ConcurrentSkipListMap<Object, CompressedBitmap>(TypeUtils.getExtendedNumericComparator());
+
+  /**
+   * Map for the {@link IndexManager#NULL} and {@link QueryService#UNDEFINED}
+   * keys, which are only looked up by equality
+   */
+  private final Map<Object, CompressedBitmap> tokenToBitmapMap =
+      new ConcurrentHashMap<Object, CompressedBitmap>(2);
+
+  private final EntryOrdinals ordinals;
+
+  // number of keys
+  private final AtomicInteger numIndexKeys = new AtomicInteger(0);
+
+  // total size of the bitmaps, guarded by the store
+  private long bitmapBytes;
+
+  // Map for RegionEntries=>value of indexedExpression (reverse map)
+  private ConcurrentMap entryToValuesMap;
+
+  private final InternalIndexStatistics internalIndexStats;
+
+  private final Region region;
+  private boolean indexOnRegionKeys;
+  private boolean indexOnValues;
+
+  public BitmapIndexStore(Region region,
+      InternalIndexStatistics internalIndexStats, EntryOrdinals ordinals) {
+    this.region = region;
+    RegionAttributes ra = region.getAttributes();
+    // Initialize the reverse-map if in-place modification is set by the
+    // application.
+    if (IndexManager.isObjectModificationInplace()) {
+      this.entryToValuesMap = new ConcurrentHashMap(ra.getInitialCapacity(),
+          ra.getLoadFactor(), ra.getConcurrencyLevel());
+    }
+    this.internalIndexStats = internalIndexStats;
+    this.ordinals = ordinals;
+  }
+
+  @Override
+  public void updateMapping(Object newKey, Object oldKey, RegionEntry entry, Object oldValue)
+      throws IMQException {
+    try {
+      //Check if reverse-map is present.
+      if (IndexManager.isObjectModificationInplace()) {
+        // If reverse map get the old index key from reverse map.
+        if (this.entryToValuesMap.containsKey(entry)) {
+          oldKey = this.entryToValuesMap.get(entry);
+        }
+      } else {
+        // Check if the old value and new value same.
+        // If they are same, that means the value got updated in place.
+        // In the absence of reverse-map find the old index key from
+        // the bitmaps.
+        if (oldValue != null && oldValue == getTargetObjectInVM(entry)) {
+          Object key;
+          synchronized (this) {
+            key = getOldKey(entry);
+          }
+          oldKey = key != null ? key : newKey;
+        }
+      }
+
+      newKey = TypeUtils.indexKeyFor(newKey);
+      // No need to update the store if new and old index key are same.
+      if (oldKey != null && oldKey.equals(newKey)) {
+        return;
+      }
+
+      if (newKey.equals(QueryService.UNDEFINED)) {
+        Object targetObject = getTargetObjectForUpdate(entry);
+        if (Token.isInvalidOrRemoved(targetObject)) {
+          if (oldKey != null) {
+            removeMapping(oldKey, entry);
+          }
+          return;
+        }
+      }
+
+      boolean added;
+      boolean removed = false;
+      synchronized (this) {
+        // the new mapping is added first so that the ordinal of the entry
+        // stays the same
+        added = basicAddMapping(newKey, entry);
+        // oldKey is not null only for an update
+        if (oldKey != null) {
+          removed = basicRemoveMapping(TypeUtils.indexKeyFor(oldKey), entry);
+        }
+      }
+      if (removed) {
+        internalIndexStats.incNumValues(-1);
+      }
+      if (!added) {
+        return;
+      }
+      if (IndexManager.isObjectModificationInplace()) {
+        this.entryToValuesMap.put(entry, newKey);
+      }
+    } catch (TypeMismatchException ex) {
+      throw new IMQException("Could not add object of type "
+          + newKey.getClass().getName(), ex);
+    }
+    internalIndexStats.incNumValues(1);
+  }
+
+  @Override
+  public void addMapping(Object newKey, RegionEntry entry) throws IMQException {
+    // for add, oldkey is null
+    updateMapping(newKey, null, entry, null);
+  }
+
+  @Override
+  public void removeMapping(Object key, RegionEntry entry) throws IMQException {
+    boolean found = false;
+    try {
+      Object indexKey = null;
+      if (IndexManager.isObjectModificationInplace()) {
+        indexKey = this.entryToValuesMap.get(entry);
+      }
+      if (indexKey == null) {
+        indexKey = TypeUtils.indexKeyFor(key);
+      }
+      synchronized (this) {
+        found = basicRemoveMapping(indexKey, entry);
+        if (!found && !IndexManager.isObjectModificationInplace() && key != null) {
+          // if there is an inplace-modification find old key by looking
+          // for the entry in the bitmaps and then remove the mapping
+          Object oldKey = getOldKey(entry);
+          if (oldKey != null) {
+            found = basicRemoveMapping(oldKey, entry);
+          }
+        }
+      }
+    } catch (TypeMismatchException ex) {
+      throw new IMQException("Could not remove object of type "
+          + key.getClass().getName(), ex);
+    }
+    if (found) {
+      // Update stats if entry was actually removed
+      internalIndexStats.incNumValues(-1);
+      if (IndexManager.isObjectModificationInplace()) {
+        this.entryToValuesMap.remove(entry);
+      }
+    }
+  }
+
+  /**
+   * Adds a mapping. Must be called while synchronized on the store.
+   * @return true if the mapping was not already there
+   */
+  private boolean basicAddMapping(Object key, RegionEntry entry) {
+    int ordinal = this.ordinals.acquire(entry);
+    Map<Object, CompressedBitmap> map = getMap(key);
+    CompressedBitmap bitmap = map.get(key);
+    long size = 0;
+    if (bitmap == null) {
+      bitmap = new CompressedBitmap();
+      map.put(key, bitmap);
+      incNumKeys(1);
+    } else {
+      size = bitmap.sizeInBytes();
+    }
+    if (!bitmap.add(ordinal)) {
+      this.ordinals.release(ordinal);
+      return false;
+    }
+    incBitmapBytes(bitmap.sizeInBytes() - size);
+    return true;
+  }
+
+  /**
+   * Removes a mapping. Must be called while synchronized on the store.
+   * @return true if the mapping was found
+   */
+  private boolean basicRemoveMapping(Object key, RegionEntry entry) {
+    int ordinal = this.ordinals.getOrdinal(entry);
+    if (ordinal < 0) {
+      return false;
+    }
+    Map<Object, CompressedBitmap> map = getMap(key);
+    CompressedBitmap bitmap = map.get(key);
+    if (bitmap == null) {
+      return false;
+    }
+    long size = bitmap.sizeInBytes();
+    if (!bitmap.remove(ordinal)) {
+      return false;
+    }
+    this.ordinals.release(ordinal);
+    if (bitmap.isEmpty()) {
+      map.remove(key);
+      incNumKeys(-1);
+      incBitmapBytes(-size);
+    } else {
+      incBitmapBytes(bitmap.sizeInBytes() - size);
+    }
+    return true;
+  }
+
+  private Map<Object, CompressedBitmap> getMap(Object key) {
+    return IndexManager.NULL.equals(key) || QueryService.UNDEFINED.equals(key)
+        ? this.tokenToBitmapMap : this.valueToBitmapMap;
+  }
+
+  private void incNumKeys(int delta) {
+    this.numIndexKeys.addAndGet(delta);
+    this.internalIndexStats.incNumKeys(delta);
+  }
+
+  private void incBitmapBytes(long delta) {
+    if (delta != 0) {
+      this.bitmapBytes += delta;
+      this.internalIndexStats.incBitmapBytes(delta);
+    }
+  }
+
+  /**
+   * Find the key an entry is mapped to by looking for its ordinal in all the
+   * bitmaps, in case of in-place modification of the value. Must be called
+   * while synchronized on the store.
+   * @return the key or null if the entry is not mapped
+   */
+  private Object getOldKey(RegionEntry entry) {
+    int ordinal = this.ordinals.getOrdinal(entry);
+    if (ordinal < 0) {
+      return null;
+    }
+    for (Map.Entry<Object, CompressedBitmap> mapEntry : this.valueToBitmapMap.entrySet()) {
+      if (mapEntry.getValue().contains(ordinal)) {
+        return mapEntry.getKey();
+      }
+    }
+    for (Map.Entry<Object, CompressedBitmap> mapEntry : this.tokenToBitmapMap.entrySet()) {
+      if (mapEntry.getValue().contains(ordinal)) {
+        return mapEntry.getKey();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return a copy of the bitmap of the entries of a key, or an empty bitmap
+   */
+  synchronized CompressedBitmap getBitmap(Object indexKey) {
+    CompressedBitmap bitmap = getMap(indexKey).get(indexKey);
+    return bitmap == null ? new CompressedBitmap() : bitmap.copy();
+  }
+
+  /**
+   * @return the total size of the bitmaps in bytes
+   */
+  synchronized long getBitmapBytes() {
+    return this.bitmapBytes;
+  }
+
+  /**
+   * @return the ordinals the bitmaps of this store are made of
+   */
+  EntryOrdinals getEntryOrdinals() {
+    return this.ordinals;
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> get(Object indexKey) {
+    return get(indexKey, null);
+  }
+
+  /**
+   * Gets the entries of a key that are also in a bitmap of ordinals, which is
+   * typically the combination of the bitmaps of other keys or other bitmap
+   * indexes of the same region. The entries that are not in it are never read.
+   *
+   * @param mask the ordinals to restrict the entries to, or null for all
+   */
+  public CloseableIterator<IndexStoreEntry> get(Object indexKey, CompressedBitmap mask) {
+    CompressedBitmap bitmap;
+    synchronized (this) {
+      bitmap = getMap(indexKey).get(indexKey);
+      if (bitmap == null) {
+        bitmap = new CompressedBitmap();
+      } else {
+        bitmap = mask == null ? bitmap.copy() : CompressedBitmap.and(bitmap, mask);
+      }
+    }
+    return new BitmapIndexStoreIterator(indexKey, bitmap);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> iterator(Object start,
+      boolean startInclusive, Object end, boolean endInclusive,
+      Collection keysToRemove) {
+    if (start == null) {
+      return new BitmapIndexStoreIterator(this.valueToBitmapMap
+          .headMap(end, endInclusive), keysToRemove);
+    }
+    return new BitmapIndexStoreIterator(this.valueToBitmapMap
+        .subMap(start, startInclusive, end, endInclusive), keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> iterator(Object start,
+      boolean startInclusive, Collection keysToRemove) {
+    return new BitmapIndexStoreIterator(this.valueToBitmapMap
+        .tailMap(start, startInclusive), keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> iterator(Collection keysToRemove) {
+    return new BitmapIndexStoreIterator(this.valueToBitmapMap, keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> descendingIterator(Object start,
+      boolean startInclusive, Object end, boolean endInclusive,
+      Collection keysToRemove) {
+    if (start == null) {
+      return new BitmapIndexStoreIterator(this.valueToBitmapMap
+          .headMap(end, endInclusive).descendingMap(), keysToRemove);
+    }
+    return new BitmapIndexStoreIterator(this.valueToBitmapMap
+        .subMap(start, startInclusive, end, endInclusive).descendingMap(), keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> descendingIterator(Object start,
+      boolean startInclusive, Collection keysToRemove) {
+    return new BitmapIndexStoreIterator(this.valueToBitmapMap
+        .tailMap(start, startInclusive).descendingMap(), keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> descendingIterator(
+      Collection keysToRemove) {
+    return new BitmapIndexStoreIterator(this.valueToBitmapMap
+        .descendingMap(), keysToRemove);
+  }
+
+  @Override
+  public boolean isIndexOnRegionKeys() {
+    return indexOnRegionKeys;
+  }
+
+  @Override
+  public void setIndexOnRegionKeys(boolean indexOnRegionKeys) {
+    this.indexOnRegionKeys = indexOnRegionKeys;
+  }
+
+  @Override
+  public boolean isIndexOnValues() {
+    return indexOnValues;
+  }
+
+  @Override
+  public void setIndexOnValues(boolean indexOnValues) {
+    this.indexOnValues = indexOnValues;
+  }
+
+  /**
+   * Get the object of interest from the region entry. For now it always gets
+   * the deserialized value.
+   */
+  @Override
+  public Object getTargetObject(RegionEntry entry) {
+    if (indexOnValues) {
+      Object o = entry.getValue((LocalRegion)this.region);
+      try {
+        if (o == Token.INVALID) {
+          return null;
+        }
+        if (o instanceof CachedDeserializable) {
+          return ((CachedDeserializable) o).getDeserializedValue(
+              this.region, entry);
+        }
+      } catch (EntryDestroyedException ede) {
+        return null;
+      }
+      return o;
+    } else if (indexOnRegionKeys) {
+      return entry.getKey();
+    }
+    return new MemoryIndexStore.CachedEntryWrapper(((LocalRegion) this.region).new NonTXEntry(entry));
+  }
+
+  @Override
+  public Object getTargetObjectInVM(RegionEntry entry) {
+    if (indexOnValues) {
+      Object o = entry.getValueInVM((LocalRegion)this.region);
+      try {
+        if (o == Token.INVALID) {
+          return null;
+        }
+        if (o instanceof CachedDeserializable) {
+          return ((CachedDeserializable) o).getDeserializedValue(
+              this.region, entry);
+        }
+      } catch (EntryDestroyedException ede) {
+        return null;
+      }
+      return o;
+    } else if (indexOnRegionKeys) {
+      return entry.getKey();
+    }
+    return ((LocalRegion) this.region).new NonTXEntry(entry);
+  }
+
+  private Object getTargetObjectForUpdate(RegionEntry entry) {
+    if (indexOnValues) {
+      Object o = entry.getValue((LocalRegion)this.region);
+      try {
+        if (o == Token.INVALID) {
+          return Token.INVALID;
+        }
+        if (o instanceof CachedDeserializable) {
+          return ((CachedDeserializable) o).getDeserializedValue(
+              this.region, entry);
+        }
+      } catch (EntryDestroyedException ede) {
+        return Token.INVALID;
+      }
+      return o;
+    } else if (indexOnRegionKeys) {
+      return entry.getKey();
+    }
+    return ((LocalRegion) this.region).new NonTXEntry(entry);
+  }
+
+  /**
+   * Clears the store, releasing the ordinals of its entries.
+   */
+  @Override
+  public synchronized boolean clear() {
+    releaseOrdinals(this.valueToBitmapMap);
+    releaseOrdinals(this.tokenToBitmapMap);
+    this.valueToBitmapMap.clear();
+    this.tokenToBitmapMap.clear();
+    if (IndexManager.isObjectModificationInplace()) {
+      this.entryToValuesMap.clear();
+    }
+    this.numIndexKeys.set(0);
+    incBitmapBytes(-this.bitmapBytes);
+    return true;
+  }
+
+  private void releaseOrdinals(Map<Object, CompressedBitmap> map) {
+    for (CompressedBitmap bitmap : map.values()) {
+      for (int o = bitmap.nextSetBit(0); o >= 0; o = bitmap.nextSetBit(o + 1)) {
+        this.ordinals.release(o);
+      }
+    }
+  }
+
+  @Override
+  public synchronized int size(Object key) {
+    CompressedBitmap bitmap = getMap(key).get(key);
+    return bitmap == null ? 0 : bitmap.cardinality();
+  }
+
+  @Override
+  public int size() {
+    return this.numIndexKeys.get();
+  }
+
+  @Override
+  public String printAll() {
+    StringBuffer sb = new StringBuffer();
+    CloseableIterator<IndexStoreEntry> iterator = iterator(null);
+    while (iterator.hasNext()) {
+      IndexStoreEntry entry = iterator.next();
+      sb.append("Key: " + entry.getDeserializedKey());
+      sb.append(" Value:" + entry.getDeserializedValue());
+      sb.append("\n");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Iterates over the keys of a map, and over a copy of the bitmap of each
+   * key, skipping the keys in the keysToRemove collection. A single key
+   * lookup iterates over a bitmap only.
+   */
+  private class BitmapIndexStoreIterator implements CloseableIterator<IndexStoreEntry> {
+    private final Iterator<Map.Entry<Object, CompressedBitmap>> mapIterator;
+    private final Collection keysToRemove;
+    private final BitmapIndexStoreEntry currentEntry;
+
+    private Object currKey;
+    private CompressedBitmap currBitmap;
+    private int nextOrdinal = -1;
+    private RegionEntry nextEntry;
+
+    private BitmapIndexStoreIterator(Map<Object, CompressedBitmap> map,
+        Collection keysToRemove) {
+      this.mapIterator = map.entrySet().iterator();
+      this.keysToRemove = keysToRemove;
+      this.currentEntry = new BitmapIndexStoreEntry(
+          GemFireCacheImpl.getInstance().cacheTimeMillis());
+    }
+
+    private BitmapIndexStoreIterator(Object indexKey, CompressedBitmap bitmap) {
+      this.mapIterator = null;
+      this.keysToRemove = null;
+      this.currentEntry = new BitmapIndexStoreEntry(
+          GemFireCacheImpl.getInstance().cacheTimeMillis());
+      this.currKey = indexKey;
+      this.currBitmap = bitmap;
+    }
+
+    public boolean hasNext() {
+      while (this.nextEntry == null) {
+        if (this.currBitmap != null) {
+          this.nextOrdinal = this.currBitmap.nextSetBit(this.nextOrdinal + 1);
+          if (this.nextOrdinal >= 0) {
+            // the ordinal is null if it was freed after the copy was taken
+            this.nextEntry = ordinals.getEntry(this.nextOrdinal);
+            continue;
+          }
+          this.currBitmap = null;
+        }
+        if (this.mapIterator == null || !this.mapIterator.hasNext()) {
+          return false;
+        }
+        Map.Entry<Object, CompressedBitmap> mapEntry = this.mapIterator.next();
+        Object key = mapEntry.getKey();
+        if (this.keysToRemove != null
+            && MemoryIndexStore.removeFromKeysToRemove(this.keysToRemove, key)) {
+          continue;
+        }
+        synchronized (BitmapIndexStore.this) {
+          this.currBitmap = mapEntry.getValue().copy();
+        }
+        this.currKey = key;
+        this.nextOrdinal = -1;
+      }
+      return true;
+    }
+
+    public IndexStoreEntry next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      this.currentEntry.setEntry(this.currKey, this.nextEntry);
+      this.nextEntry = null;
+      return this.currentEntry;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    public void close() {
+      // do nothing
+    }
+  }
+
+  /**
+   * A mapping of an index key to a RegionEntry, reused by an iterator for
+   * each of its mappings.
+   */
+  private class BitmapIndexStoreEntry implements IndexStoreEntry {
+    private Object deserializedIndexKey;
+    private RegionEntry regionEntry;
+    private boolean updateInProgress;
+    private Object value;
+    private boolean valueRead;
+    private final long iteratorStartTime;
+
+    private BitmapIndexStoreEntry(long iteratorStartTime) {
+      this.iteratorStartTime = iteratorStartTime;
+    }
+
+    void setEntry(Object deserializedIndexKey, RegionEntry regionEntry) {
+      this.deserializedIndexKey = deserializedIndexKey;
+      this.regionEntry = regionEntry;
+      this.updateInProgress = regionEntry.isUpdateInProgress();
+      this.value = null;
+      this.valueRead = false;
+    }
+
+    @Override
+    public Object getDeserializedKey() {
+      return deserializedIndexKey;
+    }
+
+    @Override
+    public Object getDeserializedValue() {
+      // read lazily so that lookups answered from the index alone never
+      // touch the value
+      if (!valueRead) {
+        value = getTargetObject(regionEntry);
+        valueRead = true;
+      }
+      return value;
+    }
+
+    @Override
+    public Object getDeserializedRegionKey() {
+      return regionEntry.getKey();
+    }
+
+    @Override
+    public boolean isUpdateInProgress() {
+      return updateInProgress
+          || regionEntry.isUpdateInProgress()
+          // The index update could have started just before the iterator was created. The entry still
+          // needs to be re-evaluated in this case.
+          ||  IndexManager.needsRecalculation(iteratorStartTime, regionEntry.getLastModified());
+    }
+
+    @Override
+    public boolean isInvalidOrRemoved() {
+      return regionEntry.isInvalidOrRemoved();
+    }
+  }
+}
@@ -57,7 +57,6 @@ import com.gemstone.gemfire.cache.query.internal.StructImpl;
 import com.gemstone.gemfire.cache.query.internal.Support;
 import com.gemstone.gemfire.cache.query.internal.index.IndexManager.TestHook;
 import com.gemstone.gemfire.cache.query.internal.index.IndexStore.IndexStoreEntry;
-import com.gemstone.gemfire.cache.query.internal.index.MemoryIndexStore.MemoryIndexStoreEntry;
 import com.gemstone.gemfire.cache.query.internal.parse.OQLLexerTokenTypes;
 import com.gemstone.gemfire.cache.query.internal.types.StructTypeImpl;
 import com.gemstone.gemfire.cache.query.internal.types.TypeUtils;
@@ -69,6 +68,7 @@ import com.gemstone.gemfire.internal.cache.RegionEntryContext;
 import com.gemstone.gemfire.internal.cache.VMThinRegionEntryHeap;
 import com.gemstone.gemfire.internal.cache.persistence.query.CloseableIterator;
 import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+import com.gemstone.gemfire.pdx.internal.PdxInstanceEnum;
 import com.gemstone.gemfire.pdx.internal.PdxString;
 
 //@todo Extend to support the keys or entries of a region.
@@ -79,7 +79,9 @@ import com.gemstone.gemfire.pdx.internal.PdxString;
  * expression is a path expression and the from clause has only one iterator.
  * This implies there is only one value in the index for each region entry.
  * 
- * This index does not support the storage of projection attributes.
+ * This index does not support the storage of projection attributes, but
+ * projections of the indexed expression, or of the region key, are read from
+ * the index without reading the values of the entries.
  * 
  * Currently this implementation only supports an index on a region path.
  * 
@@ -95,6 +97,10 @@ public class CompactRangeIndex extends AbstractIndex {
   
   static boolean TEST_ALWAYS_UPDATE_IN_PROGRESS = false;
 
+  // how a projection attribute is read from an index entry
+  private static final int PROJECT_INDEX_KEY = 0;
+  private static final int PROJECT_REGION_KEY = 1;
+
   public CompactRangeIndex(String indexName, Region region, String fromClause,
       String indexedExpression, String projectionAttributes,
       String origFromClause, String origIndexExpr, String[] definitions,
@@ -104,6 +110,13 @@ public class CompactRangeIndex extends AbstractIndex {
     if (IndexManager.IS_TEST_LDM) {
       indexStore = new MapIndexStore(((LocalRegion)region).getIndexMap(indexName, indexedExpression, origFromClause), region);
     }
+    else if (IndexManager.isLongKeyIndex(indexName)) {
+      indexStore = new LongKeyIndexStore(region, internalIndexStats);
+    }
+    else if (IndexManager.isBitmapIndex(indexName)) {
+      indexStore = new BitmapIndexStore(region, internalIndexStats,
+          ((LocalRegion)region).getIndexManager().getEntryOrdinals());
+    }
     else {
       indexStore = new MemoryIndexStore(region, internalIndexStats);
     }
@@ -176,6 +189,16 @@ public class CompactRangeIndex extends AbstractIndex {
     return indexStore.clear();
   }
 
+  @Override
+  public void destroy() {
+    // the mappings of a bitmap index hold on to the entry ordinals it shares
+    // with the other bitmap indexes of the region
+    if (indexStore instanceof BitmapIndexStore) {
+      indexStore.clear();
+    }
+    super.destroy();
+  }
+
   
   public List queryEquijoinCondition(IndexProtocol indx,
       ExecutionContext context) throws TypeMismatchException,
@@ -296,8 +319,7 @@ public class CompactRangeIndex extends AbstractIndex {
     CompactRangeIndex index = (CompactRangeIndex) indexInfo._getIndex();
     RuntimeIterator runtimeItr = index.getRuntimeIteratorForThisIndex(context, indexInfo);
     if (runtimeItr != null) {
-      runtimeItr.setCurrent(((MemoryIndexStoreEntry) entry)
-          .getDeserializedValue());
+      runtimeItr.setCurrent(entry.getDeserializedValue());
     }
     return evaluateEntry(indexInfo, context, keyVal);
   }
@@ -556,6 +578,26 @@ public class CompactRangeIndex extends AbstractIndex {
   }
 
 
+  /**
+   * Gets the entries of a key. A bitmap index only gets the entries that also
+   * match the other bitmap index conditions of the AND junction whose filter
+   * is being evaluated.
+   * @see BitmapConjunction
+   */
+  private CloseableIterator<IndexStoreEntry> getEntries(Object key,
+      ExecutionContext context) {
+    if (indexStore instanceof BitmapIndexStore && context != null) {
+      BitmapConjunction conjunction = (BitmapConjunction)context
+          .cacheGet(BitmapConjunction.CONTEXT_KEY);
+      if (conjunction != null && conjunction.appliesTo(this, key)) {
+        BitmapIndexStore bitmapStore = (BitmapIndexStore)indexStore;
+        return bitmapStore.get(key, conjunction.getMask(bitmapStore,
+            IndexUtils.getIndexManager(getRegion(), false)));
+      }
+    }
+    return indexStore.get(key);
+  }
+
   private void evaluate(Object key, int operator, Collection results,
       CompiledValue iterOps, RuntimeIterator runtimeItr,
       ExecutionContext context, Set keysToRemove, List projAttrib,
@@ -582,7 +624,7 @@ public class CompactRangeIndex extends AbstractIndex {
       switch (operator) {
       case OQLLexerTokenTypes.TOK_EQ:
         assert keysToRemove.isEmpty();
-        iterator = indexStore.get(key);
+        iterator = getEntries(key, context);
         addToResultsFromEntries(key, operator, iterator, results, iterOps, runtimeItr,
             context, projAttrib, intermediateResults, isIntersection,
             multiColOrderBy ? -1 : limit);
@@ -765,6 +807,7 @@ public class CompactRangeIndex extends AbstractIndex {
       if (IndexManager.IS_TEST_EXPANSION) {
         seenKey = new HashSet();
       }
+      int[] indexOnlyProjection = getIndexOnlyProjection(projAttrib, iterOps, context);
 
     while (entriesIter.hasNext()) {
       try {
@@ -790,6 +833,21 @@ public class CompactRangeIndex extends AbstractIndex {
           continue;
         }
 
+        // the value of an invalid entry is null, and the entry is skipped
+        if (indexOnlyProjection != null && !indexEntry.isUpdateInProgress()
+            && !(this.indexStore.isIndexOnValues() && indexEntry.isInvalidOrRemoved())) {
+          Object[] values = getIndexOnlyValues(indexOnlyProjection, indexEntry);
+          if (values != null) {
+            applyIndexOnlyProjection(context, result, values,
+                intermediateResults, isIntersection);
+            if (verifyLimit(result, limit, context)) {
+              observer.limitAppliedAtIndexLevel(this, limit, result);
+              return;
+            }
+            continue;
+          }
+        }
+
         Object value = indexEntry.getDeserializedValue();
 
         if (IndexManager.IS_TEST_EXPANSION) {
@@ -933,6 +991,84 @@ public class CompactRangeIndex extends AbstractIndex {
     }
   }
   
+  /**
+   * Finds whether the projection attributes of a query can be read from the
+   * entries of this index: that is when each of them is the indexed
+   * expression or, for an index on the keys or the entries of the region, the
+   * region key, and the entries that the index finds need no other condition.
+   * A {@link LongKeyIndexStore} returns int keys as longs once it holds a
+   * long key, so its keys are never projected.
+   * 
+   * @return how each projection attribute is read from an index entry, or
+   *         null if the values of the entries are needed
+   */
+  private int[] getIndexOnlyProjection(List projAttrib, CompiledValue iterOps,
+      ExecutionContext context) throws TypeMismatchException,
+      NameResolutionException {
+    if (projAttrib == null || iterOps != null || context == null
+        || context.isCqQueryContext() || IndexManager.IS_TEST_EXPANSION
+        || TEST_ALWAYS_UPDATE_IN_PROGRESS
+        || this.indexStore instanceof LongKeyIndexStore
+        || getResultSetType() instanceof StructType) {
+      return null;
+    }
+    IndexInfo indexInfo = (IndexInfo)context.cacheGet(CompiledValue.INDEX_INFO);
+    if (indexInfo == null) {
+      return null;
+    }
+    RuntimeIterator runtimeItr = getRuntimeIteratorForThisIndex(context, indexInfo);
+    if (runtimeItr == null) {
+      return null;
+    }
+    String indexedPath = getCanonicalizedPath(indexInfo._path(), context);
+    String iteratorPath = getCanonicalizedPath(runtimeItr, context);
+    int[] projection = new int[projAttrib.size()];
+    for (int i = 0; i < projection.length; i++) {
+      String path = getCanonicalizedPath(
+          (CompiledValue)((Object[])projAttrib.get(i))[1], context);
+      if (path.equals(indexedPath)) {
+        projection[i] = PROJECT_INDEX_KEY;
+      }
+      else if (this.indexStore.isIndexOnRegionKeys() ? path.equals(iteratorPath)
+          : !this.indexStore.isIndexOnValues() && path.equals(iteratorPath + ".key")) {
+        projection[i] = PROJECT_REGION_KEY;
+      }
+      else {
+        return null;
+      }
+    }
+    return projection;
+  }
+
+  private static String getCanonicalizedPath(CompiledValue path,
+      ExecutionContext context) throws TypeMismatchException,
+      NameResolutionException {
+    StringBuffer sb = new StringBuffer();
+    path.generateCanonicalizedExpression(sb, context);
+    return sb.toString();
+  }
+
+  /**
+   * @return the projected values of an index entry, or null if its index key
+   *         may not be the value of the indexed expression, because of the
+   *         conversion of {@link TypeUtils#indexKeyFor(Object)}
+   */
+  private Object[] getIndexOnlyValues(int[] projection, IndexStoreEntry indexEntry) {
+    Object[] values = new Object[projection.length];
+    for (int i = 0; i < projection.length; i++) {
+      if (projection[i] == PROJECT_REGION_KEY) {
+        values[i] = indexEntry.getDeserializedRegionKey();
+        continue;
+      }
+      Object key = indexEntry.getDeserializedKey();
+      if (key instanceof Integer || key instanceof PdxInstanceEnum) {
+        return null;
+      }
+      values[i] = key == IndexManager.NULL ? null : key;
+    }
+    return values;
+  }
+
   public List expandValue(ExecutionContext context, Object lowerBoundKey, Object upperBoundKey, int lowerBoundOperator, int upperBoundOperator, Object value) {
     try {
       List expandedResults = new ArrayList();
@@ -1108,6 +1244,17 @@ public class CompactRangeIndex extends AbstractIndex {
       this.vsdStats.incReadLockCount(delta);
     }
 
+    public void incBitmapBytes(long delta) {
+      this.vsdStats.incBitmapBytes(delta);
+    }
+
+    /**
+     * Returns the number of bytes taken by the bitmaps of a bitmap index.
+     */
+    public long getBitmapBytes() {
+      return this.vsdStats.getBitmapBytes();
+    }
+
     /**
      * Returns the total amount of time (in nanoseconds) spent updating this
      * index.
@@ -0,0 +1,507 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import java.util.Arrays;
+
+/**
+ * A compressed set of non-negative ints. The ints are split in chunks of 65536
+ * by their high 16 bits, and each chunk keeps its low 16 bits either in a
+ * sorted array, while it has at most {@link #MAX_ARRAY_SIZE} of them, or in a
+ * bitmap of 65536 bits. A chunk therefore never takes more than 8 KB, and a
+ * sparse chunk takes two bytes per int.
+ *
+ * This class is not thread safe.
+ *
+ * @since 9.0
+ */
+final class CompressedBitmap {
+
+  /** The largest number of ints kept in an array chunk */
+  static final int MAX_ARRAY_SIZE = 4096;
+
+  private static final int BITMAP_WORDS = 1024;
+
+  private static final char[] NO_KEYS = new char[0];
+
+  private static final Chunk[] NO_CHUNKS = new Chunk[0];
+
+  // the high 16 bits of the ints of each chunk, in ascending order
+  private char[] keys = NO_KEYS;
+
+  private Chunk[] chunks = NO_CHUNKS;
+
+  private int numChunks;
+
+  /**
+   * Adds an int to the set.
+   * @return true if it was not already in the set
+   */
+  boolean add(int value) {
+    char high = (char)(value >>> 16);
+    int i = findChunk(high);
+    if (i < 0) {
+      i = -i - 1;
+      insertChunk(i, high, new ArrayChunk());
+    }
+    Chunk chunk = this.chunks[i];
+    int cardinality = chunk.cardinality();
+    this.chunks[i] = chunk = chunk.add((char)value);
+    return chunk.cardinality() != cardinality;
+  }
+
+  /**
+   * Removes an int from the set.
+   * @return true if it was in the set
+   */
+  boolean remove(int value) {
+    int i = findChunk((char)(value >>> 16));
+    if (i < 0) {
+      return false;
+    }
+    Chunk chunk = this.chunks[i];
+    int cardinality = chunk.cardinality();
+    chunk = chunk.remove((char)value);
+    if (chunk.cardinality() == 0) {
+      removeChunk(i);
+    } else {
+      this.chunks[i] = chunk;
+    }
+    return chunk.cardinality() != cardinality;
+  }
+
+  boolean contains(int value) {
+    int i = findChunk((char)(value >>> 16));
+    return i >= 0 && this.chunks[i].contains((char)value);
+  }
+
+  boolean isEmpty() {
+    return this.numChunks == 0;
+  }
+
+  int cardinality() {
+    int cardinality = 0;
+    for (int i = 0; i < this.numChunks; i++) {
+      cardinality += this.chunks[i].cardinality();
+    }
+    return cardinality;
+  }
+
+  /**
+   * @return the first int of the set that is greater than or equal to the
+   *         given one, or -1 if there is none
+   */
+  int nextSetBit(int from) {
+    if (from < 0) {
+      from = 0;
+    }
+    int i = findChunk((char)(from >>> 16));
+    if (i >= 0) {
+      int low = this.chunks[i].next(from & 0xFFFF);
+      if (low >= 0) {
+        return this.keys[i] << 16 | low;
+      }
+      i++;
+    } else {
+      i = -i - 1;
+    }
+    if (i < this.numChunks) {
+      return this.keys[i] << 16 | this.chunks[i].next(0);
+    }
+    return -1;
+  }
+
+  /**
+   * @return the approximate number of bytes taken by the set
+   */
+  long sizeInBytes() {
+    long size = 16 + 2L * this.keys.length + 4L * this.chunks.length;
+    for (int i = 0; i < this.numChunks; i++) {
+      size += this.chunks[i].sizeInBytes();
+    }
+    return size;
+  }
+
+  CompressedBitmap copy() {
+    CompressedBitmap copy = new CompressedBitmap();
+    copy.keys = Arrays.copyOf(this.keys, this.numChunks);
+    copy.chunks = new Chunk[this.numChunks];
+    for (int i = 0; i < this.numChunks; i++) {
+      copy.chunks[i] = this.chunks[i].copy();
+    }
+    copy.numChunks = this.numChunks;
+    return copy;
+  }
+
+  /**
+   * @return a new set with the ints that are in both sets
+   */
+  static CompressedBitmap and(CompressedBitmap first, CompressedBitmap second) {
+    CompressedBitmap result = new CompressedBitmap();
+    int i = 0, j = 0;
+    while (i < first.numChunks && j < second.numChunks) {
+      char key = first.keys[i];
+      char otherKey = second.keys[j];
+      if (key < otherKey) {
+        i++;
+      } else if (key > otherKey) {
+        j++;
+      } else {
+        Chunk chunk = first.chunks[i++].and(second.chunks[j++]);
+        if (chunk.cardinality() > 0) {
+          result.insertChunk(result.numChunks, key, chunk);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return a new set with the ints that are in either set
+   */
+  static CompressedBitmap or(CompressedBitmap first, CompressedBitmap second) {
+    CompressedBitmap result = new CompressedBitmap();
+    int i = 0, j = 0;
+    while (i < first.numChunks || j < second.numChunks) {
+      if (j >= second.numChunks
+          || (i < first.numChunks && first.keys[i] < second.keys[j])) {
+        result.insertChunk(result.numChunks, first.keys[i], first.chunks[i++].copy());
+      } else if (i >= first.numChunks || first.keys[i] > second.keys[j]) {
+        result.insertChunk(result.numChunks, second.keys[j], second.chunks[j++].copy());
+      } else {
+        result.insertChunk(result.numChunks, first.keys[i],
+            first.chunks[i++].or(second.chunks[j++]));
+      }
+    }
+    return result;
+  }
+
+  private int findChunk(char key) {
+    int low = 0;
+    int high = this.numChunks - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      char midKey = this.keys[mid];
+      if (midKey < key) {
+        low = mid + 1;
+      } else if (midKey > key) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  private void insertChunk(int i, char key, Chunk chunk) {
+    if (this.numChunks == this.keys.length) {
+      int capacity = Math.max(4, this.numChunks * 2);
+      this.keys = Arrays.copyOf(this.keys, capacity);
+      this.chunks = Arrays.copyOf(this.chunks, capacity);
+    }
+    System.arraycopy(this.keys, i, this.keys, i + 1, this.numChunks - i);
+    System.arraycopy(this.chunks, i, this.chunks, i + 1, this.numChunks - i);
+    this.keys[i] = key;
+    this.chunks[i] = chunk;
+    this.numChunks++;
+  }
+
+  private void removeChunk(int i) {
+    this.numChunks--;
+    System.arraycopy(this.keys, i + 1, this.keys, i, this.numChunks - i);
+    System.arraycopy(this.chunks, i + 1, this.chunks, i, this.numChunks - i);
+    this.chunks[this.numChunks] = null;
+  }
+
+  /**
+   * The low 16 bits of the ints that share their high 16 bits. The add and
+   * remove methods return the chunk to use from then on, which is a different
+   * kind of chunk when the cardinality crosses {@link #MAX_ARRAY_SIZE}.
+   */
+  private static abstract class Chunk {
+    abstract Chunk add(char low);
+
+    abstract Chunk remove(char low);
+
+    abstract boolean contains(char low);
+
+    abstract int cardinality();
+
+    /** @return the first low value at or after the given one, or -1 */
+    abstract int next(int from);
+
+    abstract Chunk and(Chunk other);
+
+    abstract Chunk or(Chunk other);
+
+    abstract Chunk copy();
+
+    abstract long sizeInBytes();
+  }
+
+  private static final class ArrayChunk extends Chunk {
+    private char[] values;
+    private int cardinality;
+
+    ArrayChunk() {
+      this.values = new char[4];
+    }
+
+    ArrayChunk(char[] values, int cardinality) {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    Chunk add(char low) {
+      int i = Arrays.binarySearch(this.values, 0, this.cardinality, low);
+      if (i >= 0) {
+        return this;
+      }
+      if (this.cardinality == MAX_ARRAY_SIZE) {
+        return toBitmap().add(low);
+      }
+      i = -i - 1;
+      if (this.cardinality == this.values.length) {
+        this.values = Arrays.copyOf(this.values,
+            Math.min(MAX_ARRAY_SIZE, this.cardinality * 2));
+      }
+      System.arraycopy(this.values, i, this.values, i + 1, this.cardinality - i);
+      this.values[i] = low;
+      this.cardinality++;
+      return this;
+    }
+
+    @Override
+    Chunk remove(char low) {
+      int i = Arrays.binarySearch(this.values, 0, this.cardinality, low);
+      if (i >= 0) {
+        this.cardinality--;
+        System.arraycopy(this.values, i + 1, this.values, i, this.cardinality - i);
+      }
+      return this;
+    }
+
+    @Override
+    boolean contains(char low) {
+      return Arrays.binarySearch(this.values, 0, this.cardinality, low) >= 0;
+    }
+
+    @Override
+    int cardinality() {
+      return this.cardinality;
+    }
+
+    @Override
+    int next(int from) {
+      int i = Arrays.binarySearch(this.values, 0, this.cardinality, (char)from);
+      if (i < 0) {
+        i = -i - 1;
+      }
+      return i < this.cardinality ? this.values[i] : -1;
+    }
+
+    @Override
+    Chunk and(Chunk other) {
+      char[] result = new char[Math.min(this.cardinality, other.cardinality())];
+      int n = 0;
+      if (other instanceof ArrayChunk) {
+        ArrayChunk o = (ArrayChunk)other;
+        int i = 0, j = 0;
+        while (i < this.cardinality && j < o.cardinality) {
+          if (this.values[i] < o.values[j]) {
+            i++;
+          } else if (this.values[i] > o.values[j]) {
+            j++;
+          } else {
+            result[n++] = this.values[i++];
+            j++;
+          }
+        }
+      } else {
+        for (int i = 0; i < this.cardinality; i++) {
+          if (other.contains(this.values[i])) {
+            result[n++] = this.values[i];
+          }
+        }
+      }
+      return new ArrayChunk(result, n);
+    }
+
+    @Override
+    Chunk or(Chunk other) {
+      if (other instanceof BitmapChunk) {
+        return other.or(this);
+      }
+      ArrayChunk o = (ArrayChunk)other;
+      char[] result = new char[this.cardinality + o.cardinality];
+      int i = 0, j = 0, n = 0;
+      while (i < this.cardinality || j < o.cardinality) {
+        if (j >= o.cardinality
+            || (i < this.cardinality && this.values[i] < o.values[j])) {
+          result[n++] = this.values[i++];
+        } else if (i >= this.cardinality || this.values[i] > o.values[j]) {
+          result[n++] = o.values[j++];
+        } else {
+          result[n++] = this.values[i++];
+          j++;
+        }
+      }
+      ArrayChunk chunk = new ArrayChunk(result, n);
+      return n > MAX_ARRAY_SIZE ? chunk.toBitmap() : chunk;
+    }
+
+    @Override
+    Chunk copy() {
+      return new ArrayChunk(Arrays.copyOf(this.values, Math.max(1, this.cardinality)),
+          this.cardinality);
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 24 + 2L * this.values.length;
+    }
+
+    private BitmapChunk toBitmap() {
+      BitmapChunk bitmap = new BitmapChunk();
+      for (int i = 0; i < this.cardinality; i++) {
+        bitmap.add(this.values[i]);
+      }
+      return bitmap;
+    }
+  }
+
+  private static final class BitmapChunk extends Chunk {
+    private final long[] words;
+    private int cardinality;
+
+    BitmapChunk() {
+      this.words = new long[BITMAP_WORDS];
+    }
+
+    BitmapChunk(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    Chunk add(char low) {
+      long bit = 1L << low;
+      long word = this.words[low >>> 6];
+      if ((word & bit) == 0) {
+        this.words[low >>> 6] = word | bit;
+        this.cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Chunk remove(char low) {
+      long bit = 1L << low;
+      long word = this.words[low >>> 6];
+      if ((word & bit) != 0) {
+        this.words[low >>> 6] = word & ~bit;
+        this.cardinality--;
+        if (this.cardinality <= MAX_ARRAY_SIZE / 2) {
+          return toArray();
+        }
+      }
+      return this;
+    }
+
+    @Override
+    boolean contains(char low) {
+      return (this.words[low >>> 6] & (1L << low)) != 0;
+    }
+
+    @Override
+    int cardinality() {
+      return this.cardinality;
+    }
+
+    @Override
+    int next(int from) {
+      int w = from >>> 6;
+      if (w >= BITMAP_WORDS) {
+        return -1;
+      }
+      long word = this.words[w] & (-1L << from);
+      while (word == 0) {
+        if (++w == BITMAP_WORDS) {
+          return -1;
+        }
+        word = this.words[w];
+      }
+      return w * 64 + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    Chunk and(Chunk other) {
+      if (other instanceof ArrayChunk) {
+        return other.and(this);
+      }
+      long[] o = ((BitmapChunk)other).words;
+      long[] result = new long[BITMAP_WORDS];
+      int cardinality = 0;
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        result[i] = this.words[i] & o[i];
+        cardinality += Long.bitCount(result[i]);
+      }
+      BitmapChunk chunk = new BitmapChunk(result, cardinality);
+      return cardinality <= MAX_ARRAY_SIZE ? chunk.toArray() : chunk;
+    }
+
+    @Override
+    Chunk or(Chunk other) {
+      BitmapChunk result = (BitmapChunk)copy();
+      if (other instanceof ArrayChunk) {
+        ArrayChunk o = (ArrayChunk)other;
+        for (int i = 0; i < o.cardinality; i++) {
+          result.add(o.values[i]);
+        }
+        return result;
+      }
+      long[] o = ((BitmapChunk)other).words;
+      int cardinality = 0;
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        result.words[i] |= o[i];
+        cardinality += Long.bitCount(result.words[i]);
+      }
+      result.cardinality = cardinality;
+      return result;
+    }
+
+    @Override
+    Chunk copy() {
+      return new BitmapChunk(this.words.clone(), this.cardinality);
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 24 + 8L * BITMAP_WORDS;
+    }
+
+    private ArrayChunk toArray() {
+      char[] values = new char[Math.max(1, this.cardinality)];
+      int n = 0;
+      for (int low = next(0); low >= 0; low = low < 0xFFFF ? next(low + 1) : -1) {
+        values[n++] = (char)low;
+      }
+      return new ArrayChunk(values, n);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.gemstone.gemfire.internal.cache.RegionEntry;
+
+/**
+ * Gives the entries of a region, or of a bucket, small int ordinals that the
+ * {@link BitmapIndexStore}s of the region share, so that their bitmaps can be
+ * combined with each other. An ordinal is kept while any of the stores maps
+ * the entry, and is then reused for another entry.
+ *
+ * @see IndexManager#getEntryOrdinals()
+ * @since 9.0
+ */
+class EntryOrdinals {
+
+  private final Map<RegionEntry, int[]> ordinals = new IdentityHashMap<RegionEntry, int[]>();
+
+  // the entry of each ordinal, replaced by a new array when it grows
+  private volatile RegionEntry[] entries = new RegionEntry[16];
+
+  // the reference counts of the ordinals
+  private int[] refCounts = new int[16];
+
+  // the ordinals that are free to reuse, and the first never used one
+  private int[] freeOrdinals = new int[16];
+  private int numFree;
+  private int nextOrdinal;
+
+  /**
+   * Gets the ordinal of an entry, giving it one if it has none, and adds a
+   * reference to it.
+   */
+  synchronized int acquire(RegionEntry entry) {
+    int[] ordinal = this.ordinals.get(entry);
+    if (ordinal != null) {
+      this.refCounts[ordinal[0]]++;
+      return ordinal[0];
+    }
+    int o;
+    if (this.numFree > 0) {
+      o = this.freeOrdinals[--this.numFree];
+    } else {
+      o = this.nextOrdinal++;
+      if (o == this.refCounts.length) {
+        this.refCounts = Arrays.copyOf(this.refCounts, o * 2);
+        this.entries = Arrays.copyOf(this.entries, o * 2);
+      }
+    }
+    this.ordinals.put(entry, new int[] { o });
+    this.refCounts[o] = 1;
+    this.entries[o] = entry;
+    return o;
+  }
+
+  /**
+   * Removes a reference to the ordinal of an entry, freeing it if it has no
+   * references left.
+   */
+  synchronized void release(int ordinal) {
+    if (--this.refCounts[ordinal] > 0) {
+      return;
+    }
+    this.ordinals.remove(this.entries[ordinal]);
+    this.entries[ordinal] = null;
+    if (this.numFree == this.freeOrdinals.length) {
+      this.freeOrdinals = Arrays.copyOf(this.freeOrdinals, this.numFree * 2);
+    }
+    this.freeOrdinals[this.numFree++] = ordinal;
+  }
+
+  /**
+   * @return the ordinal of an entry, or -1 if it has none
+   */
+  synchronized int getOrdinal(RegionEntry entry) {
+    int[] ordinal = this.ordinals.get(entry);
+    return ordinal == null ? -1 : ordinal[0];
+  }
+
+  /**
+   * @return the entry of an ordinal, or null if it is no longer used
+   */
+  RegionEntry getEntry(int ordinal) {
+    RegionEntry[] entries = this.entries;
+    return ordinal < entries.length ? entries[ordinal] : null;
+  }
+
+  /**
+   * @return the number of entries that have an ordinal
+   */
+  synchronized int size() {
+    return this.ordinals.size();
+  }
+}
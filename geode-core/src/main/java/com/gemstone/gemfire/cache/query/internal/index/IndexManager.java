@@ -28,15 +28,14 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.LinkedHashMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.logging.log4j.Logger;
 
@@ -55,6 +54,7 @@ import com.gemstone.gemfire.cache.query.NameResolutionException;
 import com.gemstone.gemfire.cache.query.QueryException;
 import com.gemstone.gemfire.cache.query.TypeMismatchException;
 import com.gemstone.gemfire.cache.query.internal.CompiledPath;
+import com.gemstone.gemfire.cache.query.internal.CompiledQueryCache;
 import com.gemstone.gemfire.cache.query.internal.CompiledValue;
 import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
 import com.gemstone.gemfire.cache.query.internal.ExecutionContext;
@@ -106,11 +106,36 @@ public class IndexManager  {
   private final ConcurrentMap indexes = new ConcurrentHashMap();
   //TODO Asif : Fix the appropriate size of the Map & the concurrency level
   private ConcurrentMap canonicalizedIteratorNameMap = new ConcurrentHashMap();
-  private IndexUpdaterThread updater;
+  private IndexUpdaterThread[] updaters;
+
+  /** The ordinals of the entries, shared by the bitmap indexes of the region */
+  private final EntryOrdinals entryOrdinals = new EntryOrdinals();
 
   // Threshold for Queue.
   private final int INDEX_MAINTENANCE_BUFFER = Integer.getInteger("gemfire.AsynchIndexMaintenanceThreshold", -1).intValue();
 
+  /**
+   * The number of threads that update the indexes of a region with
+   * asynchronous index maintenance
+   */
+  private final int INDEX_MAINTENANCE_THREADS = Math.max(1,
+      Integer.getInteger("gemfire.AsynchIndexMaintenanceThreads", 1).intValue());
+
+  /** The key of the pending task that recreates the indexes */
+  private static final Object RECREATE_TASK_KEY = new Object();
+
+  /**
+   * Held for read by the asynchronous updaters while they update the indexes
+   * and for write while they recreate the indexes.
+   */
+  private final ReentrantReadWriteLock asyncUpdateLock = new ReentrantReadWriteLock();
+
+  /**
+   * Set while the indexes are recreated asynchronously. Writers do not wait
+   * on a full backlog then, as the recreate waits for the writers.
+   */
+  private volatile boolean asyncRecreateInProgress = false;
+
   public static boolean JOIN_OPTIMIZATION = !Boolean.getBoolean("gemfire.index.DisableJoinOptimization");
   
   // Added for test purposes only.
@@ -138,6 +163,20 @@ public class IndexManager  {
   public static final boolean RANGEINDEX_ONLY =     
     Boolean.valueOf(System.getProperty("gemfire.index.RANGEINDEX_ONLY", "false")).booleanValue();
 
+  /**
+   * System property with the names of the compact range indexes, separated by
+   * commas, that keep their integer, long or date keys in a
+   * {@link LongKeyIndexStore}. It is read when an index is created.
+   */
+  public static final String LONG_KEY_INDEXES_PROP = "gemfire.index.LONG_KEY_INDEXES";
+
+  /**
+   * System property with the names of the compact range indexes, separated by
+   * commas, that keep their keys in a {@link BitmapIndexStore}, for fields
+   * with few distinct values. It is read when an index is created.
+   */
+  public static final String BITMAP_INDEXES_PROP = "gemfire.index.BITMAP_INDEXES";
+
   /** For test purpose only */
   public static boolean TEST_RANGEINDEX_ONLY = false;
   public static final String INDEX_ELEMARRAY_THRESHOLD_PROP = "index_elemarray_threshold";
@@ -169,9 +208,12 @@ public class IndexManager  {
     if (!indexMaintenanceSynchronous) {
       final LoggingThreadGroup group =
         LoggingThreadGroup.createThreadGroup("QueryMonitor Thread Group", logger);
-      updater = new IndexUpdaterThread(group, this.INDEX_MAINTENANCE_BUFFER,
-                                       "OqlIndexUpdater:" + region.getFullPath());
-      updater.start();
+      updaters = new IndexUpdaterThread[INDEX_MAINTENANCE_THREADS];
+      for (int i = 0; i < updaters.length; i++) {
+        updaters[i] = new IndexUpdaterThread(group, this.INDEX_MAINTENANCE_BUFFER,
+            "OqlIndexUpdater:" + region.getFullPath() + (i == 0 ? "" : ":" + i));
+        updaters[i].start();
+      }
     }
   }
    
@@ -257,7 +299,66 @@ public class IndexManager  {
    * Used by tests to access the updater thread to determine its progress
    */
   public IndexUpdaterThread getUpdaterThread() {
-    return this.updater;
+    return this.updaters == null ? null : this.updaters[0];
+  }
+
+  private IndexUpdaterThread getUpdaterThread(RegionEntry entry) {
+    if (this.updaters.length == 1) {
+      return this.updaters[0];
+    }
+    int hash = System.identityHashCode(entry) & 0x7fffffff;
+    return this.updaters[hash % this.updaters.length];
+  }
+
+  /**
+   * Used by tests to get the number of asynchronous index updates queued so
+   * far, not counting the updates merged into pending ones
+   */
+  long getNumQueuedAsyncUpdates() {
+    long numQueued = 0;
+    for (IndexUpdaterThread updater : this.updaters) {
+      numQueued += updater.getNumQueued();
+    }
+    return numQueued;
+  }
+
+  /**
+   * Waits until the asynchronous index updates queued before this call have
+   * been applied. Returns immediately if index maintenance is synchronous.
+   * 
+   * @param timeout the maximum time to wait in milliseconds
+   * @return false if the updates were not applied within the timeout
+   */
+  public boolean waitForAsyncIndexUpdates(long timeout) {
+    if (isIndexMaintenanceTypeSynchronous()) {
+      return true;
+    }
+    long[] numQueued = new long[this.updaters.length];
+    for (int i = 0; i < numQueued.length; i++) {
+      numQueued[i] = this.updaters[i].getNumQueued();
+    }
+    long deadline = System.currentTimeMillis() + timeout;
+    boolean interrupted = Thread.interrupted();
+    try {
+      for (int i = 0; i < numQueued.length; i++) {
+        while (true) {
+          try {
+            if (!this.updaters[i].waitForProcessed(numQueued[i], deadline)) {
+              return false;
+            }
+            break;
+          } catch (InterruptedException ie) {
+            interrupted = true;
+            ((LocalRegion)this.region).getCancelCriterion().checkCancelInProgress(ie);
+          }
+        }
+      }
+      return true;
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
   }
 
   // @todo need more specific list of exceptions
@@ -370,6 +471,7 @@ public class IndexManager  {
             indexFutureTask.run();
             // Set the index.
             index = (Index)indexFutureTask.get();
+            indexesChanged();
         } else {
           // Index with same name or characteristic already exists.
           // Check if index creation is complete.
@@ -510,9 +612,18 @@ public class IndexManager  {
     return null;
   }
 
+  /**
+   * @return the entry ordinals shared by the {@link BitmapIndexStore}s of the
+   *         region
+   */
+  EntryOrdinals getEntryOrdinals() {
+    return this.entryOrdinals;
+  }
+
   public void addIndex(String indexName, Index index) {
     IndexTask indexTask = new IndexTask(indexName);
     this.indexes.put(indexTask, index);
+    indexesChanged();
   }
 
   /**
@@ -854,6 +965,7 @@ public class IndexManager  {
     if (this.indexes.remove(indexTask) != null) {
       AbstractIndex indexHandle = (AbstractIndex) index;
       indexHandle.destroy();
+      indexesChanged();
     }
   }
 
@@ -877,8 +989,26 @@ public class IndexManager  {
       IndexTask indexTask = (IndexTask)entry.getKey();
       this.indexes.remove(indexTask);
     }
+    indexesChanged();
     return numIndexes;
   }
+
+  /**
+   * Invalidates the compiled queries on the region, which were compiled for
+   * the indexes before the change. Queries on a partitioned region refer to
+   * the partitioned region rather than to its buckets.
+   */
+  private void indexesChanged() {
+    if (!(this.region.getCache() instanceof GemFireCacheImpl)) {
+      return;
+    }
+    CompiledQueryCache queryCache = ((GemFireCacheImpl)this.region.getCache()).getCompiledQueryCache();
+    if (queryCache != null) {
+      Region queriedRegion = this.region instanceof BucketRegion
+          ? ((BucketRegion)this.region).getPartitionedRegion() : this.region;
+      queryCache.indexesChanged(queriedRegion.getFullPath());
+    }
+  }
   
 
   /**
@@ -906,7 +1036,7 @@ public class IndexManager  {
     }
     else {
       //System.out.println("Aynchronous update");
-      updater.addTask(RECREATE_INDEX, null, IndexProtocol.OTHER_OP);
+      this.updaters[0].addTask(RECREATE_INDEX, null, IndexProtocol.OTHER_OP);
     }
   }
 
@@ -1006,7 +1136,7 @@ public class IndexManager  {
     }
     else {
       //System.out.println("Aynchronous update");
-      updater.addTask(action, entry, opCode);
+      getUpdaterThread(entry).addTask(action, entry, opCode);
     }
   }
 
@@ -1245,6 +1375,30 @@ public class IndexManager  {
     }
   }
 
+  /**
+   * Recreates the indexes from an asynchronous updater. The other updaters
+   * are held off, and writers waiting on a full backlog are released because
+   * the recreate waits for writers in progress.
+   */
+  private void recreateIndexesAsynchronously() {
+    this.asyncRecreateInProgress = true;
+    try {
+      for (IndexUpdaterThread updater : this.updaters) {
+        synchronized (updater) {
+          updater.notifyAll();
+        }
+      }
+      this.asyncUpdateLock.writeLock().lock();
+      try {
+        recreateAllIndexesForRegion();
+      } finally {
+        this.asyncUpdateLock.writeLock().unlock();
+      }
+    } finally {
+      this.asyncRecreateInProgress = false;
+    }
+  }
+
   /**
    * Wait for index initialization before entry create, update, invalidate or destroy
    * operation.
@@ -1299,7 +1453,12 @@ public class IndexManager  {
    */
   public void destroy() throws QueryException {
     this.indexes.clear();
-    if (!isIndexMaintenanceTypeSynchronous()) updater.shutdown();
+    indexesChanged();
+    if (!isIndexMaintenanceTypeSynchronous()) {
+      for (IndexUpdaterThread updater : this.updaters) {
+        updater.shutdown();
+      }
+    }
   }
   
   /**
@@ -1349,6 +1508,37 @@ public class IndexManager  {
     return this.offHeap;
   }
 
+  /**
+   * @return true if the named index should keep its keys in a
+   *         {@link LongKeyIndexStore}
+   * @see #LONG_KEY_INDEXES_PROP
+   */
+  public static boolean isLongKeyIndex(String indexName) {
+    return isNamedIndex(LONG_KEY_INDEXES_PROP, indexName);
+  }
+
+  /**
+   * @return true if the named index should keep its keys in a
+   *         {@link BitmapIndexStore}
+   * @see #BITMAP_INDEXES_PROP
+   */
+  public static boolean isBitmapIndex(String indexName) {
+    return isNamedIndex(BITMAP_INDEXES_PROP, indexName);
+  }
+
+  private static boolean isNamedIndex(String property, String indexName) {
+    String names = System.getProperty(property);
+    if (names == null) {
+      return false;
+    }
+    for (String name : names.split(",")) {
+      if (name.trim().equals(indexName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public static boolean isObjectModificationInplace() {
     return (INPLACE_OBJECT_MODIFICATION || INPLACE_OBJECT_MODIFICATION_FOR_TEST);
   }
@@ -1399,13 +1589,39 @@ public class IndexManager  {
 
   ////////////////////// Inner Classes //////////////////////
  
+  /**
+   * Applies the index updates of a region with asynchronous index maintenance.
+   * Each updater owns the region entries that hash to it, so updates of an
+   * entry are always applied in order while the updaters of a region run in
+   * parallel. The indexes are updated from the current value of an entry, so
+   * updates queued for an entry that is still pending are merged into the
+   * pending update instead of being queued again.
+   */
   public class IndexUpdaterThread extends Thread  {
 
     private volatile boolean running = true;
 
     private volatile boolean shutdownRequested = false;
 
-    private volatile BlockingQueue pendingTasks;
+    /**
+     * The pending updates in arrival order, keyed by region entry. Guarded by
+     * this updater.
+     */
+    private final LinkedHashMap<Object, Object[]> pendingTasks = new LinkedHashMap<Object, Object[]>();
+
+    /**
+     * The number of pending updates that block further writers, or -1 if the
+     * backlog is unbounded
+     */
+    private final int updateThreshold;
+
+    /** The region entry being updated */
+    private Object currentEntry;
+
+    /** The number of updates queued and applied, used to wait for catch-up */
+    private long numQueued;
+
+    private long numProcessed;
 
     /**
      * Creates instance of IndexUpdaterThread
@@ -1414,23 +1630,93 @@ public class IndexManager  {
      */
     IndexUpdaterThread(ThreadGroup group, int updateThreshold, String threadName) {
       super(group, threadName);
-      // Check if threshold is set.
-      if (updateThreshold > 0){
-        // Create a bounded queue.
-        pendingTasks = new ArrayBlockingQueue(updateThreshold);
-      } else {
-        // Create non-bounded queue.
-        pendingTasks = new LinkedBlockingQueue();
-      }
+      this.updateThreshold = updateThreshold > 0 ? updateThreshold : -1;
       this.setDaemon(true);
     }
 
-    public void addTask(int action, RegionEntry entry, int opCode) {
-      Object[] task = new Object[3];
+    /**
+     * Queues an update. If the backlog is full the calling writer waits until
+     * the updater has caught up, unless the update is for the entry being
+     * updated or for an entry that is already pending.
+     */
+    public synchronized void addTask(int action, RegionEntry entry, int opCode) {
+      Object key = entry != null ? entry : RECREATE_TASK_KEY;
+      Object[] task = this.pendingTasks.get(key);
+      if (task != null) {
+        mergeTask(task, action, opCode);
+        return;
+      }
+      boolean interrupted = false;
+      try {
+        while (this.updateThreshold > 0
+            && this.pendingTasks.size() >= this.updateThreshold
+            && key != this.currentEntry && !asyncRecreateInProgress
+            && !this.shutdownRequested) {
+          ((LocalRegion)region).getCancelCriterion().checkCancelInProgress(null);
+          try {
+            wait();
+          } catch (InterruptedException ie) {
+            interrupted = true;
+          }
+        }
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      task = new Object[3];
       task[0] = Integer.valueOf(action);
       task[1] = entry;
-      task[2] = Integer.valueOf(opCode);  // !!!:ezoerner:20081029 change to valueOf jdk 1.5+
-      pendingTasks.add(task);
+      task[2] = Integer.valueOf(opCode);
+      this.pendingTasks.put(key, task);
+      this.numQueued++;
+      notifyAll();
+    }
+
+    /**
+     * Merges an update into the pending update of the same entry. The merged
+     * update re-evaluates the entry from its current value.
+     */
+    private void mergeTask(Object[] task, int action, int opCode) {
+      if (action == RECREATE_INDEX) {
+        return;
+      }
+      if (action == REMOVE_ENTRY && opCode == IndexProtocol.BEFORE_UPDATE_OP) {
+        // the pending update already reads the value that replaces the old one
+        return;
+      }
+      if (action == REMOVE_ENTRY) {
+        task[0] = Integer.valueOf(REMOVE_ENTRY);
+        task[2] = Integer.valueOf(IndexProtocol.OTHER_OP);
+      } else {
+        // an add may find the mapping of an earlier pending update, so the
+        // merged update replaces the mapping whether the index has it or not
+        task[0] = Integer.valueOf(UPDATE_ENTRY);
+        task[2] = Integer.valueOf(IndexProtocol.AFTER_UPDATE_OP);
+      }
+    }
+
+    private synchronized Object[] takeTask() throws InterruptedException {
+      this.currentEntry = null;
+      while (this.pendingTasks.isEmpty()) {
+        if (this.shutdownRequested) {
+          return null;
+        }
+        wait();
+      }
+      Iterator<Map.Entry<Object, Object[]>> it = this.pendingTasks.entrySet().iterator();
+      Map.Entry<Object, Object[]> next = it.next();
+      it.remove();
+      this.currentEntry = next.getKey();
+      // wake up writers waiting for the backlog to shrink
+      notifyAll();
+      return next.getValue();
+    }
+
+    private synchronized void taskDone() {
+      this.currentEntry = null;
+      this.numProcessed++;
+      notifyAll();
     }
 
     /**
@@ -1448,6 +1734,10 @@ public class IndexManager  {
         Thread.currentThread().interrupt();
         // just return, we're done
       }
+      synchronized (this) {
+        // release writers waiting on the backlog
+        notifyAll();
+      }
     }
 
     @Override
@@ -1463,11 +1753,15 @@ public class IndexManager  {
             break;
           }
           try {
-            Object[] task = (Object[])pendingTasks.take();
-            if (this.shutdownRequested) {
+            Object[] task = takeTask();
+            if (task == null || this.shutdownRequested) {
               break;
             }
-            updateIndexes(task);
+            try {
+              updateIndexes(task);
+            } finally {
+              taskDone();
+            }
           }
           catch (InterruptedException ignore) {
             return; // give up (exit the thread)
@@ -1476,6 +1770,9 @@ public class IndexManager  {
       }
       finally {
         this.running = false;
+        synchronized (this) {
+          notifyAll();
+        }
       }
     }
 
@@ -1487,16 +1784,21 @@ public class IndexManager  {
       if (entry != null || action == RECREATE_INDEX) {
         try {
           if (action == RECREATE_INDEX) {
-            recreateAllIndexesForRegion();
+            recreateIndexesAsynchronously();
           } else {
             if (entry != null) {
               entry.setUpdateInProgress(true);
             }
-            processAction(entry, action, opCode);
+            asyncUpdateLock.readLock().lock();
+            try {
+              processAction(entry, action, opCode);
+            } finally {
+              asyncUpdateLock.readLock().unlock();
+            }
           }
         }
         catch (Exception e) {
-          e.printStackTrace();
+          logger.warn("Failed to update the indexes of region {} for action {}", region.getFullPath(), action, e);
         } finally {
           if (entry != null && action != RECREATE_INDEX) {
             entry.setUpdateInProgress(false);
@@ -1505,13 +1807,35 @@ public class IndexManager  {
       }
     }
 
+    /**
+     * Returns the number of updates queued so far.
+     */
+    synchronized long getNumQueued() {
+      return this.numQueued;
+    }
+
+    /**
+     * Waits until the given number of updates has been applied.
+     * @return false if the wait timed out or the updater stopped
+     */
+    synchronized boolean waitForProcessed(long numQueued, long deadline)
+        throws InterruptedException {
+      while (this.numProcessed < numQueued) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0 || !this.running) {
+          return false;
+        }
+        wait(remaining);
+      }
+      return true;
+    }
+
     /**
      * Used by tests to determine if the updater thread has finished updating
-     * its indexes. The list is cleared without synchronization, which makes
-     * this methods somewhat unsafe from a threading point of view.
+     * its indexes.
      */
     public synchronized boolean isDone() {
-      return this.pendingTasks.size() == 0;
+      return this.pendingTasks.isEmpty() && this.currentEntry == null;
     }
 
   }
@@ -42,6 +42,7 @@ public class IndexStats {
   private static final int readLockCountId;
   private static final int numMapIndexKeysId;
   private static final int numBucketIndexesId;
+  private static final int bitmapBytesId;
 
   /** The Statistics object that we delegate most behavior to */
   private final Statistics stats;
@@ -72,6 +73,7 @@ public class IndexStats {
         f.createIntGauge("readLockCount", "Current number of read locks taken.", "uses"),
         f.createLongGauge("numMapIndexKeys", "Number of keys in this Map index", "keys"),
         f.createIntGauge("numBucketIndexes", "Number of bucket indexes in the partitioned region", "indexes"),
+        f.createLongGauge("bitmapBytes", "Approximate number of bytes taken by the entry bitmaps of this bitmap index", "bytes"),
       }
     );
 
@@ -87,6 +89,7 @@ public class IndexStats {
     readLockCountId = type.nameToId("readLockCount");
     numMapIndexKeysId = type.nameToId("numMapIndexKeys");
     numBucketIndexesId = type.nameToId("numBucketIndexes");
+    bitmapBytesId = type.nameToId("bitmapBytes");
   }
   
   ////////////////////////  Constructors  ////////////////////////
@@ -137,6 +140,10 @@ public class IndexStats {
      return stats.getInt(numBucketIndexesId);
    }
 
+   public long getBitmapBytes() {
+     return stats.getLong(bitmapBytesId);
+   }
+
   //////////////////////  Updating Stats  //////////////////////
   
    public void incNumUpdates() {
@@ -187,6 +194,10 @@ public class IndexStats {
    
    public void incNumBucketIndexes(int delta) {
      this.stats.incInt(numBucketIndexesId, delta);
+   }
+
+   public void incBitmapBytes(long delta) {
+     this.stats.incLong(bitmapBytesId, delta);
    }   
   ////// Special Instance Methods /////
 
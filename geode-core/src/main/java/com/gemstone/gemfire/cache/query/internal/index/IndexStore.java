@@ -120,7 +120,8 @@ public interface IndexStore {
 
     /**
      * returns deserialized Region key or Value based on the whether the index
-     * is on Region keys or Region values. Defaults to RegionEntry
+     * is on Region keys or Region values. Defaults to RegionEntry. The value
+     * is only read from the RegionEntry when this is first called.
      */
     Object getDeserializedValue();
 
@@ -135,6 +136,14 @@ public interface IndexStore {
      * @see RegionEntry#isUpdateInProgress() isUpdateInProgress
      */
     boolean isUpdateInProgress();
+
+    /**
+     * 
+     * @return true if the RegionEntry is invalid or removed, which unlike
+     *         {@link #getDeserializedValue()} does not read its value
+     * @see RegionEntry#isInvalidOrRemoved() isInvalidOrRemoved
+     */
+    boolean isInvalidOrRemoved();
   }
 
   public boolean isIndexOnRegionKeys();
@@ -0,0 +1,914 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.gemstone.gemfire.cache.EntryDestroyedException;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionAttributes;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.TypeMismatchException;
+import com.gemstone.gemfire.cache.query.internal.index.AbstractIndex.InternalIndexStatistics;
+import com.gemstone.gemfire.cache.query.internal.types.TypeUtils;
+import com.gemstone.gemfire.internal.cache.CachedDeserializable;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.cache.RegionEntry;
+import com.gemstone.gemfire.internal.cache.Token;
+import com.gemstone.gemfire.internal.cache.persistence.query.CloseableIterator;
+
+/**
+ * An index storage for compact range indexes whose keys are integers, longs
+ * or dates. The keys are kept as primitive longs in sorted runs of parallel
+ * key and entry arrays, instead of the boxed keys, skip list nodes and per key
+ * collections of {@link MemoryIndexStore}.
+ * <p>
+ * Each new mapping is added as a run of one, which is merged with the runs
+ * before it while they are not more than twice its size, as in a
+ * log-structured merge tree. Removed mappings are cleared in place and
+ * dropped by the next merge. The runs are published through a volatile
+ * array, so readers never lock; writers serialize on the store.
+ * <p>
+ * Removing a mapping scans the entries of its key, so the store suits keys
+ * with few entries each, such as timestamps. The {@link IndexManager#NULL}
+ * and {@link QueryService#UNDEFINED} keys are kept in sets of their own.
+ * Keys of any other type fail index maintenance with an {@link IMQException}.
+ *
+ * @see IndexManager#LONG_KEY_INDEXES_PROP
+ * @since 9.0
+ */
+public class LongKeyIndexStore implements IndexStore {
+
+  private static final Run[] NO_RUNS = new Run[0];
+
+  private static final int NO_KEYS = 0;
+  private static final int INTEGER_KEYS = 1;
+  private static final int LONG_KEYS = 2;
+  private static final int DATE_KEYS = 3;
+
+  /** The sorted runs, largest first. Replaced, never modified, on a merge. */
+  private volatile Run[] runs = NO_RUNS;
+
+  /**
+   * The type the keys are returned as. Integer keys are returned as longs once
+   * a long key has been added.
+   */
+  private volatile int keyType = NO_KEYS;
+
+  private final Set<RegionEntry> nullEntries = new IndexConcurrentHashSet<RegionEntry>(16, 0.75f, 1);
+
+  private final Set<RegionEntry> undefinedEntries = new IndexConcurrentHashSet<RegionEntry>(16, 0.75f, 1);
+
+  // number of keys
+  private final AtomicInteger numIndexKeys = new AtomicInteger(0);
+
+  // Map for RegionEntries=>value of indexedExpression (reverse map)
+  private ConcurrentMap entryToValuesMap;
+
+  private final InternalIndexStatistics internalIndexStats;
+
+  private final Region region;
+  private boolean indexOnRegionKeys;
+  private boolean indexOnValues;
+
+  public LongKeyIndexStore(Region region,
+      InternalIndexStatistics internalIndexStats) {
+    this.region = region;
+    RegionAttributes ra = region.getAttributes();
+    // Initialize the reverse-map if in-place modification is set by the
+    // application.
+    if (IndexManager.isObjectModificationInplace()) {
+      this.entryToValuesMap = new ConcurrentHashMap(ra.getInitialCapacity(),
+          ra.getLoadFactor(), ra.getConcurrencyLevel());
+    }
+    this.internalIndexStats = internalIndexStats;
+  }
+
+  /**
+   * A sorted run of keys and the entries they map to. The keys never change;
+   * an entry is set to null when its mapping is removed.
+   */
+  static final class Run {
+    final long[] keys;
+    final RegionEntry[] entries;
+    // number of entries that are not null, guarded by the store
+    int live;
+
+    Run(long[] keys, RegionEntry[] entries, int live) {
+      this.keys = keys;
+      this.entries = entries;
+      this.live = live;
+    }
+
+    /** @return the first position whose key is not less than the given key */
+    int lowerBound(long key) {
+      int low = 0;
+      int high = this.keys.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (this.keys[mid] < key) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /** @return the first position whose key is greater than the given key */
+    int upperBound(long key) {
+      int low = 0;
+      int high = this.keys.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (this.keys[mid] <= key) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /** Merges the live mappings of two runs into a new run */
+    static Run merge(Run first, Run second) {
+      int size = first.live + second.live;
+      long[] keys = new long[size];
+      RegionEntry[] entries = new RegionEntry[size];
+      int i = 0, j = 0, k = 0;
+      while (k < size) {
+        while (i < first.keys.length && first.entries[i] == null) {
+          i++;
+        }
+        while (j < second.keys.length && second.entries[j] == null) {
+          j++;
+        }
+        if (j >= second.keys.length
+            || (i < first.keys.length && first.keys[i] <= second.keys[j])) {
+          keys[k] = first.keys[i];
+          entries[k++] = first.entries[i++];
+        } else {
+          keys[k] = second.keys[j];
+          entries[k++] = second.entries[j++];
+        }
+      }
+      return new Run(keys, entries, size);
+    }
+  }
+
+  private static boolean isToken(Object key) {
+    return IndexManager.NULL.equals(key) || QueryService.UNDEFINED.equals(key);
+  }
+
+  private Set<RegionEntry> getTokenEntries(Object key) {
+    return IndexManager.NULL.equals(key) ? this.nullEntries : this.undefinedEntries;
+  }
+
+  private static int getKeyType(Object key) {
+    if (key instanceof Integer || key instanceof Short || key instanceof Byte) {
+      return INTEGER_KEYS;
+    } else if (key instanceof Long) {
+      return LONG_KEYS;
+    } else if (key != null && key.getClass() == Date.class) {
+      return DATE_KEYS;
+    }
+    return NO_KEYS;
+  }
+
+  private static long toLong(Object key) {
+    if (key instanceof Date) {
+      return ((Date)key).getTime();
+    }
+    return ((Number)key).longValue();
+  }
+
+  private Object toKey(long key) {
+    switch (this.keyType) {
+    case INTEGER_KEYS:
+      return Integer.valueOf((int)key);
+    case DATE_KEYS:
+      return new Date(key);
+    default:
+      return Long.valueOf(key);
+    }
+  }
+
+  /**
+   * Converts a key that is about to be stored, widening the key type if
+   * needed. Must be called while synchronized on the store.
+   */
+  private long toStoredKey(Object key) throws IMQException {
+    int type = getKeyType(key);
+    int current = this.keyType;
+    if (type == NO_KEYS
+        || (current != NO_KEYS && (current == DATE_KEYS) != (type == DATE_KEYS))) {
+      throw new IMQException("Could not add index key " + key + " of type "
+          + (key == null ? null : key.getClass().getName())
+          + " to an index that only stores integer, long or date keys");
+    }
+    if (type > current) {
+      this.keyType = type;
+    }
+    return toLong(key);
+  }
+
+  /**
+   * Returns the lowest and highest stored keys in the given bounds, or null if
+   * no stored key can be in them. A null bound is open.
+   */
+  private long[] getKeyRange(Object start, boolean startInclusive, Object end,
+      boolean endInclusive) {
+    long low = Long.MIN_VALUE;
+    long high = Long.MAX_VALUE;
+    if (start != null) {
+      Long bound = getBound(start, startInclusive, true);
+      if (bound == null) {
+        return null;
+      }
+      low = bound.longValue();
+    }
+    if (end != null) {
+      Long bound = getBound(end, endInclusive, false);
+      if (bound == null) {
+        return null;
+      }
+      high = bound.longValue();
+    }
+    return low <= high ? new long[] { low, high } : null;
+  }
+
+  /**
+   * @return the lowest (or highest) long key that is after (or before) the
+   *         bound, or null if there is none or the bound cannot be compared
+   *         with the stored keys
+   */
+  private Long getBound(Object bound, boolean inclusive, boolean lower) {
+    int type = this.keyType;
+    if (type == NO_KEYS || isToken(bound)) {
+      return null;
+    }
+    int boundType = getKeyType(bound);
+    if (boundType == NO_KEYS) {
+      if (type == DATE_KEYS || !(bound instanceof Number)) {
+        return null;
+      }
+      double d = ((Number)bound).doubleValue();
+      if (Double.isNaN(d)) {
+        return null;
+      }
+      double rounded = lower ? (inclusive ? Math.ceil(d) : Math.floor(d) + 1)
+          : (inclusive ? Math.floor(d) : Math.ceil(d) - 1);
+      if (rounded >= 0x1p63) {
+        return lower ? null : Long.valueOf(Long.MAX_VALUE);
+      } else if (rounded < -0x1p63) {
+        return lower ? Long.valueOf(Long.MIN_VALUE) : null;
+      }
+      return Long.valueOf((long)rounded);
+    }
+    if ((type == DATE_KEYS) != (boundType == DATE_KEYS)) {
+      return null;
+    }
+    long l = toLong(bound);
+    if (!inclusive) {
+      if (l == (lower ? Long.MAX_VALUE : Long.MIN_VALUE)) {
+        return null;
+      }
+      l += lower ? 1 : -1;
+    }
+    return Long.valueOf(l);
+  }
+
+  private boolean isSameKey(Object key, Object other) {
+    int type = getKeyType(key);
+    int otherType = getKeyType(other);
+    if (type != NO_KEYS && otherType != NO_KEYS) {
+      return (type == DATE_KEYS) == (otherType == DATE_KEYS)
+          && toLong(key) == toLong(other);
+    }
+    return key.equals(other);
+  }
+
+  @Override
+  public void updateMapping(Object newKey, Object oldKey, RegionEntry entry, Object oldValue)
+      throws IMQException {
+    try {
+      //Check if reverse-map is present.
+      if (IndexManager.isObjectModificationInplace()) {
+        // If reverse map get the old index key from reverse map.
+        if (this.entryToValuesMap.containsKey(entry)) {
+          oldKey = this.entryToValuesMap.get(entry);
+        }
+      } else {
+        // Check if the old value and new value same.
+        // If they are same, that means the value got updated in place.
+        // In the absence of reverse-map find the old index key from
+        // the runs.
+        if (oldValue != null && oldValue == getTargetObjectInVM(entry)) {
+          Object key = getOldKey(entry);
+          oldKey = key != null ? key : newKey;
+        }
+      }
+
+      newKey = TypeUtils.indexKeyFor(newKey);
+      // No need to update the store if new and old index key are same.
+      if (oldKey != null && isSameKey(oldKey, newKey)) {
+        return;
+      }
+
+      if (newKey.equals(QueryService.UNDEFINED)) {
+        Object targetObject = getTargetObjectForUpdate(entry);
+        if (Token.isInvalidOrRemoved(targetObject)) {
+          if (oldKey != null) {
+            removeMapping(oldKey, entry);
+          }
+          return;
+        }
+      }
+
+      boolean removed = false;
+      synchronized (this) {
+        basicAddMapping(newKey, entry);
+        // remove from the runs in case of update
+        // oldKey is not null only for an update
+        if (oldKey != null) {
+          removed = basicRemoveMapping(TypeUtils.indexKeyFor(oldKey), entry);
+        }
+      }
+      if (removed) {
+        internalIndexStats.incNumValues(-1);
+      }
+      if (IndexManager.isObjectModificationInplace()) {
+        this.entryToValuesMap.put(entry, newKey);
+      }
+    } catch (TypeMismatchException ex) {
+      throw new IMQException("Could not add object of type "
+          + newKey.getClass().getName(), ex);
+    }
+    internalIndexStats.incNumValues(1);
+  }
+
+  @Override
+  public void addMapping(Object newKey, RegionEntry entry) throws IMQException {
+    // for add, oldkey is null
+    updateMapping(newKey, null, entry, null);
+  }
+
+  @Override
+  public void removeMapping(Object key, RegionEntry entry) throws IMQException {
+    boolean found = false;
+    try {
+      Object indexKey = null;
+      if (IndexManager.isObjectModificationInplace()) {
+        indexKey = this.entryToValuesMap.get(entry);
+      }
+      if (indexKey == null) {
+        indexKey = TypeUtils.indexKeyFor(key);
+      }
+      synchronized (this) {
+        found = basicRemoveMapping(indexKey, entry);
+        if (!found && !IndexManager.isObjectModificationInplace() && key != null) {
+          // if there is an inplace-modification find old key by iterating
+          // over the runs and then remove the mapping
+          Object oldKey = getOldKey(entry);
+          if (oldKey != null) {
+            found = basicRemoveMapping(oldKey, entry);
+          }
+        }
+      }
+    } catch (TypeMismatchException ex) {
+      throw new IMQException("Could not remove object of type "
+          + key.getClass().getName(), ex);
+    }
+    if (found) {
+      // Update stats if entry was actually removed
+      internalIndexStats.incNumValues(-1);
+      if (IndexManager.isObjectModificationInplace()) {
+        this.entryToValuesMap.remove(entry);
+      }
+    }
+  }
+
+  /**
+   * Adds a mapping. Must be called while synchronized on the store.
+   */
+  private void basicAddMapping(Object key, RegionEntry entry) throws IMQException {
+    if (isToken(key)) {
+      Set<RegionEntry> entries = getTokenEntries(key);
+      if (entries.isEmpty()) {
+        incNumKeys(1);
+      }
+      entries.add(entry);
+      return;
+    }
+    long k = toStoredKey(key);
+    if (!containsKey(k)) {
+      incNumKeys(1);
+    }
+    Run run = new Run(new long[] { k }, new RegionEntry[] { entry }, 1);
+    Run[] current = this.runs;
+    int n = current.length;
+    // merge with the runs at the end while they are not much larger, which
+    // keeps the number of runs logarithmic in the number of mappings
+    while (n > 0 && current[n - 1].live <= 2 * run.live) {
+      run = Run.merge(current[n - 1], run);
+      n--;
+    }
+    Run[] next = Arrays.copyOf(current, n + 1);
+    next[n] = run;
+    this.runs = next;
+  }
+
+  /**
+   * Removes a mapping. Must be called while synchronized on the store.
+   * @return true if the mapping was found
+   */
+  private boolean basicRemoveMapping(Object key, RegionEntry entry) {
+    if (isToken(key)) {
+      Set<RegionEntry> entries = getTokenEntries(key);
+      boolean found = entries.remove(entry);
+      if (found && entries.isEmpty()) {
+        incNumKeys(-1);
+      }
+      return found;
+    }
+    if (getKeyType(key) == NO_KEYS || this.keyType == NO_KEYS) {
+      return false;
+    }
+    long k = toLong(key);
+    Run[] current = this.runs;
+    for (int r = 0; r < current.length; r++) {
+      Run run = current[r];
+      for (int i = run.lowerBound(k); i < run.keys.length && run.keys[i] == k; i++) {
+        if (run.entries[i] == entry) {
+          run.entries[i] = null;
+          run.live--;
+          if (run.live == 0) {
+            Run[] next = new Run[current.length - 1];
+            System.arraycopy(current, 0, next, 0, r);
+            System.arraycopy(current, r + 1, next, r, next.length - r);
+            this.runs = next;
+          }
+          if (!containsKey(k)) {
+            incNumKeys(-1);
+          }
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void incNumKeys(int delta) {
+    this.numIndexKeys.addAndGet(delta);
+    this.internalIndexStats.incNumKeys(delta);
+  }
+
+  private boolean containsKey(long key) {
+    for (Run run : this.runs) {
+      for (int i = run.lowerBound(key); i < run.keys.length && run.keys[i] == key; i++) {
+        if (run.entries[i] != null) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the number of mappings with keys between low and high inclusive
+   */
+  private int count(long low, long high) {
+    int count = 0;
+    for (Run run : this.runs) {
+      for (int i = run.lowerBound(low), end = run.upperBound(high); i < end; i++) {
+        if (run.entries[i] != null) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Find the key an entry is mapped to by scanning all the mappings, in case
+   * of in-place modification of the value.
+   * @return the key or null if the entry is not mapped
+   */
+  private Object getOldKey(RegionEntry entry) {
+    for (Run run : this.runs) {
+      for (int i = 0; i < run.keys.length; i++) {
+        if (run.entries[i] == entry) {
+          return toKey(run.keys[i]);
+        }
+      }
+    }
+    if (this.nullEntries.contains(entry)) {
+      return IndexManager.NULL;
+    } else if (this.undefinedEntries.contains(entry)) {
+      return QueryService.UNDEFINED;
+    }
+    return null;
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> get(Object indexKey) {
+    if (isToken(indexKey)) {
+      return new TokenIterator(indexKey, getTokenEntries(indexKey));
+    }
+    return new LongKeyIterator(getKeyRange(indexKey, true, indexKey, true), false, null);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> iterator(Object start,
+      boolean startInclusive, Object end, boolean endInclusive,
+      Collection keysToRemove) {
+    return new LongKeyIterator(getKeyRange(start, startInclusive, end, endInclusive),
+        false, keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> iterator(Object start,
+      boolean startInclusive, Collection keysToRemove) {
+    return new LongKeyIterator(getKeyRange(start, startInclusive, null, false),
+        false, keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> iterator(Collection keysToRemove) {
+    return new LongKeyIterator(getKeyRange(null, false, null, false), false, keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> descendingIterator(Object start,
+      boolean startInclusive, Object end, boolean endInclusive,
+      Collection keysToRemove) {
+    return new LongKeyIterator(getKeyRange(start, startInclusive, end, endInclusive),
+        true, keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> descendingIterator(Object start,
+      boolean startInclusive, Collection keysToRemove) {
+    return new LongKeyIterator(getKeyRange(start, startInclusive, null, false),
+        true, keysToRemove);
+  }
+
+  @Override
+  public CloseableIterator<IndexStoreEntry> descendingIterator(
+      Collection keysToRemove) {
+    return new LongKeyIterator(getKeyRange(null, false, null, false), true, keysToRemove);
+  }
+
+  @Override
+  public boolean isIndexOnRegionKeys() {
+    return indexOnRegionKeys;
+  }
+
+  @Override
+  public void setIndexOnRegionKeys(boolean indexOnRegionKeys) {
+    this.indexOnRegionKeys = indexOnRegionKeys;
+  }
+
+  @Override
+  public boolean isIndexOnValues() {
+    return indexOnValues;
+  }
+
+  @Override
+  public void setIndexOnValues(boolean indexOnValues) {
+    this.indexOnValues = indexOnValues;
+  }
+
+  /**
+   * Get the object of interest from the region entry. For now it always gets
+   * the deserialized value.
+   */
+  @Override
+  public Object getTargetObject(RegionEntry entry) {
+    if (indexOnValues) {
+      Object o = entry.getValue((LocalRegion)this.region);
+      try {
+        if (o == Token.INVALID) {
+          return null;
+        }
+        if (o instanceof CachedDeserializable) {
+          return ((CachedDeserializable) o).getDeserializedValue(
+              this.region, entry);
+        }
+      } catch (EntryDestroyedException ede) {
+        return null;
+      }
+      return o;
+    } else if (indexOnRegionKeys) {
+      return entry.getKey();
+    }
+    return new MemoryIndexStore.CachedEntryWrapper(((LocalRegion) this.region).new NonTXEntry(entry));
+  }
+
+  @Override
+  public Object getTargetObjectInVM(RegionEntry entry) {
+    if (indexOnValues) {
+      Object o = entry.getValueInVM((LocalRegion)this.region);
+      try {
+        if (o == Token.INVALID) {
+          return null;
+        }
+        if (o instanceof CachedDeserializable) {
+          return ((CachedDeserializable) o).getDeserializedValue(
+              this.region, entry);
+        }
+      } catch (EntryDestroyedException ede) {
+        return null;
+      }
+      return o;
+    } else if (indexOnRegionKeys) {
+      return entry.getKey();
+    }
+    return ((LocalRegion) this.region).new NonTXEntry(entry);
+  }
+
+  private Object getTargetObjectForUpdate(RegionEntry entry) {
+    if (indexOnValues) {
+      Object o = entry.getValue((LocalRegion)this.region);
+      try {
+        if (o == Token.INVALID) {
+          return Token.INVALID;
+        }
+        if (o instanceof CachedDeserializable) {
+          return ((CachedDeserializable) o).getDeserializedValue(
+              this.region, entry);
+        }
+      } catch (EntryDestroyedException ede) {
+        return Token.INVALID;
+      }
+      return o;
+    } else if (indexOnRegionKeys) {
+      return entry.getKey();
+    }
+    return ((LocalRegion) this.region).new NonTXEntry(entry);
+  }
+
+  @Override
+  public synchronized boolean clear() {
+    this.runs = NO_RUNS;
+    this.keyType = NO_KEYS;
+    this.nullEntries.clear();
+    this.undefinedEntries.clear();
+    if (IndexManager.isObjectModificationInplace()) {
+      this.entryToValuesMap.clear();
+    }
+    this.numIndexKeys.set(0);
+    return true;
+  }
+
+  @Override
+  public int size(Object key) {
+    if (isToken(key)) {
+      return getTokenEntries(key).size();
+    }
+    long[] range = getKeyRange(key, true, key, true);
+    return range == null ? 0 : count(range[0], range[1]);
+  }
+
+  @Override
+  public int size() {
+    return this.numIndexKeys.get();
+  }
+
+  /**
+   * @return the number of sorted runs, for tests
+   */
+  int getNumRuns() {
+    return this.runs.length;
+  }
+
+  @Override
+  public String printAll() {
+    StringBuffer sb = new StringBuffer();
+    CloseableIterator<IndexStoreEntry> iterator = iterator(null);
+    while (iterator.hasNext()) {
+      IndexStoreEntry entry = iterator.next();
+      sb.append("Key: " + entry.getDeserializedKey());
+      sb.append(" Value:" + entry.getDeserializedValue());
+      sb.append("\n");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Iterates over the mappings of a key range in all the runs of a snapshot,
+   * merging the runs in key order. Keys in the keysToRemove collection, and
+   * the entries removed since the snapshot was taken, are skipped.
+   */
+  private class LongKeyIterator implements CloseableIterator<IndexStoreEntry> {
+    private final Run[] runs;
+    // next position in each run
+    private final int[] positions;
+    // position past the last one to visit in each run
+    private final int[] ends;
+    private final boolean descending;
+    private final Collection keysToRemove;
+    private final LongKeyIndexStoreEntry currentEntry;
+
+    private boolean hasCurrKey = false;
+    private long currKey;
+    private boolean currKeyRemoved;
+
+    private RegionEntry nextEntry;
+    private long nextKey;
+
+    private LongKeyIterator(long[] range, boolean descending, Collection keysToRemove) {
+      this.runs = range == null ? NO_RUNS : LongKeyIndexStore.this.runs;
+      this.positions = new int[this.runs.length];
+      this.ends = new int[this.runs.length];
+      for (int r = 0; r < this.runs.length; r++) {
+        Run run = this.runs[r];
+        if (descending) {
+          this.positions[r] = run.upperBound(range[1]) - 1;
+          this.ends[r] = run.lowerBound(range[0]) - 1;
+        } else {
+          this.positions[r] = run.lowerBound(range[0]);
+          this.ends[r] = run.upperBound(range[1]);
+        }
+      }
+      this.descending = descending;
+      this.keysToRemove = keysToRemove;
+      this.currentEntry = new LongKeyIndexStoreEntry(
+          GemFireCacheImpl.getInstance().cacheTimeMillis());
+    }
+
+    public boolean hasNext() {
+      while (this.nextEntry == null) {
+        int next = -1;
+        long nextKey = 0;
+        for (int r = 0; r < this.runs.length; r++) {
+          Run run = this.runs[r];
+          int pos = this.positions[r];
+          if (pos == this.ends[r]) {
+            continue;
+          }
+          long key = run.keys[pos];
+          if (next < 0 || (this.descending ? key > nextKey : key < nextKey)) {
+            next = r;
+            nextKey = key;
+          }
+        }
+        if (next < 0) {
+          return false;
+        }
+        RegionEntry entry = this.runs[next].entries[this.positions[next]];
+        this.positions[next] += this.descending ? -1 : 1;
+        if (entry == null) {
+          continue;
+        }
+        // check each distinct key once against the keys to skip
+        if (this.keysToRemove != null && (!this.hasCurrKey || nextKey != this.currKey)) {
+          this.hasCurrKey = true;
+          this.currKey = nextKey;
+          this.currKeyRemoved = MemoryIndexStore.removeFromKeysToRemove(this.keysToRemove,
+              toKey(nextKey));
+        }
+        if (this.keysToRemove != null && this.currKeyRemoved) {
+          continue;
+        }
+        this.nextEntry = entry;
+        this.nextKey = nextKey;
+      }
+      return true;
+    }
+
+    public IndexStoreEntry next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      this.currentEntry.setEntry(toKey(this.nextKey), this.nextEntry);
+      this.nextEntry = null;
+      return this.currentEntry;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    public void close() {
+      // do nothing
+    }
+  }
+
+  /**
+   * Iterates over the entries of the {@link IndexManager#NULL} or
+   * {@link QueryService#UNDEFINED} key.
+   */
+  private class TokenIterator implements CloseableIterator<IndexStoreEntry> {
+    private final Object key;
+    private final Iterator<RegionEntry> entries;
+    private final LongKeyIndexStoreEntry currentEntry;
+
+    private TokenIterator(Object key, Set<RegionEntry> entries) {
+      this.key = key;
+      this.entries = entries.iterator();
+      this.currentEntry = new LongKeyIndexStoreEntry(
+          GemFireCacheImpl.getInstance().cacheTimeMillis());
+    }
+
+    public boolean hasNext() {
+      return this.entries.hasNext();
+    }
+
+    public IndexStoreEntry next() {
+      this.currentEntry.setEntry(this.key, this.entries.next());
+      return this.currentEntry;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    public void close() {
+      // do nothing
+    }
+  }
+
+  /**
+   * A mapping of an index key to a RegionEntry, reused by an iterator for
+   * each of its mappings.
+   */
+  private class LongKeyIndexStoreEntry implements IndexStoreEntry {
+    private Object deserializedIndexKey;
+    private RegionEntry regionEntry;
+    private boolean updateInProgress;
+    private Object value;
+    private boolean valueRead;
+    private final long iteratorStartTime;
+
+    private LongKeyIndexStoreEntry(long iteratorStartTime) {
+      this.iteratorStartTime = iteratorStartTime;
+    }
+
+    void setEntry(Object deserializedIndexKey, RegionEntry regionEntry) {
+      this.deserializedIndexKey = deserializedIndexKey;
+      this.regionEntry = regionEntry;
+      this.updateInProgress = regionEntry.isUpdateInProgress();
+      this.value = null;
+      this.valueRead = false;
+    }
+
+    @Override
+    public Object getDeserializedKey() {
+      return deserializedIndexKey;
+    }
+
+    @Override
+    public Object getDeserializedValue() {
+      // read lazily so that lookups answered from the index alone never
+      // touch the value
+      if (!valueRead) {
+        value = getTargetObject(regionEntry);
+        valueRead = true;
+      }
+      return value;
+    }
+
+    @Override
+    public Object getDeserializedRegionKey() {
+      return regionEntry.getKey();
+    }
+
+    @Override
+    public boolean isUpdateInProgress() {
+      return updateInProgress
+          || regionEntry.isUpdateInProgress()
+          // The index update could have started just before the iterator was created. The entry still
+          // needs to be re-evaluated in this case.
+          ||  IndexManager.needsRecalculation(iteratorStartTime, regionEntry.getLastModified());
+    }
+
+    @Override
+    public boolean isInvalidOrRemoved() {
+      return regionEntry.isInvalidOrRemoved();
+    }
+  }
+}
@@ -311,6 +311,10 @@ public class MapIndexStore implements IndexStore {
     public boolean isUpdateInProgress() {
       return false;
     }
+
+    public boolean isInvalidOrRemoved() {
+      return getDeserializedValue() == null;
+    }
   }
   
   //wrapper class for when the index is being queried with a map query
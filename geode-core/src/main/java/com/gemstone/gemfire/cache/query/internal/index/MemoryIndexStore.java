@@ -699,22 +699,27 @@ private Object convertToIndexKey(Object key, RegionEntry entry)
       // do nothing
     }
 
-    public boolean removeFromKeysToRemove(Collection keysToRemove, Object key) {
-      Iterator iterator = keysToRemove.iterator();
-      while (iterator.hasNext()) {
-        try {
-          if (TypeUtils
-              .compare(key, iterator.next(), OQLLexerTokenTypes.TOK_EQ).equals(
-                  Boolean.TRUE)) {
-            iterator.remove();
-            return true;
-          }
-        } catch (TypeMismatchException e) {
-          // they are not equals, so we just continue iterating
+  }
+
+  /**
+   * Removes the first key equal to the given key from the keys to remove.
+   * @return true if a key was removed
+   */
+  static boolean removeFromKeysToRemove(Collection keysToRemove, Object key) {
+    Iterator iterator = keysToRemove.iterator();
+    while (iterator.hasNext()) {
+      try {
+        if (TypeUtils
+            .compare(key, iterator.next(), OQLLexerTokenTypes.TOK_EQ).equals(
+                Boolean.TRUE)) {
+          iterator.remove();
+          return true;
         }
+      } catch (TypeMismatchException e) {
+        // they are not equals, so we just continue iterating
       }
-      return false;
     }
+    return false;
   }
   
   public String printAll() {
@@ -750,6 +755,7 @@ private Object convertToIndexKey(Object key, RegionEntry entry)
     private RegionEntry regionEntry;
     private boolean updateInProgress;
     private Object value;
+    private boolean valueRead;
     private long iteratorStartTime;    
 
     private MemoryIndexStoreEntry(long iteratorStartTime) {
@@ -761,7 +767,8 @@ private Object convertToIndexKey(Object key, RegionEntry entry)
       this.deserializedIndexKey = deserializedIndexKey;
       this.regionEntry = regionEntry;
       this.updateInProgress = regionEntry.isUpdateInProgress();
-      this.value = getTargetObject(regionEntry);
+      this.value = null;
+      this.valueRead = false;
     }
 
     @Override
@@ -771,6 +778,12 @@ private Object convertToIndexKey(Object key, RegionEntry entry)
 
     @Override
     public Object getDeserializedValue() {
+      // read lazily so that lookups answered from the index alone never
+      // touch the value
+      if (!valueRead) {
+        value = getTargetObject(regionEntry);
+        valueRead = true;
+      }
       return value;
     }
 
@@ -791,9 +804,14 @@ private Object convertToIndexKey(Object key, RegionEntry entry)
           // needs to be re-evaluated in this case.
           ||  IndexManager.needsRecalculation(iteratorStartTime, regionEntry.getLastModified());
     }
+
+    @Override
+    public boolean isInvalidOrRemoved() {
+      return regionEntry.isInvalidOrRemoved();
+    }
   }
   
-  class CachedEntryWrapper {
+  static class CachedEntryWrapper {
 
     private Object key, value;
 
@@ -211,22 +211,7 @@ public class TypeUtils implements OQLLexerTokenTypes
           throw new TypeMismatchException(LocalizedStrings.TypeUtils_UNABLE_TO_USE_A_RELATIONAL_COMPARISON_OPERATOR_TO_COMPARE_AN_INSTANCE_OF_CLASS_0_WITH_AN_INSTANCE_OF_1.toLocalizedString(new Object[] {obj1.getClass().getName(), obj2.getClass().getName()}));
         
         
-        switch(compOp) {
-          case TOK_EQ:
-            return Boolean.valueOf(r == 0);
-          case TOK_LT:
-            return Boolean.valueOf(r < 0);
-          case TOK_LE:
-            return Boolean.valueOf(r <= 0);
-          case TOK_GT:
-            return Boolean.valueOf(r > 0);
-          case TOK_GE:
-            return Boolean.valueOf(r >= 0);
-          case TOK_NE:
-            return Boolean.valueOf(r != 0);
-          default:
-            throw new IllegalArgumentException(LocalizedStrings.TypeUtils_UNKNOWN_OPERATOR_0.toLocalizedString(Integer.valueOf(compOp)));
-        }
+        return compareResult(r, compOp);
       } catch (ClassCastException e) {
         // if a ClassCastException was thrown and the operator is equals or not equals,
         // then override and return true or false
@@ -246,6 +231,29 @@ public class TypeUtils implements OQLLexerTokenTypes
       }
     }
     
+    /**
+     * Applies a comparison operator to the result of a compareTo call.
+     * @since 9.0
+     */
+    public static Boolean compareResult(int r, int compOp) {
+      switch(compOp) {
+        case TOK_EQ:
+          return Boolean.valueOf(r == 0);
+        case TOK_LT:
+          return Boolean.valueOf(r < 0);
+        case TOK_LE:
+          return Boolean.valueOf(r <= 0);
+        case TOK_GT:
+          return Boolean.valueOf(r > 0);
+        case TOK_GE:
+          return Boolean.valueOf(r >= 0);
+        case TOK_NE:
+          return Boolean.valueOf(r != 0);
+        default:
+          throw new IllegalArgumentException(LocalizedStrings.TypeUtils_UNKNOWN_OPERATOR_0.toLocalizedString(Integer.valueOf(compOp)));
+      }
+    }
+    
     public static Comparator getTemporalComparator() {
       return new TemporalComparator();
     }
@@ -0,0 +1,413 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.compression;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.internal.cache.xmlcache.Declarable2;
+import com.gemstone.gemfire.internal.util.BlobHelper;
+
+/**
+ * A {@link Compressor} for small values that deflates them with a preset
+ * dictionary of the byte sequences that are common to the values of a
+ * region, for instance the class and field names of their serialized form.
+ * Values of a few hundred bytes have too little repetition of their own to
+ * compress well, but most of their bytes can be found in such a dictionary.
+ * <p>
+ * A dictionary is trained from sample values with
+ * {@link #trainDictionary(Collection, int)} or from the values of an existing
+ * region with {@link #train(Region, int, int)}. Every member must use the
+ * same dictionary for a region. It is part of the configuration of this
+ * compressor, so it is written to cache xml and to the cluster configuration
+ * as the <code>dictionary</code> parameter of the compressor, encoded in
+ * base 64. A compressed value records which dictionary compressed it and a
+ * {@link CompressionException} is thrown if it is decompressed with another.
+ * <p>
+ * A few Deflaters and Inflaters are pooled for reuse by all the threads.
+ * Compressing costs time proportional to the size of the dictionary,
+ * decompressing does not.
+ *
+ * @since 9.0
+ */
+public final class DictionaryCompressor implements Compressor, Declarable2, Serializable {
+  private static final long serialVersionUID = -3367429618395231742L;
+
+  /** The name of the parameter that has the base 64 encoded dictionary */
+  public static final String DICTIONARY = "dictionary";
+
+  /** The size of the dictionaries trained by {@link #train(Region, int, int)} by default */
+  public static final int DEFAULT_DICTIONARY_SIZE = 8192;
+
+  /** The number of bytes that identify a common byte sequence when training */
+  private static final int DMER_SIZE = 8;
+
+  /** The size of the sequences of the sample values that a dictionary is made of */
+  private static final int SEGMENT_SIZE = 48;
+
+  /**
+   * The most Deflaters, and the most Inflaters, that are kept for reuse.
+   * Others are ended as soon as they have been used.
+   */
+  private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+  /**
+   * The most bytes that one byte of deflated data can inflate to. A 258
+   * byte match can be coded in two bits.
+   */
+  private static final int MAX_INFLATION = 1032;
+
+  private static final BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<Deflater>(POOL_SIZE);
+
+  private static final BlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<Inflater>(POOL_SIZE);
+
+  private byte[] dictionary;
+
+  private int dictionaryId;
+
+  /**
+   * Creates a compressor with no dictionary. Its dictionary is set by
+   * {@link #init(Properties)} when it is declared in cache xml.
+   */
+  public DictionaryCompressor() {
+    this(new byte[0]);
+  }
+
+  /**
+   * Creates a compressor that uses the given dictionary.
+   */
+  public DictionaryCompressor(byte[] dictionary) {
+    setDictionary(dictionary);
+  }
+
+  private void setDictionary(byte[] dictionary) {
+    if (dictionary == null) {
+      throw new IllegalArgumentException("dictionary must not be null");
+    }
+    this.dictionary = dictionary.clone();
+    CRC32 crc = new CRC32();
+    crc.update(dictionary, 0, dictionary.length);
+    this.dictionaryId = (int)crc.getValue();
+  }
+
+  /**
+   * Returns a copy of the dictionary of this compressor.
+   */
+  public byte[] getDictionary() {
+    return this.dictionary.clone();
+  }
+
+  @Override
+  public void init(Properties props) {
+    String encoded = props.getProperty(DICTIONARY);
+    setDictionary(encoded == null ? new byte[0] : Base64.getDecoder().decode(encoded));
+  }
+
+  @Override
+  public Properties getConfig() {
+    Properties props = new Properties();
+    props.setProperty(DICTIONARY, Base64.getEncoder().encodeToString(this.dictionary));
+    return props;
+  }
+
+  /**
+   * Compresses the input to the id of the dictionary and the length of the
+   * input followed by the input deflated with the dictionary.
+   */
+  @Override
+  public byte[] compress(byte[] input) {
+    Deflater deflater = deflaters.poll();
+    if (deflater == null) {
+      deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    }
+    try {
+      if (this.dictionary.length > 0) {
+        deflater.setDictionary(this.dictionary);
+      }
+      deflater.setInput(input);
+      deflater.finish();
+      byte[] result = new byte[input.length + (input.length >> 3) + 64];
+      int size = writeHeader(result, input.length);
+      while (true) {
+        size += deflater.deflate(result, size, result.length - size);
+        if (deflater.finished()) {
+          break;
+        }
+        result = Arrays.copyOf(result, result.length * 2);
+      }
+      return Arrays.copyOf(result, size);
+    } finally {
+      deflater.reset();
+      if (!deflaters.offer(deflater)) {
+        deflater.end();
+      }
+    }
+  }
+
+  @Override
+  public byte[] decompress(byte[] input) {
+    if (input.length < 5) {
+      throw new CompressionException("The value was not compressed by a DictionaryCompressor");
+    }
+    int id = (input[0] & 0xff) << 24 | (input[1] & 0xff) << 16 | (input[2] & 0xff) << 8 | (input[3] & 0xff);
+    if (id != this.dictionaryId) {
+      throw new CompressionException("The value was compressed with a different dictionary");
+    }
+    int offset = 4;
+    int length = 0;
+    int shift = 0;
+    byte b;
+    do {
+      if (offset >= input.length || shift > 28) {
+        throw new CompressionException("The value was not compressed by a DictionaryCompressor");
+      }
+      b = input[offset++];
+      length |= (b & 0x7f) << shift;
+      shift += 7;
+    } while (b < 0);
+    // do not trust a corrupt length with a huge allocation
+    if (length < 0 || length > (long)(input.length - offset) * MAX_INFLATION) {
+      throw new CompressionException("The compressed value is corrupt");
+    }
+    Inflater inflater = inflaters.poll();
+    if (inflater == null) {
+      inflater = new Inflater(true);
+    }
+    try {
+      inflater.setInput(input, offset, input.length - offset);
+      if (this.dictionary.length > 0) {
+        inflater.setDictionary(this.dictionary);
+      }
+      byte[] result = new byte[length];
+      int size = inflater.inflate(result);
+      if (size != length || !inflater.finished()) {
+        throw new CompressionException("The compressed value is corrupt");
+      }
+      return result;
+    } catch (DataFormatException e) {
+      throw new CompressionException(e);
+    } finally {
+      inflater.reset();
+      if (!inflaters.offer(inflater)) {
+        inflater.end();
+      }
+    }
+  }
+
+  private int writeHeader(byte[] dst, int length) {
+    int id = this.dictionaryId;
+    dst[0] = (byte)(id >>> 24);
+    dst[1] = (byte)(id >>> 16);
+    dst[2] = (byte)(id >>> 8);
+    dst[3] = (byte)id;
+    int offset = 4;
+    while ((length & ~0x7f) != 0) {
+      dst[offset++] = (byte)((length & 0x7f) | 0x80);
+      length >>>= 7;
+    }
+    dst[offset++] = (byte)length;
+    return offset;
+  }
+
+  /**
+   * Returns a compressor whose dictionary is trained from a random sample of
+   * the values of the given region. The region must have values like the
+   * ones that will be compressed with the dictionary. Every value of the
+   * region is read.
+   *
+   * @param region the region whose values are sampled
+   * @param sampleCount the maximum number of values to sample
+   * @param dictionarySize the maximum size of the dictionary, for instance
+   *        {@link #DEFAULT_DICTIONARY_SIZE}
+   */
+  public static DictionaryCompressor train(Region<?, ?> region, int sampleCount, int dictionarySize) {
+    // reservoir sampling so that every value has the same chance to be a sample
+    List<Object> sample = new ArrayList<Object>(sampleCount);
+    Random random = new Random();
+    int seen = 0;
+    for (Object value : region.values()) {
+      if (sample.size() < sampleCount) {
+        sample.add(value);
+      } else {
+        int idx = random.nextInt(seen + 1);
+        if (idx < sampleCount) {
+          sample.set(idx, value);
+        }
+      }
+      seen++;
+    }
+    List<byte[]> samples = new ArrayList<byte[]>(sample.size());
+    for (Object value : sample) {
+      if (value instanceof byte[]) {
+        samples.add((byte[])value);
+      } else {
+        try {
+          samples.add(BlobHelper.serializeToBlob(value));
+        } catch (IOException e) {
+          throw new CompressionException("Could not serialize a sample value", e);
+        }
+      }
+    }
+    return new DictionaryCompressor(trainDictionary(samples, dictionarySize));
+  }
+
+  /**
+   * Returns a dictionary made of the byte sequences that are most common in
+   * the given samples. A sequence is scored by how many samples have its
+   * bytes, and sequences are picked greedily by their score counting only
+   * the bytes not already in the dictionary. The best sequences are put at
+   * the end of the dictionary, where they are closest to the compressed data.
+   *
+   * @param samples the serialized form of values like the ones that will be
+   *        compressed
+   * @param dictionarySize the maximum size of the dictionary
+   * @return the dictionary, which is empty if the samples have nothing in common
+   */
+  public static byte[] trainDictionary(Collection<byte[]> samples, int dictionarySize) {
+    // the number of samples each dmer occurs in
+    Map<Long, Integer> frequencies = new HashMap<Long, Integer>();
+    Set<Long> sampleDmers = new HashSet<Long>();
+    for (byte[] s : samples) {
+      sampleDmers.clear();
+      for (int i = 0; i + DMER_SIZE <= s.length; i++) {
+        sampleDmers.add(getDmer(s, i));
+      }
+      for (Long dmer : sampleDmers) {
+        Integer count = frequencies.get(dmer);
+        frequencies.put(dmer, count == null ? 1 : count + 1);
+      }
+    }
+
+    Set<Long> covered = new HashSet<Long>();
+    PriorityQueue<Segment> candidates = new PriorityQueue<Segment>();
+    for (byte[] s : samples) {
+      for (int start = 0; start + DMER_SIZE <= s.length; start += SEGMENT_SIZE / 4) {
+        Segment segment = new Segment(s, start, Math.min(start + SEGMENT_SIZE, s.length));
+        if (segment.score(frequencies, covered) > 0) {
+          candidates.add(segment);
+        }
+      }
+    }
+
+    List<Segment> picked = new ArrayList<Segment>();
+    int size = 0;
+    while (size < dictionarySize && !candidates.isEmpty()) {
+      Segment best = candidates.poll();
+      // the score goes down as the dictionary covers more of the segment
+      int score = best.score(frequencies, covered);
+      if (score <= 0) {
+        continue;
+      }
+      if (!candidates.isEmpty() && score < candidates.peek().score) {
+        candidates.add(best);
+        continue;
+      }
+      for (int i = best.start; i + DMER_SIZE <= best.end; i++) {
+        covered.add(getDmer(best.sample, i));
+      }
+      picked.add(best);
+      size += best.end - best.start;
+    }
+
+    byte[] result = new byte[Math.min(size, dictionarySize)];
+    int end = result.length;
+    for (Segment s : picked) {
+      int length = Math.min(s.end - s.start, end);
+      System.arraycopy(s.sample, s.end - length, result, end - length, length);
+      end -= length;
+    }
+    return result;
+  }
+
+  private static long getDmer(byte[] bytes, int offset) {
+    long result = 0;
+    for (int i = 0; i < DMER_SIZE; i++) {
+      result = (result << 8) | (bytes[offset + i] & 0xff);
+    }
+    return result;
+  }
+
+  /**
+   * A candidate sequence of a sample, ordered by descending score.
+   */
+  private static class Segment implements Comparable<Segment> {
+    private final byte[] sample;
+    private final int start;
+    private final int end;
+    private int score;
+
+    Segment(byte[] sample, int start, int end) {
+      this.sample = sample;
+      this.start = start;
+      this.end = end;
+    }
+
+    /**
+     * Computes the score of this segment: the number of other samples that
+     * have each of its dmers that are not covered.
+     */
+    int score(Map<Long, Integer> frequencies, Set<Long> covered) {
+      int result = 0;
+      Set<Long> counted = new HashSet<Long>();
+      for (int i = this.start; i + DMER_SIZE <= this.end; i++) {
+        Long dmer = getDmer(this.sample, i);
+        if (!covered.contains(dmer) && counted.add(dmer)) {
+          result += frequencies.get(dmer) - 1;
+        }
+      }
+      this.score = result;
+      return result;
+    }
+
+    @Override
+    public int compareTo(Segment other) {
+      return Integer.compare(other.score, this.score);
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return this.dictionaryId;
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    if (!(other instanceof DictionaryCompressor)) {
+      return false;
+    }
+    return Arrays.equals(this.dictionary, ((DictionaryCompressor)other).dictionary);
+  }
+}
@@ -538,6 +538,10 @@ public interface DMStats {
 
   public void endPdxInstanceDeserialization(long start);
   public void incPdxInstanceCreations();
+
+  public void incSerializationBufferReuses();
+  public void incSerializationBufferAllocations();
+  public void incOversizedSerializationBufferAllocations();
   
   //Stats for GMSHealthMonitor
   public long getHeartbeatRequestsSent();
@@ -812,8 +812,8 @@ public class DistributionManager
         statId = getChannelId();
         }
       */
-      this.stats = new DistributionStats(system, statId);
       DistributionStats.enableClockStats = system.getConfig().getEnableTimeStatistics();
+      this.stats = new DistributionStats(system, statId);
     }
 
     this.exceptionInThreads = false;
@@ -23,6 +23,7 @@ import com.gemstone.gemfire.Statistics;
 import com.gemstone.gemfire.StatisticsFactory;
 import com.gemstone.gemfire.StatisticsType;
 import com.gemstone.gemfire.StatisticsTypeFactory;
+import com.gemstone.gemfire.internal.LogLinearHistogramStats;
 import com.gemstone.gemfire.internal.NanoTimer;
 import com.gemstone.gemfire.internal.StatisticsTypeFactoryImpl;
 import com.gemstone.gemfire.internal.logging.LogService;
@@ -138,6 +139,10 @@ public class DistributionStats implements DMStats {
   private final static int pdxInstanceDeserializationTimeId;
   private final static int pdxInstanceCreationsId;
 
+  private final static int serializationBufferReusesId;
+  private final static int serializationBufferAllocationsId;
+  private final static int oversizedSerializationBufferAllocationsId;
+
   private final static int msgSerializationTimeId;
   private final static int msgDeserializationTimeId;
 
@@ -461,6 +466,9 @@ public class DistributionStats implements DMStats {
         f.createIntCounter("pdxInstanceDeserializations", "Total number of times getObject has been called on a PdxInstance.", "ops"),
         f.createLongCounter("pdxInstanceDeserializationTime", "Total amount of time, in nanoseconds, spent deserializing PdxInstances by calling getObject.", "nanoseconds"),
         f.createIntCounter("pdxInstanceCreations", "Total number of times a deserialization created a PdxInstance.", "ops"),
+        f.createLongCounter("serializationBufferReuses", "Total number of serialization buffers taken from a thread's serialization buffer pool instead of being allocated.", "buffers"),
+        f.createLongCounter("serializationBufferAllocations", "Total number of serialization buffers allocated because a thread's serialization buffer pool had none of the needed size.", "buffers"),
+        f.createLongCounter("oversizedSerializationBufferAllocations", "Total number of serialization buffers allocated that were too large to be kept in a serialization buffer pool.", "buffers"),
 
         f.createLongCounter("batchSendTime", "Total amount of time, in nanoseconds, spent queueing and flushing message batches", "nanoseconds"),
         f.createLongCounter("batchWaitTime", "Reserved for future use", "nanoseconds"),
@@ -647,6 +655,9 @@ public class DistributionStats implements DMStats {
     pdxInstanceDeserializationsId = type.nameToId("pdxInstanceDeserializations");
     pdxInstanceDeserializationTimeId = type.nameToId("pdxInstanceDeserializationTime");
     pdxInstanceCreationsId = type.nameToId("pdxInstanceCreations");
+    serializationBufferReusesId = type.nameToId("serializationBufferReuses");
+    serializationBufferAllocationsId = type.nameToId("serializationBufferAllocations");
+    oversizedSerializationBufferAllocationsId = type.nameToId("oversizedSerializationBufferAllocations");
 
     msgSerializationTimeId = type.nameToId("msgSerializationTime");
     msgDeserializationTimeId = type.nameToId("msgDeserializationTime");
@@ -749,7 +760,12 @@ public class DistributionStats implements DMStats {
   private final Statistics stats;
 
 //  private final HistogramStats replyHandoffHistogram;
-//  private final HistogramStats replyWaitHistogram;
+
+  /**
+   * The histogram of the reply wait times, null if clock stats are disabled
+   * or if created from existing stats
+   */
+  private final LogLinearHistogramStats replyWaitHistogram;
 
   ////////////////////////  Constructors  ////////////////////////
 
@@ -761,8 +777,8 @@ public class DistributionStats implements DMStats {
     this.stats = f.createAtomicStatistics(type, "distributionStats", statId);
 //    this.replyHandoffHistogram = new HistogramStats("ReplyHandOff", "nanoseconds", f,
 //        new long[] {100000, 200000, 300000, 400000, 500000, 600000, 700000, 800000, 900000, 1000000}, false);
-//    this.replyWaitHistogram = new HistogramStats("ReplyWait", "nanoseconds", f,
-//        new long[] {100000, 200000, 300000, 400000, 500000, 600000, 700000, 800000, 900000, 1000000}, false);
+    this.replyWaitHistogram = enableClockStats
+        ? new LogLinearHistogramStats(f, "distributionStats-replyWaitLatency") : null;
     Buffers.initBufferStats(this);
   }
   /**
@@ -771,7 +787,7 @@ public class DistributionStats implements DMStats {
   public DistributionStats(Statistics stats) {
     this.stats = stats;
 //    this.replyHandoffHistogram = null;
-//    this.replyWaitHistogram = null;
+    this.replyWaitHistogram = null;
   }
 
   /**
@@ -786,6 +802,9 @@ public class DistributionStats implements DMStats {
 
   public void close() {
     this.stats.close();
+    if (this.replyWaitHistogram != null) {
+      this.replyWaitHistogram.close();
+    }
   }
 
  /**
@@ -1234,6 +1253,15 @@ public class DistributionStats implements DMStats {
   public void incPdxInstanceCreations() {
     stats.incInt(pdxInstanceCreationsId, 1);
   }
+  public void incSerializationBufferReuses() {
+    stats.incLong(serializationBufferReusesId, 1);
+  }
+  public void incSerializationBufferAllocations() {
+    stats.incLong(serializationBufferAllocationsId, 1);
+  }
+  public void incOversizedSerializationBufferAllocations() {
+    stats.incLong(oversizedSerializationBufferAllocationsId, 1);
+  }
   public long startDeserialization() {
     return getStatTime();
   }
@@ -1269,8 +1297,11 @@ public class DistributionStats implements DMStats {
   }
   public void endReplyWait(long startNanos, long initTime) {
     if (enableClockStats) {
-      stats.incLong(replyWaitTimeId, getStatTime()-startNanos);
-//      this.replyWaitHistogram.endOp(delta);
+      long delta = getStatTime()-startNanos;
+      stats.incLong(replyWaitTimeId, delta);
+      if (this.replyWaitHistogram != null) {
+        this.replyWaitHistogram.endOp(delta);
+      }
     }
     if (initTime != 0) {
       long mswait = System.currentTimeMillis() - initTime;
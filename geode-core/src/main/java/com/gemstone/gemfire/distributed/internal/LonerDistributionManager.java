@@ -574,6 +574,12 @@ public class LonerDistributionManager implements DM {
     @Override
     public void incPdxInstanceCreations() {}
     @Override
+    public void incSerializationBufferReuses() {}
+    @Override
+    public void incSerializationBufferAllocations() {}
+    @Override
+    public void incOversizedSerializationBufferAllocations() {}
+    @Override
     public void incThreadOwnedReceivers(long value, int dominoCount) {
     }
     @Override
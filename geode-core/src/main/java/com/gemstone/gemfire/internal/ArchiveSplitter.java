@@ -332,6 +332,12 @@ public class ArchiveSplitter implements StatArchiveFormat {
         readSampleToken();
         this.myIs.putBytes(this.dataOut);
         break;
+      case TIME_BLOCK_FOOTER_TOKEN:
+      case ARCHIVE_INDEX_TOKEN:
+        // the offsets they hold are not those of the split archives
+        this.dataIn.readFully(new byte[this.dataIn.readInt()]);
+        this.myIs.discardBytes();
+        break;
       default:
         throw new IOException(LocalizedStrings.ArchiveSplitter_UNEXPECTED_TOKEN_BYTE_VALUE_0.toLocalizedString(new Byte(token)));
       }
@@ -450,6 +456,13 @@ public class ArchiveSplitter implements StatArchiveFormat {
       dataOut.write(readBytes, 0, idx);
       idx = 0;
     }
+
+    /**
+     * Drops all the bytes, read or skipped, since the last reset.
+     */
+    public void discardBytes() {
+      idx = 0;
+    }
     
     @Override
     public void close() throws IOException {
@@ -24,6 +24,7 @@ import java.io.UTFDataFormatException;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 
@@ -75,8 +76,32 @@ public class HeapDataOutputStream extends OutputStream implements
   private int memoPosition;
   private Version version;
   private boolean doNotCopy;
+  /**
+   * The buffers taken from the {@link SerializationBufferPool}, if this
+   * stream is pooled; otherwise null.
+   */
+  private ArrayList<ByteBuffer> pooledBuffers;
 
   private static final int INITIAL_CAPACITY = 1024;
+
+  /**
+   * Creates a stream whose buffers come from the calling thread's
+   * {@link SerializationBufferPool}. {@link #release} must be called once
+   * the contents have been copied out of the stream, on the same thread.
+   * Only {@link #toByteArray} and the <code>sendTo</code> methods that copy
+   * may be used to get the contents since the buffers are reused by the
+   * next pooled stream.
+   */
+  public static HeapDataOutputStream createPooled(Version version) {
+    if (!SerializationBufferPool.isEnabled()) {
+      return new HeapDataOutputStream(version);
+    }
+    ByteBuffer bb = SerializationBufferPool.acquire(INITIAL_CAPACITY);
+    HeapDataOutputStream result = new HeapDataOutputStream(bb, version, false);
+    result.pooledBuffers = new ArrayList<ByteBuffer>(4);
+    result.pooledBuffers.add(bb);
+    return result;
+  }
   
   public HeapDataOutputStream(Version version) {
     this(INITIAL_CAPACITY, version);
@@ -220,6 +245,13 @@ public class HeapDataOutputStream extends OutputStream implements
     if (amount < MIN_CHUNK_SIZE) {
       amount = MIN_CHUNK_SIZE;
     }
+    if (this.pooledBuffers != null) {
+      // grow geometrically so that large objects need few chunks
+      amount = Math.max(amount, Math.min(this.size, SerializationBufferPool.MAX_BUFFER_SIZE));
+      this.buffer = SerializationBufferPool.acquire(amount);
+      this.pooledBuffers.add(this.buffer);
+      return;
+    }
     this.buffer = ByteBuffer.allocate(amount);
   }
 
@@ -416,6 +448,36 @@ public class HeapDataOutputStream extends OutputStream implements
     reset();
   }
 
+  /**
+   * Gives the buffers of a stream created by {@link #createPooled} back to
+   * the pool. The stream can not be used after this.
+   * Does nothing if this stream is not pooled.
+   */
+  public void release() {
+    if (this.pooledBuffers == null) {
+      return;
+    }
+    for (ByteBuffer bb: this.pooledBuffers) {
+      SerializationBufferPool.release(bb);
+    }
+    this.pooledBuffers = null;
+    this.chunks = null;
+    this.size = 0;
+    this.buffer = ByteBuffer.allocate(0);
+    this.writeMode = false;
+  }
+
+  private boolean isPooledBuffer(ByteBuffer bb) {
+    if (this.pooledBuffers != null) {
+      for (ByteBuffer pooled: this.pooledBuffers) {
+        if (pooled == bb) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   /** gets the contents of this stream as s ByteBuffer, ready for reading.
    * The stream should not be written to past this point until it has been reset.
    */
@@ -430,7 +492,7 @@ public class HeapDataOutputStream extends OutputStream implements
   public final byte[] toByteArray() {
     ByteBuffer bb = toByteBuffer();
     if (bb.hasArray() && bb.arrayOffset() == 0
-        && bb.limit() == bb.capacity()) {
+        && bb.limit() == bb.capacity() && !isPooledBuffer(bb)) {
       return bb.array();
     } else {
       // create a new buffer of just the right size and copy the old buffer into it
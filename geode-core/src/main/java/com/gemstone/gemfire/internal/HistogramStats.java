@@ -79,4 +79,12 @@ public class HistogramStats {
     this.stats.incInt(this.statCounterIndex[index], 1);
     this.stats.incLong(this.statCounterIndex[index+1], delta);
   }
+
+  public Statistics getStats() {
+    return this.stats;
+  }
+
+  public void close() {
+    this.stats.close();
+  }
 }
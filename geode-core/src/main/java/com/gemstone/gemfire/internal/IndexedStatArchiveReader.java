@@ -0,0 +1,775 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import com.gemstone.gemfire.GemFireIOException;
+import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+
+/**
+ * Reads the series of values of statistics out of an archive, a time range
+ * at a time, without loading the whole archive like {@link StatArchiveReader}
+ * does.
+ * <p>
+ * The index written at the end of the archive by {@link StatArchiveWriter}
+ * gives the resource instances of the archive and its time blocks, so only
+ * the blocks of the time range that the instances have samples in are read.
+ * Each block is decoded from the checkpoint of values in the footer of the
+ * block before it. An archive without an index, because it was not closed,
+ * is compressed or was written by an older version, is scanned once to find
+ * its instances and blocks.
+ * <p>
+ * Only the value of the statistic being read is kept for each instance, and
+ * the values are passed to a {@link SeriesHandler} as they are decoded.
+ *
+ * @since 9.0
+ */
+public class IndexedStatArchiveReader implements StatArchiveFormat {
+
+  /**
+   * Receives the values of a series.
+   */
+  public interface SeriesHandler {
+    /**
+     * @param instance the resource instance the value is a statistic of
+     * @param timeMillis the time of the sample
+     * @param value the value of the statistic
+     */
+    void sample(ResourceInstanceInfo instance, long timeMillis, double value);
+  }
+
+  /**
+   * A resource instance of an archive.
+   */
+  public static class ResourceInstanceInfo {
+    private final int id;
+    private final String name;
+    private final long numericId;
+    private final TypeInfo type;
+    private final int firstBlock;
+    private int lastBlock;
+
+    ResourceInstanceInfo(int id, String name, long numericId, TypeInfo type,
+        int firstBlock, int lastBlock) {
+      this.id = id;
+      this.name = name;
+      this.numericId = numericId;
+      this.type = type;
+      this.firstBlock = firstBlock;
+      this.lastBlock = lastBlock;
+    }
+
+    public int getId() {
+      return this.id;
+    }
+
+    public String getName() {
+      return this.name;
+    }
+
+    public long getNumericId() {
+      return this.numericId;
+    }
+
+    public String getTypeName() {
+      return this.type.name;
+    }
+
+    public String[] getStatNames() {
+      return this.type.statNames.clone();
+    }
+
+    @Override
+    public String toString() {
+      return getTypeName() + "@" + this.name + "(" + this.id + ")";
+    }
+  }
+
+  private static class TypeInfo {
+    private final String name;
+    private final String[] statNames;
+    private final byte[] typeCodes;
+
+    TypeInfo(String name, int statCount) {
+      this.name = name;
+      this.statNames = new String[statCount];
+      this.typeCodes = new byte[statCount];
+    }
+
+    int getStatOffset(String statName) {
+      for (int i = 0; i < this.statNames.length; i++) {
+        if (this.statNames[i].equals(statName)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+  private static class TimeBlock {
+    private final long startOffset;
+    // -1 if the block has no footer
+    private final long footerOffset;
+    private final long baseMillis;
+    private final long firstMillis;
+    private final long lastMillis;
+
+    TimeBlock(long startOffset, long footerOffset, long baseMillis,
+        long firstMillis, long lastMillis) {
+      this.startOffset = startOffset;
+      this.footerOffset = footerOffset;
+      this.baseMillis = baseMillis;
+      this.firstMillis = firstMillis;
+      this.lastMillis = lastMillis;
+    }
+  }
+
+  /**
+   * The value of the statistic being read of an instance.
+   */
+  private static class SeriesValue {
+    private final ResourceInstanceInfo instance;
+    private final int statOffset;
+    private long bits;
+    private boolean sampled;
+
+    SeriesValue(ResourceInstanceInfo instance, int statOffset) {
+      this.instance = instance;
+      this.statOffset = statOffset;
+    }
+  }
+
+  private final File archive;
+
+  private final boolean compressed;
+
+  private final PositionInputStream positionIn;
+
+  private final DataInputStream dataIn;
+
+  private int archiveVersion;
+
+  private long startTimeMillis;
+
+  private boolean indexed;
+
+  private final Map<Integer, TypeInfo> types = new HashMap<Integer, TypeInfo>();
+
+  private final Map<Integer, ResourceInstanceInfo> instances =
+      new LinkedHashMap<Integer, ResourceInstanceInfo>();
+
+  private final List<TimeBlock> blocks = new ArrayList<TimeBlock>();
+
+  /**
+   * Opens an archive and reads its index, or scans it if it has none.
+   *
+   * @throws GemFireIOException if the archive version is not supported
+   */
+  public IndexedStatArchiveReader(File archive) throws IOException {
+    this.archive = archive;
+    this.compressed = archive.getPath().endsWith(".gz");
+    this.positionIn = new PositionInputStream();
+    this.dataIn = new DataInputStream(this.positionIn);
+    boolean ok = false;
+    try {
+      if (this.dataIn.readByte() != HEADER_TOKEN) {
+        throw new IOException("Not a statistic archive: " + archive);
+      }
+      readHeaderToken();
+      if (this.compressed || !readIndex()) {
+        scan();
+      }
+      ok = true;
+    } finally {
+      if (!ok) {
+        close();
+      }
+    }
+  }
+
+  public int getArchiveVersion() {
+    return this.archiveVersion;
+  }
+
+  public long getStartTimeMillis() {
+    return this.startTimeMillis;
+  }
+
+  /**
+   * Returns true if the archive had an index, false if it was scanned.
+   */
+  public boolean isIndexed() {
+    return this.indexed;
+  }
+
+  /**
+   * Returns the number of time blocks of the archive.
+   */
+  public int getTimeBlockCount() {
+    return this.blocks.size();
+  }
+
+  public List<ResourceInstanceInfo> getResourceInstances() {
+    return Collections.unmodifiableList(
+        new ArrayList<ResourceInstanceInfo>(this.instances.values()));
+  }
+
+  /**
+   * Reads the values of a statistic of the instances of a type between two
+   * times.
+   *
+   * @param typeName the name of the type of the instances
+   * @param instanceName the name of the instance, or null for all the
+   *        instances of the type
+   * @param statName the name of the statistic
+   * @param startMillis the time of the first samples to read
+   * @param endMillis the time of the last samples to read
+   * @param handler receives the values, in time order for each instance
+   */
+  public void readSeries(String typeName, String instanceName, String statName,
+      long startMillis, long endMillis, SeriesHandler handler) throws IOException {
+    Map<Integer, SeriesValue> series = new HashMap<Integer, SeriesValue>();
+    int firstBlock = Integer.MAX_VALUE;
+    int lastBlock = -1;
+    for (ResourceInstanceInfo instance : this.instances.values()) {
+      if (!instance.type.name.equals(typeName)
+          || (instanceName != null && !instance.name.equals(instanceName))) {
+        continue;
+      }
+      int statOffset = instance.type.getStatOffset(statName);
+      if (statOffset < 0) {
+        continue;
+      }
+      series.put(instance.id, new SeriesValue(instance, statOffset));
+      firstBlock = Math.min(firstBlock, instance.firstBlock);
+      lastBlock = Math.max(lastBlock, instance.lastBlock < 0
+          ? this.blocks.size() - 1 : instance.lastBlock);
+    }
+    lastBlock = Math.min(lastBlock, this.blocks.size() - 1);
+    for (int b = firstBlock; b <= lastBlock; b++) {
+      TimeBlock block = this.blocks.get(b);
+      if (block.lastMillis < startMillis) {
+        continue;
+      }
+      if (block.firstMillis > endMillis) {
+        break;
+      }
+      readBlock(b, series, startMillis, endMillis, handler);
+    }
+  }
+
+  public void close() throws IOException {
+    this.positionIn.close();
+  }
+
+  //////////////////////  Reading the index  //////////////////////
+
+  /**
+   * Reads the index from the end of the archive.
+   *
+   * @return false if the archive has no index
+   */
+  private boolean readIndex() throws IOException {
+    long indexOffset;
+    RandomAccessFile file = new RandomAccessFile(this.archive, "r");
+    try {
+      if (file.length() < 12) {
+        return false;
+      }
+      file.seek(file.length() - 12);
+      indexOffset = file.readLong();
+      if (file.readInt() != ARCHIVE_INDEX_MAGIC || indexOffset < 0
+          || indexOffset >= file.length() - 12) {
+        return false;
+      }
+    } finally {
+      file.close();
+    }
+    this.positionIn.seek(indexOffset);
+    if (this.dataIn.readByte() != ARCHIVE_INDEX_TOKEN) {
+      return false;
+    }
+    this.dataIn.readInt(); // length
+
+    long[] typeOffsets = new long[this.dataIn.readInt()];
+    for (int i = 0; i < typeOffsets.length; i++) {
+      this.dataIn.readInt(); // type id
+      typeOffsets[i] = this.dataIn.readLong();
+    }
+    long[][] instanceEntries = new long[this.dataIn.readInt()][];
+    for (int i = 0; i < instanceEntries.length; i++) {
+      this.dataIn.readInt(); // instance id
+      instanceEntries[i] = new long[] { this.dataIn.readLong(),
+          this.dataIn.readInt(), this.dataIn.readInt() };
+    }
+    int blockCount = this.dataIn.readInt();
+    for (int i = 0; i < blockCount; i++) {
+      long startOffset = this.dataIn.readLong();
+      long footerOffset = this.dataIn.readLong();
+      long baseMillis = this.dataIn.readLong();
+      long firstMillis = this.dataIn.readLong();
+      long lastMillis = this.dataIn.readLong();
+      this.dataIn.readInt(); // sample count
+      this.blocks.add(new TimeBlock(startOffset, footerOffset, baseMillis,
+          firstMillis, lastMillis));
+    }
+
+    // read the types and instances from their tokens
+    for (long typeOffset : typeOffsets) {
+      this.positionIn.seek(typeOffset);
+      if (this.dataIn.readByte() != RESOURCE_TYPE_TOKEN) {
+        throw new IOException("Bad type offset in the index of statistic archive " + this.archive);
+      }
+      readResourceTypeToken();
+    }
+    for (long[] entry : instanceEntries) {
+      this.positionIn.seek(entry[0]);
+      byte token = this.dataIn.readByte();
+      if (token != RESOURCE_INSTANCE_CREATE_TOKEN
+          && token != RESOURCE_INSTANCE_INITIALIZE_TOKEN) {
+        throw new IOException("Bad instance offset in the index of statistic archive " + this.archive);
+      }
+      ResourceInstanceInfo instance = readResourceInstanceInfo((int)entry[1]);
+      instance.lastBlock = (int)entry[2];
+    }
+    this.indexed = true;
+    return true;
+  }
+
+  /**
+   * Finds the types, instances and time blocks of an archive by reading all
+   * its tokens.
+   */
+  private void scan() throws IOException {
+    long blockStart = this.positionIn.getPosition();
+    long baseMillis = this.startTimeMillis;
+    long firstMillis = 0;
+    long timeMillis = this.startTimeMillis;
+    int sampleCount = 0;
+    try {
+      while (true) {
+        long tokenOffset = this.positionIn.getPosition();
+        byte token = this.dataIn.readByte();
+        switch (token) {
+        case RESOURCE_TYPE_TOKEN:
+          readResourceTypeToken();
+          break;
+        case RESOURCE_INSTANCE_CREATE_TOKEN:
+        case RESOURCE_INSTANCE_INITIALIZE_TOKEN:
+          readResourceInstanceCreateToken(token == RESOURCE_INSTANCE_INITIALIZE_TOKEN, null);
+          break;
+        case RESOURCE_INSTANCE_DELETE_TOKEN: {
+          ResourceInstanceInfo instance = this.instances.get(this.dataIn.readInt());
+          if (instance != null) {
+            instance.lastBlock = this.blocks.size();
+          }
+          break;
+        }
+        case SAMPLE_TOKEN: {
+          long sampleMillis = timeMillis + readTimeDelta();
+          readSampleToken(null);
+          timeMillis = sampleMillis;
+          if (sampleCount++ == 0) {
+            firstMillis = timeMillis;
+          }
+          break;
+        }
+        case TIME_BLOCK_FOOTER_TOKEN:
+          skipLengthPrefixedToken();
+          this.blocks.add(new TimeBlock(blockStart, tokenOffset, baseMillis,
+              firstMillis, timeMillis));
+          blockStart = this.positionIn.getPosition();
+          baseMillis = timeMillis;
+          sampleCount = 0;
+          break;
+        case ARCHIVE_INDEX_TOKEN:
+          skipLengthPrefixedToken();
+          break;
+        case HEADER_TOKEN:
+          throw new IOException("Unexpected header in statistic archive " + this.archive);
+        default:
+          throw new IOException(LocalizedStrings.StatArchiveReader_UNEXPECTED_TOKEN_BYTE_VALUE_0.toLocalizedString(Byte.valueOf(token)));
+        }
+      }
+    } catch (EOFException ignore) {
+      // the end of the archive, possibly in a partly written token
+    }
+    if (sampleCount > 0) {
+      this.blocks.add(new TimeBlock(blockStart, -1, baseMillis, firstMillis, timeMillis));
+    }
+  }
+
+  //////////////////////  Reading a block  //////////////////////
+
+  private void readBlock(int b, Map<Integer, SeriesValue> series,
+      long startMillis, long endMillis, SeriesHandler handler) throws IOException {
+    // the instances of the series that have a value at this point
+    Map<Integer, SeriesValue> current = new LinkedHashMap<Integer, SeriesValue>();
+    for (SeriesValue value : series.values()) {
+      value.bits = 0;
+      value.sampled = false;
+    }
+    if (b > 0 && this.blocks.get(b - 1).footerOffset >= 0) {
+      readCheckpoint(this.blocks.get(b - 1).footerOffset, series, current);
+    }
+    TimeBlock block = this.blocks.get(b);
+    this.positionIn.seek(block.startOffset);
+    long timeMillis = block.baseMillis;
+    try {
+      while (timeMillis <= endMillis) {
+        byte token = this.dataIn.readByte();
+        switch (token) {
+        case RESOURCE_TYPE_TOKEN:
+          readResourceTypeToken();
+          break;
+        case RESOURCE_INSTANCE_CREATE_TOKEN:
+        case RESOURCE_INSTANCE_INITIALIZE_TOKEN: {
+          SeriesValue value = readResourceInstanceCreateToken(
+              token == RESOURCE_INSTANCE_INITIALIZE_TOKEN, series);
+          if (value != null) {
+            current.put(value.instance.id, value);
+          }
+          break;
+        }
+        case RESOURCE_INSTANCE_DELETE_TOKEN:
+          current.remove(this.dataIn.readInt());
+          break;
+        case SAMPLE_TOKEN:
+          timeMillis += readTimeDelta();
+          readSampleToken(current);
+          if (timeMillis >= startMillis && timeMillis <= endMillis) {
+            for (SeriesValue value : current.values()) {
+              if (value.sampled) {
+                handler.sample(value.instance, timeMillis,
+                    StatArchiveReader.bitsToDouble(
+                        value.instance.type.typeCodes[value.statOffset], value.bits));
+              }
+            }
+          }
+          break;
+        case TIME_BLOCK_FOOTER_TOKEN:
+        case ARCHIVE_INDEX_TOKEN:
+          return;
+        default:
+          throw new IOException(LocalizedStrings.StatArchiveReader_UNEXPECTED_TOKEN_BYTE_VALUE_0.toLocalizedString(Byte.valueOf(token)));
+        }
+      }
+    } catch (EOFException ignore) {
+      // the end of an archive that was not closed
+    }
+  }
+
+  /**
+   * Reads the values of the series from the checkpoint in a footer.
+   */
+  private void readCheckpoint(long footerOffset, Map<Integer, SeriesValue> series,
+      Map<Integer, SeriesValue> current) throws IOException {
+    this.positionIn.seek(footerOffset);
+    this.dataIn.readByte(); // TIME_BLOCK_FOOTER_TOKEN
+    this.dataIn.readInt(); // length
+    this.dataIn.readLong(); // block start offset
+    this.dataIn.readLong(); // base millis
+    this.dataIn.readLong(); // first millis
+    this.dataIn.readLong(); // last millis
+    this.dataIn.readInt(); // sample count
+    int count = this.dataIn.readInt();
+    for (int i = 0; i < count; i++) {
+      int id = this.dataIn.readInt();
+      SeriesValue value = series.get(id);
+      byte[] typeCodes = this.instances.get(id).type.typeCodes;
+      for (int j = 0; j < typeCodes.length; j++) {
+        long bits = readStatValue(typeCodes[j]);
+        if (value != null && j == value.statOffset) {
+          value.bits = bits;
+          value.sampled = true;
+          current.put(id, value);
+        }
+      }
+    }
+  }
+
+  //////////////////////  Reading tokens  //////////////////////
+
+  private void readHeaderToken() throws IOException {
+    byte archiveVersion = this.dataIn.readByte();
+    long startTimeStamp = this.dataIn.readLong();
+    this.dataIn.readLong(); // system id
+    this.dataIn.readLong(); // system start time
+    this.dataIn.readInt(); // time zone offset
+    this.dataIn.readUTF(); // time zone name
+    this.dataIn.readUTF(); // system directory
+    this.dataIn.readUTF(); // product version
+    this.dataIn.readUTF(); // os
+    this.dataIn.readUTF(); // machine
+    if (archiveVersion <= 1) {
+      throw new GemFireIOException(LocalizedStrings.StatArchiveReader_ARCHIVE_VERSION_0_IS_NO_LONGER_SUPPORTED.toLocalizedString(Byte.valueOf(archiveVersion)), null);
+    }
+    if (archiveVersion > ARCHIVE_VERSION) {
+      throw new GemFireIOException(LocalizedStrings.StatArchiveReader_UNSUPPORTED_ARCHIVE_VERSION_0_THE_SUPPORTED_VERSION_IS_1.toLocalizedString(new Object[] {Byte.valueOf(archiveVersion), Byte.valueOf(ARCHIVE_VERSION)}), null);
+    }
+    this.archiveVersion = archiveVersion;
+    this.startTimeMillis = startTimeStamp;
+  }
+
+  private void readResourceTypeToken() throws IOException {
+    int typeId = this.dataIn.readInt();
+    String name = this.dataIn.readUTF();
+    this.dataIn.readUTF(); // description
+    TypeInfo type = new TypeInfo(name, this.dataIn.readUnsignedShort());
+    for (int i = 0; i < type.statNames.length; i++) {
+      type.statNames[i] = this.dataIn.readUTF();
+      type.typeCodes[i] = this.dataIn.readByte();
+      this.dataIn.readBoolean(); // is counter
+      if (this.archiveVersion >= 4) {
+        this.dataIn.readBoolean(); // larger better
+      }
+      this.dataIn.readUTF(); // units
+      this.dataIn.readUTF(); // description
+    }
+    if (!this.types.containsKey(typeId)) {
+      this.types.put(typeId, type);
+    }
+  }
+
+  /**
+   * @param series the series being read, or null when scanning
+   * @return the value of the series of the instance, if any
+   */
+  private SeriesValue readResourceInstanceCreateToken(boolean initialize,
+      Map<Integer, SeriesValue> series) throws IOException {
+    ResourceInstanceInfo instance;
+    SeriesValue value = null;
+    if (series == null) {
+      instance = readResourceInstanceInfo(this.blocks.size());
+    } else {
+      instance = this.instances.get(this.dataIn.readInt());
+      this.dataIn.readUTF(); // name
+      this.dataIn.readLong(); // numeric id
+      this.dataIn.readInt(); // type id
+      value = series.get(instance.id);
+      if (value != null) {
+        value.bits = 0;
+        value.sampled = false;
+      }
+    }
+    if (initialize) {
+      byte[] typeCodes = instance.type.typeCodes;
+      for (int i = 0; i < typeCodes.length; i++) {
+        long bits = readStatValue(typeCodes[i]);
+        if (value != null && i == value.statOffset) {
+          value.bits = bits;
+          value.sampled = true;
+        }
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Reads the instance of a create token, and adds it to the instances.
+   */
+  private ResourceInstanceInfo readResourceInstanceInfo(int firstBlock) throws IOException {
+    int id = this.dataIn.readInt();
+    String name = this.dataIn.readUTF();
+    long numericId = this.dataIn.readLong();
+    int typeId = this.dataIn.readInt();
+    ResourceInstanceInfo instance = new ResourceInstanceInfo(id, name,
+        numericId, this.types.get(typeId), firstBlock, -1);
+    this.instances.put(id, instance);
+    return instance;
+  }
+
+  /**
+   * Reads the values of a sample, adding the changes of the series to their
+   * values.
+   *
+   * @param current the series values of the instances, or null when scanning
+   */
+  private void readSampleToken(Map<Integer, SeriesValue> current) throws IOException {
+    int id = readResourceInstId();
+    while (id != ILLEGAL_RESOURCE_INST_ID) {
+      byte[] typeCodes = this.instances.get(id).type.typeCodes;
+      SeriesValue value = current == null ? null : current.get(id);
+      if (value != null) {
+        value.sampled = true;
+      }
+      int statOffset = this.dataIn.readUnsignedByte();
+      while (statOffset != ILLEGAL_STAT_OFFSET) {
+        long deltaBits = readStatValue(typeCodes[statOffset]);
+        if (value != null && statOffset == value.statOffset) {
+          value.bits += deltaBits;
+        }
+        statOffset = this.dataIn.readUnsignedByte();
+      }
+      id = readResourceInstId();
+    }
+  }
+
+  private long readStatValue(byte typeCode) throws IOException {
+    switch (typeCode) {
+    case BOOLEAN_CODE:
+    case BYTE_CODE:
+    case CHAR_CODE:
+      return this.dataIn.readByte();
+    case WCHAR_CODE:
+      return this.dataIn.readUnsignedShort();
+    case SHORT_CODE:
+      return this.dataIn.readShort();
+    case INT_CODE:
+    case FLOAT_CODE:
+    case LONG_CODE:
+    case DOUBLE_CODE:
+      return StatArchiveWriter.readCompactValue(this.dataIn);
+    default:
+      throw new IOException(LocalizedStrings.StatArchiveReader_UNEXPECTED_TYPECODE_VALUE_0.toLocalizedString(Byte.valueOf(typeCode)));
+    }
+  }
+
+  private int readResourceInstId() throws IOException {
+    int token = this.dataIn.readUnsignedByte();
+    if (token <= MAX_BYTE_RESOURCE_INST_ID) {
+      return token;
+    } else if (token == ILLEGAL_RESOURCE_INST_ID_TOKEN) {
+      return ILLEGAL_RESOURCE_INST_ID;
+    } else if (token == SHORT_RESOURCE_INST_ID_TOKEN) {
+      return this.dataIn.readUnsignedShort();
+    } else { /* token == INT_RESOURCE_INST_ID_TOKEN */
+      return this.dataIn.readInt();
+    }
+  }
+
+  private int readTimeDelta() throws IOException {
+    int result = this.dataIn.readUnsignedShort();
+    if (result == INT_TIMESTAMP_TOKEN) {
+      result = this.dataIn.readInt();
+    }
+    return result;
+  }
+
+  private void skipLengthPrefixedToken() throws IOException {
+    this.positionIn.skipFully(this.dataIn.readInt());
+  }
+
+  /**
+   * A buffered stream over the archive that knows its position, and can
+   * seek: by moving the file position of an uncompressed archive, or by
+   * reading a compressed one again up to the position.
+   */
+  private class PositionInputStream extends FilterInputStream {
+    private FileInputStream fileIn;
+    private long position;
+
+    PositionInputStream() throws IOException {
+      super(null);
+      open();
+    }
+
+    private void open() throws IOException {
+      this.fileIn = new FileInputStream(archive);
+      InputStream raw = compressed ? new GZIPInputStream(this.fileIn, 32768) : this.fileIn;
+      this.in = new BufferedInputStream(raw, 32768);
+      this.position = 0;
+    }
+
+    long getPosition() {
+      return this.position;
+    }
+
+    void seek(long target) throws IOException {
+      if (target == this.position) {
+        return;
+      }
+      if (!compressed && (target < this.position || target - this.position > 32768)) {
+        this.fileIn.getChannel().position(target);
+        this.in = new BufferedInputStream(this.fileIn, 32768);
+        this.position = target;
+        return;
+      }
+      if (compressed && target < this.position) {
+        close();
+        open();
+      }
+      skipFully(target - this.position);
+    }
+
+    void skipFully(long n) throws IOException {
+      while (n > 0) {
+        long skipped = skip(n);
+        if (skipped <= 0) {
+          if (read() < 0) {
+            throw new EOFException();
+          }
+          skipped = 1;
+        }
+        n -= skipped;
+      }
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = this.in.read();
+      if (b >= 0) {
+        this.position++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = this.in.read(b, off, len);
+      if (n > 0) {
+        this.position += n;
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = this.in.skip(n);
+      if (skipped > 0) {
+        this.position += skipped;
+      }
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.in.close();
+    }
+  }
+}
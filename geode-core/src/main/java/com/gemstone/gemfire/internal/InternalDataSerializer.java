@@ -1589,12 +1589,14 @@ public abstract class InternalDataSerializer extends DataSerializer implements D
         TypeRegistry tr = gfc.getPdxRegistry();
 
         PdxWriterImpl writer;
+        HeapDataOutputStream pooled = null;
         {
           PdxOutputStream os;
           if (out instanceof HeapDataOutputStream) {
             os = new PdxOutputStream((HeapDataOutputStream) out);
           } else {
-            os = new PdxOutputStream();
+            pooled = HeapDataOutputStream.createPooled(Version.CURRENT);
+            os = new PdxOutputStream(pooled);
           }
           writer = new PdxWriterImpl(tr, o, aci, os);
         }
@@ -1640,7 +1642,11 @@ public abstract class InternalDataSerializer extends DataSerializer implements D
         int bytesWritten = writer.completeByteStreamGeneration();
         getDMStats(gfc).incPdxSerialization(bytesWritten);
         if (!(out instanceof HeapDataOutputStream)) {
-          writer.sendTo(out);
+          try {
+            writer.sendTo(out);
+          } finally {
+            pooled.release();
+          }
         }
         return true;
       }
@@ -3099,12 +3105,16 @@ public abstract class InternalDataSerializer extends DataSerializer implements D
     }
 
     PdxWriterImpl writer;
+    // the buffers of a pooled stream that is not released, because the
+    // serializer declined the object or threw, are just garbage collected
+    HeapDataOutputStream pooled = null;
     {
       PdxOutputStream os;
       if (out instanceof HeapDataOutputStream) {
         os = new PdxOutputStream((HeapDataOutputStream) out);
       } else {
-        os = new PdxOutputStream();
+        pooled = HeapDataOutputStream.createPooled(Version.CURRENT);
+        os = new PdxOutputStream(pooled);
       }
       writer = new PdxWriterImpl(tr, pdx, os);
     }
@@ -3183,7 +3193,11 @@ public abstract class InternalDataSerializer extends DataSerializer implements D
     int bytesWritten = writer.completeByteStreamGeneration();
     getDMStats(gfc).incPdxSerialization(bytesWritten);
     if (!(out instanceof HeapDataOutputStream)) {
-      writer.sendTo(out);
+      try {
+        writer.sendTo(out);
+      } finally {
+        pooled.release();
+      }
     }
     return true;
   }
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal;
+
+import com.gemstone.gemfire.StatisticDescriptor;
+import com.gemstone.gemfire.Statistics;
+import com.gemstone.gemfire.StatisticsFactory;
+import com.gemstone.gemfire.StatisticsType;
+
+/**
+ * A histogram of nanosecond latencies kept as a set of statistics, one long
+ * counter per bucket, so that it is sampled and archived like any other
+ * statistics.
+ * <p>
+ * The buckets are log-linear: each power of two from
+ * {@link #MIN_VALUE} (about a microsecond) to {@link #MAX_VALUE} (about 68
+ * seconds) is divided into {@link #SUB_BUCKETS} linear buckets, so a value is
+ * known to within 12.5%, and one more bucket on each side counts the values
+ * that are smaller or larger. The bucket of a value is computed from its
+ * leading zeros, and is an atomic increment, so recording takes no lock.
+ * <p>
+ * All the histograms have the same statistics type, so the bucket counts of
+ * the histograms of several members, or of several samples of an archive,
+ * can be added up and their percentiles computed with
+ * {@link #getValueAtPercentile(long[], double)}.
+ *
+ * @see HistogramStats
+ * @since 9.0
+ */
+public class LogLinearHistogramStats {
+
+  /** The name of the statistics type of the histograms */
+  public static final String TYPE_NAME = "LogLinearHistogram";
+
+  private static final int MIN_EXPONENT = 10;
+
+  private static final int MAX_EXPONENT = 36;
+
+  private static final int SUB_BUCKET_BITS = 3;
+
+  /** The number of linear buckets each power of two is divided into */
+  public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /** The values smaller than this are all counted by the first bucket */
+  public static final long MIN_VALUE = 1L << MIN_EXPONENT;
+
+  /** The values larger than or equal to this are all counted by the last bucket */
+  public static final long MAX_VALUE = 1L << MAX_EXPONENT;
+
+  /** The number of buckets of a histogram */
+  public static final int BUCKET_COUNT = (MAX_EXPONENT - MIN_EXPONENT) * SUB_BUCKETS + 2;
+
+  private static final String typeDesc = "A log-linear histogram of latencies in nanoseconds";
+
+  private final Statistics stats;
+
+  private final int[] bucketIds = new int[BUCKET_COUNT];
+
+  /**
+   * Creates a histogram, registered with the given factory.
+   *
+   * @param factory the factory of the statistics
+   * @param name the text id of the statistics of the histogram
+   */
+  public LogLinearHistogramStats(StatisticsFactory factory, String name) {
+    StatisticsType type = createType(factory);
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      this.bucketIds[i] = type.nameToId(getBucketName(i));
+    }
+    this.stats = factory.createAtomicStatistics(type, name);
+  }
+
+  /**
+   * Creates the statistics type of the histograms, or returns it if it has
+   * already been created.
+   */
+  public static StatisticsType createType(StatisticsFactory factory) {
+    StatisticDescriptor[] descriptors = new StatisticDescriptor[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      String desc = i < BUCKET_COUNT - 1
+          ? "Number of values less than " + getBucketUpperBound(i) + " nanoseconds"
+          : "Number of values of " + MAX_VALUE + " nanoseconds or more";
+      if (i > 0 && i < BUCKET_COUNT - 1) {
+        desc += " and at least " + getBucketUpperBound(i - 1);
+      }
+      descriptors[i] = factory.createLongCounter(getBucketName(i), desc,
+          "operations", false);
+    }
+    return factory.createType(TYPE_NAME, typeDesc, descriptors);
+  }
+
+  /**
+   * @return the name of the statistic that counts the values of a bucket
+   */
+  public static String getBucketName(int bucket) {
+    return bucket < BUCKET_COUNT - 1 ? "countLT" + getBucketUpperBound(bucket)
+        : "countGE" + MAX_VALUE;
+  }
+
+  /**
+   * @return the bucket that counts a value
+   */
+  public static int getBucket(long value) {
+    if (value < MIN_VALUE) {
+      return 0;
+    }
+    if (value >= MAX_VALUE) {
+      return BUCKET_COUNT - 1;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * @return the smallest value larger than the values of a bucket, or
+   *         Long.MAX_VALUE for the last bucket
+   */
+  public static long getBucketUpperBound(int bucket) {
+    if (bucket == 0) {
+      return MIN_VALUE;
+    }
+    if (bucket >= BUCKET_COUNT - 1) {
+      return Long.MAX_VALUE;
+    }
+    int exponent = MIN_EXPONENT + (bucket - 1) / SUB_BUCKETS;
+    long subBucket = (bucket - 1) % SUB_BUCKETS;
+    return (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS);
+  }
+
+  /**
+   * Records a value.
+   *
+   * @param value the latency in nanoseconds
+   */
+  public void endOp(long value) {
+    this.stats.incLong(this.bucketIds[getBucket(value)], 1);
+  }
+
+  /**
+   * @return the count of each bucket
+   */
+  public long[] getBucketCounts() {
+    return getBucketCounts(this.stats);
+  }
+
+  /**
+   * @return the count of each bucket of the statistics of a histogram, for
+   *         instance the statistics of another member
+   */
+  public static long[] getBucketCounts(Statistics stats) {
+    long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = stats.getLong(getBucketName(i));
+    }
+    return counts;
+  }
+
+  /**
+   * @return the value at a percentile of the recorded values
+   * @see #getValueAtPercentile(long[], double)
+   */
+  public long getValueAtPercentile(double percentile) {
+    return getValueAtPercentile(getBucketCounts(), percentile);
+  }
+
+  /**
+   * Returns the value that the given percentage of the counted values are
+   * less than, to within the width of its bucket: the upper bound of the
+   * bucket that holds the value at that rank, or {@link #MAX_VALUE} if it is
+   * in the last bucket.
+   *
+   * @param counts the counts of the buckets, possibly added up from several
+   *        histograms
+   * @param percentile the percentage, for instance 99.9
+   * @return the value at the percentile, or 0 if nothing was counted
+   */
+  public static long getValueAtPercentile(long[] counts, double percentile) {
+    long total = 0;
+    for (long count : counts) {
+      total += count;
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long)Math.ceil(total * percentile / 100.0));
+    long seen = 0;
+    for (int i = 0; i < counts.length - 1; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return getBucketUpperBound(i);
+      }
+    }
+    return MAX_VALUE;
+  }
+
+  public Statistics getStats() {
+    return this.stats;
+  }
+
+  public void close() {
+    this.stats.close();
+  }
+}
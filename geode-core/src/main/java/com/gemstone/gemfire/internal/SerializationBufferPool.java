@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal;
+
+import java.nio.ByteBuffer;
+
+import com.gemstone.gemfire.distributed.internal.DMStats;
+import com.gemstone.gemfire.distributed.internal.InternalDistributedSystem;
+
+/**
+ * Keeps the heap buffers used by pooled {@link HeapDataOutputStream}s
+ * so that serializing an object does not allocate new buffers each time.
+ * Each thread has its own pool so no synchronization is needed.
+ * <p>
+ * Buffers are pooled by size class. The size classes are the powers of two
+ * from {@link #MIN_BUFFER_SIZE} to {@link #MAX_BUFFER_SIZE}. Larger buffers
+ * are allocated exactly and are never kept. A thread keeps at most
+ * {@link #MAX_RETAINED_BYTES} of buffers, so the pools can hold that many
+ * bytes of heap for every thread that has serialized something.
+ *
+ * @since 9.0
+ */
+public final class SerializationBufferPool {
+
+  /**
+   * The smallest buffer, and size class, that is pooled.
+   */
+  public static final int MIN_BUFFER_SIZE = 1024;
+
+  /**
+   * The largest buffer that is pooled.
+   * Rounded up to a power of two.
+   */
+  public static final int MAX_BUFFER_SIZE = roundUpToSizeClass(Math.max(MIN_BUFFER_SIZE,
+      Integer.getInteger("gemfire.SerializationBufferPool.MAX_BUFFER_SIZE", 32 * 1024)));
+
+  /**
+   * The number of bytes of buffers that each thread keeps at most.
+   * Kept small because a server can have thousands of threads.
+   */
+  public static final int MAX_RETAINED_BYTES =
+      Integer.getInteger("gemfire.SerializationBufferPool.MAX_RETAINED_BYTES", 64 * 1024);
+
+  /**
+   * If true then no buffers are pooled.
+   */
+  public static final boolean DISABLED = Boolean.getBoolean("gemfire.SerializationBufferPool.DISABLED");
+
+  /**
+   * The number of buffers kept for each size class.
+   */
+  private static final int BUFFERS_PER_SIZE_CLASS = 4;
+
+  private static final int MIN_SIZE_SHIFT = Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+
+  private static final ThreadLocal<SerializationBufferPool> pools = new ThreadLocal<SerializationBufferPool>() {
+    @Override
+    protected SerializationBufferPool initialValue() {
+      return new SerializationBufferPool();
+    }
+  };
+
+  /**
+   * The free buffers of each size class, used as stacks.
+   */
+  private final ByteBuffer[][] freeBuffers;
+
+  private final int[] freeCounts;
+
+  private int retainedBytes;
+
+  private SerializationBufferPool() {
+    int sizeClasses = sizeClassIndex(MAX_BUFFER_SIZE) + 1;
+    this.freeBuffers = new ByteBuffer[sizeClasses][BUFFERS_PER_SIZE_CLASS];
+    this.freeCounts = new int[sizeClasses];
+  }
+
+  /**
+   * Returns true if the calling thread should use pooled buffers.
+   */
+  public static boolean isEnabled() {
+    return !DISABLED;
+  }
+
+  /**
+   * Returns a cleared heap buffer with a capacity of at least
+   * <code>size</code> bytes. Give it back with {@link #release} once
+   * nothing refers to it.
+   */
+  public static ByteBuffer acquire(int size) {
+    if (size > MAX_BUFFER_SIZE) {
+      DMStats stats = InternalDistributedSystem.getDMStats();
+      if (stats != null) {
+        stats.incOversizedSerializationBufferAllocations();
+      }
+      return ByteBuffer.allocate(size);
+    }
+    ByteBuffer result = pools.get().take(size);
+    DMStats stats = InternalDistributedSystem.getDMStats();
+    if (result != null) {
+      if (stats != null) {
+        stats.incSerializationBufferReuses();
+      }
+      return result;
+    }
+    if (stats != null) {
+      stats.incSerializationBufferAllocations();
+    }
+    return ByteBuffer.allocate(roundUpToSizeClass(size));
+  }
+
+  /**
+   * Gives a buffer obtained from {@link #acquire} back to the calling
+   * thread's pool. The buffer is dropped if it is not the size of a size
+   * class or if the pool is full.
+   */
+  public static void release(ByteBuffer bb) {
+    int capacity = bb.capacity();
+    if (capacity < MIN_BUFFER_SIZE || capacity > MAX_BUFFER_SIZE
+        || Integer.bitCount(capacity) != 1 || !bb.hasArray() || bb.arrayOffset() != 0) {
+      return;
+    }
+    pools.get().put(bb);
+  }
+
+  private ByteBuffer take(int size) {
+    int index = sizeClassIndex(roundUpToSizeClass(size));
+    int count = this.freeCounts[index];
+    if (count == 0) {
+      return null;
+    }
+    count--;
+    ByteBuffer result = this.freeBuffers[index][count];
+    this.freeBuffers[index][count] = null;
+    this.freeCounts[index] = count;
+    this.retainedBytes -= result.capacity();
+    result.clear();
+    return result;
+  }
+
+  private void put(ByteBuffer bb) {
+    int capacity = bb.capacity();
+    int index = sizeClassIndex(capacity);
+    int count = this.freeCounts[index];
+    if (count == BUFFERS_PER_SIZE_CLASS || this.retainedBytes + capacity > MAX_RETAINED_BYTES) {
+      return;
+    }
+    this.freeBuffers[index][count] = bb;
+    this.freeCounts[index] = count + 1;
+    this.retainedBytes += capacity;
+  }
+
+  /**
+   * Returns the number of bytes of buffers the calling thread keeps.
+   */
+  static int getRetainedBytes() {
+    return pools.get().retainedBytes;
+  }
+
+  /**
+   * Drops all the buffers the calling thread keeps.
+   */
+  static void clear() {
+    pools.remove();
+  }
+
+  private static int sizeClassIndex(int sizeClass) {
+    return Integer.numberOfTrailingZeros(sizeClass) - MIN_SIZE_SHIFT;
+  }
+
+  private static int roundUpToSizeClass(int size) {
+    if (size <= MIN_BUFFER_SIZE) {
+      return MIN_BUFFER_SIZE;
+    }
+    return Integer.highestOneBit(size - 1) << 1;
+  }
+}
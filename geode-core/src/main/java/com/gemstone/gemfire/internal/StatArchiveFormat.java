@@ -24,14 +24,16 @@ public interface StatArchiveFormat {
   /**
    * ARCHIVE_VERSION identifies the format of the contents of the archive.
    * It should be changed any time an incompatible change is made.
-   * Its current value is <code>3</code>.
+   * Its current value is <code>5</code>.
    * <p>
    * <ol>
    * <li> Changed from 2 to 3 with addition of <code>RESOURCE_INSTANCE_INITIALIZE_TOKEN</code>
    * <li> Changed from 3 to 4 with addition of largerBetter boolean in statistic descriptor
+   * <li> Changed from 4 to 5 with addition of <code>TIME_BLOCK_FOOTER_TOKEN</code>
+   * and <code>ARCHIVE_INDEX_TOKEN</code>
    * </ol>
    */
-  public static final byte ARCHIVE_VERSION=4;
+  public static final byte ARCHIVE_VERSION=5;
 
   /**
    * Token consists of a timestamp and any statistic value changes.
@@ -54,12 +56,35 @@ public interface StatArchiveFormat {
    * Token defines a new resource instance with initial data.
    */
   public static final byte RESOURCE_INSTANCE_INITIALIZE_TOKEN=4;
+  /**
+   * Token ends a time block of samples. It holds the offset and time range
+   * of the block and a checkpoint of the current values of the resource
+   * instances, from which the samples of the next block can be decoded
+   * without reading the blocks before it. The token is followed by the
+   * length of its data, so that readers that do not need it can skip it.
+   */
+  public static final byte TIME_BLOCK_FOOTER_TOKEN=5;
+  /**
+   * Token holds the index of the archive, written when the archive is
+   * closed: the offsets of the tokens that define its resource types and
+   * resource instances, the time blocks the instances have samples in, and
+   * its time blocks. The token is followed by the
+   * length of its data, and the data ends with the offset of the token and
+   * <code>ARCHIVE_INDEX_MAGIC</code>, so that the index can be found from
+   * the end of the archive.
+   */
+  public static final byte ARCHIVE_INDEX_TOKEN=6;
   /**
    * Token defines a new archive and provides some global information
    * about the environment the archive was created in.
    */
   public static final byte HEADER_TOKEN=77;
 
+  /**
+   * The int that ends an archive that has an index.
+   */
+  public static final int ARCHIVE_INDEX_MAGIC=0x47465849;
+
   /**
    * The value used to signal the end of a list of resource instances.
    */
@@ -3285,6 +3285,16 @@ public class StatArchiveReader implements StatArchiveFormat {
         }
       }
     }
+    private void skipLengthPrefixedToken() throws IOException {
+      int length = dataIn.readInt();
+      while (length > 0) {
+        int skipped = dataIn.skipBytes(length);
+        if (skipped <= 0) {
+          throw new EOFException();
+        }
+        length -= skipped;
+      }
+    }
     /**
      * Returns true if token read, false if eof.
      */
@@ -3314,6 +3324,11 @@ public class StatArchiveReader implements StatArchiveFormat {
         case SAMPLE_TOKEN:
           readSampleToken();
           break;
+        case TIME_BLOCK_FOOTER_TOKEN:
+        case ARCHIVE_INDEX_TOKEN:
+          // only needed by IndexedStatArchiveReader
+          skipLengthPrefixedToken();
+          break;
         default:
           throw new IOException(LocalizedStrings.StatArchiveReader_UNEXPECTED_TOKEN_BYTE_VALUE_0.toLocalizedString(Byte.valueOf(token)));
         }
@@ -17,6 +17,7 @@
 package com.gemstone.gemfire.internal;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
@@ -26,10 +27,13 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.zip.GZIPOutputStream;
@@ -50,6 +54,12 @@ import com.gemstone.gemfire.internal.statistics.StatArchiveDescriptor;
 /**
  * StatArchiveWriter provides APIs to write statistic snapshots to an archive
  * file.
+ * <p>
+ * The samples are written in time blocks, each ended by a
+ * {@link #TIME_BLOCK_FOOTER_TOKEN} that checkpoints the values of the
+ * resource instances, and when the archive is closed an
+ * {@link #ARCHIVE_INDEX_TOKEN} is written at its end, so that
+ * {@link IndexedStatArchiveReader} can seek to the blocks of a time range.
  *
  */
 public class StatArchiveWriter implements StatArchiveFormat, SampleHandler {
@@ -61,6 +71,11 @@ public class StatArchiveWriter implements StatArchiveFormat, SampleHandler {
   private static volatile int traceResourceInstId = -1;
   
   private final boolean trace = Boolean.getBoolean("gemfire.stats.debug.traceStatArchiveWriter");
+
+  /**
+   * The number of samples in each time block of the archive.
+   */
+  private static final int BLOCK_SAMPLE_COUNT = Math.max(1, Integer.getInteger("gemfire.stats.archiveBlockSamples", 300));
   
   private final Set<ResourceInstance> sampleWrittenForResources = 
       new HashSet<ResourceInstance>();
@@ -74,6 +89,22 @@ public class StatArchiveWriter implements StatArchiveFormat, SampleHandler {
   private final PrintStream traceDataOut;
   private long previousMillisTimeStamp;
   private int sampleCount;
+  private boolean closed;
+
+  // the time of the previous sample as read from the archive
+  private long archiveMillisTimeStamp;
+
+  // the current time block
+  private long blockStartOffset;
+  private long blockBaseMillis;
+  private long blockFirstMillis;
+  private int blockSampleCount;
+  private List<ResourceInstance> lastSampledResources;
+
+  // what the index written on close holds
+  private final List<long[]> archivedTypes = new ArrayList<long[]>();
+  private final Map<Integer, InstanceIndex> archivedInstances = new LinkedHashMap<Integer, InstanceIndex>();
+  private final List<long[]> archivedBlocks = new ArrayList<long[]>();
   
   /**
    * Opens a StatArchiveWriter that will archive to the specified file.
@@ -120,6 +151,9 @@ public class StatArchiveWriter implements StatArchiveFormat, SampleHandler {
     this.previousMillisTimeStamp = initPreviousMillisTimeStamp(nanosTimeStamp);
     this.initialDate = initInitialDate();
     writeHeader(this.initialDate, this.archiveDescriptor);
+    this.archiveMillisTimeStamp = this.initialDate;
+    this.blockStartOffset = bytesWritten();
+    this.blockBaseMillis = this.initialDate;
   }
 
   @Override
@@ -141,6 +175,22 @@ public class StatArchiveWriter implements StatArchiveFormat, SampleHandler {
    * @throws GemFireIOException if the archive file could not be closed.
    */
   public final void close() {
+    if (!this.closed) {
+      this.closed = true;
+      if (getSampleCount() > 0) {
+        try {
+          if (this.blockSampleCount > 0) {
+            // the last block needs no checkpoint, since no block follows it
+            this.archivedBlocks.add(new long[] { this.blockStartOffset, -1,
+                this.blockBaseMillis, this.blockFirstMillis,
+                this.archiveMillisTimeStamp, this.blockSampleCount });
+          }
+          writeIndex();
+        } catch (IOException ex) {
+          logger.warn(LogMarker.STATISTICS, "Could not write the index of statistic archive {}", getArchiveName(), ex);
+        }
+      }
+    }
     try {
       this.dataOut.flush();
       if (this.trace) {
@@ -248,6 +298,7 @@ public class StatArchiveWriter implements StatArchiveFormat, SampleHandler {
     if (resourceType.getStatisticDescriptors().length >= ILLEGAL_STAT_OFFSET) {
       throw new InternalGemFireException(LocalizedStrings.StatArchiveWriter_COULD_NOT_ARCHIVE_TYPE_0_BECAUSE_IT_HAD_MORE_THAN_1_STATISTICS.toLocalizedString(new Object[] {resourceType.getStatisticsType().getName(), Integer.valueOf(ILLEGAL_STAT_OFFSET-1)}));
     }
+    this.archivedTypes.add(new long[] { resourceType.getId(), bytesWritten() });
     // write the type to the archive
     try {
       this.dataOut.writeByte(RESOURCE_TYPE_TOKEN);
@@ -296,6 +347,7 @@ public class StatArchiveWriter implements StatArchiveFormat, SampleHandler {
       return;
     }
     this.addedResources.add(statResource);
+    this.archivedInstances.put(statResource.getId(), new InstanceIndex(statResource.getId(), bytesWritten(), this.archivedBlocks.size()));
     try {
       this.dataOut.writeByte(RESOURCE_INSTANCE_CREATE_TOKEN);
       this.dataOut.writeInt(statResource.getId());
@@ -326,6 +378,10 @@ public class StatArchiveWriter implements StatArchiveFormat, SampleHandler {
 
     this.sampleWrittenForResources.remove(resourceInstance);
     this.addedResources.remove(resourceInstance);
+    InstanceIndex instanceIndex = this.archivedInstances.get(resourceInstance.getId());
+    if (instanceIndex != null) {
+      instanceIndex.lastBlock = this.archivedBlocks.size();
+    }
 
     try {
       this.dataOut.writeByte(RESOURCE_INSTANCE_DELETE_TOKEN);
@@ -370,6 +426,7 @@ public class StatArchiveWriter implements StatArchiveFormat, SampleHandler {
       }
     }
     this.previousMillisTimeStamp = millisTimeStamp;
+    this.archiveMillisTimeStamp += delta;
   }
 
   /**
@@ -429,6 +486,14 @@ public class StatArchiveWriter implements StatArchiveFormat, SampleHandler {
         writeSample(ri);
       }
       writeResourceInst(ILLEGAL_RESOURCE_INST_ID);
+      if (this.blockSampleCount == 0) {
+        this.blockFirstMillis = this.archiveMillisTimeStamp;
+      }
+      this.blockSampleCount++;
+      this.lastSampledResources = resourceInstances;
+      if (this.blockSampleCount >= getBlockSampleCount()) {
+        writeTimeBlockFooter();
+      }
       this.dataOut.flush();
       if (this.trace) {
         this.traceDataOut.flush();
@@ -442,6 +507,100 @@ public class StatArchiveWriter implements StatArchiveFormat, SampleHandler {
   public int getSampleCount() {
     return this.sampleCount;
   }
+
+  /**
+   * Returns the number of samples in each time block of the archive.
+   */
+  protected int getBlockSampleCount() {
+    return BLOCK_SAMPLE_COUNT;
+  }
+
+  /**
+   * Ends the current time block, with a footer that checkpoints the values
+   * of the resource instances that were last sampled, so that the next block
+   * can be decoded from it.
+   */
+  private void writeTimeBlockFooter() throws IOException {
+    long footerOffset = bytesWritten();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeLong(this.blockStartOffset);
+    out.writeLong(this.blockBaseMillis);
+    out.writeLong(this.blockFirstMillis);
+    out.writeLong(this.archiveMillisTimeStamp);
+    out.writeInt(this.blockSampleCount);
+    List<ResourceInstance> checkpointed = new ArrayList<ResourceInstance>();
+    if (this.lastSampledResources != null) {
+      for (ResourceInstance ri : this.lastSampledResources) {
+        // the values of a closed resource may not have been written
+        if (this.sampleWrittenForResources.contains(ri)
+            && !ri.getStatistics().isClosed()) {
+          checkpointed.add(ri);
+        }
+      }
+    }
+    out.writeInt(checkpointed.size());
+    for (ResourceInstance ri : checkpointed) {
+      out.writeInt(ri.getId());
+      StatisticDescriptor[] stats = ri.getResourceType().getStatisticDescriptors();
+      long[] values = ri.getLatestStatValues();
+      for (int i = 0; i < stats.length; i++) {
+        writeStatValue(stats[i], values[i], out);
+      }
+    }
+    writeLengthPrefixed(TIME_BLOCK_FOOTER_TOKEN, bytes);
+    if (this.trace) {
+      this.traceDataOut.println("writeTimeBlockFooter#writeByte TIME_BLOCK_FOOTER_TOKEN: " + TIME_BLOCK_FOOTER_TOKEN + " length: " + bytes.size());
+    }
+
+    this.archivedBlocks.add(new long[] { this.blockStartOffset, footerOffset,
+        this.blockBaseMillis, this.blockFirstMillis, this.archiveMillisTimeStamp,
+        this.blockSampleCount });
+    this.blockStartOffset = bytesWritten();
+    this.blockBaseMillis = this.archiveMillisTimeStamp;
+    this.blockSampleCount = 0;
+  }
+
+  /**
+   * Writes the index of the archive, which must then end.
+   */
+  private void writeIndex() throws IOException {
+    long indexOffset = bytesWritten();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    // the types and instances are given by the offsets of their tokens
+    out.writeInt(this.archivedTypes.size());
+    for (long[] type : this.archivedTypes) {
+      out.writeInt((int)type[0]);
+      out.writeLong(type[1]);
+    }
+    out.writeInt(this.archivedInstances.size());
+    for (InstanceIndex instance : this.archivedInstances.values()) {
+      out.writeInt(instance.id);
+      out.writeLong(instance.offset);
+      out.writeInt(instance.firstBlock);
+      out.writeInt(instance.lastBlock);
+    }
+    out.writeInt(this.archivedBlocks.size());
+    for (long[] block : this.archivedBlocks) {
+      for (int i = 0; i < block.length - 1; i++) {
+        out.writeLong(block[i]);
+      }
+      out.writeInt((int)block[block.length - 1]);
+    }
+    out.writeLong(indexOffset);
+    out.writeInt(ARCHIVE_INDEX_MAGIC);
+    writeLengthPrefixed(ARCHIVE_INDEX_TOKEN, bytes);
+    if (this.trace) {
+      this.traceDataOut.println("writeIndex#writeByte ARCHIVE_INDEX_TOKEN: " + ARCHIVE_INDEX_TOKEN + " length: " + bytes.size());
+    }
+  }
+
+  private void writeLengthPrefixed(byte token, ByteArrayOutputStream bytes) throws IOException {
+    this.dataOut.writeByte(token);
+    this.dataOut.writeInt(bytes.size());
+    this.dataOut.write(bytes.toByteArray());
+  }
   
   private void writeSample(ResourceInstance ri) throws IOException {
     final boolean isDebugEnabled_STATISTICS = logger.isTraceEnabled(LogMarker.STATISTICS);
@@ -674,6 +833,23 @@ public class StatArchiveWriter implements StatArchiveFormat, SampleHandler {
     }
   }
     
+  /**
+   * What the index of the archive holds about a resource instance.
+   */
+  private static class InstanceIndex {
+    private final int id;
+    // the offset of the RESOURCE_INSTANCE_CREATE_TOKEN of the instance
+    private final long offset;
+    private final int firstBlock;
+    private int lastBlock = -1;
+
+    InstanceIndex(int id, long offset, int firstBlock) {
+      this.id = id;
+      this.offset = offset;
+      this.firstBlock = firstBlock;
+    }
+  }
+
   private static class MyDataOutputStream implements DataOutput {
     private long bytesWritten = 0;
     private final DataOutputStream dataOut;
@@ -697,10 +873,11 @@ public class StatArchiveWriter implements StatArchiveFormat, SampleHandler {
       throw new RuntimeException(LocalizedStrings.StatArchiveWriter_METHOD_UNIMPLEMENTED.toLocalizedString());
     }
     public final void write(byte[] b, int off, int len) throws IOException {
-      throw new RuntimeException(LocalizedStrings.StatArchiveWriter_METHOD_UNIMPLEMENTED.toLocalizedString());
+      this.dataOut.write(b, off, len);
+      this.bytesWritten += len;
     }
     public final void write(byte[] b) throws IOException {
-      throw new RuntimeException(LocalizedStrings.StatArchiveWriter_METHOD_UNIMPLEMENTED.toLocalizedString());
+      write(b, 0, b.length);
     }
     public final void writeBytes(String v) throws IOException {
       throw new RuntimeException(LocalizedStrings.StatArchiveWriter_METHOD_UNIMPLEMENTED.toLocalizedString());
@@ -740,7 +917,19 @@ public class StatArchiveWriter implements StatArchiveFormat, SampleHandler {
     }
     public final void writeUTF(String v) throws IOException {
       this.dataOut.writeUTF(v);
-      this.bytesWritten += v.length() + 2; // this is the minimum. The max is v.size()*3 +2
+      // count the modified UTF-8 bytes exactly, since the index holds offsets
+      long utfLength = 0;
+      for (int i = 0; i < v.length(); i++) {
+        char c = v.charAt(i);
+        if (c >= 0x0001 && c <= 0x007F) {
+          utfLength++;
+        } else if (c > 0x07FF) {
+          utfLength += 3;
+        } else {
+          utfLength += 2;
+        }
+      }
+      this.bytesWritten += utfLength + 2;
     }
   }
 }
@@ -176,7 +176,13 @@ public abstract class AbstractBucketRegionQueue extends BucketRegion {
    */
   @Override
   protected void updateSizeOnClearRegion(int sizeBeforeClear) {
-    
+    this.gatewaySenderStats.incEventQueueHeapMemory(-getBytesInMemory());
+  }
+
+  @Override
+  void updateBucketMemoryStats(int memoryDelta) {
+    super.updateBucketMemoryStats(memoryDelta);
+    this.gatewaySenderStats.incEventQueueHeapMemory(memoryDelta);
   }
   
   /**
@@ -47,6 +47,7 @@ public abstract class AbstractOplogDiskRegionEntry
     synchronized (this) {
       Helper.removeFromDisk(this, r, isClear);
       _removePhase1();
+      invalidateDecompressedValue(r);
     }
   }
   @Override
@@ -47,6 +47,7 @@ import com.gemstone.gemfire.internal.HeapDataOutputStream;
 import com.gemstone.gemfire.internal.InternalDataSerializer;
 import com.gemstone.gemfire.internal.InternalStatisticsDisabledException;
 import com.gemstone.gemfire.internal.Version;
+import com.gemstone.gemfire.internal.cache.compression.DecompressedValueCache;
 import com.gemstone.gemfire.internal.cache.lru.LRUClockNode;
 import com.gemstone.gemfire.internal.cache.lru.NewLRUClockHand;
 import com.gemstone.gemfire.internal.cache.persistence.DiskStoreID;
@@ -215,6 +216,7 @@ public abstract class AbstractRegionEntry implements RegionEntry,
   }
   public void removePhase1(LocalRegion r, boolean isClear) throws RegionClearedException {
     _removePhase1();
+    invalidateDecompressedValue(r);
   }
   
   public void removePhase2() {
@@ -411,7 +413,7 @@ public abstract class AbstractRegionEntry implements RegionEntry,
   @Override
   public Object getValue(RegionEntryContext context) {
     ReferenceCountHelper.createReferenceCountOwner();
-    @Retained Object result = _getValueRetain(context, true);
+    @Retained Object result = getValueRetainForReading(context);
     //Asif: If the thread is an Index Creation Thread & the value obtained is 
     //Token.REMOVED , we can skip  synchronization block. This is required to prevent
     // the dead lock caused if an Index Update Thread has gone into a wait holding the
@@ -439,7 +441,7 @@ public abstract class AbstractRegionEntry implements RegionEntry,
   @Override
   @Retained
   public Object getValueRetain(RegionEntryContext context) {
-    @Retained Object result = _getValueRetain(context, true);
+    @Retained Object result = getValueRetainForReading(context);
     if (Token.isRemoved(result)) {
       return null;
     } else {
@@ -462,9 +464,53 @@ public abstract class AbstractRegionEntry implements RegionEntry,
     setValue(context,value);
   }
   
+  /**
+   * Returns the decompressed value of this entry like
+   * {@link #_getValueRetain(RegionEntryContext, boolean)} but finds values
+   * of compressed heap regions in the region's {@link DecompressedValueCache}
+   * if it has one.
+   */
+  @Retained
+  private Object getValueRetainForReading(RegionEntryContext context) {
+    if (context instanceof LocalRegion) {
+      DecompressedValueCache cache = ((LocalRegion)context).getDecompressedValueCache();
+      if (cache != null) {
+        Object v = _getValue();
+        if (v instanceof byte[] && isCompressible(context, v)) {
+          byte[] compressed = (byte[])v;
+          Object result = cache.get(this, compressed);
+          if (result == null) {
+            long time = context.getCachePerfStats().startDecompression();
+            byte[] serialized = context.getCompressor().decompress(compressed);
+            result = EntryEventImpl.deserialize(serialized);
+            context.getCachePerfStats().endDecompression(time);
+            cache.put(this, compressed, result, serialized.length);
+          }
+          return result;
+        }
+      }
+    }
+    return _getValueRetain(context, true);
+  }
+
+  /**
+   * Removes the value of this entry from the region's
+   * {@link DecompressedValueCache}, if it has one, after the entry has been
+   * changed.
+   */
+  protected final void invalidateDecompressedValue(RegionEntryContext context) {
+    if (context instanceof LocalRegion) {
+      DecompressedValueCache cache = ((LocalRegion)context).getDecompressedValueCache();
+      if (cache != null) {
+        cache.invalidate(this);
+      }
+    }
+  }
+
   @Released
   protected void setValue(RegionEntryContext context, @Unretained Object value, boolean recentlyUsed) {
     _setValue(value);
+    invalidateDecompressedValue(context);
     if (value != null && context != null && (this instanceof OffHeapRegionEntry) 
         && context instanceof LocalRegion && ((LocalRegion)context).isThisRegionBeingClosedOrDestroyed()) {
       ((OffHeapRegionEntry)this).release();
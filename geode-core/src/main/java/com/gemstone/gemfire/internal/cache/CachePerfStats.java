@@ -77,6 +77,8 @@ public class CachePerfStats {
   protected final static int queryResultsHashCollisionsId;
   protected final static int queryResultsHashCollisionProbeTimeId;
   protected final static int partitionedRegionQueryRetriesId;
+  protected final static int compiledQueryCacheHitsId;
+  protected final static int compiledQueryCacheMissesId;
 
   protected static final int txSuccessLifeTimeId;
   protected static final int txFailedLifeTimeId;
@@ -155,10 +157,38 @@ public class CachePerfStats {
   protected static final int compressionDecompressionsId;
   protected static final int compressionPreCompressedBytesId;
   protected static final int compressionPostCompressedBytesId;
+
+  protected static final int decompressedValueCacheHitsId;
+  protected static final int decompressedValueCacheMissesId;
+  protected static final int decompressedValueCacheEntriesId;
+  protected static final int decompressedValueCacheBytesId;
   
   /** The Statistics object that we delegate most behavior to */
   protected final Statistics stats;
 
+  /**
+   * The histograms of the get and put latencies of the cache, or null if
+   * clock stats are disabled or for the stats of a region, which pass their
+   * operations on to the stats of the cache.
+   */
+  private final LogLinearHistogramStats getLatency;
+  private final LogLinearHistogramStats putLatency;
+
+  /**
+   * The histograms of the sizes of the values compressed by the regions of
+   * the cache and of their compressed size as a percentage of that size,
+   * or null for the stats of a region.
+   */
+  private final HistogramStats compressedValueSizes;
+  private final HistogramStats compressionRatios;
+
+  private static final long[] compressedValueSizeBreakPoints = new long[] {
+      32, 64, 128, 256, 512, 1024, 2048, 4096, 8192, 16384, 65536, 262144, 1048576 };
+
+  /** The last bucket counts the values that compression made bigger */
+  private static final long[] compressionRatioBreakPoints = new long[] {
+      10, 20, 30, 40, 50, 60, 70, 80, 90, 100, 100 };
+
   ////////////////////////  Static methods  ////////////////////////
   
   static {
@@ -209,6 +239,8 @@ public class CachePerfStats {
     final String queryResultsHashCollisionsDesc= "Total number of times an hash code collision occurred when inserting an object into an OQL result set or rehashing it";
     final String queryResultsHashCollisionProbeTimeDesc= "Total time spent probing the hashtable in an OQL result set due to hash code collisions, includes reads, writes, and rehashes";
     final String partitionedRegionOQLQueryRetriesDesc = "Total number of times an OQL Query on a Partitioned Region had to be retried";
+    final String compiledQueryCacheHitsDesc = "Total number of times a new query reused a cached compiled query";
+    final String compiledQueryCacheMissesDesc = "Total number of times a new query was not found in the compiled query cache and had to be compiled";
     final String txSuccessLifeTimeDesc = "The total amount of time, in nanoseconds, spent in a transaction before a successful commit. The time measured starts at transaction begin and ends when commit is called.";
     final String txFailedLifeTimeDesc = "The total amount of time, in nanoseconds, spent in a transaction before a failed commit. The time measured starts at transaction begin and ends when commit is called.";
     final String txRollbackLifeTimeDesc = "The total amount of time, in nanoseconds, spent in a transaction before an explicit rollback. The time measured starts at transaction begin and ends when rollback is called.";
@@ -258,6 +290,10 @@ public class CachePerfStats {
     final String compressionDecompressionsDesc = "The total number of decompression operations.";
     final String compressionPreCompresssedBytesDesc = "The total number of bytes before compressing.";
     final String compressionPostCompressedBytesDesc = "The total number of bytes after compressing.";
+    final String decompressedValueCacheHitsDesc = "The total number of reads of compressed values found in the decompressed value cache.";
+    final String decompressedValueCacheMissesDesc = "The total number of reads of compressed values not found in the decompressed value cache.";
+    final String decompressedValueCacheEntriesDesc = "The current number of values in the decompressed value cache.";
+    final String decompressedValueCacheBytesDesc = "The current number of bytes accounted for the values in the decompressed value cache.";
     final String evictByCriteria_evictionsDesc = "The total number of entries evicted";// total actual evictions (entries evicted)
     final String evictByCriteria_evictionTimeDesc= "Time taken for eviction process";// total eviction time including product + user expr. 
     final String evictByCriteria_evictionsInProgressDesc = "Total number of evictions in progress";
@@ -320,6 +356,8 @@ public class CachePerfStats {
         f.createIntCounter("queryResultsHashCollisions", queryResultsHashCollisionsDesc, "operations"),
         f.createLongCounter("queryResultsHashCollisionProbeTime", queryResultsHashCollisionProbeTimeDesc, "nanoseconds"),
         f.createLongCounter("partitionedRegionQueryRetries", partitionedRegionOQLQueryRetriesDesc, "retries"),
+        f.createLongCounter("compiledQueryCacheHits", compiledQueryCacheHitsDesc, "operations"),
+        f.createLongCounter("compiledQueryCacheMisses", compiledQueryCacheMissesDesc, "operations"),
 
         f.createIntCounter("txCommits", txCommitsDesc, "commits"), 
         f.createIntCounter("txCommitChanges", txCommitChangesDesc, "changes"), 
@@ -384,6 +422,10 @@ public class CachePerfStats {
         f.createLongCounter("decompressions", compressionDecompressionsDesc, "operations"),
         f.createLongCounter("preCompressedBytes", compressionPreCompresssedBytesDesc, "bytes"),
         f.createLongCounter("postCompressedBytes", compressionPostCompressedBytesDesc, "bytes"),
+        f.createLongCounter("decompressedValueCacheHits", decompressedValueCacheHitsDesc, "operations"),
+        f.createLongCounter("decompressedValueCacheMisses", decompressedValueCacheMissesDesc, "operations", false),
+        f.createLongGauge("decompressedValueCacheEntries", decompressedValueCacheEntriesDesc, "entries"),
+        f.createLongGauge("decompressedValueCacheBytes", decompressedValueCacheBytesDesc, "bytes"),
         
         f.createLongCounter("evictByCriteria_evictions", evictByCriteria_evictionsDesc, "operations"),
         f.createLongCounter("evictByCriteria_evictionTime", evictByCriteria_evictionTimeDesc, "nanoseconds"),
@@ -445,6 +487,8 @@ public class CachePerfStats {
     queryResultsHashCollisionsId = type.nameToId("queryResultsHashCollisions");
     queryResultsHashCollisionProbeTimeId = type.nameToId("queryResultsHashCollisionProbeTime");
     partitionedRegionQueryRetriesId = type.nameToId("partitionedRegionQueryRetries");
+    compiledQueryCacheHitsId = type.nameToId("compiledQueryCacheHits");
+    compiledQueryCacheMissesId = type.nameToId("compiledQueryCacheMisses");
 
     txSuccessLifeTimeId = type.nameToId("txSuccessLifeTime");
     txFailedLifeTimeId = type.nameToId("txFailedLifeTime");
@@ -514,6 +558,11 @@ public class CachePerfStats {
     compressionDecompressionsId = type.nameToId("decompressions");
     compressionPreCompressedBytesId = type.nameToId("preCompressedBytes");
     compressionPostCompressedBytesId = type.nameToId("postCompressedBytes");
+
+    decompressedValueCacheHitsId = type.nameToId("decompressedValueCacheHits");
+    decompressedValueCacheMissesId = type.nameToId("decompressedValueCacheMisses");
+    decompressedValueCacheEntriesId = type.nameToId("decompressedValueCacheEntries");
+    decompressedValueCacheBytesId = type.nameToId("decompressedValueCacheBytes");
   }
   
   ////////////////////////  Constructors  ////////////////////////
@@ -523,6 +572,10 @@ public class CachePerfStats {
    */
   public CachePerfStats() {
     stats = null;
+    getLatency = null;
+    putLatency = null;
+    compressedValueSizes = null;
+    compressionRatios = null;
   }
 
   /**
@@ -531,6 +584,14 @@ public class CachePerfStats {
    */
   public CachePerfStats(StatisticsFactory factory) {
     stats = factory.createAtomicStatistics(type, "cachePerfStats");
+    getLatency = enableClockStats
+        ? new LogLinearHistogramStats(factory, "cachePerfStats-getLatency") : null;
+    putLatency = enableClockStats
+        ? new LogLinearHistogramStats(factory, "cachePerfStats-putLatency") : null;
+    compressedValueSizes = new HistogramStats("cachePerfStats-compressedValueSize", "bytes",
+        factory, compressedValueSizeBreakPoints, false);
+    compressionRatios = new HistogramStats("cachePerfStats-compressionRatio", "percent",
+        factory, compressionRatioBreakPoints, false);
   }
 
   /**
@@ -539,6 +600,10 @@ public class CachePerfStats {
    */
   public CachePerfStats(StatisticsFactory factory, String name) {
     stats = factory.createAtomicStatistics(type, "RegionStats-" + name);
+    getLatency = null;
+    putLatency = null;
+    compressedValueSizes = null;
+    compressionRatios = null;
   }
 
   /**
@@ -741,6 +806,22 @@ public class CachePerfStats {
    public long getTotalPostCompressedBytes() {
      return stats.getLong(compressionPostCompressedBytesId);                    
    }
+
+   public long getDecompressedValueCacheHits() {
+     return stats.getLong(decompressedValueCacheHitsId);
+   }
+
+   public long getDecompressedValueCacheMisses() {
+     return stats.getLong(decompressedValueCacheMissesId);
+   }
+
+   public long getDecompressedValueCacheEntries() {
+     return stats.getLong(decompressedValueCacheEntriesId);
+   }
+
+   public long getDecompressedValueCacheBytes() {
+     return stats.getLong(decompressedValueCacheBytesId);
+   }
    
   //////////////////////  Updating Stats  //////////////////////
   
@@ -755,6 +836,18 @@ public class CachePerfStats {
      }
      stats.incLong(compressionPreCompressedBytesId, startSize);
      stats.incLong(compressionPostCompressedBytesId, endSize);
+     recordCompressedValue(startSize, endSize);
+   }
+
+   /**
+    * Adds a compressed value to the histograms of value sizes and
+    * compression ratios, if these are the stats of the cache.
+    */
+   void recordCompressedValue(long startSize, long endSize) {
+     if (compressedValueSizes != null) {
+       compressedValueSizes.endOp(startSize);
+       compressionRatios.endOp(startSize == 0 ? 100 : (endSize * 100 + startSize - 1) / startSize);
+     }
    }
 
    public long startDecompression() {
@@ -767,6 +860,19 @@ public class CachePerfStats {
        stats.incLong(compressionDecompressTimeId, getStatTime() - startTime);
      }
    }
+
+   public void incDecompressedValueCacheHits() {
+     stats.incLong(decompressedValueCacheHitsId, 1);
+   }
+
+   public void incDecompressedValueCacheMisses() {
+     stats.incLong(decompressedValueCacheMissesId, 1);
+   }
+
+   public void incDecompressedValueCacheSize(int entries, long bytes) {
+     stats.incLong(decompressedValueCacheEntriesId, entries);
+     stats.incLong(decompressedValueCacheBytesId, bytes);
+   }
    
    /**
    * @return the timestamp that marks the start of the operation
@@ -950,7 +1056,11 @@ public class CachePerfStats {
    */
   public void endGet(long start, boolean miss) {
     if (enableClockStats) {
-      stats.incLong(getTimeId, getStatTime()-start);
+      long delta = getStatTime()-start;
+      stats.incLong(getTimeId, delta);
+      if (getLatency != null) {
+        getLatency.endOp(delta);
+      }
     }
     stats.incInt(getsId, 1);
     if (miss) {
@@ -974,6 +1084,9 @@ public class CachePerfStats {
       if (enableClockStats) {
         total = getStatTime()-start;
         stats.incLong(putTimeId, total);
+        if (putLatency != null) {
+          putLatency.endOp(total);
+        }
       }
     }
     return total;
@@ -1105,6 +1218,12 @@ public class CachePerfStats {
    */
   void close() {
     this.stats.close();
+    if (this.getLatency != null) {
+      this.getLatency.close();
+      this.putLatency.close();
+      this.compressedValueSizes.close();
+      this.compressionRatios.close();
+    }
   }
 
   /**
@@ -1116,6 +1235,46 @@ public class CachePerfStats {
     return this.stats.isClosed();
   }
 
+  /**
+   * Returns the histogram of the get latencies of the cache, or null if
+   * clock stats are disabled or these are the stats of a region.
+   *
+   * @since 9.0
+   */
+  public LogLinearHistogramStats getGetLatencyHistogram() {
+    return this.getLatency;
+  }
+
+  /**
+   * Returns the histogram of the put latencies of the cache, or null if
+   * clock stats are disabled or these are the stats of a region.
+   *
+   * @since 9.0
+   */
+  public LogLinearHistogramStats getPutLatencyHistogram() {
+    return this.putLatency;
+  }
+
+  /**
+   * Returns the histogram of the sizes of the values compressed by the
+   * regions of the cache, or null if these are the stats of a region.
+   *
+   * @since 9.0
+   */
+  public HistogramStats getCompressedValueSizeHistogram() {
+    return this.compressedValueSizes;
+  }
+
+  /**
+   * Returns the histogram of the compressed sizes of values as a percentage
+   * of their size, or null if these are the stats of a region.
+   *
+   * @since 9.0
+   */
+  public HistogramStats getCompressionRatioHistogram() {
+    return this.compressionRatios;
+  }
+
   public int getEventQueueSize() {
     return this.stats.getInt(eventQueueSizeId);
   }
@@ -1282,6 +1441,22 @@ public class CachePerfStats {
     return this.stats.getLong(partitionedRegionQueryRetriesId);
   }
 
+  public void incCompiledQueryCacheHits() {
+    this.stats.incLong(compiledQueryCacheHitsId, 1);
+  }
+
+  public long getCompiledQueryCacheHits() {
+    return this.stats.getLong(compiledQueryCacheHitsId);
+  }
+
+  public void incCompiledQueryCacheMisses() {
+    this.stats.incLong(compiledQueryCacheMissesId, 1);
+  }
+
+  public long getCompiledQueryCacheMisses() {
+    return this.stats.getLong(compiledQueryCacheMissesId);
+  }
+
   public QueueStatHelper getEvictionQueueStatHelper() {
     return new QueueStatHelper() {
       public void add() {
@@ -227,6 +227,14 @@ public class DiskStoreStats {
   /** The Statistics object that we delegate most behavior to */
   private final Statistics stats;
 
+  /**
+   * The histograms of the write, flush and read latencies, null if clock
+   * stats are disabled
+   */
+  private final LogLinearHistogramStats writeLatency;
+  private final LogLinearHistogramStats flushLatency;
+  private final LogLinearHistogramStats readLatency;
+
   ///////////////////////  Constructors  ///////////////////////
 
   /**
@@ -235,12 +243,26 @@ public class DiskStoreStats {
    */
   public DiskStoreStats(StatisticsFactory f, String name) {
     this.stats = f.createAtomicStatistics(type, name);
+    if (DistributionStats.enableClockStats) {
+      this.writeLatency = new LogLinearHistogramStats(f, name + "-writeLatency");
+      this.flushLatency = new LogLinearHistogramStats(f, name + "-flushLatency");
+      this.readLatency = new LogLinearHistogramStats(f, name + "-readLatency");
+    } else {
+      this.writeLatency = null;
+      this.flushLatency = null;
+      this.readLatency = null;
+    }
   }
 
   /////////////////////  Instance Methods  /////////////////////
 
   public void close() {
     this.stats.close();
+    if (this.writeLatency != null) {
+      this.writeLatency.close();
+      this.flushLatency.close();
+      this.readLatency.close();
+    }
   }
 
   /**
@@ -351,6 +373,9 @@ public class DiskStoreStats {
     long end = DistributionStats.getStatTime();
     this.stats.incLong(writesId, 1);
     this.stats.incLong(writeTimeId, end - start);
+    if (this.writeLatency != null) {
+      this.writeLatency.endOp(end - start);
+    }
     return end;
   }
 
@@ -359,6 +384,9 @@ public class DiskStoreStats {
     long end = DistributionStats.getStatTime();
     this.stats.incLong(flushesId, 1);
     this.stats.incLong(flushTimeId, end - start);
+    if (this.flushLatency != null) {
+      this.flushLatency.endOp(end - start);
+    }
   }
 
   public long getFlushes() {
@@ -389,6 +417,9 @@ public class DiskStoreStats {
     this.stats.incLong(readsId, 1);
     this.stats.incLong(readTimeId, end - start);
     this.stats.incLong(bytesReadId, bytesRead);
+    if (this.readLatency != null) {
+      this.readLatency.endOp(end - start);
+    }
     return end;
   }
 
@@ -521,6 +552,30 @@ public class DiskStoreStats {
     this.stats.incInt(backupsCompleted, 1);
   }
   
+  /**
+   * @return null if clock stats are disabled
+   * @since 9.0
+   */
+  public LogLinearHistogramStats getWriteLatencyHistogram() {
+    return this.writeLatency;
+  }
+
+  /**
+   * @return null if clock stats are disabled
+   * @since 9.0
+   */
+  public LogLinearHistogramStats getFlushLatencyHistogram() {
+    return this.flushLatency;
+  }
+
+  /**
+   * @return null if clock stats are disabled
+   * @since 9.0
+   */
+  public LogLinearHistogramStats getReadLatencyHistogram() {
+    return this.readLatency;
+  }
+
   public Statistics getStats(){
     return stats;
   }
@@ -87,6 +87,8 @@ import static com.gemstone.gemfire.internal.offheap.annotations.OffHeapIdentifie
 
 import com.gemstone.gemfire.internal.util.ArrayUtils;
 import com.gemstone.gemfire.internal.util.BlobHelper;
+import com.gemstone.gemfire.pdx.internal.PdxDelta;
+import com.gemstone.gemfire.pdx.internal.PdxInstanceImpl;
 import com.gemstone.gemfire.pdx.internal.PeerTypeRegistration;
 
 /**
@@ -1886,6 +1888,54 @@ public class EntryEventImpl
     this.newValueBucketSize = lr.calculateValueSize(v);
   }
 
+  /**
+   * Applies a {@link PdxDelta} to the serialized pdx of the old value.
+   * The delta was created from a WritablePdxInstance so the result is
+   * stored the same way the full pdx would have been.
+   */
+  private void processPdxDeltaBytes(Object oldValueInVM) {
+    byte[] oldBytes = null;
+    if (oldValueInVM instanceof CachedDeserializable) {
+      oldBytes = ((CachedDeserializable)oldValueInVM).getSerializedValue();
+    } else if (oldValueInVM instanceof PdxInstanceImpl) {
+      oldBytes = ((PdxInstanceImpl)oldValueInVM).toBytes();
+    }
+    if (oldBytes == null) {
+      this.region.getCachePerfStats().incDeltaFailedUpdates();
+      throw new InvalidDeltaException("Old value for key "
+          + this.keyInfo.getKey() + " is not a pdx");
+    }
+    byte[] newBytes;
+    boolean deltaBytesApplied = false;
+    try {
+      long start = CachePerfStats.getStatTime();
+      newBytes = PdxDelta.apply(oldBytes, getDeltaBytes());
+      this.region.getCachePerfStats().endDeltaUpdate(start);
+      deltaBytesApplied = true;
+    } catch (IOException e) {
+      throw new DeltaSerializationException(
+          "Exception while deserializing delta bytes.", e);
+    } finally {
+      if (!deltaBytesApplied) {
+        this.region.getCachePerfStats().incDeltaFailedUpdates();
+      }
+    }
+    if (logger.isDebugEnabled()) {
+      logger.debug("Pdx delta has been applied for key {}", getKey());
+    }
+    Object value;
+    if (CachedDeserializableFactory.preferObject()) {
+      value = deserialize(newBytes);
+    } else {
+      value = CachedDeserializableFactory.create(newBytes);
+    }
+    setNewValue(value);
+    if (this.causedByMessage != null
+        && this.causedByMessage instanceof PutMessage) {
+      ((PutMessage)this.causedByMessage).setDeltaValObj(value);
+    }
+  }
+
   private void processDeltaBytes(Object oldValueInVM) {
     if (!this.region.hasSeenEvent(this)) {
       if (oldValueInVM == null || Token.isInvalidOrRemoved(oldValueInVM)) {
@@ -1893,10 +1943,16 @@ public class EntryEventImpl
         throw new InvalidDeltaException("Old value not found for key "
             + this.keyInfo.getKey());
       }
+      if (PdxDelta.isPdxDelta(getDeltaBytes())) {
+        processPdxDeltaBytes(oldValueInVM);
+        return;
+      }
       FilterProfile fp = this.region.getFilterProfile();
       // If compression is enabled then we've already gotten a new copy due to the
-      // serializaion and deserialization that occurs.
-      boolean copy = this.region.getCompressor() == null &&
+      // serializaion and deserialization that occurs, unless the value came
+      // from the region's decompressed value cache.
+      boolean copy = (this.region.getCompressor() == null
+          || this.region.getDecompressedValueCache() != null) &&
           (this.region.isCopyOnRead()
           || this.region.getCloningEnabled()
           || (fp != null && fp.getCqCount() > 0));
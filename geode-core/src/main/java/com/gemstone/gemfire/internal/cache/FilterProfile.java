@@ -801,6 +801,34 @@ public class FilterProfile implements DataSerializableFixedID {
     return this.cqCount.get() > 0;
   }
 
+  /**
+   * Adds a CQ to this.cqs and tells the CQ service, which indexes the CQs
+   * of each profile.
+   */
+  private void putCq(String serverCqName, ServerCQ cq) {
+    this.cqs.put(serverCqName, cq);
+    CqService cqService = getCqServiceIfAvailable();
+    if (cqService != null) {
+      cqService.cqAdded(this, serverCqName, cq);
+    }
+  }
+
+  /**
+   * Removes a CQ from this.cqs and tells the CQ service.
+   */
+  private void removeCq(String serverCqName) {
+    this.cqs.remove(serverCqName);
+    CqService cqService = getCqServiceIfAvailable();
+    if (cqService != null) {
+      cqService.cqRemoved(this, serverCqName);
+    }
+  }
+
+  private static CqService getCqServiceIfAvailable() {
+    GemFireCacheImpl cache = GemFireCacheImpl.getInstance();
+    return cache == null ? null : cache.getCqService();
+  }
+
   public ServerCQ getCq(String cqName) {
     return (ServerCQ)this.cqs.get(cqName);
   }
@@ -810,7 +838,7 @@ public class FilterProfile implements DataSerializableFixedID {
     if (logger.isDebugEnabled()) {
       logger.debug("Adding CQ {} to this members FilterProfile.", cq.getServerCqName()); 
     }
-    this.cqs.put(cq.getServerCqName(), cq);
+    putCq(cq.getServerCqName(), cq);
     this.incCqCount();
     
     //cq.setFilterID(cqMap.getWireID(cq.getServerCqName()));
@@ -860,7 +888,7 @@ public class FilterProfile implements DataSerializableFixedID {
       logger.debug("Adding CQ to remote members FilterProfile using name: {}", serverCqName);
     }
     if (addToCqMap) {
-      this.cqs.put(serverCqName, cq);
+      putCq(serverCqName, cq);
     }
     
     // The region's FilterProfile is accessed through CQ reference as the
@@ -884,7 +912,7 @@ public class FilterProfile implements DataSerializableFixedID {
               serverCqName, ex.getMessage(), ex);
         }
       }
-      this.cqs.remove(serverCqName);
+      removeCq(serverCqName);
       cq.getCqBaseRegion().getFilterProfile().decCqCount();
     }
   }
@@ -923,7 +951,7 @@ public class FilterProfile implements DataSerializableFixedID {
   public void closeCq(ServerCQ cq) {
     ensureCqID(cq);
     String serverCqName = cq.getServerCqName();
-    this.cqs.remove(serverCqName);
+    removeCq(serverCqName);
     if (this.cqMap != null) {
       this.cqMap.removeIDMapping(cq.getFilterID());
     }
@@ -1490,7 +1518,7 @@ public class FilterProfile implements DataSerializableFixedID {
           String serverCqName = DataSerializer.readString(in);
           ServerCQ cq = CqServiceProvider.readCq(in);
           processRegisterCq(serverCqName, cq, false);
-          this.cqs.put(serverCqName, cq);
+          putCq(serverCqName, cq);
         } 
       } finally {
         LocalRegion.setThreadInitLevelRequirement(oldLevel);
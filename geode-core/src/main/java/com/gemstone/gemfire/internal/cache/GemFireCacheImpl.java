@@ -128,6 +128,7 @@ import com.gemstone.gemfire.cache.client.internal.PoolImpl;
 import com.gemstone.gemfire.cache.execute.FunctionService;
 import com.gemstone.gemfire.cache.query.QueryService;
 import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
+import com.gemstone.gemfire.cache.query.internal.CompiledQueryCache;
 import com.gemstone.gemfire.cache.query.internal.DefaultQueryService;
 import com.gemstone.gemfire.cache.query.internal.QueryMonitor;
 import com.gemstone.gemfire.cache.query.internal.cq.CqService;
@@ -353,6 +354,9 @@ public class GemFireCacheImpl implements InternalCache, ClientCache, HasCachePer
 
   private final CachePerfStats cachePerfStats;
 
+  /** The compiled queries of this cache, or null if they are not cached */
+  private final CompiledQueryCache compiledQueryCache;
+
   /** Date on which this instances was created */
   private final Date creationDate;
 
@@ -858,8 +862,10 @@ public class GemFireCacheImpl implements InternalCache, ClientCache, HasCachePer
       initReliableMessageQueueFactory();
 
       // Create the CacheStatistics
-      this.cachePerfStats = new CachePerfStats(system);
       CachePerfStats.enableClockStats = this.system.getConfig().getEnableTimeStatistics();
+      this.cachePerfStats = new CachePerfStats(system);
+      this.compiledQueryCache = CompiledQueryCache.MAX_SIZE > 0
+          ? new CompiledQueryCache(this.cachePerfStats) : null;
 
       this.txMgr = new TXManagerImpl(this.cachePerfStats, this);
       dm.addMembershipListener(this.txMgr);
@@ -2833,6 +2839,13 @@ public class GemFireCacheImpl implements InternalCache, ClientCache, HasCachePer
     return this.cachePerfStats;
   }
 
+  /**
+   * Returns the cache of compiled queries, or null if queries are not cached
+   */
+  public CompiledQueryCache getCompiledQueryCache() {
+    return this.compiledQueryCache;
+  }
+
   public String getName() {
     return this.system.getName();
   }
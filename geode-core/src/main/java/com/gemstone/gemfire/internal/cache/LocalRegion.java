@@ -159,6 +159,7 @@ import com.gemstone.gemfire.internal.cache.DiskInitFile.DiskRegionFlag;
 import com.gemstone.gemfire.internal.cache.FilterRoutingInfo.FilterInfo;
 import com.gemstone.gemfire.internal.cache.InitialImageOperation.GIIStatus;
 import com.gemstone.gemfire.internal.cache.PutAllPartialResultException.PutAllPartialResult;
+import com.gemstone.gemfire.internal.cache.compression.DecompressedValueCache;
 import com.gemstone.gemfire.internal.cache.control.InternalResourceManager;
 import com.gemstone.gemfire.internal.cache.control.InternalResourceManager.ResourceType;
 import com.gemstone.gemfire.internal.cache.control.MemoryEvent;
@@ -209,6 +210,8 @@ import com.gemstone.gemfire.internal.util.concurrent.FutureResult;
 import com.gemstone.gemfire.internal.util.concurrent.StoppableCountDownLatch;
 import com.gemstone.gemfire.internal.util.concurrent.StoppableReadWriteLock;
 import com.gemstone.gemfire.i18n.StringId;
+import com.gemstone.gemfire.pdx.internal.OffHeapPdxInstance;
+import com.gemstone.gemfire.pdx.internal.WritablePdxInstanceImpl;
 
 /**
  * Implementation of a local scoped-region. Note that this class has a different
@@ -428,6 +431,11 @@ public class LocalRegion extends AbstractRegion
   private final CachePerfStats cachePerfStats;
   private final boolean hasOwnStats; 
 
+  /**
+   * The recently decompressed values of this compressed region, or null.
+   */
+  private final DecompressedValueCache decompressedValueCache;
+
 
   private final ImageState imageState;
   /**
@@ -631,6 +639,7 @@ public class LocalRegion extends AbstractRegion
         this.cachePerfStats = new RegionPerfStats(cache, cache.getCachePerfStats(), regionName);
       }
     }
+    this.decompressedValueCache = createDecompressedValueCache(internalRegionArgs);
 
     this.dsi = findDiskStore(attrs, internalRegionArgs);
     this.diskRegion = createDiskRegion(internalRegionArgs);
@@ -686,6 +695,31 @@ public class LocalRegion extends AbstractRegion
     
   }
 
+  /**
+   * Returns the cache of decompressed values of this region, which buckets
+   * share with their partitioned region, or null if it has none.
+   */
+  private DecompressedValueCache createDecompressedValueCache(InternalRegionArguments internalRegionArgs) {
+    if (internalRegionArgs.isUsedForPartitionedRegionBucket()
+        && internalRegionArgs.getPartitionedRegion() != null) {
+      return internalRegionArgs.getPartitionedRegion().getDecompressedValueCache();
+    }
+    if (getCompressor() == null || getOffHeap() || DecompressedValueCache.MAX_BYTES <= 0) {
+      return null;
+    }
+    return new DecompressedValueCache(DecompressedValueCache.MAX_BYTES, this.cachePerfStats);
+  }
+
+  /**
+   * Returns the cache of the recently decompressed values of this region,
+   * or null if it does not have one.
+   *
+   * @since 9.0
+   */
+  public DecompressedValueCache getDecompressedValueCache() {
+    return this.decompressedValueCache;
+  }
+
   private RegionMap createRegionMap(InternalRegionArguments internalRegionArgs) {
     RegionMap result = null;
     if (this.diskRegion != null) {
@@ -1397,6 +1431,29 @@ public class LocalRegion extends AbstractRegion
     return get(key, aCallbackArgument, generateCallbacks, disableCopyOnRead, true, requestingClient, clientEvent, returnTombstones, opScopeIsLocal,
       false /* see GEODE-1291*/);
   }
+  /**
+   * Returns a PdxInstance that reads the fields of the value stored locally
+   * for the key directly from off-heap memory, without copying the value to
+   * the heap. Returns null if there is no local value or if the value is not
+   * an uncompressed off-heap pdx. The caller must release the result.
+   */
+  @Retained
+  public OffHeapPdxInstance getOffHeapPdxInstance(Object key) {
+    RegionEntry re = basicGetEntry(key);
+    if (re == null) {
+      return null;
+    }
+    @Retained Object v = re.getValueRetain(this);
+    try {
+      if (v instanceof StoredObject) {
+        return OffHeapPdxInstance.create((StoredObject) v);
+      }
+      return null;
+    } finally {
+      OffHeapHelper.release(v);
+    }
+  }
+
   /**
    * @param opScopeIsLocal if true then just check local storage for a value; if false then try to find the value if it is not local
    * @param retainResult if true then the result may be a retained off-heap reference.
@@ -1605,7 +1662,9 @@ public class LocalRegion extends AbstractRegion
    */
   protected boolean isCopyOnRead()
   {
-    return this.compressor == null
+    // compressed values are decompressed into a new object for each read
+    // unless they are shared through the decompressed value cache
+    return (this.compressor == null || this.decompressedValueCache != null)
       && this.cache.isCopyOnRead()
       && ! this.isUsedForPartitionedRegionAdmin
       && ! this.isUsedForMetaRegion
@@ -1774,9 +1833,16 @@ public class LocalRegion extends AbstractRegion
     // 11. Wrap any checked exception in InternalGemFireException before throwing it.
     try {
       boolean extractDelta = false;
+      com.gemstone.gemfire.Delta delta = null;
+      if (value instanceof com.gemstone.gemfire.Delta) {
+        delta = (com.gemstone.gemfire.Delta)value;
+      } else if (value instanceof WritablePdxInstanceImpl) {
+        // changed fields of a pdx are sent as a PdxDelta
+        delta = ((WritablePdxInstanceImpl)value).getDelta();
+      }
       // How costly is this if check?
       if (this.getSystem().getConfig().getDeltaPropagation()
-          && value instanceof com.gemstone.gemfire.Delta) {
+          && delta != null) {
         if (!this.hasServerProxy()) {
           if ((this instanceof PartitionedRegion)) {
             if (((PartitionedRegion)this).getRedundantCopies() > 0) {
@@ -1807,11 +1873,11 @@ public class LocalRegion extends AbstractRegion
           // This is a client region
           extractDelta = true;
         }
-        if (extractDelta && ((com.gemstone.gemfire.Delta)value).hasDelta()) {
+        if (extractDelta && delta.hasDelta()) {
           HeapDataOutputStream hdos = new HeapDataOutputStream(Version.CURRENT);
           long start = DistributionStats.getStatTime();
           try {
-            ((com.gemstone.gemfire.Delta)value).toDelta(hdos);
+            delta.toDelta(hdos);
           } catch (RuntimeException re) {
             throw re;
           } catch (Exception e) {
@@ -2902,9 +2968,16 @@ public class LocalRegion extends AbstractRegion
   
   public void closeEntries() {
     this.entries.close();
+    if (this.decompressedValueCache != null && !isUsedForPartitionedRegionBucket()) {
+      this.decompressedValueCache.clear();
+    }
   }
   public Set<VersionSource> clearEntries(RegionVersionVector rvv) {
-    return this.entries.clear(rvv);
+    Set<VersionSource> result = this.entries.clear(rvv);
+    if (this.decompressedValueCache != null && !isUsedForPartitionedRegionBucket()) {
+      this.decompressedValueCache.clear();
+    }
+    return result;
   }
 
   @Override
@@ -12127,6 +12200,7 @@ public class LocalRegion extends AbstractRegion
 
       cachePerfStats.stats.incLong(compressionPreCompressedBytesId, startSize);
       cachePerfStats.stats.incLong(compressionPostCompressedBytesId, endSize); 
+      cachePerfStats.recordCompressedValue(startSize, endSize);
     }
 
     public long startDecompression() {
@@ -12142,6 +12216,25 @@ public class LocalRegion extends AbstractRegion
         cachePerfStats.stats.incLong(compressionDecompressTimeId, time);
       }   
     }
+
+    @Override
+    public void incDecompressedValueCacheHits() {
+      stats.incLong(decompressedValueCacheHitsId, 1);
+      cachePerfStats.incDecompressedValueCacheHits();
+    }
+
+    @Override
+    public void incDecompressedValueCacheMisses() {
+      stats.incLong(decompressedValueCacheMissesId, 1);
+      cachePerfStats.incDecompressedValueCacheMisses();
+    }
+
+    @Override
+    public void incDecompressedValueCacheSize(int entries, long bytes) {
+      stats.incLong(decompressedValueCacheEntriesId, entries);
+      stats.incLong(decompressedValueCacheBytesId, bytes);
+      cachePerfStats.incDecompressedValueCacheSize(entries, bytes);
+    }
   }
   
   /** test hook - dump the backing map for this region */
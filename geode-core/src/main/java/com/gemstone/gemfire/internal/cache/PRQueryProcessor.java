@@ -28,7 +28,9 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -42,6 +44,7 @@ import com.gemstone.gemfire.cache.query.QueryException;
 import com.gemstone.gemfire.cache.query.QueryInvocationTargetException;
 import com.gemstone.gemfire.cache.query.QueryService;
 import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.cache.query.internal.CompiledGroupBySelect;
 import com.gemstone.gemfire.cache.query.internal.CompiledSelect;
 import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
 import com.gemstone.gemfire.cache.query.internal.ExecutionContext;
@@ -83,6 +86,14 @@ public class PRQueryProcessor
 
   /* For Test purpose */
   public static int TEST_NUM_THREADS = 0;
+
+  /**
+   * The number of fork-join workers that run a query hinted with
+   * {@link CompiledSelect#PARALLEL_HINT} over the local buckets, unless the
+   * hint gives a smaller number.
+   */
+  public final static int PARALLELISM = Integer.getInteger("gemfire.PRQueryProcessor.parallelism",
+      Runtime.getRuntime().availableProcessors()).intValue();
   
   private PartitionedRegionDataStore _prds;
   private PartitionedRegion pr;
@@ -139,7 +150,10 @@ public class PRQueryProcessor
       //((IndexTrackingQueryObserver)observer).setIndexInfo(resultCollector.getIndexInfoMap());
     //}
     
-    if (NUM_THREADS > 1 || this.TEST_NUM_THREADS > 1) {  
+    CompiledSelect cs = this.query.getSimpleSelect();
+    if (cs != null && cs.isParallelHinted() && this._bucketsToQuery.size() > 1) {
+      executeInParallel(resultCollector, cs);
+    } else if (NUM_THREADS > 1 || this.TEST_NUM_THREADS > 1) {  
       executeWithThreadPool(resultCollector);
     } else {
       executeSequentially(resultCollector, this._bucketsToQuery);
@@ -360,8 +374,138 @@ public class PRQueryProcessor
     }
   }
   
+  /**
+   * Splits the buckets into one range per worker, each queried by a
+   * fork-join task. Each range adds its own results to the collector;
+   * ordered and grouped results are kept per bucket and merged as in
+   * {@link #executeWithThreadPool}.
+   */
+  private void executeInParallel(Collection<Collection> resultCollector, CompiledSelect cs)
+    throws QueryException, InterruptedException, ForceReattemptException {
+    if (Thread.interrupted()) throw new InterruptedException();
+
+    int workers = cs.getParallelism() > 0 ? Math.min(cs.getParallelism(), PARALLELISM) : PARALLELISM;
+    workers = Math.max(1, Math.min(workers, this._bucketsToQuery.size()));
+    boolean perBucket = cs.isOrderBy() || cs.isGroupBy();
+    BucketRangeTask task = new BucketRangeTask(resultCollector, this._bucketsToQuery,
+        workers, perBucket, DefaultQuery.getPdxReadSerialized());
+    PRQueryExecutor.getForkJoinPool().invoke(task);
+    task.throwException();
+
+    if (perBucket) {
+      ExecutionContext context = new QueryExecutionContext(this.parameters, this.pr.getCache(), this.query);
+      int limit = this.query.getLimit(parameters);
+      Collection mergedResults = coalesceOrderedResults(resultCollector, context, cs, limit);
+      resultCollector.clear();
+      resultCollector.add(mergedResults);
+    }
+  }
+
+  /**
+   * Queries a range of buckets on behalf of a number of workers, forking
+   * parts of the range in proportion to the workers until each range has a
+   * single worker. The first exception thrown by any range is recorded in
+   * the root task.
+   */
+  private class BucketRangeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Collection<Collection> resultCollector;
+    private final List<Integer> buckets;
+    private final int workers;
+    private final boolean perBucket;
+    private final boolean pdxReadSerialized;
+    private final BucketRangeTask root;
+    private volatile Exception exception;
+
+    BucketRangeTask(Collection<Collection> resultCollector, List<Integer> buckets,
+        int workers, boolean perBucket, boolean pdxReadSerialized) {
+      this(resultCollector, buckets, workers, perBucket, pdxReadSerialized, null);
+    }
+
+    private BucketRangeTask(Collection<Collection> resultCollector, List<Integer> buckets,
+        int workers, boolean perBucket, boolean pdxReadSerialized, BucketRangeTask root) {
+      this.resultCollector = resultCollector;
+      this.buckets = buckets;
+      this.workers = workers;
+      this.perBucket = perBucket;
+      this.pdxReadSerialized = pdxReadSerialized;
+      this.root = root == null ? this : root;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.root.exception != null) {
+        return;
+      }
+      if (this.workers > 1) {
+        int size = this.buckets.size();
+        int leftWorkers = this.workers / 2;
+        int mid = size * leftWorkers / this.workers;
+        invokeAll(new BucketRangeTask(this.resultCollector, this.buckets.subList(0, mid),
+                leftWorkers, this.perBucket, this.pdxReadSerialized, this.root),
+            new BucketRangeTask(this.resultCollector, this.buckets.subList(mid, size),
+                this.workers - leftWorkers, this.perBucket, this.pdxReadSerialized, this.root));
+        return;
+      }
+      boolean oldReadSerialized = DefaultQuery.getPdxReadSerialized();
+      DefaultQuery.setPdxReadSerialized(this.pdxReadSerialized);
+      try {
+        if (this.perBucket) {
+          // ordered results of several buckets are not sorted as a whole
+          for (Integer bucketID : this.buckets) {
+            queryBuckets(Collections.singletonList(bucketID));
+          }
+        } else {
+          queryBuckets(this.buckets);
+        }
+      } catch (Exception e) {
+        synchronized (this.root) {
+          if (this.root.exception == null) {
+            this.root.exception = e;
+          }
+        }
+      } finally {
+        DefaultQuery.setPdxReadSerialized(oldReadSerialized);
+      }
+    }
+
+    private void queryBuckets(List<Integer> bucketList) throws QueryException, ForceReattemptException {
+      ExecutionContext context = new QueryExecutionContext(parameters, pr.getCache(), query);
+      context.setBucketList(new ArrayList<Integer>(bucketList));
+      executeQueryOnBuckets(this.resultCollector, context);
+    }
+
+    void throwException() throws QueryException, ForceReattemptException {
+      Exception e = this.exception;
+      if (e == null) {
+        return;
+      }
+      if (e instanceof QueryException) {
+        throw (QueryException)e;
+      } else if (e instanceof ForceReattemptException) {
+        throw (ForceReattemptException)e;
+      } else if (e instanceof RuntimeException) {
+        throw (RuntimeException)e;
+      }
+      throw new InternalGemFireException(LocalizedStrings.PRQueryProcessor_GOT_UNEXPECTED_EXCEPTION_WHILE_EXECUTING_QUERY_ON_PARTITIONED_REGION_BUCKET.toLocalizedString(), e);
+    }
+  }
+
+  /**
+   * Streams the merged group by results of the buckets through the group by
+   * once more, so that each group is sent to the query node as a single row
+   * of bucket node aggregates rather than as one row per bucket.
+   */
+  private SelectResults combineGroupByResults(SelectResults mergedResults,
+      ExecutionContext context, CompiledGroupBySelect cgs) throws QueryException {
+    context.setBucketList(this._bucketsToQuery);
+    context.setCombineBucketResults(true);
+    return cgs.applyAggregateAndGroupBy(mergedResults, context);
+  }
+
   private Collection coalesceOrderedResults(Collection<Collection> results, 
-      ExecutionContext context, CompiledSelect cs, int limit) {
+      ExecutionContext context, CompiledSelect cs, int limit) throws QueryException {
     List<Collection> sortedResults = new ArrayList<Collection>(results.size());
     //TODO :Asif : Deal with UNDEFINED
     for(Object o : results) {
@@ -372,6 +516,9 @@ public class PRQueryProcessor
    
     NWayMergeResults mergedResults = new NWayMergeResults(sortedResults, cs.isDistinct(), limit, 
         cs.getOrderByAttrs(), context,cs.getElementTypeForOrderByQueries());
+    if (cs.isGroupBy() && cs.getOrderByAttrs() != null) {
+      return combineGroupByResults(mergedResults, context, (CompiledGroupBySelect)cs);
+    }
     return mergedResults;
   
   }
@@ -462,6 +609,8 @@ public class PRQueryProcessor
 
     private static ExecutorService execService = null;
 
+    private static ForkJoinPool forkJoinPool = null;
+
     /**
      * Closes the executor service. This is called from
      * {@link PartitionedRegion#afterRegionsClosedByCacheClose(GemFireCacheImpl)}
@@ -470,11 +619,27 @@ public class PRQueryProcessor
       if (execService != null) {
         execService.shutdown();
       }
+      if (forkJoinPool != null) {
+        forkJoinPool.shutdown();
+      }
     }
 
     static synchronized void shutdownNow() {
       if (execService != null)
         execService.shutdownNow();
+      if (forkJoinPool != null)
+        forkJoinPool.shutdownNow();
+    }
+
+    /**
+     * Returns the pool that runs queries hinted to execute in parallel,
+     * creating it on first use.
+     */
+    static synchronized ForkJoinPool getForkJoinPool() {
+      if (forkJoinPool == null || forkJoinPool.isShutdown()) {
+        forkJoinPool = new ForkJoinPool(Math.max(1, PARALLELISM));
+      }
+      return forkJoinPool;
     }
 
     static synchronized ExecutorService getExecutorService() {
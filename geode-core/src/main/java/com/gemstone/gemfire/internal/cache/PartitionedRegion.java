@@ -241,11 +241,13 @@ import com.gemstone.gemfire.internal.logging.LoggingThreadGroup;
 import com.gemstone.gemfire.internal.logging.log4j.LocalizedMessage;
 import com.gemstone.gemfire.internal.logging.log4j.LogMarker;
 import com.gemstone.gemfire.internal.offheap.annotations.Released;
+import com.gemstone.gemfire.internal.offheap.annotations.Retained;
 import com.gemstone.gemfire.internal.offheap.annotations.Unretained;
 import com.gemstone.gemfire.internal.sequencelog.RegionLogger;
 import com.gemstone.gemfire.internal.util.TransformUtils;
 import com.gemstone.gemfire.internal.util.concurrent.StoppableCountDownLatch;
 import com.gemstone.gemfire.i18n.StringId;
+import com.gemstone.gemfire.pdx.internal.OffHeapPdxInstance;
 
 /**
  * A Region whose total storage is split into chunks of data (partitions) which
@@ -5145,6 +5147,23 @@ public class PartitionedRegion extends LocalRegion implements
     return this.dataStore;
   }
 
+  /**
+   * Returns a PdxInstance over the off-heap value of the key if its bucket
+   * is hosted by this member.
+   */
+  @Override
+  @Retained
+  public OffHeapPdxInstance getOffHeapPdxInstance(Object key) {
+    if (this.dataStore == null) {
+      return null;
+    }
+    BucketRegion br = this.dataStore.getLocalBucketByKey(key);
+    if (br == null) {
+      return null;
+    }
+    return br.getOffHeapPdxInstance(key);
+  }
+
   /**
    * Grab the PartitionedRegionID Lock, this MUST be done in a try block since
    * it may throw an exception
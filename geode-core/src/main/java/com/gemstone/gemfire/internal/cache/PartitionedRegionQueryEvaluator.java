@@ -950,7 +950,7 @@ public class PartitionedRegionQueryEvaluator extends StreamingPartitionOperation
         //The non tx entry already checks copy on read and returns a copy.
         //The rest of the pr query will be copies from their respective nodes
         if (!this.query.isRemoteQuery()
-            && pr.getCompressor() == null
+            && (pr.getCompressor() == null || pr.getDecompressedValueCache() != null)
             && pr.getCache().isCopyOnRead()
             && (!DefaultQueryService.COPY_ON_READ_AT_ENTRY_LEVEL || (qp.isIndexUsed() && DefaultQueryService.COPY_ON_READ_AT_ENTRY_LEVEL))) {
           MemberResultsList tmpResultCollector = new MemberResultsList();
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache.compression;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import com.gemstone.gemfire.internal.cache.CachePerfStats;
+
+/**
+ * A bounded cache of the recently decompressed values of the entries of a
+ * compressed region, so that reading a hot entry does not decompress it
+ * every time.
+ * <p>
+ * A value is cached for its region entry together with the compressed
+ * bytes it was decompressed from. Every update of an entry stores new
+ * compressed bytes, so a cached value is only returned while the entry
+ * still has the bytes it was decompressed from. Values are also removed
+ * when their entry is updated.
+ * <p>
+ * The size of a value is accounted as the size of its serialized form plus
+ * a fixed overhead. When the cache is larger than its maximum size the
+ * least recently used values are evicted.
+ * <p>
+ * The cache is guarded by its own lock. It is only held to look up, add
+ * and remove values, never while a value is decompressed.
+ *
+ * @since 9.0
+ */
+public class DecompressedValueCache {
+
+  /**
+   * The maximum size in bytes of the cache of each compressed heap region,
+   * or 0, the default, for no caches. Read when a region is created; not
+   * final so that tests can change it.
+   */
+  public static long MAX_BYTES = Long.getLong("gemfire.DecompressedValueCache.MAX_BYTES", 0);
+
+  /**
+   * The number of bytes accounted for each value in addition to the size of
+   * its serialized form.
+   */
+  static final int ENTRY_OVERHEAD = 64;
+
+  private final long maxBytes;
+
+  private final CachePerfStats stats;
+
+  /** The values by region entry, least recently used first. Guarded by this. */
+  private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+
+  /** Guarded by this */
+  private long bytes;
+
+  /**
+   * @param maxBytes the maximum size of the cache
+   * @param stats the stats that count hits, misses and the size of the cache
+   */
+  public DecompressedValueCache(long maxBytes, CachePerfStats stats) {
+    this.maxBytes = maxBytes;
+    this.stats = stats;
+  }
+
+  /**
+   * Returns the value decompressed from the given bytes of the given entry,
+   * or null if it is not cached.
+   */
+  public Object get(Object regionEntry, byte[] compressed) {
+    synchronized (this) {
+      Entry e = this.entries.get(regionEntry);
+      if (e != null) {
+        if (e.compressed == compressed) {
+          this.stats.incDecompressedValueCacheHits();
+          return e.value;
+        }
+        this.entries.remove(regionEntry);
+        removed(e);
+      }
+    }
+    this.stats.incDecompressedValueCacheMisses();
+    return null;
+  }
+
+  /**
+   * Caches the value decompressed from the given bytes of the given entry.
+   *
+   * @param serializedSize the size of the serialized form of the value
+   */
+  public void put(Object regionEntry, byte[] compressed, Object value, int serializedSize) {
+    int size = serializedSize + ENTRY_OVERHEAD;
+    if (size > this.maxBytes) {
+      return;
+    }
+    Entry e = new Entry(compressed, value, size);
+    synchronized (this) {
+      Entry old = this.entries.put(regionEntry, e);
+      if (old != null) {
+        removed(old);
+      }
+      this.bytes += size;
+      this.stats.incDecompressedValueCacheSize(1, size);
+      evict();
+    }
+  }
+
+  /**
+   * Removes the value of the given entry, which has been updated.
+   */
+  public synchronized void invalidate(Object regionEntry) {
+    Entry e = this.entries.remove(regionEntry);
+    if (e != null) {
+      removed(e);
+    }
+  }
+
+  /**
+   * Removes all the values.
+   */
+  public synchronized void clear() {
+    this.stats.incDecompressedValueCacheSize(-this.entries.size(), -this.bytes);
+    this.entries.clear();
+    this.bytes = 0;
+  }
+
+  /**
+   * Returns the number of bytes accounted for the cached values.
+   */
+  public synchronized long getBytes() {
+    return this.bytes;
+  }
+
+  /**
+   * Returns the number of cached values.
+   */
+  public synchronized int size() {
+    return this.entries.size();
+  }
+
+  private void removed(Entry e) {
+    this.bytes -= e.size;
+    this.stats.incDecompressedValueCacheSize(-1, -e.size);
+  }
+
+  private void evict() {
+    Iterator<Entry> it = this.entries.values().iterator();
+    while (this.bytes > this.maxBytes && it.hasNext()) {
+      Entry e = it.next();
+      it.remove();
+      removed(e);
+    }
+  }
+
+  private static class Entry {
+    private final byte[] compressed;
+    private final Object value;
+    private final int size;
+
+    Entry(byte[] compressed, Object value, int size) {
+      this.compressed = compressed;
+      this.value = value;
+      this.size = size;
+    }
+  }
+}
@@ -46,6 +46,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
@@ -83,6 +84,7 @@ import com.gemstone.gemfire.internal.cache.PartitionedRegion;
 import com.gemstone.gemfire.internal.cache.partitioned.AllBucketProfilesUpdateMessage;
 import com.gemstone.gemfire.internal.cache.tier.Acceptor;
 import com.gemstone.gemfire.internal.cache.tier.CachedRegionHelper;
+import com.gemstone.gemfire.internal.cache.tier.sockets.command.GatewayReceiverCommand;
 import com.gemstone.gemfire.internal.cache.wan.GatewayReceiverStats;
 import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
 import com.gemstone.gemfire.internal.logging.LogService;
@@ -113,6 +115,12 @@ public class AcceptorImpl extends Acceptor implements Runnable
    * A pool used to process handshakes.
    */
   private final ThreadPoolExecutor hsPool;
+  /**
+   * A pool used by a gateway receiver to apply the events of a batch
+   * concurrently. Null unless {@link GatewayReceiverCommand#BATCH_APPLY_THREADS}
+   * is greater than one.
+   */
+  private final ThreadPoolExecutor batchApplyPool;
 
   /** The port on which this acceptor listens for client connections */
   private final int localPort;
@@ -641,6 +649,32 @@ public class AcceptorImpl extends Acceptor implements Runnable
       }
       this.hsPool = tmp_hsPool;
     }
+    if (isGatewayReceiver && GatewayReceiverCommand.BATCH_APPLY_THREADS > 1) {
+      String gName = "GatewayReceiver Batch Applier on port " + this.localPort;
+      final ThreadGroup applierThreadGroup
+        = LoggingThreadGroup.createThreadGroup(gName, logger);
+      ThreadFactory applierThreadFactory = new ThreadFactory() {
+          int threadNum = -1;
+
+          public Thread newThread(Runnable command) {
+            int tnum;
+            synchronized (this) {
+              tnum = ++threadNum;
+            }
+            String tName = applierThreadGroup.getName() + " Thread " + tnum;
+            Thread thread = new Thread(applierThreadGroup, command, tName);
+            thread.setDaemon(true);
+            return thread;
+          }
+        };
+      this.batchApplyPool = new ThreadPoolExecutor(
+          GatewayReceiverCommand.BATCH_APPLY_THREADS,
+          GatewayReceiverCommand.BATCH_APPLY_THREADS, 0L,
+          TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+          applierThreadFactory);
+    } else {
+      this.batchApplyPool = null;
+    }
 
     String authenticator = this.cache.getDistributedSystem().getProperties()
         .getProperty(DistributionConfig.SECURITY_CLIENT_AUTHENTICATOR_NAME);
@@ -1648,6 +1682,9 @@ public class AcceptorImpl extends Acceptor implements Runnable
           this.pool.shutdownNow();
         }
         this.hsPool.shutdownNow();
+        if (this.batchApplyPool != null) {
+          this.batchApplyPool.shutdownNow();
+        }
         this.stats.close();
         GemFireCacheImpl myCache = (GemFireCacheImpl)cache;
         if (!myCache.forcedDisconnect()) {
@@ -1833,6 +1870,15 @@ public class AcceptorImpl extends Acceptor implements Runnable
   public boolean isGatewayReceiver() {
     return this.isGatewayReceiver;
   }
+
+  /**
+   * Returns the executor used to apply the events of a gateway batch
+   * concurrently, or null if batches are applied by the server connection
+   * thread.
+   */
+  public Executor getGatewayBatchApplyExecutor() {
+    return this.batchApplyPool;
+  }
   
   public List<GatewayTransportFilter> getGatewayTransportFilters(){
     return this.gatewayTransportFilters;
@@ -48,6 +48,9 @@ public class CacheClientNotifierStats {
   private static final String CQ_PROCESSING_TIME = "cqProcessingTime";
   private static final String COMPILED_QUERY_COUNT = "compiledQueryCount";
   private static final String COMPILED_QUERY_USED_COUNT = "compiledQueryUsedCount";
+  private static final String SHARED_SERIALIZATIONS = "sharedSerializations";
+  private static final String SHARED_SERIALIZATIONS_REUSED = "sharedSerializationsReused";
+  private static final String SHARED_SERIALIZATION_BYTES_REUSED = "sharedSerializationBytesReused";
   
   private static final int _eventsId;
   private static final int _eventProcessingTimeId;
@@ -69,6 +72,11 @@ public class CacheClientNotifierStats {
 
   private static final int _compiledQueryUsedCount;
 
+  // Shared serialization of client messages.
+  private static final int _sharedSerializationsId;
+  private static final int _sharedSerializationsReusedId;
+  private static final int _sharedSerializationBytesReusedId;
+
   static {
     String statName = "CacheClientNotifierStatistics";
 
@@ -136,6 +144,21 @@ public class CacheClientNotifierStats {
              "Number of times compiled queries are used.",
              "used"),
 
+            f.createLongCounter
+            (SHARED_SERIALIZATIONS,
+             "Number of times the parts of a client message that are the same for all clients were serialized to be shared by the client proxies.",
+             "operations"),
+
+            f.createLongCounter
+            (SHARED_SERIALIZATIONS_REUSED,
+             "Number of client messages built from parts already serialized for another client.",
+             "operations"),
+
+            f.createLongCounter
+            (SHARED_SERIALIZATION_BYTES_REUSED,
+             "Number of serialized bytes client messages reused instead of serializing them again.",
+             "bytes"),
+
        });
 
     // Initialize id fields
@@ -155,6 +178,9 @@ public class CacheClientNotifierStats {
     _cqProcessingTimeId = _type.nameToId(CQ_PROCESSING_TIME);
     _compiledQueryCount = _type.nameToId(COMPILED_QUERY_COUNT);
     _compiledQueryUsedCount = _type.nameToId(COMPILED_QUERY_USED_COUNT);
+    _sharedSerializationsId = _type.nameToId(SHARED_SERIALIZATIONS);
+    _sharedSerializationsReusedId = _type.nameToId(SHARED_SERIALIZATIONS_REUSED);
+    _sharedSerializationBytesReusedId = _type.nameToId(SHARED_SERIALIZATION_BYTES_REUSED);
   }
 
   //////////////////////  Instance Fields  //////////////////////
@@ -291,4 +317,29 @@ public class CacheClientNotifierStats {
     return this._stats.getInt(_clientHealthMonitorUnRegisterId);
   }
 
+  public void incSharedSerializations() {
+    this._stats.incLong(_sharedSerializationsId, 1);
+  }
+
+  /**
+   * Records that a client message reused the given number of bytes
+   * serialized for another client.
+   */
+  public void incSharedSerializationReused(int bytes) {
+    this._stats.incLong(_sharedSerializationsReusedId, 1);
+    this._stats.incLong(_sharedSerializationBytesReusedId, bytes);
+  }
+
+  public long getSharedSerializations() {
+    return this._stats.getLong(_sharedSerializationsId);
+  }
+
+  public long getSharedSerializationsReused() {
+    return this._stats.getLong(_sharedSerializationsReusedId);
+  }
+
+  public long getSharedSerializationBytesReused() {
+    return this._stats.getLong(_sharedSerializationBytesReusedId);
+  }
+
 }
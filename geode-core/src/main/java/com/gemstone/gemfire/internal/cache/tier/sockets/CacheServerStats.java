@@ -27,9 +27,11 @@ import com.gemstone.gemfire.Statistics;
 import com.gemstone.gemfire.StatisticsFactory;
 import com.gemstone.gemfire.StatisticsType;
 import com.gemstone.gemfire.cache.server.ServerLoad;
+import com.gemstone.gemfire.distributed.internal.DistributionStats;
 import com.gemstone.gemfire.distributed.internal.InternalDistributedSystem;
 import com.gemstone.gemfire.distributed.internal.PoolStatHelper;
 import com.gemstone.gemfire.internal.DummyStatisticsFactory;
+import com.gemstone.gemfire.internal.LogLinearHistogramStats;
 import com.gemstone.gemfire.internal.SocketCreator;
 import com.gemstone.gemfire.internal.util.ArrayUtils;
 
@@ -39,6 +41,13 @@ public class CacheServerStats implements MessageStats {
   
   protected Statistics stats;
 
+  /**
+   * The histograms of the times spent processing get and put requests, null
+   * if clock stats are disabled
+   */
+  private LogLinearHistogramStats processGetLatency;
+  private LogLinearHistogramStats processPutLatency;
+
   // Get request / response statistics
   int getRequestsId;
 
@@ -582,6 +591,10 @@ public class CacheServerStats implements MessageStats {
     catch (Exception e) {
     }
     this.stats = f.createAtomicStatistics(statType, ownerName);
+    if (DistributionStats.enableClockStats) {
+      this.processGetLatency = new LogLinearHistogramStats(f, ownerName + "-processGetLatency");
+      this.processPutLatency = new LogLinearHistogramStats(f, ownerName + "-processPutLatency");
+    }
 
     getRequestsId = this.stats.nameToId("getRequests");
     readGetRequestTimeId = this.stats.nameToId("readGetRequestTime");
@@ -807,6 +820,9 @@ public class CacheServerStats implements MessageStats {
   public final void incProcessGetTime(long delta)
   {
     this.stats.incLong(processGetTimeId, delta);
+    if (this.processGetLatency != null) {
+      this.processGetLatency.endOp(delta);
+    }
   }
 
   public final void incWriteGetResponseTime(long delta)
@@ -866,6 +882,9 @@ public class CacheServerStats implements MessageStats {
   public final void incProcessPutTime(long delta)
   {
     this.stats.incLong(processPutTimeId, delta);
+    if (this.processPutLatency != null) {
+      this.processPutLatency.endOp(delta);
+    }
   }
 
   public final void incWritePutResponseTime(long delta)
@@ -1129,6 +1148,10 @@ public final void incProcessStopCqTime(long delta) {
   
   public final void close() {
     this.stats.close();
+    if (this.processGetLatency != null) {
+      this.processGetLatency.close();
+      this.processPutLatency.close();
+    }
   }
 
   public PoolStatHelper getCnxPoolHelper() {
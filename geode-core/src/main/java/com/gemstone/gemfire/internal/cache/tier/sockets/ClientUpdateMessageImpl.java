@@ -38,6 +38,7 @@ import com.gemstone.gemfire.cache.query.CqQuery;
 import com.gemstone.gemfire.cache.query.internal.cq.InternalCqQuery;
 import com.gemstone.gemfire.cache.util.ObjectSizer;
 import com.gemstone.gemfire.internal.DSCODE;
+import com.gemstone.gemfire.internal.HeapDataOutputStream;
 import com.gemstone.gemfire.internal.InternalDataSerializer;
 import com.gemstone.gemfire.internal.Sendable;
 import com.gemstone.gemfire.internal.Version;
@@ -55,6 +56,7 @@ import com.gemstone.gemfire.internal.cache.ha.HAContainerRegion;
 import com.gemstone.gemfire.internal.cache.lru.Sizeable;
 import com.gemstone.gemfire.internal.cache.tier.MessageType;
 import com.gemstone.gemfire.internal.cache.versions.VersionTag;
+import com.gemstone.gemfire.internal.util.BlobHelper;
 import com.gemstone.gemfire.internal.logging.LogService;
 import com.gemstone.gemfire.internal.offheap.MemoryAllocatorImpl;
 
@@ -154,6 +156,23 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
 
   private VersionTag versionTag;
 
+  /**
+   * Whether the parts of this message that are the same for every client are
+   * serialized once and shared by the messages built for each client.
+   *
+   * @since 9.0
+   */
+  public static final boolean SHARE_SERIALIZED_PARTS = !Boolean
+      .getBoolean("gemfire.ClientUpdateMessage.DISABLE_SHARED_SERIALIZATION");
+
+  /**
+   * The parts serialized by the first proxy that dispatched this message,
+   * shared with the proxies of clients of the same version.
+   *
+   * @since 9.0
+   */
+  private transient volatile SerializedParts serializedParts;
+
   /* added up all constants and form single value */
   private static final int CONSTANT_MEMORY_OVERHEAD;
 
@@ -728,6 +747,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
     if (clientHasCq) {
       cqMsgParts = (this.getCqs(proxyId).length * 2) + 1;
     }
+    SerializedParts parts = getSerializedParts(proxy, clientVersion);
     
     if (isCreate() || isUpdate()) {
       // Create or update event
@@ -746,7 +766,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
         // Add the key
         // Currently serializing the key here instead of when the message
         // is put in the queue so that it can be conflated it later
-        message.addStringOrObjPart(this._keyOfInterest);
+        parts.addKeyPart(message);
       }
       else {
         // Notify by subscription - send the value
@@ -762,7 +782,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
           // Add the key
           // Currently serializing the key here instead of when the message
           // is put in the queue so that it can be conflated it later
-          message.addStringOrObjPart(this._keyOfInterest);
+          parts.addKeyPart(message);
 
           message.addObjPart(Boolean.FALSE); // NO delta
           // Add the value (which has already been serialized)
@@ -777,7 +797,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
           // Add the key
           // Currently serializing the key here instead of when the message
           // is put in the queue so that it can be conflated it later
-          message.addStringOrObjPart(this._keyOfInterest);
+          parts.addKeyPart(message);
 
           if (this.deltaBytes != null
               && !conflation
@@ -802,7 +822,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
         }
       }
       
-      message.addObjPart(this._callbackArgument);
+      parts.addCallbackArgumentPart(message);
       message.addObjPart(Boolean.valueOf(isClientInterested(proxyId)));
       message.addObjPart(Boolean.valueOf(clientHasCq));
 
@@ -827,8 +847,8 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
         message.setMessageType(MessageType.LOCAL_INVALIDATE);
       }
       message.addStringPart(this._regionName);
-      message.addStringOrObjPart(this._keyOfInterest);
-      message.addObjPart(this._callbackArgument);
+      parts.addKeyPart(message);
+      parts.addCallbackArgumentPart(message);
       message.addObjPart(Boolean.valueOf(isClientInterested(proxyId)));
       message.addObjPart(Boolean.valueOf(clientHasCq));
 
@@ -845,7 +865,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
       message = new Message(4 + cqMsgParts, clientVersion);
       message.setMessageType(MessageType.LOCAL_DESTROY_REGION);
       message.addStringPart(this._regionName);
-      message.addObjPart(this._callbackArgument);
+      parts.addCallbackArgumentPart(message);
       message.addObjPart(Boolean.valueOf(clientHasCq));
 
       if (clientHasCq) {
@@ -856,7 +876,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
       message = new Message(4 + cqMsgParts, clientVersion);
       message.setMessageType(MessageType.CLEAR_REGION);
       message.addStringPart(this._regionName);
-      message.addObjPart(this._callbackArgument);
+      parts.addCallbackArgumentPart(message);
       message.addObjPart(Boolean.valueOf(clientHasCq));
 
       if (clientHasCq) {
@@ -867,7 +887,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
       message = new Message(4 + cqMsgParts, clientVersion);
       message.setMessageType(MessageType.INVALIDATE_REGION);
       message.addStringPart(this._regionName);
-      message.addObjPart(this._callbackArgument);
+      parts.addCallbackArgumentPart(message);
 
       // Add CQ status.
       message.addObjPart(Boolean.valueOf(clientHasCq));
@@ -883,7 +903,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
     message.setTransactionId(0);
     // Add the EventId since 5.1 (used to prevent duplicate events
     // received on the client side after a failover)
-    message.addObjPart(this._eventIdentifier);
+    parts.addEventIdentifierPart(message);
     return message;
   }
 
@@ -901,6 +921,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
       if (clientHasCq) {
         cqMsgParts = (this.getCqs(proxyId).length * 2) + 1;
       }
+      SerializedParts parts = getSerializedParts(proxy, clientVersion);
       
       if (isCreate() || isUpdate()) {
         // Create or update event
@@ -913,7 +934,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
           message = new Message(7 + cqMsgParts, clientVersion);
           message.setMessageType(MessageType.LOCAL_INVALIDATE);
           message.addStringPart(this._regionName);
-          message.addStringOrObjPart(this._keyOfInterest);
+          parts.addKeyPart(message);
         }
         else {
           // Notify by subscription - send the value
@@ -921,7 +942,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
           if (isCreate()) {
             message.setMessageType(MessageType.LOCAL_CREATE);
             message.addStringPart(this._regionName);
-            message.addStringOrObjPart(this._keyOfInterest);
+            parts.addKeyPart(message);
             message.addObjPart(Boolean.FALSE); // NO delta
             // Add the value (which has already been serialized)
             message.addRawPart(latestValue, (this._valueIsObject == 0x01));
@@ -929,7 +950,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
           else {
             message.setMessageType(MessageType.LOCAL_UPDATE);
             message.addStringPart(this._regionName);
-            message.addStringOrObjPart(this._keyOfInterest);
+            parts.addKeyPart(message);
 
             if (this.deltaBytes != null
                 && !conflation
@@ -954,11 +975,8 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
           }
         }
         
-        message.addObjPart(this._callbackArgument);
-        if (this.versionTag != null) {
-          this.versionTag.setCanonicalIDs(proxy.getCache().getDistributionManager());
-        }
-        message.addObjPart(this.versionTag);
+        parts.addCallbackArgumentPart(message);
+        parts.addVersionTagPart(message);
         message.addObjPart(Boolean.valueOf(isClientInterested(proxyId)));
         message.addObjPart(Boolean.valueOf(clientHasCq));
 
@@ -983,9 +1001,9 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
           message.setMessageType(MessageType.LOCAL_INVALIDATE);
         }
         message.addStringPart(this._regionName);
-        message.addStringOrObjPart(this._keyOfInterest);
-        message.addObjPart(this._callbackArgument);
-        message.addObjPart(this.versionTag);
+        parts.addKeyPart(message);
+        parts.addCallbackArgumentPart(message);
+        parts.addVersionTagPart(message);
         message.addObjPart(Boolean.valueOf(isClientInterested(proxyId)));
       message.addObjPart(Boolean.valueOf(clientHasCq));
 
@@ -1002,7 +1020,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
         message = new Message(4 + cqMsgParts, clientVersion);
         message.setMessageType(MessageType.LOCAL_DESTROY_REGION);
         message.addStringPart(this._regionName);
-        message.addObjPart(this._callbackArgument);
+        parts.addCallbackArgumentPart(message);
         message.addObjPart(Boolean.valueOf(clientHasCq));
 
         if (clientHasCq) {
@@ -1013,7 +1031,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
         message = new Message(4 + cqMsgParts, clientVersion);
         message.setMessageType(MessageType.CLEAR_REGION);
         message.addStringPart(this._regionName);
-        message.addObjPart(this._callbackArgument);
+        parts.addCallbackArgumentPart(message);
         message.addObjPart(Boolean.valueOf(clientHasCq));
 
         if (clientHasCq) {
@@ -1024,7 +1042,7 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
       message = new Message(4 + cqMsgParts, clientVersion);
       message.setMessageType(MessageType.INVALIDATE_REGION);
       message.addStringPart(this._regionName);
-      message.addObjPart(this._callbackArgument);
+      parts.addCallbackArgumentPart(message);
 
       // Add CQ status.
       message.addObjPart(Boolean.valueOf(clientHasCq));
@@ -1040,11 +1058,125 @@ public class ClientUpdateMessageImpl implements ClientUpdateMessage, Sizeable, N
     message.setTransactionId(0);
     // Add the EventId since 5.1 (used to prevent duplicate events
     // received on the client side after a failover)
-    message.addObjPart(this._eventIdentifier);
+    parts.addEventIdentifierPart(message);
     return message;
   }
 
 
+  /**
+   * Returns the serialized key, callback argument, version tag and event id
+   * of this message for a client of the given version. They are serialized
+   * once and shared by the messages built for all clients of that version.
+   */
+  SerializedParts getSerializedParts(CacheClientProxy proxy,
+      Version clientVersion) throws IOException {
+    CacheClientNotifier ccn = proxy.getCacheClientNotifier();
+    CacheClientNotifierStats stats = ccn == null ? null : ccn.getStats();
+    SerializedParts parts = this.serializedParts;
+    if (parts != null && parts.version.equals(clientVersion)) {
+      if (stats != null) {
+        stats.incSharedSerializationReused(parts.getSize());
+      }
+      return parts;
+    }
+    if (this.versionTag != null && proxy.getCache() != null) {
+      this.versionTag.setCanonicalIDs(proxy.getCache().getDistributionManager());
+    }
+    parts = new SerializedParts(clientVersion, this._keyOfInterest,
+        this._callbackArgument, this.versionTag, this._eventIdentifier);
+    if (SHARE_SERIALIZED_PARTS) {
+      if (stats != null) {
+        stats.incSharedSerializations();
+      }
+      if (this.serializedParts == null) {
+        // the first version to be dispatched is shared
+        this.serializedParts = parts;
+      }
+    }
+    return parts;
+  }
+
+  /**
+   * The parts of a client message that do not depend on the client, in the
+   * form they are written to clients of one version. Instances are immutable
+   * so that the byte arrays can be referenced by the messages of many
+   * clients at once.
+   *
+   * @since 9.0
+   */
+  static final class SerializedParts {
+    final Version version;
+    private final byte[] key;
+    private final boolean keyIsObject;
+    private final byte[] callbackArgument;
+    private final boolean callbackArgumentIsObject;
+    private final byte[] versionTag;
+    private final byte[] eventIdentifier;
+
+    SerializedParts(Version version, Object key, Object callbackArgument,
+        VersionTag versionTag, EventID eventIdentifier) throws IOException {
+      this.version = version;
+      if (key instanceof String || key == null) {
+        this.key = key == null ? null : new HeapDataOutputStream((String)key).toByteArray();
+        this.keyIsObject = false;
+      } else {
+        // like Message.addStringOrObjPart, byte[] keys are serialized too
+        this.key = serializeObject(key, version);
+        this.keyIsObject = true;
+      }
+      this.callbackArgument = serialize(callbackArgument, version);
+      this.callbackArgumentIsObject = callbackArgument != null
+          && !(callbackArgument instanceof byte[]);
+      this.versionTag = serialize(versionTag, version);
+      this.eventIdentifier = serialize(eventIdentifier, version);
+    }
+
+    /**
+     * Serializes an object the way {@link Message#addObjPart(Object)} does.
+     */
+    private static byte[] serialize(Object o, Version version) throws IOException {
+      if (o == null || o instanceof byte[]) {
+        return (byte[])o;
+      }
+      return serializeObject(o, version);
+    }
+
+    private static byte[] serializeObject(Object o, Version version) throws IOException {
+      HeapDataOutputStream hdos = new HeapDataOutputStream(
+          Version.CURRENT.equals(version) ? null : version);
+      BlobHelper.serializeTo(o, hdos);
+      return hdos.toByteArray();
+    }
+
+    void addKeyPart(Message message) {
+      message.addRawPart(this.key, this.keyIsObject);
+    }
+
+    void addCallbackArgumentPart(Message message) {
+      message.addRawPart(this.callbackArgument, this.callbackArgumentIsObject);
+    }
+
+    void addVersionTagPart(Message message) {
+      message.addRawPart(this.versionTag, this.versionTag != null);
+    }
+
+    void addEventIdentifierPart(Message message) {
+      message.addRawPart(this.eventIdentifier, this.eventIdentifier != null);
+    }
+
+    /**
+     * Returns the number of serialized bytes the parts hold.
+     */
+    int getSize() {
+      return length(this.key) + length(this.callbackArgument)
+          + length(this.versionTag) + length(this.eventIdentifier);
+    }
+
+    private static int length(byte[] bytes) {
+      return bytes == null ? 0 : bytes.length;
+    }
+  }
+
   /**
    * @return boolean true if the event is due to net load.
    */
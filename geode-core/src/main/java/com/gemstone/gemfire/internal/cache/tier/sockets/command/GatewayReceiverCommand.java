@@ -20,10 +20,21 @@
 package com.gemstone.gemfire.internal.cache.tier.sockets.command;
 
 import java.io.IOException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import com.gemstone.gemfire.CancelException;
+import com.gemstone.gemfire.InternalGemFireError;
 import com.gemstone.gemfire.cache.CacheClosedException;
 import com.gemstone.gemfire.cache.EntryNotFoundException;
 import com.gemstone.gemfire.cache.RegionDestroyedException;
@@ -33,7 +44,6 @@ import com.gemstone.gemfire.cache.wan.GatewayReceiver;
 import com.gemstone.gemfire.distributed.DistributedSystem;
 import com.gemstone.gemfire.distributed.internal.DistributionStats;
 import com.gemstone.gemfire.distributed.internal.InternalDistributedSystem;
-import com.gemstone.gemfire.i18n.LogWriterI18n;
 import com.gemstone.gemfire.internal.Version;
 import com.gemstone.gemfire.internal.cache.EntryEventImpl;
 import com.gemstone.gemfire.internal.cache.EventID;
@@ -41,6 +51,7 @@ import com.gemstone.gemfire.internal.cache.EventIDHolder;
 import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
 import com.gemstone.gemfire.internal.cache.KeyWithRegionContext;
 import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.cache.ha.ThreadIdentifier;
 import com.gemstone.gemfire.internal.cache.tier.CachedRegionHelper;
 import com.gemstone.gemfire.internal.cache.tier.Command;
 import com.gemstone.gemfire.internal.cache.tier.MessageType;
@@ -63,6 +74,23 @@ public class GatewayReceiverCommand extends BaseCommand {
 
   private final static GatewayReceiverCommand singleton = new GatewayReceiverCommand();
 
+  /**
+   * The number of threads used to apply the events of a received batch. When
+   * greater than one, the events of a batch are read first and then applied
+   * concurrently before the batch is acknowledged. Events on the same key, or
+   * from the same originating thread, are still applied in order. The default
+   * applies every batch on the server connection thread.
+   */
+  public static final int BATCH_APPLY_THREADS = Integer.getInteger(
+      "gemfire.GatewayReceiver.BatchApplyThreads", 0).intValue();
+
+  /**
+   * Batches with fewer events than this are applied on the server connection
+   * thread even if {@link #BATCH_APPLY_THREADS} is set.
+   */
+  public static final int BATCH_APPLY_MINIMUM_EVENTS = Integer.getInteger(
+      "gemfire.GatewayReceiver.BatchApplyMinimumEvents", 10).intValue();
+
   public static Command getCommand() {
     return singleton;
   }
@@ -83,14 +111,9 @@ public class GatewayReceiverCommand extends BaseCommand {
   @Override
   public void cmdExecute(Message msg, ServerConnection servConn, long start)
       throws IOException, InterruptedException {
-    Part regionNamePart = null, keyPart = null, valuePart = null, callbackArgPart = null;
-    String regionName = null;
-    Object callbackArg = null, key = null;
     int partNumber = 0;
     CachedRegionHelper crHelper = servConn.getCachedRegionHelper();
     GatewayReceiverStats stats = (GatewayReceiverStats)servConn.getCacheServerStats();
-    EventID eventId = null;
-    LocalRegion region = null;
     List<BatchException70> exceptions = new ArrayList<BatchException70>();
     Throwable fatalException = null;
     //requiresResponse = true;// let PROCESS_BATCH deal with this itself
@@ -99,7 +122,6 @@ public class GatewayReceiverCommand extends BaseCommand {
       start = DistributionStats.getStatTime();
       stats.incReadProcessBatchRequestTime(start - oldStart);
     }
-    Part callbackArgExistsPart;
     // Get early ack flag. This test should eventually be moved up above this switch
     // statement so that all messages can take advantage of it.
     boolean earlyAck = false;//msg.getEarlyAck();
@@ -162,16 +184,6 @@ public class GatewayReceiverCommand extends BaseCommand {
         logger.debug("{}: Sent process batch early response for batch {} containing {} events ({} bytes) with {} acknowledgement on {}", servConn.getName(), batchId, numberOfEvents, msg.getPayloadLength(), (earlyAck ? "early" : "normal"), servConn.getSocketString());
       }
     }
-    // logger.warn("Received process batch request " + batchId + " containing
-    // " + numberOfEvents + " events (" + msg.getPayloadLength() + " bytes) with
-    // " + (earlyAck ? "early" : "normal") + " acknowledgement on " +
-    // getSocketString());
-    // if (earlyAck) {
-    // logger.warn("Sent process batch early response for batch " + batchId +
-    // " containing " + numberOfEvents + " events (" + msg.getPayloadLength() +
-    // " bytes) with " + (earlyAck ? "early" : "normal") + " acknowledgement on
-    // " + getSocketString());
-    // }
 
     // Retrieve the events from the message parts. The '2' below
     // represents the number of events (part0) and the batchId (part1)
@@ -183,449 +195,43 @@ public class GatewayReceiverCommand extends BaseCommand {
     // Keep track of whether a response has been written for
     // exceptions
     boolean wroteResponse = earlyAck;
+
+    // When concurrent application is enabled the events are only read here;
+    // they are applied once the whole batch has been read.
+    Executor applyExecutor = null;
+    List<BatchEvent> deferredEvents = null;
+    if (!wroteResponse && BATCH_APPLY_THREADS > 1
+        && numberOfEvents >= BATCH_APPLY_MINIMUM_EVENTS) {
+      applyExecutor = servConn.getAcceptor().getGatewayBatchApplyExecutor();
+      if (applyExecutor != null) {
+        deferredEvents = new ArrayList<BatchEvent>(numberOfEvents);
+      }
+    }
+
     // event received in batch also have PDX events at the start of the batch,to
     // represent correct index on which the exception occurred, number of PDX
     // events need to be subtratced.  
     int indexWithoutPDXEvent = -1; //
     for (int i = 0; i < numberOfEvents; i++) {
       indexWithoutPDXEvent++;
-      // System.out.println("Processing event " + i + " in batch " + batchId + "
-      // starting with part number " + partNumber);
-      Part actionTypePart = msg.getPart(partNumber);
-      int actionType = actionTypePart.getInt();
-      
-      long versionTimeStamp = VersionTag.ILLEGAL_VERSION_TIMESTAMP;
-      EventIDHolder clientEvent = null;
-      
-      boolean callbackArgExists = false;
-
+      BatchEvent event = new BatchEvent(partNumber);
       try {
-        Part possibleDuplicatePart = msg.getPart(partNumber + 1);
-        byte[] possibleDuplicatePartBytes;
         try {
-          possibleDuplicatePartBytes = (byte[])possibleDuplicatePart
-              .getObject();
-        }
-        catch (Exception e) {
-          logger.warn(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_REQUEST_1_CONTAINING_2_EVENTS, new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents) }), e);
-          throw e;
-        }
-        boolean possibleDuplicate = possibleDuplicatePartBytes[0] == 0x01;
-
-        // Make sure instance variables are null before each iteration
-        regionName = null;
-        key = null;
-        callbackArg = null;
-
-        // Retrieve the region name from the message parts
-        regionNamePart = msg.getPart(partNumber + 2);
-        regionName = regionNamePart.getString();
-        if (regionName.equals(PeerTypeRegistration.REGION_FULL_PATH)) {
-          indexWithoutPDXEvent --;
-        }
-
-        // Retrieve the event id from the message parts
-        // This was going to be used to determine possible
-        // duplication of events, but it is unused now. In
-        // fact the event id is overridden by the FROM_GATEWAY
-        // token.
-        Part eventIdPart = msg.getPart(partNumber + 3);
-        eventIdPart.setVersion(servConn.getClientVersion()); 
-        // String eventId = eventIdPart.getString();
-        try {
-          eventId = (EventID)eventIdPart.getObject();
-        }
-        catch (Exception e) {
-          logger.warn(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_REQUEST_1_CONTAINING_2_EVENTS, new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents) }), e);
-          throw e;
-        }
-
-        // Retrieve the key from the message parts
-        keyPart = msg.getPart(partNumber + 4);
-        try {
-          key = keyPart.getStringOrObject();
-        }
-        catch (Exception e) {
-          logger.warn(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_REQUEST_1_CONTAINING_2_EVENTS, new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents) }), e);
-          throw e;
-        }
-        switch (actionType) {
-        case 0: // Create
-
-          /*
-           * CLIENT EXCEPTION HANDLING TESTING CODE String keySt = (String) key;
-           * System.out.println("Processing new key: " + key); if
-           * (keySt.startsWith("failure")) { throw new
-           * Exception(LocalizedStrings
-           * .ProcessBatch_THIS_EXCEPTION_REPRESENTS_A_FAILURE_ON_THE_SERVER
-           * .toLocalizedString()); }
-           */
-
-          // Retrieve the value from the message parts (do not deserialize it)
-          valuePart = msg.getPart(partNumber + 5);
-          // try {
-          // logger.warn(getName() + ": Creating key " + key + " value " +
-          // valuePart.getObject());
-          // } catch (Exception e) {}
-
-          // Retrieve the callbackArg from the message parts if necessary
-          int index = partNumber+6;
-          callbackArgExistsPart = msg.getPart(index++);
-          {
-            byte[] partBytes = (byte[])callbackArgExistsPart.getObject();
-            callbackArgExists = partBytes[0] == 0x01;
-          }
-          if (callbackArgExists) {
-            callbackArgPart = msg.getPart(index++);
-            try {
-              callbackArg = callbackArgPart.getObject();
-            } catch (Exception e) {
-              logger.warn(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_CREATE_REQUEST_1_FOR_2_EVENTS, new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents) }), e);
-              throw e;
-            }
+          readEvent(msg, servConn, event, batchId, numberOfEvents);
+        } finally {
+          if (event.isPdxEvent()) {
+            indexWithoutPDXEvent--;
           }
-          if (logger.isDebugEnabled()) {
-            logger.debug("{}: Processing batch create request {} on {} for region {} key {} value {} callbackArg {}, eventId={}", servConn.getName(), batchId, servConn.getSocketString(), regionName, key, valuePart, callbackArg, eventId);
-          }
-          versionTimeStamp = msg.getPart(index++).getLong();
-          // Process the create request
-          if (key == null || regionName == null) {
-            StringId message = null;
-            Object[] messageArgs = new Object[] { servConn.getName(),
-                Integer.valueOf(batchId) };
-            if (key == null) {
-              message = LocalizedStrings.ProcessBatch_0_THE_INPUT_REGION_NAME_FOR_THE_BATCH_CREATE_REQUEST_1_IS_NULL;
-            }
-            if (regionName == null) {
-              message = LocalizedStrings.ProcessBatch_0_THE_INPUT_REGION_NAME_FOR_THE_BATCH_CREATE_REQUEST_1_IS_NULL;
-            }
-            String s = message.toLocalizedString(messageArgs);
-            logger.warn(s);
-            throw new Exception(s);
-          }
-          region = (LocalRegion)crHelper.getRegion(regionName);
-          if (region == null) {
-            handleRegionNull(servConn, regionName, batchId);
-          } else {
-            clientEvent = new EventIDHolder(eventId);
-            if (versionTimeStamp > 0) {
-              VersionTag tag = VersionTag.create(region.getVersionMember());
-              tag.setIsGatewayTag(true);
-              tag.setVersionTimeStamp(versionTimeStamp);
-              tag.setDistributedSystemId(dsid);
-              clientEvent.setVersionTag(tag);
-            }
-            clientEvent.setPossibleDuplicate(possibleDuplicate);
-            handleMessageRetry(region, clientEvent);
-            try {
-              byte[] value = valuePart.getSerializedForm();
-              boolean isObject = valuePart.isObject();
-              if (region.keyRequiresRegionContext()) {
-                ((KeyWithRegionContext)key).setRegionContext(region);
-              }
-              // [sumedh] This should be done on client while sending
-              // since that is the WAN gateway
-              AuthorizeRequest authzRequest = servConn.getAuthzRequest();
-              if (authzRequest != null) {
-                PutOperationContext putContext = authzRequest.putAuthorize(
-                    regionName, key, value, isObject, callbackArg);
-                value = putContext.getSerializedValue();
-                isObject = putContext.isObject();
-              }
-              // Attempt to create the entry
-              boolean result = false;
-              result = region.basicBridgeCreate(key, value, isObject, callbackArg,
-                      servConn.getProxyID(), false, clientEvent, false); 
-              // If the create fails (presumably because it already exists),
-              // attempt to update the entry
-              if (!result) {
-                result = region.basicBridgePut(key, value, null, isObject,
-                    callbackArg, servConn.getProxyID(), false, clientEvent,
-                    servConn.isSqlFabricSystem());
-              }
-
-              if (result || clientEvent.isConcurrencyConflict()) {
-                servConn.setModificationInfo(true, regionName, key);
-                stats.incCreateRequest();
-              } else {
-                // This exception will be logged in the catch block below
-                throw new Exception(
-                    LocalizedStrings.ProcessBatch_0_FAILED_TO_CREATE_OR_UPDATE_ENTRY_FOR_REGION_1_KEY_2_VALUE_3_CALLBACKARG_4
-                        .toLocalizedString(new Object[] { servConn.getName(),
-                            regionName, key, valuePart, callbackArg }));
-              }
-            } catch (Exception e) {
-              logger.warn(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_CREATE_REQUEST_1_FOR_2_EVENTS, new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents) }), e);
-              throw e;
-            }
-          }
-          break;
-        case 1: // Update
-          /*
-           * CLIENT EXCEPTION HANDLING TESTING CODE keySt = (String) key;
-           * System.out.println("Processing updated key: " + key); if
-           * (keySt.startsWith("failure")) { throw new
-           * Exception(LocalizedStrings
-           * .ProcessBatch_THIS_EXCEPTION_REPRESENTS_A_FAILURE_ON_THE_SERVER
-           * .toLocalizedString()); }
-           */
-
-          // Retrieve the value from the message parts (do not deserialize it)
-          valuePart = msg.getPart(partNumber + 5);
-          // try {
-          // logger.warn(getName() + ": Updating key " + key + " value " +
-          // valuePart.getObject());
-          // } catch (Exception e) {}
-
-          // Retrieve the callbackArg from the message parts if necessary
-          index = partNumber + 6;
-          callbackArgExistsPart = msg.getPart(index++);
-          {
-            byte[] partBytes = (byte[])callbackArgExistsPart.getObject();
-            callbackArgExists = partBytes[0] == 0x01;
-          }
-          if (callbackArgExists) {
-            callbackArgPart = msg.getPart(index++);
-            try {
-              callbackArg = callbackArgPart.getObject();
-            } catch (Exception e) {
-              logger.warn(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_UPDATE_REQUEST_1_CONTAINING_2_EVENTS, new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents) }), e);
-              throw e;
-            }
-          }
-          versionTimeStamp = msg.getPart(index++).getLong();
-          if (logger.isDebugEnabled()) {
-            logger.debug("{}: Processing batch update request {} on {} for region {} key {} value {} callbackArg {}", servConn.getName(), batchId, servConn.getSocketString(), regionName, key, valuePart, callbackArg);
-          }
-          // Process the update request
-          if (key == null || regionName == null) {
-            StringId message = null;
-            Object[] messageArgs = new Object[] { servConn.getName(),
-                Integer.valueOf(batchId) };
-            if (key == null) {
-              message = LocalizedStrings.ProcessBatch_0_THE_INPUT_KEY_FOR_THE_BATCH_UPDATE_REQUEST_1_IS_NULL;
-            }
-            if (regionName == null) {
-              message = LocalizedStrings.ProcessBatch_0_THE_INPUT_REGION_NAME_FOR_THE_BATCH_UPDATE_REQUEST_1_IS_NULL;
-            }
-            String s = message.toLocalizedString(messageArgs);
-            logger.warn(s);
-            throw new Exception(s);
-          }
-          region = (LocalRegion)crHelper.getRegion(regionName);
-          if (region == null) {
-            handleRegionNull(servConn, regionName, batchId);
-          } else {
-            clientEvent = new EventIDHolder(eventId);
-            if (versionTimeStamp > 0) {
-              VersionTag tag = VersionTag.create(region.getVersionMember());
-              tag.setIsGatewayTag(true);
-              tag.setVersionTimeStamp(versionTimeStamp);
-              tag.setDistributedSystemId(dsid);
-              clientEvent.setVersionTag(tag);
-            }
-            clientEvent.setPossibleDuplicate(possibleDuplicate);
-            handleMessageRetry(region, clientEvent);
-            try {
-              byte[] value = valuePart.getSerializedForm();
-              boolean isObject = valuePart.isObject();
-              if (region.keyRequiresRegionContext()) {
-                ((KeyWithRegionContext)key).setRegionContext(region);
-              }
-              AuthorizeRequest authzRequest = servConn.getAuthzRequest();
-              if (authzRequest != null) {
-                PutOperationContext putContext = authzRequest.putAuthorize(
-                    regionName, key, value, isObject, callbackArg,
-                    PutOperationContext.UPDATE);
-                value = putContext.getSerializedValue();
-                isObject = putContext.isObject();
-              }
-              boolean result = region.basicBridgePut(key, value, null, isObject,
-                  callbackArg, servConn.getProxyID(), false, clientEvent,
-                  servConn.isSqlFabricSystem());
-              if (result|| clientEvent.isConcurrencyConflict()) {
-                servConn.setModificationInfo(true, regionName, key);
-                stats.incUpdateRequest();
-              } else {
-                final Object[] msgArgs = new Object[] { servConn.getName(),
-                    regionName, key, valuePart, callbackArg };
-                final StringId message = LocalizedStrings.ProcessBatch_0_FAILED_TO_UPDATE_ENTRY_FOR_REGION_1_KEY_2_VALUE_3_AND_CALLBACKARG_4;
-                String s = message.toLocalizedString(msgArgs);
-                logger.info(s);
-                throw new Exception(s);
-              }
-            } catch (CancelException e) {
-              // FIXME better exception hierarchy would avoid this check
-              if (servConn.getCachedRegionHelper().getCache()
-                  .getCancelCriterion().cancelInProgress() != null) {
-                if (logger.isDebugEnabled()) {
-                  logger.debug("{} ignoring message of type {} from client {} because shutdown occurred during message processing.", servConn.getName(), MessageType.getString(msg.getMessageType()), servConn.getProxyID());
-                }
-                servConn.setFlagProcessMessagesAsFalse();
-              } else {
-                throw e;
-              }
-              return;
-            } catch (Exception e) {
-              // Preserve the connection under all circumstances
-              logger.warn(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_UPDATE_REQUEST_1_CONTAINING_2_EVENTS, new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents) }), e);
-              throw e;
-            }
-          }
-          break;
-        case 2: // Destroy
-          // Retrieve the callbackArg from the message parts if necessary
-          index =  partNumber + 5;
-          callbackArgExistsPart = msg.getPart(index++);
-          {
-            byte[] partBytes = (byte[])callbackArgExistsPart.getObject();
-            callbackArgExists = partBytes[0] == 0x01;
-          }
-          if (callbackArgExists) {
-            callbackArgPart = msg.getPart(index++);
-            try {
-              callbackArg = callbackArgPart.getObject();
-            } catch (Exception e) {
-              logger.warn(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_DESTROY_REQUEST_1_CONTAINING_2_EVENTS, new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents) }), e);
-              throw e;
-            }
-          }
-
-          versionTimeStamp = msg.getPart(index++).getLong();
-          if (logger.isDebugEnabled()) {
-            logger.debug("{}: Processing batch destroy request {} on {} for region {} key {}", servConn.getName(), batchId, servConn.getSocketString(), regionName, key);
-          }
-
-          // Process the destroy request
-          if (key == null || regionName == null) {
-            StringId message = null;
-            if (key == null) {
-              message = LocalizedStrings.ProcessBatch_0_THE_INPUT_KEY_FOR_THE_BATCH_DESTROY_REQUEST_1_IS_NULL;
-            }
-            if (regionName == null) {
-              message = LocalizedStrings.ProcessBatch_0_THE_INPUT_REGION_NAME_FOR_THE_BATCH_DESTROY_REQUEST_1_IS_NULL;
-            }
-            Object[] messageArgs = new Object[] { servConn.getName(),
-                Integer.valueOf(batchId) };
-            String s = message.toLocalizedString(messageArgs);
-            logger.warn(s);
-            throw new Exception(s);
-          }
-          region = (LocalRegion)crHelper.getRegion(regionName);
-          if (region == null) {
-            handleRegionNull(servConn, regionName, batchId);
-          } else {
-            clientEvent = new EventIDHolder(eventId);
-            if (versionTimeStamp > 0) {
-              VersionTag tag = VersionTag.create(region.getVersionMember());
-              tag.setIsGatewayTag(true);
-              tag.setVersionTimeStamp(versionTimeStamp);
-              tag.setDistributedSystemId(dsid);
-              clientEvent.setVersionTag(tag);
-            }
-            handleMessageRetry(region, clientEvent);
-            // Destroy the entry
-            if (region.keyRequiresRegionContext()) {
-              ((KeyWithRegionContext)key).setRegionContext(region);
-            }
-            try {
-              AuthorizeRequest authzRequest = servConn.getAuthzRequest();
-              if (authzRequest != null) {
-                DestroyOperationContext destroyContext = authzRequest
-                    .destroyAuthorize(regionName, key, callbackArg);
-                callbackArg = destroyContext.getCallbackArg();
-              }
-              region.basicBridgeDestroy(key, callbackArg,
-                  servConn.getProxyID(), false, clientEvent);
-              servConn.setModificationInfo(true, regionName, key);
-              stats.incDestroyRequest();
-            } catch (EntryNotFoundException e) {
-              logger.info(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_DURING_BATCH_DESTROY_NO_ENTRY_WAS_FOUND_FOR_KEY_1, new Object[] { servConn.getName(), key }));
-              // throw new Exception(e);
-            }
-          }
-          break;
-        case 3: // Update Time-stamp for a RegionEntry
-          
-          try {
-            // Region name
-            regionNamePart = msg.getPart(partNumber + 2);
-            regionName = regionNamePart.getString();
-
-            // Retrieve the event id from the message parts
-            eventIdPart = msg.getPart(partNumber + 3);
-            eventId = (EventID)eventIdPart.getObject();
-            
-            // Retrieve the key from the message parts
-            keyPart = msg.getPart(partNumber + 4);
-            key = keyPart.getStringOrObject();
-       
-            // Retrieve the callbackArg from the message parts if necessary
-            index = partNumber + 5;
-            callbackArgExistsPart = msg.getPart(index++);
-
-            byte[] partBytes = (byte[])callbackArgExistsPart.getObject();
-            callbackArgExists = partBytes[0] == 0x01;
-
-            if (callbackArgExists) {
-              callbackArgPart = msg.getPart(index++);
-              callbackArg = callbackArgPart.getObject();
-            }
-
-          } catch (Exception e) {
-            logger.warn(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_UPDATE_VERSION_REQUEST_1_CONTAINING_2_EVENTS, new Object[] {servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents)}), e);
-            throw e;
-          }
-
-          versionTimeStamp = msg.getPart(index++).getLong();
-          if (logger.isDebugEnabled()) {
-            logger.debug("{}: Processing batch update-version request {} on {} for region {} key {} value {} callbackArg {}", servConn.getName(), batchId, servConn.getSocketString(), regionName, key, valuePart, callbackArg);
-          }
-          // Process the update time-stamp request
-          if (key == null || regionName == null) {
-            StringId message = LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_UPDATE_VERSION_REQUEST_1_CONTAINING_2_EVENTS;
-            
-            Object[] messageArgs = new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents)};
-            String s = message.toLocalizedString(messageArgs);
-            logger.warn(s);
-            throw new Exception(s);
-          
-          } else {
-            region = (LocalRegion)crHelper.getRegion(regionName);
-            
-            if (region == null) {
-              handleRegionNull(servConn, regionName, batchId);
-            } else {
-
-              clientEvent = new EventIDHolder(eventId);
-              
-              if (versionTimeStamp > 0) {
-                VersionTag tag = VersionTag.create(region.getVersionMember());
-                tag.setIsGatewayTag(true);
-                tag.setVersionTimeStamp(versionTimeStamp);
-                tag.setDistributedSystemId(dsid);
-                clientEvent.setVersionTag(tag);
-              }
-              
-              // Update the version tag
-              if (region.keyRequiresRegionContext()) {
-                ((KeyWithRegionContext) key).setRegionContext(region);
-              }
-              try {
-
-                region.basicBridgeUpdateVersionStamp(key, callbackArg, servConn.getProxyID(), false, clientEvent);
-
-              } catch (EntryNotFoundException e) {
-                logger.info(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_DURING_BATCH_UPDATE_VERSION_NO_ENTRY_WAS_FOUND_FOR_KEY_1, new Object[] { servConn.getName(), key }));
-                // throw new Exception(e);
-              }
-            }
+          event.index = indexWithoutPDXEvent;
+        }
+        // PDX types are registered before the events that may refer to them
+        if (deferredEvents != null && !event.isPdxEvent()) {
+          deferredEvents.add(event);
+        } else {
+          applyEvent(event, servConn, stats, batchId, numberOfEvents, dsid);
+          if (event.applied) {
+            servConn.setModificationInfo(true, event.regionName, event.key);
           }
-          
-          break;
-        default:
-          logger.fatal(LocalizedMessage.create(LocalizedStrings.Processbatch_0_UNKNOWN_ACTION_TYPE_1_FOR_BATCH_FROM_2, new Object[] { servConn.getName(), Integer.valueOf(actionType), servConn.getSocketString() }));
-        stats.incUnknowsOperationsReceived();
         }
       } catch (CancelException e) {
         if (logger.isDebugEnabled()) {
@@ -644,22 +250,11 @@ public class GatewayReceiverCommand extends BaseCommand {
           break;
         }
 
-        // logger.warn("Caught exception for batch " + batchId + " containing
-        // " + numberOfEvents + " events (" + msg.getPayloadLength() + " bytes)
-        // with " + (earlyAck ? "early" : "normal") + " acknowledgement on " +
-        // getSocketString());
         // If the response has not already been written (it is not
         // early ack mode), increment the latest batch id replied,
         // write the batch exception to the caller and break
         if (!wroteResponse) {
-          // Increment the batch id unless the received batch id is -1 (a
-          // failover batch)
-          DistributedSystem ds = crHelper.getCache().getDistributedSystem(); 
-          String exceptionMessage = LocalizedStrings.GatewayReceiver_EXCEPTION_WHILE_PROCESSING_BATCH.toLocalizedString(
-        	new Object[] {((InternalDistributedSystem) ds).getDistributionManager().getDistributedSystemId(), 
-        		ds.getDistributedMember()}); 
-          BatchException70 be = new BatchException70(exceptionMessage, e, indexWithoutPDXEvent, batchId);
-          exceptions.add(be);
+          exceptions.add(createBatchException(crHelper, e, event.index, batchId));
           if(!removeOnException) {
             break;
           }
@@ -676,25 +271,49 @@ public class GatewayReceiverCommand extends BaseCommand {
         }
       } finally {
         // Increment the partNumber
-        if (actionType == 0 /* create */|| actionType == 1 /* update */) {
-          if (callbackArgExists) {
-            partNumber += 9;
-          } else {
-            partNumber += 8;
-          } 
-        } else if (actionType == 2 /* destroy */) {
-          if (callbackArgExists) {
-            partNumber += 8;
-          } else {
-            partNumber += 7;
-          }
-        } else if (actionType == 3 /* update-version */) {
-          if (callbackArgExists) {
-            partNumber += 8;
-          } else {
-            partNumber += 7;
-          }
+        partNumber = event.getNextPartNumber();
+      }
+    }
+
+    if (deferredEvents != null && !deferredEvents.isEmpty()) {
+      try {
+        applyEventsConcurrently(deferredEvents, applyExecutor, servConn, stats,
+            batchId, numberOfEvents, dsid, removeOnException);
+      } catch (CancelException e) {
+        if (logger.isDebugEnabled()) {
+          logger.debug("{} ignoring message of type {} from client {} because shutdown occurred during message processing.", servConn.getName(), MessageType.getString(msg.getMessageType()), servConn.getProxyID());
+        }
+        servConn.setFlagProcessMessagesAsFalse();
+        return;
+      }
+      BatchEvent lastApplied = null;
+      for (BatchEvent event : deferredEvents) {
+        if (event.applied) {
+          lastApplied = event;
+        }
+        Exception e = event.exception;
+        if (e == null || fatalException != null) {
+          continue;
+        }
+        checkForInterrupt(servConn, e);
+        if (e.getCause() instanceof PdxRegistryMismatchException) {
+          fatalException = e.getCause();
+          logger.fatal(LocalizedMessage.create(LocalizedStrings.GatewayReceiver_PDX_CONFIGURATION, new Object[] {servConn.getMembershipID()}), e.getCause());
+          continue;
         }
+        exceptions.add(createBatchException(crHelper, e, event.index, batchId));
+      }
+      if (lastApplied != null) {
+        servConn.setModificationInfo(true, lastApplied.regionName, lastApplied.key);
+      }
+      // Report the failures in batch order, as the sequential path would
+      Collections.sort(exceptions, new Comparator<BatchException70>() {
+        public int compare(BatchException70 e1, BatchException70 e2) {
+          return Integer.compare(e1.getIndex(), e2.getIndex());
+        }
+      });
+      if (!removeOnException && exceptions.size() > 1) {
+        exceptions = new ArrayList<BatchException70>(exceptions.subList(0, 1));
       }
     }
 
@@ -725,10 +344,525 @@ public class GatewayReceiverCommand extends BaseCommand {
       if (logger.isDebugEnabled()) {
         logger.debug("{}: Sent process batch normal response for batch {} containing {} events ({} bytes) with {} acknowledgement on {}", servConn.getName(), batchId, numberOfEvents, msg.getPayloadLength(), (earlyAck ? "early" : "normal"), servConn.getSocketString());
       }
-      // logger.warn("Sent process batch normal response for batch " +
-      // batchId + " containing " + numberOfEvents + " events (" +
-      // msg.getPayloadLength() + " bytes) with " + (earlyAck ? "early" :
-      // "normal") + " acknowledgement on " + getSocketString());
+    }
+  }
+
+  private BatchException70 createBatchException(CachedRegionHelper crHelper,
+      Exception e, int index, int batchId) {
+    DistributedSystem ds = crHelper.getCache().getDistributedSystem(); 
+    String exceptionMessage = LocalizedStrings.GatewayReceiver_EXCEPTION_WHILE_PROCESSING_BATCH.toLocalizedString(
+        new Object[] {((InternalDistributedSystem) ds).getDistributionManager().getDistributedSystemId(), 
+            ds.getDistributedMember()}); 
+    return new BatchException70(exceptionMessage, e, index, batchId);
+  }
+
+  /**
+   * Reads the event starting at <code>event.partNumber</code> from the
+   * message parts. The value is not deserialized.
+   */
+  private void readEvent(Message msg, ServerConnection servConn,
+      BatchEvent event, int batchId, int numberOfEvents) throws Exception {
+    int partNumber = event.partNumber;
+    Part actionTypePart = msg.getPart(partNumber);
+    event.actionType = actionTypePart.getInt();
+
+    Part possibleDuplicatePart = msg.getPart(partNumber + 1);
+    byte[] possibleDuplicatePartBytes;
+    try {
+      possibleDuplicatePartBytes = (byte[])possibleDuplicatePart
+          .getObject();
+    }
+    catch (Exception e) {
+      logger.warn(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_REQUEST_1_CONTAINING_2_EVENTS, new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents) }), e);
+      throw e;
+    }
+    event.possibleDuplicate = possibleDuplicatePartBytes[0] == 0x01;
+
+    // Retrieve the region name from the message parts
+    Part regionNamePart = msg.getPart(partNumber + 2);
+    event.regionName = regionNamePart.getString();
+
+    // Retrieve the event id from the message parts
+    // This was going to be used to determine possible
+    // duplication of events, but it is unused now. In
+    // fact the event id is overridden by the FROM_GATEWAY
+    // token.
+    Part eventIdPart = msg.getPart(partNumber + 3);
+    eventIdPart.setVersion(servConn.getClientVersion()); 
+    try {
+      event.eventId = (EventID)eventIdPart.getObject();
+    }
+    catch (Exception e) {
+      logger.warn(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_REQUEST_1_CONTAINING_2_EVENTS, new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents) }), e);
+      throw e;
+    }
+
+    // Retrieve the key from the message parts
+    Part keyPart = msg.getPart(partNumber + 4);
+    try {
+      event.key = keyPart.getStringOrObject();
+    }
+    catch (Exception e) {
+      logger.warn(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_REQUEST_1_CONTAINING_2_EVENTS, new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents) }), e);
+      throw e;
+    }
+
+    int index;
+    StringId callbackArgFailure;
+    switch (event.actionType) {
+    case 0: // Create
+    case 1: // Update
+      // Retrieve the value from the message parts (do not deserialize it)
+      event.valuePart = msg.getPart(partNumber + 5);
+      index = partNumber + 6;
+      callbackArgFailure = event.actionType == 0
+          ? LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_CREATE_REQUEST_1_FOR_2_EVENTS
+          : LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_UPDATE_REQUEST_1_CONTAINING_2_EVENTS;
+      break;
+    case 2: // Destroy
+      index = partNumber + 5;
+      callbackArgFailure = LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_DESTROY_REQUEST_1_CONTAINING_2_EVENTS;
+      break;
+    case 3: // Update Time-stamp for a RegionEntry
+      index = partNumber + 5;
+      callbackArgFailure = LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_UPDATE_VERSION_REQUEST_1_CONTAINING_2_EVENTS;
+      break;
+    default:
+      // unknown action types are reported when the event is applied
+      return;
+    }
+
+    // Retrieve the callbackArg from the message parts if necessary
+    Part callbackArgExistsPart = msg.getPart(index++);
+    {
+      byte[] partBytes = (byte[])callbackArgExistsPart.getObject();
+      event.callbackArgExists = partBytes[0] == 0x01;
+    }
+    if (event.callbackArgExists) {
+      Part callbackArgPart = msg.getPart(index++);
+      try {
+        event.callbackArg = callbackArgPart.getObject();
+      } catch (Exception e) {
+        logger.warn(LocalizedMessage.create(callbackArgFailure, new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents) }), e);
+        throw e;
+      }
+    }
+    event.versionTimeStamp = msg.getPart(index++).getLong();
+  }
+
+  /**
+   * Applies an event read by {@link #readEvent} to its region. This may be
+   * called concurrently for events that do not share a key or an originating
+   * thread.
+   */
+  private void applyEvent(BatchEvent event, ServerConnection servConn,
+      GatewayReceiverStats stats, int batchId, int numberOfEvents, int dsid)
+      throws Exception {
+    CachedRegionHelper crHelper = servConn.getCachedRegionHelper();
+    String regionName = event.regionName;
+    Object key = event.key;
+    Object callbackArg = event.callbackArg;
+    Part valuePart = event.valuePart;
+    LocalRegion region;
+    EventIDHolder clientEvent;
+    switch (event.actionType) {
+    case 0: // Create
+
+      /*
+       * CLIENT EXCEPTION HANDLING TESTING CODE String keySt = (String) key;
+       * System.out.println("Processing new key: " + key); if
+       * (keySt.startsWith("failure")) { throw new
+       * Exception(LocalizedStrings
+       * .ProcessBatch_THIS_EXCEPTION_REPRESENTS_A_FAILURE_ON_THE_SERVER
+       * .toLocalizedString()); }
+       */
+
+      if (logger.isDebugEnabled()) {
+        logger.debug("{}: Processing batch create request {} on {} for region {} key {} value {} callbackArg {}, eventId={}", servConn.getName(), batchId, servConn.getSocketString(), regionName, key, valuePart, callbackArg, event.eventId);
+      }
+      // Process the create request
+      if (key == null || regionName == null) {
+        StringId message = null;
+        Object[] messageArgs = new Object[] { servConn.getName(),
+            Integer.valueOf(batchId) };
+        if (key == null) {
+          message = LocalizedStrings.ProcessBatch_0_THE_INPUT_REGION_NAME_FOR_THE_BATCH_CREATE_REQUEST_1_IS_NULL;
+        }
+        if (regionName == null) {
+          message = LocalizedStrings.ProcessBatch_0_THE_INPUT_REGION_NAME_FOR_THE_BATCH_CREATE_REQUEST_1_IS_NULL;
+        }
+        String s = message.toLocalizedString(messageArgs);
+        logger.warn(s);
+        throw new Exception(s);
+      }
+      region = (LocalRegion)crHelper.getRegion(regionName);
+      if (region == null) {
+        handleRegionNull(servConn, regionName, batchId);
+      } else {
+        clientEvent = createClientEvent(event, region, dsid);
+        clientEvent.setPossibleDuplicate(event.possibleDuplicate);
+        handleMessageRetry(region, clientEvent);
+        try {
+          byte[] value = valuePart.getSerializedForm();
+          boolean isObject = valuePart.isObject();
+          if (region.keyRequiresRegionContext()) {
+            ((KeyWithRegionContext)key).setRegionContext(region);
+          }
+          // [sumedh] This should be done on client while sending
+          // since that is the WAN gateway
+          AuthorizeRequest authzRequest = servConn.getAuthzRequest();
+          if (authzRequest != null) {
+            PutOperationContext putContext = authzRequest.putAuthorize(
+                regionName, key, value, isObject, callbackArg);
+            value = putContext.getSerializedValue();
+            isObject = putContext.isObject();
+          }
+          // Attempt to create the entry
+          boolean result = false;
+          result = region.basicBridgeCreate(key, value, isObject, callbackArg,
+                  servConn.getProxyID(), false, clientEvent, false); 
+          // If the create fails (presumably because it already exists),
+          // attempt to update the entry
+          if (!result) {
+            result = region.basicBridgePut(key, value, null, isObject,
+                callbackArg, servConn.getProxyID(), false, clientEvent,
+                servConn.isSqlFabricSystem());
+          }
+
+          if (result || clientEvent.isConcurrencyConflict()) {
+            event.applied = true;
+            stats.incCreateRequest();
+          } else {
+            // This exception will be logged in the catch block below
+            throw new Exception(
+                LocalizedStrings.ProcessBatch_0_FAILED_TO_CREATE_OR_UPDATE_ENTRY_FOR_REGION_1_KEY_2_VALUE_3_CALLBACKARG_4
+                    .toLocalizedString(new Object[] { servConn.getName(),
+                        regionName, key, valuePart, callbackArg }));
+          }
+        } catch (Exception e) {
+          logger.warn(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_CREATE_REQUEST_1_FOR_2_EVENTS, new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents) }), e);
+          throw e;
+        }
+      }
+      break;
+    case 1: // Update
+      /*
+       * CLIENT EXCEPTION HANDLING TESTING CODE keySt = (String) key;
+       * System.out.println("Processing updated key: " + key); if
+       * (keySt.startsWith("failure")) { throw new
+       * Exception(LocalizedStrings
+       * .ProcessBatch_THIS_EXCEPTION_REPRESENTS_A_FAILURE_ON_THE_SERVER
+       * .toLocalizedString()); }
+       */
+
+      if (logger.isDebugEnabled()) {
+        logger.debug("{}: Processing batch update request {} on {} for region {} key {} value {} callbackArg {}", servConn.getName(), batchId, servConn.getSocketString(), regionName, key, valuePart, callbackArg);
+      }
+      // Process the update request
+      if (key == null || regionName == null) {
+        StringId message = null;
+        Object[] messageArgs = new Object[] { servConn.getName(),
+            Integer.valueOf(batchId) };
+        if (key == null) {
+          message = LocalizedStrings.ProcessBatch_0_THE_INPUT_KEY_FOR_THE_BATCH_UPDATE_REQUEST_1_IS_NULL;
+        }
+        if (regionName == null) {
+          message = LocalizedStrings.ProcessBatch_0_THE_INPUT_REGION_NAME_FOR_THE_BATCH_UPDATE_REQUEST_1_IS_NULL;
+        }
+        String s = message.toLocalizedString(messageArgs);
+        logger.warn(s);
+        throw new Exception(s);
+      }
+      region = (LocalRegion)crHelper.getRegion(regionName);
+      if (region == null) {
+        handleRegionNull(servConn, regionName, batchId);
+      } else {
+        clientEvent = createClientEvent(event, region, dsid);
+        clientEvent.setPossibleDuplicate(event.possibleDuplicate);
+        handleMessageRetry(region, clientEvent);
+        try {
+          byte[] value = valuePart.getSerializedForm();
+          boolean isObject = valuePart.isObject();
+          if (region.keyRequiresRegionContext()) {
+            ((KeyWithRegionContext)key).setRegionContext(region);
+          }
+          AuthorizeRequest authzRequest = servConn.getAuthzRequest();
+          if (authzRequest != null) {
+            PutOperationContext putContext = authzRequest.putAuthorize(
+                regionName, key, value, isObject, callbackArg,
+                PutOperationContext.UPDATE);
+            value = putContext.getSerializedValue();
+            isObject = putContext.isObject();
+          }
+          boolean result = region.basicBridgePut(key, value, null, isObject,
+              callbackArg, servConn.getProxyID(), false, clientEvent,
+              servConn.isSqlFabricSystem());
+          if (result|| clientEvent.isConcurrencyConflict()) {
+            event.applied = true;
+            stats.incUpdateRequest();
+          } else {
+            final Object[] msgArgs = new Object[] { servConn.getName(),
+                regionName, key, valuePart, callbackArg };
+            final StringId message = LocalizedStrings.ProcessBatch_0_FAILED_TO_UPDATE_ENTRY_FOR_REGION_1_KEY_2_VALUE_3_AND_CALLBACKARG_4;
+            String s = message.toLocalizedString(msgArgs);
+            logger.info(s);
+            throw new Exception(s);
+          }
+        } catch (CancelException e) {
+          // shutdown occurred during message processing; handled by the caller
+          throw e;
+        } catch (Exception e) {
+          // Preserve the connection under all circumstances
+          logger.warn(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_UPDATE_REQUEST_1_CONTAINING_2_EVENTS, new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents) }), e);
+          throw e;
+        }
+      }
+      break;
+    case 2: // Destroy
+      if (logger.isDebugEnabled()) {
+        logger.debug("{}: Processing batch destroy request {} on {} for region {} key {}", servConn.getName(), batchId, servConn.getSocketString(), regionName, key);
+      }
+
+      // Process the destroy request
+      if (key == null || regionName == null) {
+        StringId message = null;
+        if (key == null) {
+          message = LocalizedStrings.ProcessBatch_0_THE_INPUT_KEY_FOR_THE_BATCH_DESTROY_REQUEST_1_IS_NULL;
+        }
+        if (regionName == null) {
+          message = LocalizedStrings.ProcessBatch_0_THE_INPUT_REGION_NAME_FOR_THE_BATCH_DESTROY_REQUEST_1_IS_NULL;
+        }
+        Object[] messageArgs = new Object[] { servConn.getName(),
+            Integer.valueOf(batchId) };
+        String s = message.toLocalizedString(messageArgs);
+        logger.warn(s);
+        throw new Exception(s);
+      }
+      region = (LocalRegion)crHelper.getRegion(regionName);
+      if (region == null) {
+        handleRegionNull(servConn, regionName, batchId);
+      } else {
+        clientEvent = createClientEvent(event, region, dsid);
+        handleMessageRetry(region, clientEvent);
+        // Destroy the entry
+        if (region.keyRequiresRegionContext()) {
+          ((KeyWithRegionContext)key).setRegionContext(region);
+        }
+        try {
+          AuthorizeRequest authzRequest = servConn.getAuthzRequest();
+          if (authzRequest != null) {
+            DestroyOperationContext destroyContext = authzRequest
+                .destroyAuthorize(regionName, key, callbackArg);
+            callbackArg = destroyContext.getCallbackArg();
+          }
+          region.basicBridgeDestroy(key, callbackArg,
+              servConn.getProxyID(), false, clientEvent);
+          event.applied = true;
+          stats.incDestroyRequest();
+        } catch (EntryNotFoundException e) {
+          logger.info(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_DURING_BATCH_DESTROY_NO_ENTRY_WAS_FOUND_FOR_KEY_1, new Object[] { servConn.getName(), key }));
+          // throw new Exception(e);
+        }
+      }
+      break;
+    case 3: // Update Time-stamp for a RegionEntry
+      if (logger.isDebugEnabled()) {
+        logger.debug("{}: Processing batch update-version request {} on {} for region {} key {} value {} callbackArg {}", servConn.getName(), batchId, servConn.getSocketString(), regionName, key, valuePart, callbackArg);
+      }
+      // Process the update time-stamp request
+      if (key == null || regionName == null) {
+        StringId message = LocalizedStrings.ProcessBatch_0_CAUGHT_EXCEPTION_PROCESSING_BATCH_UPDATE_VERSION_REQUEST_1_CONTAINING_2_EVENTS;
+        
+        Object[] messageArgs = new Object[] { servConn.getName(), Integer.valueOf(batchId), Integer.valueOf(numberOfEvents)};
+        String s = message.toLocalizedString(messageArgs);
+        logger.warn(s);
+        throw new Exception(s);
+      
+      } else {
+        region = (LocalRegion)crHelper.getRegion(regionName);
+        
+        if (region == null) {
+          handleRegionNull(servConn, regionName, batchId);
+        } else {
+
+          clientEvent = createClientEvent(event, region, dsid);
+          
+          // Update the version tag
+          if (region.keyRequiresRegionContext()) {
+            ((KeyWithRegionContext) key).setRegionContext(region);
+          }
+          try {
+
+            region.basicBridgeUpdateVersionStamp(key, callbackArg, servConn.getProxyID(), false, clientEvent);
+
+          } catch (EntryNotFoundException e) {
+            logger.info(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_DURING_BATCH_UPDATE_VERSION_NO_ENTRY_WAS_FOUND_FOR_KEY_1, new Object[] { servConn.getName(), key }));
+            // throw new Exception(e);
+          }
+        }
+      }
+      
+      break;
+    default:
+      logger.fatal(LocalizedMessage.create(LocalizedStrings.Processbatch_0_UNKNOWN_ACTION_TYPE_1_FOR_BATCH_FROM_2, new Object[] { servConn.getName(), Integer.valueOf(event.actionType), servConn.getSocketString() }));
+      stats.incUnknowsOperationsReceived();
+    }
+  }
+
+  private EventIDHolder createClientEvent(BatchEvent event, LocalRegion region, int dsid) {
+    EventIDHolder clientEvent = new EventIDHolder(event.eventId);
+    if (event.versionTimeStamp > 0) {
+      VersionTag tag = VersionTag.create(region.getVersionMember());
+      tag.setIsGatewayTag(true);
+      tag.setVersionTimeStamp(event.versionTimeStamp);
+      tag.setDistributedSystemId(dsid);
+      clientEvent.setVersionTag(tag);
+    }
+    return clientEvent;
+  }
+
+  /**
+   * Applies the given events using the gateway receiver's batch apply
+   * executor. The events are split into independent lanes by
+   * {@link #partition}; the lanes run concurrently and the events of each
+   * lane are applied in batch order. This method returns once every lane has
+   * finished, leaving any failure in {@link BatchEvent#exception}.
+   * 
+   * @throws CancelException if the cache was closed while applying the batch
+   */
+  private void applyEventsConcurrently(List<BatchEvent> events,
+      Executor executor, final ServerConnection servConn,
+      final GatewayReceiverStats stats, final int batchId,
+      final int numberOfEvents, final int dsid, final boolean removeOnException)
+      throws InterruptedException {
+    if (events.isEmpty()) {
+      return;
+    }
+    long start = stats.startTime();
+    List<List<BatchEvent>> lanes = partition(events, BATCH_APPLY_THREADS);
+    List<Future<?>> futures = new ArrayList<Future<?>>(lanes.size() - 1);
+    // the server connection thread applies the first lane itself
+    for (int i = 1; i < lanes.size(); i++) {
+      final List<BatchEvent> lane = lanes.get(i);
+      FutureTask<Object> task = new FutureTask<Object>(new Runnable() {
+        public void run() {
+          applyLane(lane, servConn, stats, batchId, numberOfEvents, dsid, removeOnException);
+        }
+      }, null);
+      try {
+        executor.execute(task);
+      } catch (RejectedExecutionException e) {
+        // the receiver is stopping; apply the lane on this thread
+        task.run();
+      }
+      futures.add(task);
+    }
+    applyLane(lanes.get(0), servConn, stats, batchId, numberOfEvents, dsid, removeOnException);
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        // applyLane records every failure on its events
+        throw new InternalGemFireError(e.getCause());
+      }
+    }
+    stats.incParallelBatchApply(lanes.size(), events.size(), stats.startTime() - start);
+    for (BatchEvent event : events) {
+      if (event.exception instanceof CancelException) {
+        throw (CancelException)event.exception;
+      }
+    }
+  }
+
+  private void applyLane(List<BatchEvent> lane, ServerConnection servConn,
+      GatewayReceiverStats stats, int batchId, int numberOfEvents, int dsid,
+      boolean removeOnException) {
+    for (BatchEvent event : lane) {
+      try {
+        applyEvent(event, servConn, stats, batchId, numberOfEvents, dsid);
+      } catch (CancelException e) {
+        event.exception = e;
+        return;
+      } catch (Exception e) {
+        event.exception = e;
+        if (!removeOnException || e.getCause() instanceof PdxRegistryMismatchException) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Splits the events of a batch into at most <code>maxLanes</code> lanes
+   * that can be applied concurrently. Events on the same region and key stay
+   * in one lane, as do events that originated from the same thread, because
+   * the region's event tracker drops an event whose sequence id is lower than
+   * one already applied for that thread. Within a lane the events keep their
+   * batch order.
+   */
+  static List<List<BatchEvent>> partition(List<BatchEvent> events, int maxLanes) {
+    int size = events.size();
+    int[] parent = new int[size];
+    Map<Object, Integer> firstSeen = new HashMap<Object, Integer>();
+    for (int i = 0; i < size; i++) {
+      parent[i] = i;
+      BatchEvent event = events.get(i);
+      Object entryKey = event.getEntryKey();
+      Integer other = firstSeen.put(entryKey, i);
+      if (other != null) {
+        union(parent, other, i);
+      }
+      Object threadKey = event.getThreadKey();
+      if (threadKey != null) {
+        other = firstSeen.put(threadKey, i);
+        if (other != null) {
+          union(parent, other, i);
+        }
+      }
+    }
+    // assign each group to the least loaded lane in order of first appearance
+    List<List<BatchEvent>> lanes = new ArrayList<List<BatchEvent>>();
+    Map<Integer, List<BatchEvent>> groupToLane = new HashMap<Integer, List<BatchEvent>>();
+    for (int i = 0; i < size; i++) {
+      Integer root = find(parent, i);
+      List<BatchEvent> lane = groupToLane.get(root);
+      if (lane == null) {
+        if (lanes.size() < maxLanes) {
+          lane = new ArrayList<BatchEvent>();
+          lanes.add(lane);
+        } else {
+          lane = lanes.get(0);
+          for (List<BatchEvent> l : lanes) {
+            if (l.size() < lane.size()) {
+              lane = l;
+            }
+          }
+        }
+        groupToLane.put(root, lane);
+      }
+      lane.add(events.get(i));
+    }
+    return lanes;
+  }
+
+  private static int find(int[] parent, int i) {
+    while (parent[i] != i) {
+      parent[i] = parent[parent[i]];
+      i = parent[i];
+    }
+    return i;
+  }
+
+  private static void union(int[] parent, int a, int b) {
+    int rootA = find(parent, a);
+    int rootB = find(parent, b);
+    if (rootA != rootB) {
+      // keep the earliest event as the root of the group
+      if (rootA < rootB) {
+        parent[rootB] = rootA;
+      } else {
+        parent[rootA] = rootB;
+      }
     }
   }
 
@@ -803,4 +937,55 @@ public class GatewayReceiverCommand extends BaseCommand {
     errorMsg.send(servConn);
     logger.warn(LocalizedMessage.create(LocalizedStrings.ProcessBatch_0_WROTE_BATCH_EXCEPTION, servConn.getName()), exception);
   }
+
+  /**
+   * An event of a received batch as read from the message parts.
+   */
+  static final class BatchEvent {
+    final int partNumber;
+    int actionType = -1;
+    boolean possibleDuplicate;
+    String regionName;
+    EventID eventId;
+    Object key;
+    Part valuePart;
+    boolean callbackArgExists;
+    Object callbackArg;
+    long versionTimeStamp = VersionTag.ILLEGAL_VERSION_TIMESTAMP;
+    /** index of the event in the batch, not counting PDX type events */
+    int index;
+    /** set once the operation has been applied to the region */
+    volatile boolean applied;
+    /** the failure of a concurrently applied event */
+    volatile Exception exception;
+
+    BatchEvent(int partNumber) {
+      this.partNumber = partNumber;
+    }
+
+    boolean isPdxEvent() {
+      return PeerTypeRegistration.REGION_FULL_PATH.equals(this.regionName);
+    }
+
+    Object getEntryKey() {
+      return new AbstractMap.SimpleImmutableEntry<String, Object>(this.regionName, this.key);
+    }
+
+    Object getThreadKey() {
+      if (this.eventId == null) {
+        return null;
+      }
+      return new ThreadIdentifier(this.eventId.getMembershipID(), this.eventId.getThreadID());
+    }
+
+    int getNextPartNumber() {
+      if (this.actionType == 0 /* create */|| this.actionType == 1 /* update */) {
+        return this.partNumber + (this.callbackArgExists ? 9 : 8);
+      } else if (this.actionType == 2 /* destroy */
+          || this.actionType == 3 /* update-version */) {
+        return this.partNumber + (this.callbackArgExists ? 8 : 7);
+      }
+      return this.partNumber;
+    }
+  }
 }
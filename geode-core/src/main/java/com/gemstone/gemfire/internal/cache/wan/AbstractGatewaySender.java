@@ -148,6 +148,14 @@ public abstract class AbstractGatewaySender implements GatewaySender,
   private int serialNumber;
   
   protected GatewaySenderStats statistics;
+
+  /**
+   * Tunes the batch size and time interval of all the event processors of
+   * this sender if adaptive batching is enabled. Created on first use.
+   */
+  private AdaptiveBatchController batchController;
+
+  private final Object batchControllerLock = new Object();
   
   private Stopper stopper;
   
@@ -356,6 +364,25 @@ public abstract class AbstractGatewaySender implements GatewaySender,
     return this.batchTimeInterval;
   }
 
+  /**
+   * Returns the controller shared by the event processors of this sender,
+   * or null if adaptive batching is disabled. Sharing one controller keeps
+   * the concurrent dispatchers of a sender at the same batch size and lets
+   * it alone publish the adaptive batching statistics.
+   */
+  public AdaptiveBatchController getAdaptiveBatchController() {
+    if (!AdaptiveBatchController.ENABLED) {
+      return null;
+    }
+    synchronized (this.batchControllerLock) {
+      if (this.batchController == null) {
+        this.batchController = AdaptiveBatchController.create(getBatchSize(),
+            getBatchTimeInterval(), getStatistics());
+      }
+      return this.batchController;
+    }
+  }
+
   public String getDiskStoreName() {
     return this.diskStoreName;
   }
@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.logging.log4j.Logger;
 
@@ -146,6 +147,19 @@ public abstract class AbstractGatewaySenderEventProcessor extends Thread {
    * MessageTooLargeException occurs.
    */
   private int batchSize;
+
+  /**
+   * Tunes the batch size and batch time interval from the acknowledgement
+   * latency if adaptive batching is enabled, otherwise null. Shared by all
+   * the processors of the sender.
+   */
+  private final AdaptiveBatchController batchController;
+
+  /**
+   * The time, in nanoseconds, at which each unacknowledged batch was first
+   * dispatched. Only maintained if adaptive batching is enabled.
+   */
+  private final ConcurrentMap<Integer, Long> batchIdToDispatchTimeMap = new ConcurrentHashMap<Integer, Long>();
   
   /**
    * @param createThreadGroup
@@ -156,6 +170,7 @@ public abstract class AbstractGatewaySenderEventProcessor extends Thread {
     super(createThreadGroup, string);
     this.sender = (AbstractGatewaySender)sender;
     this.batchSize = sender.getBatchSize();
+    this.batchController = this.sender.getAdaptiveBatchController();
   }
 
   abstract protected void initializeMessageQueue(String id);
@@ -219,9 +234,19 @@ public abstract class AbstractGatewaySenderEventProcessor extends Thread {
   }
 
   protected int getBatchSize() {
+    if (this.batchController != null) {
+      return this.batchController.getBatchSize();
+    }
     return this.batchSize;
   }
 
+  protected int getBatchTimeInterval() {
+    if (this.batchController != null) {
+      return this.batchController.getBatchTimeInterval();
+    }
+    return this.sender.getBatchTimeInterval();
+  }
+
   protected void setBatchSize(int batchSize) {
     int currentBatchSize = this.batchSize;
     if (batchSize <= 0) {
@@ -233,6 +258,9 @@ public abstract class AbstractGatewaySenderEventProcessor extends Thread {
       logger.info(LocalizedMessage.create(
           LocalizedStrings.AbstractGatewaySenderEventProcessor_SET_BATCH_SIZE, new Object[] { currentBatchSize, this.batchSize }));
     }
+    if (this.batchController != null) {
+      this.batchController.setMaximumBatchSize(this.batchSize);
+    }
   }
 
   /**
@@ -408,7 +436,6 @@ public abstract class AbstractGatewaySenderEventProcessor extends Thread {
     final boolean isDebugEnabled = logger.isDebugEnabled();
     final boolean isTraceEnabled = logger.isTraceEnabled();
     
-    final int batchTimeInterval = sender.getBatchTimeInterval();
     final GatewaySenderStats statistics = this.sender.getStatistics();
     
     if (isDebugEnabled) {
@@ -437,7 +464,7 @@ public abstract class AbstractGatewaySenderEventProcessor extends Thread {
 
         // Peek a batch
         if (isDebugEnabled) {
-          logger.debug("Attempting to peek a batch of {} events", this.batchSize);
+          logger.debug("Attempting to peek a batch of {} events", getBatchSize());
         }
         for (;;) {
           // check before sleeping
@@ -501,7 +528,7 @@ public abstract class AbstractGatewaySenderEventProcessor extends Thread {
               }
             }*/
             }
-            events = this.queue.peek(this.batchSize, batchTimeInterval);
+            events = this.queue.peek(getBatchSize(), getBatchTimeInterval());
           } catch (InterruptedException e) {
             interrupted = true;
             this.sender.getCancelCriterion().checkCancelInProgress(e);
@@ -629,6 +656,12 @@ public abstract class AbstractGatewaySenderEventProcessor extends Thread {
             logBatchFine("During normal processing, dispatching the following ", conflatedEventsToBeDispatched);
           }
           
+          final long dispatchStart = this.batchController != null ? System.nanoTime() : 0;
+          if (this.batchController != null
+              && !(this.dispatcher instanceof GatewaySenderEventCallbackDispatcher)) {
+            // the ack may arrive before dispatchBatch returns
+            this.batchIdToDispatchTimeMap.putIfAbsent(getBatchId(), dispatchStart);
+          }
           boolean success = this.dispatcher.dispatchBatch(conflatedEventsToBeDispatched, false);
           if (success) {
             if (isDebugEnabled) {
@@ -652,6 +685,11 @@ public abstract class AbstractGatewaySenderEventProcessor extends Thread {
           if (success) {
             if (this.dispatcher instanceof GatewaySenderEventCallbackDispatcher) {
               handleSuccessfulBatchDispatch(conflatedEventsToBeDispatched, events);
+              if (this.batchController != null) {
+                long now = System.nanoTime();
+                this.batchController.batchAcknowledged(events.size(),
+                    now - dispatchStart, statistics.getEventQueueSize(), now);
+              }
             } else {
               incrementBatchId();
             }
@@ -885,6 +923,7 @@ public abstract class AbstractGatewaySenderEventProcessor extends Thread {
 
   private void resetLastPeekedEvents() {
     this.batchIdToEventsMap.clear();
+    this.batchIdToDispatchTimeMap.clear();
     // make sure that when there is problem while receiving ack, pdx gateway
     // sender events isDispatched is set to false so that same events will be
     // dispatched in next batch
@@ -996,6 +1035,15 @@ public abstract class AbstractGatewaySenderEventProcessor extends Thread {
     
     List<GatewaySenderEventImpl>[] eventsArr = this.batchIdToEventsMap
         .remove(batchId);
+    if (this.batchController != null) {
+      Long dispatchStart = this.batchIdToDispatchTimeMap.remove(batchId);
+      if (dispatchStart != null && eventsArr != null) {
+        long now = System.nanoTime();
+        this.batchController.batchAcknowledged(eventsArr[0].size(),
+            now - dispatchStart.longValue(),
+            this.sender.getStatistics().getEventQueueSize(), now);
+      }
+    }
     if (eventsArr != null) {
       List<GatewaySenderEventImpl> filteredEvents = eventsArr[1];
       for (GatewayEventFilter filter : sender.getGatewayEventFilters()) {
@@ -1189,6 +1237,7 @@ public abstract class AbstractGatewaySenderEventProcessor extends Thread {
           // try to stop it again
           dispatcher.stop();
           this.batchIdToEventsMap.clear();
+          this.batchIdToDispatchTimeMap.clear();
         }
       } catch (InterruptedException ex) {
         Thread.currentThread().interrupt();
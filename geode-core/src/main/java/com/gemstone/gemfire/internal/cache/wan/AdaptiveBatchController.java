@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache.wan;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tunes the batch size and batch time interval of a gateway sender event
+ * processor from the acknowledgement latency, queue depth and throughput it
+ * observes.
+ * <p>
+ * The controller is evaluated once every {@link #EPOCH_BATCHES}
+ * acknowledged batches:
+ * <ul>
+ * <li>If the average acknowledgement latency is above the target, the batch
+ * size is reduced by a quarter.</li>
+ * <li>Otherwise, if the queue holds more than a batch, the batch size is
+ * grown by a quarter, unless the last increase lowered the throughput, in
+ * which case it is reduced again.</li>
+ * <li>The batch time interval is set to the part of the latency target the
+ * acknowledgement latency leaves over, so that a lightly loaded sender sends
+ * partial batches sooner and a fast link may wait to fill them.</li>
+ * </ul>
+ * All values stay within the configured bounds.
+ *
+ * @since 9.0
+ */
+public class AdaptiveBatchController {
+
+  /**
+   * Whether gateway senders tune their batch size and time interval. The
+   * configured values are used as the upper bounds.
+   */
+  public static final boolean ENABLED = Boolean
+      .getBoolean("gemfire.GatewaySender.ADAPTIVE_BATCHING");
+
+  /**
+   * The acknowledgement latency, in milliseconds, the controller aims for.
+   */
+  public static final int TARGET_LATENCY = Integer.getInteger(
+      "gemfire.GatewaySender.ADAPTIVE_TARGET_LATENCY", 1000).intValue();
+
+  /**
+   * The smallest batch size the controller will use. If not set, a tenth of
+   * the configured batch size is used.
+   */
+  public static final int MINIMUM_BATCH_SIZE = Integer.getInteger(
+      "gemfire.GatewaySender.ADAPTIVE_MINIMUM_BATCH_SIZE", -1).intValue();
+
+  /**
+   * The largest batch size the controller will use. If not set, the
+   * configured batch size is used.
+   */
+  public static final int MAXIMUM_BATCH_SIZE = Integer.getInteger(
+      "gemfire.GatewaySender.ADAPTIVE_MAXIMUM_BATCH_SIZE", -1).intValue();
+
+  /**
+   * The smallest batch time interval, in milliseconds, the controller will
+   * use.
+   */
+  public static final int MINIMUM_BATCH_TIME_INTERVAL = Integer.getInteger(
+      "gemfire.GatewaySender.ADAPTIVE_MINIMUM_BATCH_TIME_INTERVAL", 5).intValue();
+
+  /**
+   * The largest batch time interval, in milliseconds, the controller will
+   * use. If not set, the configured batch time interval is used.
+   */
+  public static final int MAXIMUM_BATCH_TIME_INTERVAL = Integer.getInteger(
+      "gemfire.GatewaySender.ADAPTIVE_MAXIMUM_BATCH_TIME_INTERVAL", -1).intValue();
+
+  /** The number of acknowledged batches between adjustments */
+  static final int EPOCH_BATCHES = 10;
+
+  private int minBatchSize;
+
+  private int maxBatchSize;
+
+  private final int minBatchTimeInterval;
+
+  private final int maxBatchTimeInterval;
+
+  private final long targetLatencyNanos;
+
+  private final GatewaySenderStats stats;
+
+  private volatile int batchSize;
+
+  private volatile int batchTimeInterval;
+
+  // The following are guarded by this
+  private int epochBatches;
+
+  private int epochEvents;
+
+  private long epochLatencyNanos;
+
+  private long epochStart;
+
+  private double lastThroughput;
+
+  private int lastDirection;
+
+  /**
+   * Creates a controller using the bounds configured by system properties.
+   *
+   * @param batchSize the batch size configured on the sender
+   * @param batchTimeInterval the batch time interval configured on the sender
+   */
+  public static AdaptiveBatchController create(int batchSize,
+      int batchTimeInterval, GatewaySenderStats stats) {
+    int max = MAXIMUM_BATCH_SIZE > 0 ? MAXIMUM_BATCH_SIZE : batchSize;
+    int min = MINIMUM_BATCH_SIZE > 0 ? MINIMUM_BATCH_SIZE : Math.max(1, max / 10);
+    int maxInterval = MAXIMUM_BATCH_TIME_INTERVAL > 0 ? MAXIMUM_BATCH_TIME_INTERVAL
+        : batchTimeInterval;
+    return new AdaptiveBatchController(min, max, MINIMUM_BATCH_TIME_INTERVAL,
+        maxInterval, TARGET_LATENCY, stats);
+  }
+
+  public AdaptiveBatchController(int minBatchSize, int maxBatchSize,
+      int minBatchTimeInterval, int maxBatchTimeInterval, int targetLatency,
+      GatewaySenderStats stats) {
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.minBatchSize = Math.max(1, Math.min(minBatchSize, this.maxBatchSize));
+    this.maxBatchTimeInterval = Math.max(0, maxBatchTimeInterval);
+    this.minBatchTimeInterval = Math.max(0, Math.min(minBatchTimeInterval,
+        this.maxBatchTimeInterval));
+    this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatency);
+    this.stats = stats;
+    this.batchSize = this.maxBatchSize;
+    this.batchTimeInterval = this.maxBatchTimeInterval;
+    publishStats();
+  }
+
+  /**
+   * Returns the number of events to peek for the next batch.
+   */
+  public int getBatchSize() {
+    return this.batchSize;
+  }
+
+  /**
+   * Returns the time, in milliseconds, to wait for the next batch to fill.
+   */
+  public int getBatchTimeInterval() {
+    return this.batchTimeInterval;
+  }
+
+  /**
+   * Lowers the largest batch size the controller will use, for example after
+   * a batch turned out to be too large to send. The smallest batch size is
+   * lowered with it if necessary.
+   */
+  public synchronized void setMaximumBatchSize(int maxBatchSize) {
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    if (this.minBatchSize > this.maxBatchSize) {
+      this.minBatchSize = this.maxBatchSize;
+    }
+    if (this.batchSize > this.maxBatchSize) {
+      this.batchSize = this.maxBatchSize;
+      publishStats();
+    }
+  }
+
+  /**
+   * Records an acknowledged batch and adjusts the batch size and time
+   * interval at the end of each epoch.
+   *
+   * @param numberOfEvents the number of events in the batch
+   * @param latencyNanos the time between dispatching the batch and receiving
+   *        its acknowledgement
+   * @param queueSize the number of events currently queued
+   * @param now the current time in nanoseconds
+   */
+  public synchronized void batchAcknowledged(int numberOfEvents,
+      long latencyNanos, int queueSize, long now) {
+    if (this.stats != null) {
+      this.stats.incBatchAckLatency(latencyNanos);
+    }
+    if (this.epochBatches == 0) {
+      this.epochStart = now - latencyNanos;
+    }
+    this.epochBatches++;
+    this.epochEvents += numberOfEvents;
+    this.epochLatencyNanos += latencyNanos;
+    if (this.epochBatches < EPOCH_BATCHES) {
+      return;
+    }
+
+    long averageLatency = this.epochLatencyNanos / this.epochBatches;
+    long elapsed = Math.max(1, now - this.epochStart);
+    double throughput = (double)this.epochEvents / elapsed;
+    this.epochBatches = 0;
+    this.epochEvents = 0;
+    this.epochLatencyNanos = 0;
+
+    int newBatchSize = this.batchSize;
+    int direction = 0;
+    if (averageLatency > this.targetLatencyNanos) {
+      newBatchSize = shrink(this.batchSize);
+      direction = -1;
+    } else if (queueSize > this.batchSize) {
+      if (this.lastDirection > 0 && throughput < this.lastThroughput * 0.95) {
+        // the last increase did not pay off
+        newBatchSize = shrink(this.batchSize);
+        direction = -1;
+      } else {
+        newBatchSize = Math.min(this.maxBatchSize,
+            this.batchSize + Math.max(1, this.batchSize / 4));
+        direction = 1;
+      }
+    }
+    this.lastThroughput = throughput;
+    this.lastDirection = newBatchSize == this.batchSize ? 0 : direction;
+
+    long remainingNanos = this.targetLatencyNanos - averageLatency;
+    int newInterval = (int)Math.max(this.minBatchTimeInterval, Math.min(
+        this.maxBatchTimeInterval, TimeUnit.NANOSECONDS.toMillis(remainingNanos)));
+
+    if (newBatchSize != this.batchSize || newInterval != this.batchTimeInterval) {
+      this.batchSize = newBatchSize;
+      this.batchTimeInterval = newInterval;
+      if (this.stats != null) {
+        this.stats.incBatchAdjustments();
+      }
+      publishStats();
+    }
+  }
+
+  private int shrink(int size) {
+    return Math.max(this.minBatchSize, size - Math.max(1, size / 4));
+  }
+
+  private void publishStats() {
+    if (this.stats != null) {
+      this.stats.setAdaptiveBatchSize(this.batchSize);
+      this.stats.setAdaptiveBatchTimeInterval(this.batchTimeInterval);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "AdaptiveBatchController[batchSize=" + this.batchSize
+        + "; batchTimeInterval=" + this.batchTimeInterval + "; bounds=["
+        + this.minBatchSize + "," + this.maxBatchSize + "] ["
+        + this.minBatchTimeInterval + "," + this.maxBatchTimeInterval
+        + "]; targetLatency=" + TimeUnit.NANOSECONDS.toMillis(this.targetLatencyNanos) + "]";
+  }
+}
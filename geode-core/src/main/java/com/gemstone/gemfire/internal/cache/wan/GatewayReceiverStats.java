@@ -58,6 +58,18 @@ public class GatewayReceiverStats extends CacheServerStats {
   /** Name of the unprocessed events added by primary statistic */
   private static final String EXCEPTIONS_OCCURED = "exceptionsOccured";
 
+  /** Name of the batches applied concurrently statistic */
+  private static final String PARALLEL_BATCHES_APPLIED = "parallelBatchesApplied";
+
+  /** Name of the concurrent apply lanes statistic */
+  private static final String PARALLEL_APPLY_LANES = "parallelApplyLanes";
+
+  /** Name of the events applied concurrently statistic */
+  private static final String PARALLEL_APPLY_EVENTS = "parallelApplyEvents";
+
+  /** Name of the concurrent batch apply time statistic */
+  private static final String PARALLEL_APPLY_TIME = "parallelApplyTime";
+
 //  /** Id of the events queued statistic */
 //  private int failoverBatchesReceivedId;
 
@@ -88,6 +100,18 @@ public class GatewayReceiverStats extends CacheServerStats {
   /** Id of the unprocessed events added by primary statistic */
   private int exceptionsOccuredId;
 
+  /** Id of the batches applied concurrently statistic */
+  private int parallelBatchesAppliedId;
+
+  /** Id of the concurrent apply lanes statistic */
+  private int parallelApplyLanesId;
+
+  /** Id of the events applied concurrently statistic */
+  private int parallelApplyEventsId;
+
+  /** Id of the concurrent batch apply time statistic */
+  private int parallelApplyTimeId;
+
   // ///////////////////// Constructors ///////////////////////
 
   public static GatewayReceiverStats createGatewayReceiverStats(String ownerName) {
@@ -131,7 +155,19 @@ public class GatewayReceiverStats extends CacheServerStats {
                 "operations"),
         f.createIntCounter(EXCEPTIONS_OCCURED,
             "number of exceptions occured while porcessing the batches",
-            "operations") };
+            "operations"),
+        f.createIntCounter(PARALLEL_BATCHES_APPLIED,
+            "number of batches whose events were applied concurrently by this GatewayReceiver",
+            "operations"),
+        f.createLongCounter(PARALLEL_APPLY_LANES,
+            "total number of independent lanes the concurrently applied batches were split into. Divide by parallelBatchesApplied for the average apply parallelism",
+            "operations"),
+        f.createLongCounter(PARALLEL_APPLY_EVENTS,
+            "total number of events applied concurrently by this GatewayReceiver",
+            "operations"),
+        f.createLongCounter(PARALLEL_APPLY_TIME,
+            "total time spent applying the events of concurrently applied batches",
+            "nanoseconds") };
     return new GatewayReceiverStats(f, ownerName, typeName, descriptors);
 
   }
@@ -152,6 +188,10 @@ public class GatewayReceiverStats extends CacheServerStats {
     unknowsOperationsReceivedId = statType
         .nameToId(UNKNOWN_OPERATIONS_RECEIVED);
     exceptionsOccuredId = statType.nameToId(EXCEPTIONS_OCCURED);
+    parallelBatchesAppliedId = statType.nameToId(PARALLEL_BATCHES_APPLIED);
+    parallelApplyLanesId = statType.nameToId(PARALLEL_APPLY_LANES);
+    parallelApplyEventsId = statType.nameToId(PARALLEL_APPLY_EVENTS);
+    parallelApplyTimeId = statType.nameToId(PARALLEL_APPLY_TIME);
   }
 
   // /////////////////// Instance Methods /////////////////////
@@ -266,6 +306,36 @@ public class GatewayReceiverStats extends CacheServerStats {
     return this.stats.getInt(exceptionsOccuredId);
   }
 
+  /**
+   * Records a batch whose events were applied concurrently.
+   * 
+   * @param lanes the number of lanes the batch was split into
+   * @param events the number of events applied concurrently
+   * @param elapsed the time (ns) taken to apply them
+   */
+  public void incParallelBatchApply(int lanes, int events, long elapsed) {
+    this.stats.incInt(parallelBatchesAppliedId, 1);
+    this.stats.incLong(parallelApplyLanesId, lanes);
+    this.stats.incLong(parallelApplyEventsId, events);
+    this.stats.incLong(parallelApplyTimeId, elapsed);
+  }
+
+  public int getParallelBatchesApplied() {
+    return this.stats.getInt(parallelBatchesAppliedId);
+  }
+
+  public long getParallelApplyLanes() {
+    return this.stats.getLong(parallelApplyLanesId);
+  }
+
+  public long getParallelApplyEvents() {
+    return this.stats.getLong(parallelApplyEventsId);
+  }
+
+  public long getParallelApplyTime() {
+    return this.stats.getLong(parallelApplyTimeId);
+  }
+
   /**
    * Returns the current time (ns).
    * 
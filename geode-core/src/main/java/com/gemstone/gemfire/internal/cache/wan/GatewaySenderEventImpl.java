@@ -50,6 +50,7 @@ import com.gemstone.gemfire.internal.cache.WrappedCallbackArgument;
 import com.gemstone.gemfire.internal.cache.lru.Sizeable;
 import com.gemstone.gemfire.internal.cache.tier.sockets.CacheServerHelper;
 import com.gemstone.gemfire.internal.i18n.LocalizedStrings;
+import com.gemstone.gemfire.internal.offheap.MemoryAllocator;
 import com.gemstone.gemfire.internal.offheap.OffHeapHelper;
 import com.gemstone.gemfire.internal.offheap.ReferenceCountHelper;
 import com.gemstone.gemfire.internal.offheap.Releasable;
@@ -216,6 +217,15 @@ public class GatewaySenderEventImpl implements
 
   private volatile int serializedValueSize = DEFAULT_SERIALIZED_VALUE_SIZE;
 
+  /**
+   * The statistics charged with the off-heap copy of the value made by
+   * {@link #storeValueOffHeap}. Null if this event does not own its
+   * off-heap value.
+   */
+  private transient GatewaySenderStats offHeapValueStats;
+
+  private transient int offHeapValueSize;
+
 //  /**
 //   * Is this thread in the process of deserializing this event?
 //   */
@@ -692,7 +702,9 @@ public class GatewaySenderEventImpl implements
           if (result == null) {
             StoredObject so = (StoredObject) vo;
             result = so.getValueAsHeapByteArray();
-            this.value = result;
+            if (this.offHeapValueStats == null) {
+              this.value = result;
+            }
           }
         }
       } else {
@@ -1142,8 +1154,10 @@ public class GatewaySenderEventImpl implements
     // The hardcoded value below was estimated using a NullDataOutputStream
     size += Sizeable.PER_OBJECT_OVERHEAD + 56;
 
-    // The value (a byte[])
-    size += getSerializedValueSize();
+    // The value (a byte[]) unless it was moved off-heap
+    if (this.offHeapValueStats == null) {
+      size += getSerializedValueSize();
+    }
 
     // The callback argument (a GatewayEventCallbackArgument wrapping an Object
     // which is the original callback argument)
@@ -1248,7 +1262,44 @@ public class GatewaySenderEventImpl implements
     if (OffHeapHelper.releaseAndTrackOwner(vo, this)) {
       this.valueObj = null;
       this.valueObjReleased = true;
+      if (this.offHeapValueStats != null) {
+        this.offHeapValueStats.decEventQueueOffHeapMemory(this.offHeapValueSize);
+      }
+    }
+  }
+
+  /**
+   * Moves the serialized value of this event off-heap so that a backlog of
+   * queued events does not fill the heap. Values that are already shared
+   * with an off-heap region entry, substitute values and deltas stay as they
+   * are. The value is also left on the heap if the copy would leave less than
+   * a tenth of the off-heap memory free, or if it can not be allocated, which
+   * is not treated as running out of off-heap memory.
+   *
+   * @return whether the value was moved off-heap
+   */
+  public boolean storeValueOffHeap(MemoryAllocator allocator, GatewaySenderStats stats) {
+    byte[] bytes = this.value;
+    if (bytes == null || this.valueObj != null || this.substituteValue != null
+        || this.valueIsObject == 0x02 || this.offHeapValueStats != null) {
+      return false;
+    }
+    if (allocator.getFreeMemory() - bytes.length < allocator.getTotalMemory() / 10) {
+      return false;
+    }
+    ReferenceCountHelper.setReferenceCountOwner(this);
+    @Retained(OffHeapIdentifier.GATEWAY_SENDER_EVENT_IMPL_VALUE)
+    StoredObject so = allocator.allocateAndInitializeIfAvailable(bytes, this.valueIsObject != 0x00, false);
+    ReferenceCountHelper.setReferenceCountOwner(null);
+    if (so == null) {
+      return false;
     }
+    this.valueObj = so;
+    this.value = null;
+    this.offHeapValueSize = so.getSizeInBytes();
+    this.offHeapValueStats = stats;
+    stats.incEventQueueOffHeapMemory(this.offHeapValueSize);
+    return true;
   }
   
   public static void release(@Released(OffHeapIdentifier.GATEWAY_SENDER_EVENT_IMPL_VALUE) Object o) {
@@ -85,6 +85,14 @@ public class GatewaySenderStats {
    protected static final String LOAD_BALANCES_IN_PROGRESS = "loadBalancesInProgress";
    protected static final String LOAD_BALANCE_TIME = "loadBalanceTime";
 
+   protected static final String BATCH_ACK_TIME = "batchAckTime";
+   protected static final String BATCHES_ACKED = "batchesAcknowledged";
+   protected static final String ADAPTIVE_BATCH_SIZE = "adaptiveBatchSize";
+   protected static final String ADAPTIVE_BATCH_TIME_INTERVAL = "adaptiveBatchTimeInterval";
+   protected static final String BATCH_ADJUSTMENTS = "batchAdjustments";
+   protected static final String EVENT_QUEUE_HEAP_MEMORY = "eventQueueHeapMemory";
+   protected static final String EVENT_QUEUE_OFF_HEAP_MEMORY = "eventQueueOffHeapMemory";
+
    /** Id of the events queued statistic */
    protected static  int eventsReceivedId;
    /** Id of the events queued statistic */
@@ -136,6 +144,20 @@ public class GatewaySenderStats {
    protected static int loadBalancesInProgressId;
    /** Id of load balance time*/
    protected static int loadBalanceTimeId;
+   /** Id of batch acknowledgement time*/
+   protected static int batchAckTimeId;
+   /** Id of batches acknowledged*/
+   protected static int batchesAckedId;
+   /** Id of adaptive batch size*/
+   protected static int adaptiveBatchSizeId;
+   /** Id of adaptive batch time interval*/
+   protected static int adaptiveBatchTimeIntervalId;
+   /** Id of batch adjustments*/
+   protected static int batchAdjustmentsId;
+   /** Id of event queue heap memory*/
+   protected static int eventQueueHeapMemoryId;
+   /** Id of event queue off-heap memory*/
+   protected static int eventQueueOffHeapMemoryId;
 
    /**
     * Static initializer to create and initialize the <code>StatisticsType</code>
@@ -254,6 +276,34 @@ public class GatewaySenderStats {
             (LOAD_BALANCE_TIME,
              "Total time spent load balancing this sender",
              "nanoseconds"),
+          f.createLongCounter
+            (BATCH_ACK_TIME,
+             "Total time between dispatching batches and receiving their acknowledgements.",
+             "nanoseconds"),
+          f.createLongCounter
+            (BATCHES_ACKED,
+             "Number of batches whose acknowledgement time was recorded.",
+             "operations"),
+          f.createLongGauge
+            (ADAPTIVE_BATCH_SIZE,
+             "Batch size currently chosen by adaptive batching.",
+             "operations"),
+          f.createLongGauge
+            (ADAPTIVE_BATCH_TIME_INTERVAL,
+             "Batch time interval currently chosen by adaptive batching.",
+             "milliseconds"),
+          f.createLongCounter
+            (BATCH_ADJUSTMENTS,
+             "Number of times adaptive batching changed the batch size or time interval.",
+             "operations"),
+          f.createLongGauge
+            (EVENT_QUEUE_HEAP_MEMORY,
+             "Heap memory used by the queued events held in memory by this member.",
+             "bytes"),
+          f.createLongGauge
+            (EVENT_QUEUE_OFF_HEAP_MEMORY,
+             "Off-heap memory used by the queued event values copied off-heap by this member.",
+             "bytes"),
      });
 
      // Initialize id fields
@@ -284,6 +334,13 @@ public class GatewaySenderStats {
      loadBalancesCompletedId = type.nameToId(LOAD_BALANCES_COMPLETED);
      loadBalancesInProgressId = type.nameToId(LOAD_BALANCES_IN_PROGRESS);
      loadBalanceTimeId = type.nameToId(LOAD_BALANCE_TIME);
+     batchAckTimeId = type.nameToId(BATCH_ACK_TIME);
+     batchesAckedId = type.nameToId(BATCHES_ACKED);
+     adaptiveBatchSizeId = type.nameToId(ADAPTIVE_BATCH_SIZE);
+     adaptiveBatchTimeIntervalId = type.nameToId(ADAPTIVE_BATCH_TIME_INTERVAL);
+     batchAdjustmentsId = type.nameToId(BATCH_ADJUSTMENTS);
+     eventQueueHeapMemoryId = type.nameToId(EVENT_QUEUE_HEAP_MEMORY);
+     eventQueueOffHeapMemoryId = type.nameToId(EVENT_QUEUE_OFF_HEAP_MEMORY);
    }
 
    //////////////////////  Instance Fields  //////////////////////
@@ -761,6 +818,68 @@ public class GatewaySenderStats {
      stats.incLong(loadBalanceTimeId, delta);
    }
 
+   /**
+    * Increments the "batchesAcknowledged" and "batchAckTime" stats.
+    * @param elapsed the time (ns) between dispatching a batch and receiving
+    * its acknowledgement
+    */
+   public void incBatchAckLatency(long elapsed) {
+     this.stats.incLong(batchesAckedId, 1);
+     this.stats.incLong(batchAckTimeId, elapsed);
+   }
+
+   public long getBatchAckTime() {
+     return this.stats.getLong(batchAckTimeId);
+   }
+
+   public long getBatchesAcknowledged() {
+     return this.stats.getLong(batchesAckedId);
+   }
+
+   public void setAdaptiveBatchSize(int size) {
+     this.stats.setLong(adaptiveBatchSizeId, size);
+   }
+
+   public long getAdaptiveBatchSize() {
+     return this.stats.getLong(adaptiveBatchSizeId);
+   }
+
+   public void setAdaptiveBatchTimeInterval(int interval) {
+     this.stats.setLong(adaptiveBatchTimeIntervalId, interval);
+   }
+
+   public long getAdaptiveBatchTimeInterval() {
+     return this.stats.getLong(adaptiveBatchTimeIntervalId);
+   }
+
+   public void incBatchAdjustments() {
+     this.stats.incLong(batchAdjustmentsId, 1);
+   }
+
+   public long getBatchAdjustments() {
+     return this.stats.getLong(batchAdjustmentsId);
+   }
+
+   public void incEventQueueHeapMemory(long delta) {
+     this.stats.incLong(eventQueueHeapMemoryId, delta);
+   }
+
+   public long getEventQueueHeapMemory() {
+     return this.stats.getLong(eventQueueHeapMemoryId);
+   }
+
+   public void incEventQueueOffHeapMemory(long bytes) {
+     this.stats.incLong(eventQueueOffHeapMemoryId, bytes);
+   }
+
+   public void decEventQueueOffHeapMemory(long bytes) {
+     this.stats.incLong(eventQueueOffHeapMemoryId, -bytes);
+   }
+
+   public long getEventQueueOffHeapMemory() {
+     return this.stats.getLong(eventQueueOffHeapMemoryId);
+   }
+
    public Statistics getStats(){
      return stats;
    }
@@ -43,6 +43,7 @@ import com.gemstone.gemfire.internal.cache.wan.GatewaySenderEventCallbackDispatc
 import com.gemstone.gemfire.internal.cache.wan.GatewaySenderEventImpl;
 import com.gemstone.gemfire.internal.logging.LogService;
 import com.gemstone.gemfire.internal.logging.LoggingThreadGroup;
+import com.gemstone.gemfire.internal.offheap.MemoryAllocator;
 import com.gemstone.gemfire.internal.cache.PartitionedRegion;
 import com.gemstone.gemfire.internal.size.SingleObjectSizer;
 
@@ -143,6 +144,12 @@ public class ParallelGatewaySenderEventProcessor extends
           substituteValue, true, eventID.getBucketID());
 
       if (getSender().beforeEnqueue(gatewayQueueEvent)) {
+        if (ParallelGatewaySenderQueue.OFF_HEAP_VALUES) {
+          MemoryAllocator allocator = ((GemFireCacheImpl)getSender().getCache()).getOffHeapStore();
+          if (allocator != null) {
+            gatewayQueueEvent.storeValueOffHeap(allocator, getSender().getStatistics());
+          }
+        }
         long start = getSender().getStatistics().startTime();
         try {
           this.queue.put(gatewayQueueEvent);
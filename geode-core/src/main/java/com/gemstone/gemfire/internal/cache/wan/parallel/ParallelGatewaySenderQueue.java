@@ -160,6 +160,14 @@ public class ParallelGatewaySenderQueue implements RegionQueue {
   
   public static final String QSTRING = "_PARALLEL_GATEWAY_SENDER_QUEUE";
 
+  /**
+   * Whether queued event values that are held on the heap are copied to
+   * off-heap memory, if the member has off-heap memory. Values of off-heap
+   * regions are already shared with the region entry.
+   */
+  public static final boolean OFF_HEAP_VALUES = Boolean
+      .getBoolean("gemfire.GatewaySender.PARALLEL_QUEUE_OFF_HEAP");
+
   /**
    * Fixed size Thread pool for conflating the events in the queue. The size of
    * the thread pool is set to the number of processors available to the JVM.
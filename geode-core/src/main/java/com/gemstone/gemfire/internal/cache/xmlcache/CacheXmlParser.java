@@ -1983,10 +1983,15 @@ public class CacheXmlParser extends CacheXml implements ContentHandler {
   
   /**
    * Ending the <code>compressor</code> registration should leave us with a
-   * class name on the stack.  Pull it off and setup the {@link Compressor}
-   * on the region attributes.
+   * class name and any parameters on the stack.  Pull them off and setup the
+   * {@link Compressor} on the region attributes.
    */
   private void endCompressor() {
+    Properties props = new Properties();
+    while (stack.peek() instanceof Parameter) {
+      Parameter param = (Parameter) stack.pop();
+      props.put(param.getName(), param.getValue());
+    }
     Class<?> klass = getClassFromStack();
     if(!Compressor.class.isAssignableFrom(klass)) {
       throw new CacheXmlException(LocalizedStrings.CacheXmlParser_A_0_IS_NOT_AN_INSTANCE_OF_A_COMPRESSOR
@@ -2000,6 +2005,9 @@ public class CacheXmlParser extends CacheXml implements ContentHandler {
     catch (Exception ex) {
       throw new CacheXmlException(LocalizedStrings.CacheXmlParser_WHILE_INSTANTIATING_A_0.toLocalizedString(klass.getName()), ex);
     }
+    if (compressor instanceof Declarable) {
+      ((Declarable) compressor).init(props);
+    }
     
     Object a = stack.peek();
     
@@ -25,6 +25,7 @@ import com.gemstone.gemfire.internal.LocalStatisticsImpl;
 import com.gemstone.gemfire.internal.StatisticsManager;
 import com.gemstone.gemfire.internal.StatisticsTypeImpl;
 import com.gemstone.gemfire.internal.stats50.Atomic50StatisticsImpl;
+import com.gemstone.gemfire.internal.stats50.StripedStatisticsImpl;
 
 public class Atomics {
   private Atomics() { }
@@ -36,11 +37,19 @@ public class Atomics {
   private static final boolean STRIPED_STATS_DISABLED = Boolean.getBoolean("gemfire.STRIPED_STATS_DISABLED")
     || "IBM Corporation".equals(System.getProperty("java.vm.vendor", "unknown"));
 
+  /**
+   * Whether atomic stats are striped over cells that threads only grow when
+   * they contend, rather than over per-thread storage.
+   * @since 9.0
+   */
+  private static final boolean CELL_STRIPED_STATS = Boolean.getBoolean("gemfire.CELL_STRIPED_STATS");
   
   public static Statistics createAtomicStatistics(StatisticsType type, String textId,
       long nId, long uId, StatisticsManager mgr) {
     Statistics result = null;
-    if (((StatisticsTypeImpl) type).getDoubleStatCount() == 0
+    if (CELL_STRIPED_STATS && !STRIPED_STATS_DISABLED) {
+      result = new StripedStatisticsImpl(type, textId, nId, uId, mgr);
+    } else if (((StatisticsTypeImpl) type).getDoubleStatCount() == 0
         && !STRIPED_STATS_DISABLED) {
       result = new Atomic50StatisticsImpl(type, textId, nId, uId, mgr);
     } else {
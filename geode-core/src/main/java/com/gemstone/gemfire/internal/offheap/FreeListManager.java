@@ -182,9 +182,25 @@ public class FreeListManager {
    */
   @SuppressWarnings("synthetic-access")
   public OffHeapStoredObject allocate(int size) {
+    return allocate(size, true);
+  }
+
+  /**
+   * Allocates like {@link #allocate(int)} but returns null, instead of
+   * reporting that off-heap memory is exhausted, if a chunk can not be
+   * allocated.
+   */
+  public OffHeapStoredObject allocateIfAvailable(int size) {
+    return allocate(size, false);
+  }
+
+  private OffHeapStoredObject allocate(int size, boolean reportOutOfMemory) {
     assert size > 0;
     
-    OffHeapStoredObject result = basicAllocate(size, true);
+    OffHeapStoredObject result = basicAllocate(size, true, reportOutOfMemory);
+    if (result == null) {
+      return null;
+    }
 
     result.setDataSize(size);
     this.allocatedSize.addAndGet(result.getSize());
@@ -194,6 +210,10 @@ public class FreeListManager {
   }
 
   private OffHeapStoredObject basicAllocate(int size, boolean useSlabs) {
+    return basicAllocate(size, useSlabs, true);
+  }
+
+  private OffHeapStoredObject basicAllocate(int size, boolean useSlabs, boolean reportOutOfMemory) {
     if (useSlabs) {
       // Every object stored off heap has a header so we need
       // to adjust the size so that the header gets allocated.
@@ -202,13 +222,13 @@ public class FreeListManager {
       size += OffHeapStoredObject.HEADER_SIZE;
     }
     if (size <= MAX_TINY) {
-      return allocateTiny(size, useSlabs);
+      return allocateTiny(size, useSlabs, reportOutOfMemory);
     } else {
-      return allocateHuge(size, useSlabs);
+      return allocateHuge(size, useSlabs, reportOutOfMemory);
     }
   }
 
-  private OffHeapStoredObject allocateFromFragments(int chunkSize) {
+  private OffHeapStoredObject allocateFromFragments(int chunkSize, boolean reportOutOfMemory) {
     do {
       final int lastAllocationId = this.lastFragmentAllocation.get();
       for (int i=lastAllocationId; i < this.fragmentList.size(); i++) {
@@ -225,6 +245,9 @@ public class FreeListManager {
       }
     } while (defragment(chunkSize));
     // We tried all the fragments and didn't find any free memory.
+    if (!reportOutOfMemory) {
+      return null;
+    }
     logOffHeapState(chunkSize);
     final OutOfOffHeapMemoryException failure = new OutOfOffHeapMemoryException("Out of off-heap memory. Could not allocate size of " + chunkSize);
     try {
@@ -602,10 +625,10 @@ public class FreeListManager {
   private int round(int multiple, int value) {
     return (int) ((((long)value + (multiple-1)) / multiple) * multiple);
   }
-  private OffHeapStoredObject allocateTiny(int size, boolean useFragments) {
-    return basicAllocate(getNearestTinyMultiple(size), TINY_MULTIPLE, 0, this.tinyFreeLists, useFragments);
+  private OffHeapStoredObject allocateTiny(int size, boolean useFragments, boolean reportOutOfMemory) {
+    return basicAllocate(getNearestTinyMultiple(size), TINY_MULTIPLE, 0, this.tinyFreeLists, useFragments, reportOutOfMemory);
   }
-  private OffHeapStoredObject basicAllocate(int idx, int multiple, int offset, AtomicReferenceArray<OffHeapStoredObjectAddressStack> freeLists, boolean useFragments) {
+  private OffHeapStoredObject basicAllocate(int idx, int multiple, int offset, AtomicReferenceArray<OffHeapStoredObjectAddressStack> freeLists, boolean useFragments, boolean reportOutOfMemory) {
     OffHeapStoredObjectAddressStack clq = freeLists.get(idx);
     if (clq != null) {
       long memAddr = clq.poll();
@@ -617,12 +640,12 @@ public class FreeListManager {
       }
     }
     if (useFragments) {
-      return allocateFromFragments(((idx+1)*multiple)+offset);
+      return allocateFromFragments(((idx+1)*multiple)+offset, reportOutOfMemory);
     } else {
       return null;
     }
   }
-  private OffHeapStoredObject allocateHuge(int size, boolean useFragments) {
+  private OffHeapStoredObject allocateHuge(int size, boolean useFragments, boolean reportOutOfMemory) {
     // sizeHolder is a fake Chunk used to search our sorted hugeChunkSet.
     OffHeapStoredObject sizeHolder = new SearchMarker(size);
     NavigableSet<OffHeapStoredObject> ts = this.hugeChunkSet.tailSet(sizeHolder);
@@ -640,7 +663,7 @@ public class FreeListManager {
     if (useFragments) {
       // We round it up to the next multiple of TINY_MULTIPLE to make
       // sure we always have chunks allocated on an 8 byte boundary.
-      return allocateFromFragments(round(TINY_MULTIPLE, size));
+      return allocateFromFragments(round(TINY_MULTIPLE, size), reportOutOfMemory);
     } else {
       return null;
     }
@@ -51,6 +51,19 @@ public interface MemoryAllocator {
    * @throws IllegalStateException if the heap does not have enough memory to grant the request
    */
   public StoredObject allocateAndInitialize(byte[] data, boolean isSerialized, boolean isCompressed, byte[] originalHeapData);
+
+  /**
+   * Allocates off heap memory for the given data like
+   * {@link #allocateAndInitialize(byte[], boolean, boolean)} but returns null
+   * if there is not enough off heap memory. Running out is not reported to
+   * the OutOfOffHeapMemoryListener, so it is for callers that can keep the
+   * data on the heap instead.
+   * @param data the bytes of the data to put in the allocated StoredObject
+   * @param isSerialized true if data contains a serialized object; false if it is an actual byte array.
+   * @param isCompressed true if data is compressed; false if it is uncompressed.
+   * @return the allocated StoredObject or null
+   */
+  public StoredObject allocateAndInitializeIfAvailable(byte[] data, boolean isSerialized, boolean isCompressed);
   
   public long getFreeMemory();
   
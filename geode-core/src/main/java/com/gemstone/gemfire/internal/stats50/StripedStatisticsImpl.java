@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.stats50;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gemstone.gemfire.StatisticDescriptor;
+import com.gemstone.gemfire.StatisticsType;
+import com.gemstone.gemfire.internal.OSProcess;
+import com.gemstone.gemfire.internal.StatisticsImpl;
+import com.gemstone.gemfire.internal.StatisticsManager;
+import com.gemstone.gemfire.internal.StatisticsTypeImpl;
+
+/**
+ * An implementation of {@link com.gemstone.gemfire.Statistics} whose atomic
+ * counters are striped over cells: a counter starts as a single value, and
+ * only when threads contend on it does it grow cells, padded against false
+ * sharing, that the threads increment instead. Reading a counter, for
+ * instance when it is sampled, sums its cells. Gauges, which are typically
+ * set, are kept in single atomic values so that a set is atomic.
+ * <p>
+ * Unlike {@link Atomic50StatisticsImpl} an increment does not write any
+ * state shared by all the threads, and needs no thread local lookup, and
+ * unlike {@link com.gemstone.gemfire.internal.LocalStatisticsImpl} it takes
+ * no lock.
+ *
+ * @see com.gemstone.gemfire.internal.concurrent.Atomics#createAtomicStatistics
+ * @since 9.0
+ */
+public class StripedStatisticsImpl extends StatisticsImpl {
+
+  /** The values of the int counters, null at the offsets of gauges */
+  private final LongAdder[] intStorage;
+
+  /** The values of the long counters, null at the offsets of gauges */
+  private final LongAdder[] longStorage;
+
+  /** The values of the double counters, null at the offsets of gauges */
+  private final DoubleAdder[] doubleStorage;
+
+  /** The values of the int gauges */
+  private final AtomicLongArray intGauges;
+
+  /** The values of the long gauges */
+  private final AtomicLongArray longGauges;
+
+  /** The raw long bits of the values of the double gauges */
+  private final AtomicLongArray doubleGauges;
+
+  /** The StatisticsFactory that created this instance */
+  private final StatisticsManager dSystem;
+
+  ///////////////////////  Constructors  ///////////////////////
+
+  /**
+   * Creates a new statistics instance of the given type
+   *
+   * @param type
+   *        A description of the statistics
+   * @param textId
+   *        Text that identifies this statistic when it is monitored
+   * @param numericId
+   *        A number that displayed when this statistic is monitored
+   * @param uniqueId
+   *        A number that uniquely identifies this instance
+   * @param system
+   *        The distributed system that determines whether or not these
+   *        statistics are stored (and collected) in GemFire shared
+   *        memory or in the local VM
+   */
+  public StripedStatisticsImpl(StatisticsType type, String textId,
+                               long numericId,
+                               long uniqueId,
+                               StatisticsManager system) {
+    super(type, calcTextId(system, textId), calcNumericId(system, numericId),
+          uniqueId, 0);
+    this.dSystem = system;
+
+    StatisticsTypeImpl realType = (StatisticsTypeImpl)type;
+    this.intStorage = new LongAdder[realType.getIntStatCount()];
+    this.longStorage = new LongAdder[realType.getLongStatCount()];
+    this.doubleStorage = new DoubleAdder[realType.getDoubleStatCount()];
+    this.intGauges = new AtomicLongArray(this.intStorage.length);
+    this.longGauges = new AtomicLongArray(this.longStorage.length);
+    this.doubleGauges = new AtomicLongArray(this.doubleStorage.length);
+    for (StatisticDescriptor sd : realType.getStatistics()) {
+      if (!sd.isCounter()) {
+        continue;
+      }
+      if (sd.getType() == int.class) {
+        this.intStorage[sd.getId()] = new LongAdder();
+      } else if (sd.getType() == long.class) {
+        this.longStorage[sd.getId()] = new LongAdder();
+      } else if (sd.getType() == double.class) {
+        this.doubleStorage[sd.getId()] = new DoubleAdder();
+      }
+    }
+  }
+
+  //////////////////////  Static Methods  //////////////////////
+
+  private static long calcNumericId(StatisticsManager system, long userValue) {
+    if (userValue != 0) {
+      return userValue;
+    } else {
+      long result = OSProcess.getId(); // fix for bug 30239
+      if (result == 0) {
+        if (system != null) {
+          result = system.getId();
+        }
+      }
+      return result;
+    }
+  }
+
+  private static String calcTextId(StatisticsManager system, String userValue) {
+    if (userValue != null && !userValue.equals("")) {
+      return userValue;
+    } else {
+      if (system != null) {
+        return system.getName();
+      } else {
+        return "";
+      }
+    }
+  }
+
+  //////////////////////  Instance Methods  //////////////////////
+
+  @Override
+  public final boolean isAtomic() {
+    return true;
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    if (this.dSystem != null) {
+      dSystem.destroyStatistics(this);
+    }
+  }
+
+  ////////////////////////  store() Methods  ///////////////////////
+
+  // Counters are rarely set. A set of a counter adds the difference to the
+  // current value, rather than resetting the cells, so that the increments
+  // done concurrently are not lost; concurrent sets are serialized.
+
+  @Override
+  protected final void _setInt(int offset, int value) {
+    LongAdder adder = this.intStorage[offset];
+    if (adder == null) {
+      this.intGauges.set(offset, value);
+      return;
+    }
+    synchronized (adder) {
+      adder.add(value - (int)adder.sum());
+    }
+  }
+
+  @Override
+  protected final void _setLong(int offset, long value) {
+    LongAdder adder = this.longStorage[offset];
+    if (adder == null) {
+      this.longGauges.set(offset, value);
+      return;
+    }
+    synchronized (adder) {
+      adder.add(value - adder.sum());
+    }
+  }
+
+  @Override
+  protected final void _setDouble(int offset, double value) {
+    DoubleAdder adder = this.doubleStorage[offset];
+    if (adder == null) {
+      this.doubleGauges.set(offset, Double.doubleToRawLongBits(value));
+      return;
+    }
+    synchronized (adder) {
+      adder.add(value - adder.sum());
+    }
+  }
+
+  ///////////////////////  get() Methods  ///////////////////////
+
+  @Override
+  protected final int _getInt(int offset) {
+    LongAdder adder = this.intStorage[offset];
+    return (int)(adder == null ? this.intGauges.get(offset) : adder.sum());
+  }
+
+  @Override
+  protected final long _getLong(int offset) {
+    LongAdder adder = this.longStorage[offset];
+    return adder == null ? this.longGauges.get(offset) : adder.sum();
+  }
+
+  @Override
+  protected final double _getDouble(int offset) {
+    DoubleAdder adder = this.doubleStorage[offset];
+    return adder == null ? Double.longBitsToDouble(this.doubleGauges.get(offset))
+        : adder.sum();
+  }
+
+  ////////////////////////  inc() Methods  ////////////////////////
+
+  @Override
+  protected final void _incInt(int offset, int delta) {
+    LongAdder adder = this.intStorage[offset];
+    if (adder == null) {
+      this.intGauges.getAndAdd(offset, delta);
+    } else {
+      adder.add(delta);
+    }
+  }
+
+  @Override
+  protected final void _incLong(int offset, long delta) {
+    LongAdder adder = this.longStorage[offset];
+    if (adder == null) {
+      this.longGauges.getAndAdd(offset, delta);
+    } else {
+      adder.add(delta);
+    }
+  }
+
+  @Override
+  protected final void _incDouble(int offset, double delta) {
+    DoubleAdder adder = this.doubleStorage[offset];
+    if (adder == null) {
+      long bits;
+      do {
+        bits = this.doubleGauges.get(offset);
+      } while (!this.doubleGauges.compareAndSet(offset, bits,
+          Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + delta)));
+    } else {
+      adder.add(delta);
+    }
+  }
+}
@@ -57,11 +57,15 @@ public class BlobHelper {
   throws IOException
   {
     final long start = startSerialization();
-    HeapDataOutputStream hdos = new HeapDataOutputStream(version);
-    DataSerializer.writeObject(obj, hdos);
-    byte[] result = hdos.toByteArray();
-    endSerialization(start, result.length);
-    return result;
+    HeapDataOutputStream hdos = HeapDataOutputStream.createPooled(version);
+    try {
+      DataSerializer.writeObject(obj, hdos);
+      byte[] result = hdos.toByteArray();
+      endSerialization(start, result.length);
+      return result;
+    } finally {
+      hdos.release();
+    }
   }
 
   /**
@@ -463,6 +463,38 @@ public interface MemberMXBean {
    */
   public long getPutsAvgLatency();
 
+  /**
+   * Returns the cache get latency, in nanoseconds, that 99% of the gets
+   * took less than, to within 12.5%.
+   *
+   * @since 9.0
+   */
+  public long getGetsP99Latency();
+
+  /**
+   * Returns the cache get latency, in nanoseconds, that 99.9% of the gets
+   * took less than, to within 12.5%.
+   *
+   * @since 9.0
+   */
+  public long getGetsP999Latency();
+
+  /**
+   * Returns the cache put latency, in nanoseconds, that 99% of the puts
+   * took less than, to within 12.5%.
+   *
+   * @since 9.0
+   */
+  public long getPutsP99Latency();
+
+  /**
+   * Returns the cache put latency, in nanoseconds, that 99.9% of the puts
+   * took less than, to within 12.5%.
+   *
+   * @since 9.0
+   */
+  public long getPutsP999Latency();
+
   /**
    * Returns the cache putAll average latency.
    */
@@ -459,6 +459,26 @@ public class MemberMBean extends NotificationBroadcasterSupport implements
     return bridge.getGetsAvgLatency();
   }
 
+  @Override
+  public long getGetsP99Latency() {
+    return bridge.getGetsLatencyAtPercentile(99);
+  }
+
+  @Override
+  public long getGetsP999Latency() {
+    return bridge.getGetsLatencyAtPercentile(99.9);
+  }
+
+  @Override
+  public long getPutsP99Latency() {
+    return bridge.getPutsLatencyAtPercentile(99);
+  }
+
+  @Override
+  public long getPutsP999Latency() {
+    return bridge.getPutsLatencyAtPercentile(99.9);
+  }
+
   @Override
   public long getLoadsAverageLatency() {
     return bridge.getLoadsAverageLatency();
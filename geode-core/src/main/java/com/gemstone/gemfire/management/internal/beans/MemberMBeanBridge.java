@@ -63,6 +63,7 @@ import com.gemstone.gemfire.internal.GemFireStatSampler;
 import com.gemstone.gemfire.internal.GemFireVersion;
 import com.gemstone.gemfire.internal.HostStatHelper;
 import com.gemstone.gemfire.internal.LinuxSystemStats;
+import com.gemstone.gemfire.internal.LogLinearHistogramStats;
 import com.gemstone.gemfire.internal.ProcessStats;
 import com.gemstone.gemfire.internal.PureJavaMode;
 import com.gemstone.gemfire.internal.SocketCreator;
@@ -266,6 +267,10 @@ public class MemberMBeanBridge {
   private StatsAverageLatency getsAvgLatency;
   
   private StatsAverageLatency putAllAvgLatency;
+
+  private LogLinearHistogramStats getLatencyHistogram;
+
+  private LogLinearHistogramStats putLatencyHistogram;
   
   private StatsAverageLatency loadsAverageLatency;
   
@@ -511,6 +516,8 @@ public class MemberMBeanBridge {
   public void addCacheStats(CachePerfStats cachePerfStats) {
     Statistics cachePerfStatistics = cachePerfStats.getStats();
     monitor.addStatisticsToMonitor(cachePerfStatistics);
+    getLatencyHistogram = cachePerfStats.getGetLatencyHistogram();
+    putLatencyHistogram = cachePerfStats.getPutLatencyHistogram();
   }
 
   public void addFunctionStats(FunctionServiceStats functionServiceStats) {
@@ -1532,6 +1539,16 @@ public class MemberMBeanBridge {
     return getsAvgLatency.getAverageLatency();
   }
 
+  public long getGetsLatencyAtPercentile(double percentile) {
+    return getLatencyHistogram == null ? 0
+        : getLatencyHistogram.getValueAtPercentile(percentile);
+  }
+
+  public long getPutsLatencyAtPercentile(double percentile) {
+    return putLatencyHistogram == null ? 0
+        : putLatencyHistogram.getValueAtPercentile(percentile);
+  }
+
   public float getGetsRate() {
     this.instGetsRate = getsRate.getRate();
     return instGetsRate;
@@ -267,6 +267,26 @@ public class MemberMXBeanAdapter implements MemberMXBean {
     throw new UnsupportedOperationException("Not Implemented!");
   }
 
+  @Override
+  public long getGetsP99Latency() {
+    throw new UnsupportedOperationException("Not Implemented!");
+  }
+
+  @Override
+  public long getGetsP999Latency() {
+    throw new UnsupportedOperationException("Not Implemented!");
+  }
+
+  @Override
+  public long getPutsP99Latency() {
+    throw new UnsupportedOperationException("Not Implemented!");
+  }
+
+  @Override
+  public long getPutsP999Latency() {
+    throw new UnsupportedOperationException("Not Implemented!");
+  }
+
   @Override
   public long getPutsAvgLatency() {
     throw new UnsupportedOperationException("Not Implemented!");
@@ -420,6 +420,9 @@ public class AutoSerializableManager {
 
         fieldList.addAll(variableLenFields);
         classInfo = new AutoClassInfo(clazz, fieldList);
+        if (GENERATE_SERIALIZERS && unsafe != null) {
+          classInfo.setGeneratedSerializer(PdxSerializerGenerator.generate(unsafe, clazz, fieldList));
+        }
         logger.info("Auto serializer generating type for {} for fields: {}", clazz, classInfo.toFormattedString());
         classMap.put(clazz, classInfo);
       } // end sync
@@ -612,6 +615,13 @@ public class AutoSerializableManager {
     unsafe = tmp;
   }
 
+  /**
+   * If true then a serializer is generated for each auto serialized class,
+   * when it is first used, that reads and writes its fields with compiled
+   * code instead of a {@link PdxFieldWrapper} per field. It needs Unsafe.
+   */
+  private static final boolean GENERATE_SERIALIZERS = Boolean.getBoolean("gemfire.AutoSerializer.GENERATE");
+
   public static abstract class PdxFieldWrapper {
     private final FieldWrapper field;
     private final String fieldName;
@@ -1881,6 +1891,10 @@ public class AutoSerializableManager {
         optimizeFieldWrites = true;
       }
     }
+    if (optimizeFieldWrites && autoClassInfo.getGeneratedSerializer() != null) {
+      autoClassInfo.getGeneratedSerializer().write(w, obj);
+      return;
+    }
     for (PdxFieldWrapper f : autoClassInfo.getFields()) {
       //System.out.println("DEBUG writing field=" + f.getField().getName() + " offset=" + ((PdxWriterImpl)writer).position());
       if (f.transform()) {
@@ -2028,6 +2042,11 @@ public class AutoSerializableManager {
      * The PdxType created by the first serialization by the auto serializer.
      */
     private PdxType serializedType = null;
+
+    /**
+     * The serializer generated for the class, if any.
+     */
+    private GeneratedPdxSerializer generatedSerializer;
     
     public AutoClassInfo(Class<?> clazz, List<PdxFieldWrapper> fields) {
       this.clazzRef = new WeakReference<Class<?>>(clazz);
@@ -2069,6 +2088,12 @@ public class AutoSerializableManager {
     public PdxType getSerializedType() {
       return this.serializedType;
     }
+    public void setGeneratedSerializer(GeneratedPdxSerializer v) {
+      this.generatedSerializer = v;
+    }
+    public GeneratedPdxSerializer getGeneratedSerializer() {
+      return this.generatedSerializer;
+    }
     
     public Class<?> getInfoClass() {
       return this.clazzRef.get();
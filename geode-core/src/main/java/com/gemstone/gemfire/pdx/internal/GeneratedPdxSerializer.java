@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.pdx.internal;
+
+import com.gemstone.gemfire.GemFireException;
+import com.gemstone.gemfire.pdx.PdxSerializationException;
+import com.gemstone.gemfire.pdx.internal.AutoSerializableManager.PdxFieldWrapper;
+
+/**
+ * The base class of the serializers that {@link PdxSerializerGenerator}
+ * generates for auto serialized classes. A generated serializer reads and
+ * writes the fields of an object in the order of its {@link PdxType}, with
+ * field accesses compiled into its code, so it is only used for ordered
+ * reads and writes.
+ * <p>
+ * This class is public so that the generated classes, which are defined
+ * in the package of the class they serialize, can extend it.
+ *
+ * @since 9.0
+ */
+public abstract class GeneratedPdxSerializer {
+
+  /**
+   * The fields of the class, for the fields that the generated code does not
+   * access itself but hands to their {@link PdxFieldWrapper}.
+   */
+  protected final PdxFieldWrapper[] fields;
+
+  protected GeneratedPdxSerializer(PdxFieldWrapper[] fields) {
+    this.fields = fields;
+  }
+
+  /**
+   * Writes all the fields of an object, in order, with the writes that do
+   * not take a field name.
+   */
+  public final void write(PdxWriterImpl writer, Object obj) {
+    try {
+      doWrite(writer, obj);
+    } catch (GemFireException ex) {
+      throw ex;
+    } catch (RuntimeException ex) {
+      throw new PdxSerializationException("Serialization error for class " + obj.getClass().getName(), ex);
+    }
+  }
+
+  /**
+   * Reads all the fields of an object, in order.
+   */
+  public final void read(InternalPdxReader reader, Object obj) {
+    try {
+      doRead(reader, obj);
+    } catch (GemFireException ex) {
+      throw ex;
+    } catch (RuntimeException ex) {
+      throw new PdxSerializationException("Deserialization error for class " + obj.getClass().getName(), ex);
+    }
+  }
+
+  protected abstract void doWrite(PdxWriterImpl writer, Object obj);
+
+  protected abstract void doRead(InternalPdxReader reader, Object obj);
+}
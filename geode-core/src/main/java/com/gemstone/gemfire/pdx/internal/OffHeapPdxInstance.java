@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.pdx.internal;
+
+import com.gemstone.gemfire.internal.DSCODE;
+import com.gemstone.gemfire.internal.InternalDataSerializer;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.offheap.Releasable;
+import com.gemstone.gemfire.internal.offheap.StoredObject;
+import com.gemstone.gemfire.internal.offheap.annotations.Released;
+import com.gemstone.gemfire.internal.offheap.annotations.Retained;
+import com.gemstone.gemfire.internal.offheap.annotations.Unretained;
+import com.gemstone.gemfire.internal.tcp.ByteBufferInputStream.ByteSource;
+import com.gemstone.gemfire.pdx.PdxInstance;
+import com.gemstone.gemfire.pdx.WritablePdxInstance;
+
+/**
+ * A PdxInstance whose fields are read directly from the off-heap memory of a
+ * {@link StoredObject} instead of from a heap copy of its serialized bytes.
+ * Reading one field of a large value only reads the bytes of that field.
+ * <p>
+ * The instance holds a retain on the StoredObject so that its memory stays
+ * allocated until {@link #release} is called. Reading an instance that has
+ * been released throws an IllegalStateException. Nested PdxInstances read
+ * with {@link #getField} are copied to the heap so they stay valid after the
+ * release.
+ *
+ * @since 9.0
+ */
+public class OffHeapPdxInstance extends PdxInstanceImpl implements Releasable {
+
+  private static final long serialVersionUID = 1353281562618880284L;
+
+  @Retained
+  private final transient StoredObject blob;
+
+  private transient volatile boolean released;
+
+  private OffHeapPdxInstance(PdxType pdxType, PdxInputStream in, int len, @Retained StoredObject blob) {
+    super(pdxType, in, len);
+    this.blob = blob;
+  }
+
+  /**
+   * Returns a PdxInstance that reads its fields from the memory of the given
+   * object, with its own retain on it. Returns null if the object is not an
+   * uncompressed, serialized pdx or if it has already been freed. The caller
+   * keeps its own reference to <code>so</code> and must
+   * {@link #release} the result.
+   */
+  @Retained
+  public static OffHeapPdxInstance create(@Unretained StoredObject so) {
+    if (!so.hasRefCount() || !so.isSerialized() || so.isCompressed()
+        || so.getDataSize() < 9 || so.readDataByte(0) != DSCODE.PDX) {
+      return null;
+    }
+    if (!so.retain()) {
+      return null;
+    }
+    boolean created = false;
+    try {
+      PdxInputStream in = new PdxInputStream(so);
+      in.readByte(); // throw away the type byte
+      int len = in.readInt();
+      int typeId = in.readInt();
+      GemFireCacheImpl gfc = GemFireCacheImpl.getForPdx("PDX registry is unavailable because the Cache has been closed.");
+      PdxType pdxType = gfc.getPdxRegistry().getType(typeId);
+      if (pdxType == null) {
+        throw new IllegalStateException("Unknown pdx type=" + typeId);
+      }
+      OffHeapPdxInstance result = new OffHeapPdxInstance(pdxType, in, len, so);
+      created = true;
+      return result;
+    } finally {
+      if (!created) {
+        so.release();
+      }
+    }
+  }
+
+  /**
+   * Returns true if {@link #release} has been called.
+   */
+  public boolean isReleased() {
+    return this.released;
+  }
+
+  @Override
+  @Released
+  public void release() {
+    synchronized (this) {
+      if (this.released) {
+        return;
+      }
+      this.released = true;
+    }
+    this.blob.release();
+  }
+
+  private void checkReleased() {
+    if (this.released) {
+      throw new IllegalStateException("The off-heap value of this PdxInstance has been released");
+    }
+  }
+
+  @Override
+  protected PdxReaderImpl getUnmodifiableReader() {
+    checkReleased();
+    return super.getUnmodifiableReader();
+  }
+
+  @Override
+  protected PdxReaderImpl getUnmodifiableReader(String fieldName) {
+    checkReleased();
+    return super.getUnmodifiableReader(fieldName);
+  }
+
+  @Override
+  protected synchronized ByteSource getRaw(PdxField ft) {
+    checkReleased();
+    return super.getRaw(ft);
+  }
+
+  @Override
+  public Object getField(String fieldName) {
+    Object result = super.getField(fieldName);
+    if (result instanceof PdxInstanceImpl) {
+      // nested pdx instances share our memory
+      result = copyToHeap((PdxInstanceImpl)result);
+    }
+    return result;
+  }
+
+  @Override
+  public WritablePdxInstance createWriter() {
+    // the writer outlives our retain so it gets a heap copy
+    return copyToHeap(this).createWriter();
+  }
+
+  private static PdxInstance copyToHeap(PdxInstanceImpl pdx) {
+    GemFireCacheImpl gfc = GemFireCacheImpl.getForPdx("PDX registry is unavailable because the Cache has been closed.");
+    return InternalDataSerializer.readPdxInstance(pdx.toBytes(), gfc);
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.pdx.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+import com.gemstone.gemfire.InvalidDeltaException;
+import com.gemstone.gemfire.internal.DSCODE;
+import com.gemstone.gemfire.internal.InternalDataSerializer;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.tcp.ByteBufferInputStream.ByteSource;
+import com.gemstone.gemfire.internal.tcp.ByteBufferInputStream.ByteSourceFactory;
+
+/**
+ * Field level deltas of pdx values. A delta has the raw bytes of the fields
+ * of a {@link WritablePdxInstanceImpl} that were changed since the pdx it was
+ * created from, which is identified by its type, length and checksum. A delta
+ * can only be applied to exactly those bytes. Applying it to anything else
+ * throws an {@link InvalidDeltaException} so that the full value is sent
+ * instead.
+ *
+ * @since 9.0
+ */
+public class PdxDelta {
+
+  /**
+   * If true then changes to WritablePdxInstances are always distributed as
+   * full values.
+   */
+  public static final boolean DISABLED = Boolean.getBoolean("gemfire.PdxDelta.DISABLED");
+
+  /**
+   * Starts every pdx delta so that it can be told apart from the deltas
+   * of applications.
+   */
+  private static final int MAGIC = 0x50445844;
+
+  private PdxDelta() {
+  }
+
+  /**
+   * Returns true if the given delta bytes were written by {@link #write}.
+   */
+  public static boolean isPdxDelta(byte[] deltaBytes) {
+    return deltaBytes != null && deltaBytes.length >= 4
+        && ByteBuffer.wrap(deltaBytes).getInt(0) == MAGIC;
+  }
+
+  /**
+   * Returns the checksum that identifies the given serialized pdx.
+   */
+  static int checksum(byte[] pdxBytes) {
+    CRC32 crc = new CRC32();
+    crc.update(pdxBytes, 0, pdxBytes.length);
+    return (int)crc.getValue();
+  }
+
+  /**
+   * Writes the changed fields of <code>current</code>.
+   * @param base the pdx the changes are relative to
+   */
+  static void write(DataOutput out, PdxReaderImpl current, PdxReaderImpl base, BitSet changedFields) throws IOException {
+    PdxType type = current.getPdxType();
+    byte[] baseBytes = new byte[PdxWriterImpl.HEADER_SIZE + base.basicSize()];
+    ByteBuffer bb = ByteBuffer.wrap(baseBytes);
+    bb.put(DSCODE.PDX);
+    bb.putInt(base.basicSize());
+    bb.putInt(base.getPdxType().getTypeId());
+    base.basicSendTo(bb);
+    out.writeInt(MAGIC);
+    out.writeInt(type.getTypeId());
+    out.writeInt(baseBytes.length);
+    out.writeInt(checksum(baseBytes));
+    InternalDataSerializer.writeArrayLength(changedFields.cardinality(), out);
+    for (int i = changedFields.nextSetBit(0); i >= 0; i = changedFields.nextSetBit(i + 1)) {
+      ByteSource raw = current.getRaw(type.getPdxFieldByIndex(i));
+      InternalDataSerializer.writeArrayLength(i, out);
+      InternalDataSerializer.writeArrayLength(raw.remaining(), out);
+      raw.sendTo(out);
+    }
+  }
+
+  /**
+   * Returns the serialized pdx that results from applying the given delta
+   * to <code>oldBytes</code>.
+   * @throws InvalidDeltaException if the delta was not created from oldBytes
+   */
+  public static byte[] apply(byte[] oldBytes, byte[] deltaBytes) throws IOException {
+    return apply(oldBytes, new DataInputStream(new ByteArrayInputStream(deltaBytes)));
+  }
+
+  /**
+   * Returns the serialized pdx that results from applying the delta read
+   * from <code>in</code> to <code>oldBytes</code>.
+   * @throws InvalidDeltaException if the delta was not created from oldBytes
+   */
+  public static byte[] apply(byte[] oldBytes, DataInput in) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new InvalidDeltaException("Not a pdx delta");
+    }
+    int typeId = in.readInt();
+    int baseLength = in.readInt();
+    int baseChecksum = in.readInt();
+    if (oldBytes == null || oldBytes.length != baseLength
+        || oldBytes.length < PdxWriterImpl.HEADER_SIZE || oldBytes[0] != DSCODE.PDX
+        || ByteBuffer.wrap(oldBytes).getInt(5) != typeId
+        || checksum(oldBytes) != baseChecksum) {
+      throw new InvalidDeltaException("The pdx delta does not match the old value");
+    }
+    GemFireCacheImpl gfc = GemFireCacheImpl.getForPdx("PDX registry is unavailable because the Cache has been closed.");
+    PdxInstanceImpl old = (PdxInstanceImpl)InternalDataSerializer.readPdxInstance(oldBytes, gfc);
+    PdxType type = old.getPdxType();
+    ByteSource[] changed = new ByteSource[type.getFieldCount()];
+    int count = InternalDataSerializer.readArrayLength(in);
+    for (int i = 0; i < count; i++) {
+      int fieldIndex = InternalDataSerializer.readArrayLength(in);
+      if (fieldIndex < 0 || fieldIndex >= changed.length) {
+        throw new InvalidDeltaException("Unknown field " + fieldIndex + " in pdx delta for " + type);
+      }
+      byte[] raw = new byte[InternalDataSerializer.readArrayLength(in)];
+      in.readFully(raw);
+      changed[fieldIndex] = ByteSourceFactory.wrap(raw);
+    }
+    PdxOutputStream os = new PdxOutputStream(oldBytes.length);
+    PdxWriterImpl writer = new PdxWriterImpl(type, os);
+    for (PdxField f : type.getFields()) {
+      ByteSource raw = changed[f.getFieldIndex()];
+      if (raw == null) {
+        raw = old.getRaw(f);
+      }
+      writer.writeRawField(f, raw);
+    }
+    writer.completeByteStreamGeneration();
+    return writer.toByteArray();
+  }
+}
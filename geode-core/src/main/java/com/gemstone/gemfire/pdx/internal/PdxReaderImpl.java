@@ -626,6 +626,10 @@ public class PdxReaderImpl implements InternalPdxReader, java.io.Serializable {
     if (ft == null) {
       return null;
     }
+    return readField(ft);
+  }
+
+  public Object readField(PdxField ft) {
     switch (ft.getFieldType()) {
     case CHAR:
       return readChar(ft);
@@ -837,6 +841,11 @@ public class PdxReaderImpl implements InternalPdxReader, java.io.Serializable {
    */
   public void orderedDeserialize(Object obj, AutoClassInfo ci) {
     PdxReaderImpl reader = prepForOrderedReading();
+    GeneratedPdxSerializer generated = ci.getGeneratedSerializer();
+    if (generated != null) {
+      generated.read(reader, obj);
+      return;
+    }
     for (PdxFieldWrapper f: ci.getFields()) {
       //System.out.println("DEBUG reading field=" + f.getField().getName() + " offset=" + reader.dis.position());
       f.orderedDeserialize(reader, obj);
@@ -873,7 +882,7 @@ public class PdxReaderImpl implements InternalPdxReader, java.io.Serializable {
       return readPdxString(ft);
     }
     else{
-      return readField(field);
+      return readField(ft);
     }
   }
   
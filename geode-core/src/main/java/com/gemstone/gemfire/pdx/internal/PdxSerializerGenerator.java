@@ -0,0 +1,462 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.pdx.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.Logger;
+
+import com.gemstone.gemfire.internal.logging.LogService;
+import com.gemstone.gemfire.pdx.FieldType;
+import com.gemstone.gemfire.pdx.internal.AutoSerializableManager.PdxFieldWrapper;
+import com.gemstone.gemfire.pdx.internal.unsafe.UnsafeWrapper;
+
+/**
+ * Generates the bytecode of a {@link GeneratedPdxSerializer} for an auto
+ * serialized class, so that its fields are written and read by code that
+ * accesses them directly, like a hand written
+ * {@link com.gemstone.gemfire.pdx.PdxSerializable} would, instead of through
+ * a {@link PdxFieldWrapper} each.
+ * <p>
+ * The serializer is defined as an anonymous class of the serialized class,
+ * which lets it access the private fields of the class. The fields that it
+ * cannot access directly, because they are objects whose portability may
+ * need checking, are final, or are private fields of a superclass, are
+ * handed to their {@link PdxFieldWrapper}. The bytes written are the same
+ * as those written by the wrappers.
+ *
+ * @since 9.0
+ */
+class PdxSerializerGenerator {
+  private static final Logger logger = LogService.getLogger();
+
+  private static final String SERIALIZER = internalName(GeneratedPdxSerializer.class);
+  private static final String WRAPPER = internalName(PdxFieldWrapper.class);
+  private static final String WRITER = internalName(PdxWriterImpl.class);
+  private static final String READER = internalName(InternalPdxReader.class);
+
+  /**
+   * The wrapper of each field type, and the name of the PdxWriterImpl and
+   * InternalPdxReader methods that write and read it without a field name.
+   */
+  private static final Map<FieldType, Class<?>> wrapperClasses =
+      new EnumMap<FieldType, Class<?>>(FieldType.class);
+  private static final Map<FieldType, String> methodSuffixes =
+      new EnumMap<FieldType, String>(FieldType.class);
+  static {
+    add(FieldType.BOOLEAN, AutoSerializableManager.BooleanField.class, "Boolean");
+    add(FieldType.CHAR, AutoSerializableManager.CharField.class, "Char");
+    add(FieldType.BYTE, AutoSerializableManager.ByteField.class, "Byte");
+    add(FieldType.SHORT, AutoSerializableManager.ShortField.class, "Short");
+    add(FieldType.INT, AutoSerializableManager.IntField.class, "Int");
+    add(FieldType.LONG, AutoSerializableManager.LongField.class, "Long");
+    add(FieldType.FLOAT, AutoSerializableManager.FloatField.class, "Float");
+    add(FieldType.DOUBLE, AutoSerializableManager.DoubleField.class, "Double");
+    add(FieldType.STRING, AutoSerializableManager.StringField.class, "String");
+    add(FieldType.DATE, AutoSerializableManager.DateField.class, "Date");
+    add(FieldType.BOOLEAN_ARRAY, AutoSerializableManager.BooleanArrayField.class, "BooleanArray");
+    add(FieldType.CHAR_ARRAY, AutoSerializableManager.CharArrayField.class, "CharArray");
+    add(FieldType.BYTE_ARRAY, AutoSerializableManager.ByteArrayField.class, "ByteArray");
+    add(FieldType.SHORT_ARRAY, AutoSerializableManager.ShortArrayField.class, "ShortArray");
+    add(FieldType.INT_ARRAY, AutoSerializableManager.IntArrayField.class, "IntArray");
+    add(FieldType.LONG_ARRAY, AutoSerializableManager.LongArrayField.class, "LongArray");
+    add(FieldType.FLOAT_ARRAY, AutoSerializableManager.FloatArrayField.class, "FloatArray");
+    add(FieldType.DOUBLE_ARRAY, AutoSerializableManager.DoubleArrayField.class, "DoubleArray");
+    add(FieldType.STRING_ARRAY, AutoSerializableManager.StringArrayField.class, "StringArray");
+    add(FieldType.ARRAY_OF_BYTE_ARRAYS, AutoSerializableManager.ByteArrayArrayField.class, "ArrayOfByteArrays");
+  }
+
+  private static void add(FieldType ft, Class<?> wrapperClass, String suffix) {
+    wrapperClasses.put(ft, wrapperClass);
+    methodSuffixes.put(ft, suffix);
+  }
+
+  private PdxSerializerGenerator() {
+  }
+
+  /**
+   * Generates the serializer of a class.
+   *
+   * @param unsafe used to define the serializer class
+   * @param clazz the auto serialized class
+   * @param fields the fields of the class, in the order they are serialized
+   * @return the serializer, or null if one cannot be generated for the class
+   */
+  static GeneratedPdxSerializer generate(UnsafeWrapper unsafe, Class<?> clazz,
+      List<PdxFieldWrapper> fields) {
+    for (PdxFieldWrapper f : fields) {
+      if (f.transform()) {
+        // the transforms are done by the ReflectionBasedAutoSerializer
+        return null;
+      }
+    }
+    try {
+      // the generated class is resolved by the loader of the class
+      ClassLoader loader = clazz.getClassLoader();
+      if (loader == null
+          || Class.forName(GeneratedPdxSerializer.class.getName(), false, loader) != GeneratedPdxSerializer.class) {
+        return null;
+      }
+      byte[] bytes = new ClassWriter(clazz, fields).toByteArray();
+      Class<?> serializerClass = unsafe.defineAnonymousClass(clazz, bytes);
+      return (GeneratedPdxSerializer)serializerClass
+          .getConstructor(PdxFieldWrapper[].class)
+          .newInstance((Object)fields.toArray(new PdxFieldWrapper[fields.size()]));
+    } catch (Exception ex) {
+      logger.debug("Could not generate a pdx serializer for {}", clazz, ex);
+      return null;
+    } catch (LinkageError ex) {
+      logger.debug("Could not generate a pdx serializer for {}", clazz, ex);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the field type of a field that the generated code can access
+   * directly, or null if the field is handed to its wrapper.
+   */
+  private static FieldType getDirectFieldType(Class<?> clazz, PdxFieldWrapper f, boolean write) {
+    Field field = f.getField();
+    FieldType ft = FieldType.get(field.getType());
+    if (wrapperClasses.get(ft) != f.getClass()) {
+      return null;
+    }
+    if (field.getDeclaringClass() != clazz
+        && !(Modifier.isPublic(field.getModifiers())
+            && Modifier.isPublic(field.getDeclaringClass().getModifiers()))) {
+      return null;
+    }
+    if (!write && Modifier.isFinal(field.getModifiers())) {
+      return null;
+    }
+    return ft;
+  }
+
+  private static String internalName(Class<?> c) {
+    return c.getName().replace('.', '/');
+  }
+
+  private static String descriptor(Class<?> c) {
+    if (c.isArray()) {
+      return "[" + descriptor(c.getComponentType());
+    } else if (c == boolean.class) {
+      return "Z";
+    } else if (c == char.class) {
+      return "C";
+    } else if (c == byte.class) {
+      return "B";
+    } else if (c == short.class) {
+      return "S";
+    } else if (c == int.class) {
+      return "I";
+    } else if (c == long.class) {
+      return "J";
+    } else if (c == float.class) {
+      return "F";
+    } else if (c == double.class) {
+      return "D";
+    } else {
+      return "L" + internalName(c) + ";";
+    }
+  }
+
+  /**
+   * Writes the class file of a serializer. The class file version is 49, so
+   * that the methods, which have no branches, need no stack map frames.
+   */
+  private static class ClassWriter {
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ALOAD_3 = 0x2d;
+    private static final int ASTORE_3 = 0x4e;
+    private static final int ICONST_0 = 0x03;
+    private static final int ICONST_1 = 0x04;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int AALOAD = 0x32;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKEINTERFACE = 0xb9;
+    private static final int CHECKCAST = 0xc0;
+
+    private final Class<?> clazz;
+    private final List<PdxFieldWrapper> fields;
+
+    private final ByteArrayOutputStream constantBytes = new ByteArrayOutputStream();
+    private final DataOutputStream constants = new DataOutputStream(this.constantBytes);
+    private final Map<String, Integer> constantIndexes = new HashMap<String, Integer>();
+    private int constantCount = 1;
+
+    ClassWriter(Class<?> clazz, List<PdxFieldWrapper> fields) {
+      this.clazz = clazz;
+      this.fields = fields;
+    }
+
+    byte[] toByteArray() throws IOException {
+      String host = internalName(this.clazz);
+      int thisClass = classConstant(host + "$$PdxSerializer");
+      int superClass = classConstant(SERIALIZER);
+      byte[] init = initCode();
+      byte[] write = writeCode(host);
+      byte[] read = readCode(host);
+      int code = utf8Constant("Code");
+      int initName = utf8Constant("<init>");
+      int initDesc = utf8Constant("([L" + WRAPPER + ";)V");
+      int writeName = utf8Constant("doWrite");
+      int writeDesc = utf8Constant("(L" + WRITER + ";Ljava/lang/Object;)V");
+      int readName = utf8Constant("doRead");
+      int readDesc = utf8Constant("(L" + READER + ";Ljava/lang/Object;)V");
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(0xCAFEBABE);
+      out.writeShort(0); // minor version
+      out.writeShort(49); // major version
+      out.writeShort(this.constantCount);
+      this.constants.flush();
+      this.constantBytes.writeTo(out);
+      out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+      out.writeShort(thisClass);
+      out.writeShort(superClass);
+      out.writeShort(0); // interfaces
+      out.writeShort(0); // fields
+      out.writeShort(3); // methods
+      writeMethod(out, initName, initDesc, code, 2, 2, init);
+      writeMethod(out, writeName, writeDesc, code, 5, 4, write);
+      writeMethod(out, readName, readDesc, code, 5, 4, read);
+      out.writeShort(0); // attributes
+      out.flush();
+      return bytes.toByteArray();
+    }
+
+    private void writeMethod(DataOutputStream out, int name, int desc, int codeName,
+        int maxStack, int maxLocals, byte[] code) throws IOException {
+      out.writeShort(ACC_PUBLIC);
+      out.writeShort(name);
+      out.writeShort(desc);
+      out.writeShort(1); // attributes
+      out.writeShort(codeName);
+      out.writeInt(12 + code.length);
+      out.writeShort(maxStack);
+      out.writeShort(maxLocals);
+      out.writeInt(code.length);
+      out.write(code);
+      out.writeShort(0); // exception table
+      out.writeShort(0); // attributes
+    }
+
+    private byte[] initCode() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream code = new DataOutputStream(bytes);
+      code.writeByte(ALOAD_0);
+      code.writeByte(ALOAD_1);
+      code.writeByte(INVOKESPECIAL);
+      code.writeShort(methodConstant(SERIALIZER, "<init>", "([L" + WRAPPER + ";)V", false));
+      code.writeByte(RETURN);
+      return bytes.toByteArray();
+    }
+
+    /**
+     * doWrite(PdxWriterImpl writer, Object obj): each field is either
+     * writer.writeX(((C)obj).field) or fields[i].serialize(writer, obj, true)
+     */
+    private byte[] writeCode(String host) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream code = new DataOutputStream(bytes);
+      code.writeByte(ALOAD_2);
+      code.writeByte(CHECKCAST);
+      code.writeShort(classConstant(host));
+      code.writeByte(ASTORE_3);
+      for (int i = 0; i < this.fields.size(); i++) {
+        PdxFieldWrapper f = this.fields.get(i);
+        FieldType ft = getDirectFieldType(this.clazz, f, true);
+        if (ft != null) {
+          String desc = descriptor(f.getField().getType());
+          code.writeByte(ALOAD_1);
+          code.writeByte(ALOAD_3);
+          code.writeByte(GETFIELD);
+          code.writeShort(fieldConstant(host, f.getField().getName(), desc));
+          code.writeByte(INVOKEVIRTUAL);
+          code.writeShort(methodConstant(WRITER, "write" + methodSuffixes.get(ft),
+              "(" + desc + ")V", false));
+        } else {
+          loadWrapper(code, i);
+          code.writeByte(ALOAD_1);
+          code.writeByte(ALOAD_2);
+          code.writeByte(ICONST_1);
+          code.writeByte(INVOKEVIRTUAL);
+          code.writeShort(methodConstant(WRAPPER, "serialize",
+              "(L" + WRITER + ";Ljava/lang/Object;Z)V", false));
+        }
+      }
+      code.writeByte(RETURN);
+      return bytes.toByteArray();
+    }
+
+    /**
+     * doRead(InternalPdxReader reader, Object obj): each field is either
+     * ((C)obj).field = reader.readX() or fields[i].orderedDeserialize(reader, obj)
+     */
+    private byte[] readCode(String host) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream code = new DataOutputStream(bytes);
+      code.writeByte(ALOAD_2);
+      code.writeByte(CHECKCAST);
+      code.writeShort(classConstant(host));
+      code.writeByte(ASTORE_3);
+      for (int i = 0; i < this.fields.size(); i++) {
+        PdxFieldWrapper f = this.fields.get(i);
+        FieldType ft = getDirectFieldType(this.clazz, f, false);
+        if (ft != null) {
+          String desc = descriptor(f.getField().getType());
+          code.writeByte(ALOAD_3);
+          code.writeByte(ALOAD_1);
+          code.writeByte(INVOKEINTERFACE);
+          code.writeShort(methodConstant(READER, "read" + methodSuffixes.get(ft),
+              "()" + desc, true));
+          code.writeByte(1);
+          code.writeByte(0);
+          code.writeByte(PUTFIELD);
+          code.writeShort(fieldConstant(host, f.getField().getName(), desc));
+        } else {
+          loadWrapper(code, i);
+          code.writeByte(ALOAD_1);
+          code.writeByte(ALOAD_2);
+          code.writeByte(INVOKEVIRTUAL);
+          code.writeShort(methodConstant(WRAPPER, "orderedDeserialize",
+              "(L" + READER + ";Ljava/lang/Object;)V", false));
+        }
+      }
+      code.writeByte(RETURN);
+      return bytes.toByteArray();
+    }
+
+    /**
+     * Pushes this.fields[i].
+     */
+    private void loadWrapper(DataOutputStream code, int i) throws IOException {
+      code.writeByte(ALOAD_0);
+      code.writeByte(GETFIELD);
+      code.writeShort(fieldConstant(SERIALIZER, "fields", "[L" + WRAPPER + ";"));
+      if (i <= 5) {
+        code.writeByte(ICONST_0 + i);
+      } else if (i <= Byte.MAX_VALUE) {
+        code.writeByte(BIPUSH);
+        code.writeByte(i);
+      } else if (i <= Short.MAX_VALUE) {
+        code.writeByte(SIPUSH);
+        code.writeShort(i);
+      } else {
+        code.writeByte(LDC_W);
+        code.writeShort(intConstant(i));
+      }
+      code.writeByte(AALOAD);
+    }
+
+    //////////////////////  The constant pool  //////////////////////
+
+    private int utf8Constant(String s) throws IOException {
+      Integer index = this.constantIndexes.get("U" + s);
+      if (index == null) {
+        this.constants.writeByte(1);
+        this.constants.writeUTF(s);
+        index = addConstant("U" + s);
+      }
+      return index;
+    }
+
+    private int intConstant(int i) throws IOException {
+      Integer index = this.constantIndexes.get("I" + i);
+      if (index == null) {
+        this.constants.writeByte(3);
+        this.constants.writeInt(i);
+        index = addConstant("I" + i);
+      }
+      return index;
+    }
+
+    private int classConstant(String internalName) throws IOException {
+      Integer index = this.constantIndexes.get("C" + internalName);
+      if (index == null) {
+        int name = utf8Constant(internalName);
+        this.constants.writeByte(7);
+        this.constants.writeShort(name);
+        index = addConstant("C" + internalName);
+      }
+      return index;
+    }
+
+    private int nameAndTypeConstant(String name, String desc) throws IOException {
+      String key = "N" + name + " " + desc;
+      Integer index = this.constantIndexes.get(key);
+      if (index == null) {
+        int nameIndex = utf8Constant(name);
+        int descIndex = utf8Constant(desc);
+        this.constants.writeByte(12);
+        this.constants.writeShort(nameIndex);
+        this.constants.writeShort(descIndex);
+        index = addConstant(key);
+      }
+      return index;
+    }
+
+    private int fieldConstant(String owner, String name, String desc) throws IOException {
+      return memberConstant(9, owner, name, desc);
+    }
+
+    private int methodConstant(String owner, String name, String desc, boolean isInterface) throws IOException {
+      return memberConstant(isInterface ? 11 : 10, owner, name, desc);
+    }
+
+    private int memberConstant(int tag, String owner, String name, String desc) throws IOException {
+      String key = "M" + tag + owner + "." + name + " " + desc;
+      Integer index = this.constantIndexes.get(key);
+      if (index == null) {
+        int ownerIndex = classConstant(owner);
+        int nameAndType = nameAndTypeConstant(name, desc);
+        this.constants.writeByte(tag);
+        this.constants.writeShort(ownerIndex);
+        this.constants.writeShort(nameAndType);
+        index = addConstant(key);
+      }
+      return index;
+    }
+
+    private int addConstant(String key) {
+      int index = this.constantCount++;
+      this.constantIndexes.put(key, index);
+      return index;
+    }
+  }
+}
@@ -128,6 +128,33 @@ public class PdxString implements Comparable<PdxString>, Sendable {
     return len1 - len2;
   }
 
+  /**
+   * Compares this PdxString with a String. Single byte encoded strings are
+   * compared in place against the serialized bytes so that the field does not
+   * have to be decoded.
+   * 
+   * @return the same result as <code>toString().compareTo(s)</code>
+   * @since 9.0
+   */
+  public int compareTo(String s) {
+    if (header != DSCODE.STRING_BYTES && header != DSCODE.HUGE_STRING_BYTES) {
+      return this.toString().compareTo(s);
+    }
+    int len1 = this.getLength();
+    int len2 = s.length();
+    int n = Math.min(len1, len2);
+    int i = this.offset;
+    for (int k = 0; k < n; k++) {
+      // single byte encoded strings only contain chars in the 0x01-0x7F range
+      char c1 = (char) bytes[i++];
+      char c2 = s.charAt(k);
+      if (c1 != c2) {
+        return c1 - c2;
+      }
+    }
+    return len1 - len2;
+  }
+
   public int hashCode() {
     int h = 0;
     int len = this.getLength();
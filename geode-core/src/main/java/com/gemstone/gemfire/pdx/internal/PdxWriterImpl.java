@@ -78,6 +78,10 @@ public class PdxWriterImpl implements PdxWriter {
 
   private PdxType existingType;
   private PdxType newType;
+  /**
+   * True if the type is only known after all the fields have been written.
+   */
+  private final boolean typeDeferred;
   private int fieldId = -1;
   
   /**
@@ -98,6 +102,7 @@ public class PdxWriterImpl implements PdxWriter {
     this.os = out;
     this.headerOffset = this.os.size();
     this.aci = null;
+    this.typeDeferred = false;
   }
   
   PdxWriterImpl(PdxType pdxType, PdxOutputStream out) {
@@ -107,6 +112,7 @@ public class PdxWriterImpl implements PdxWriter {
     this.existingType = pdxType;
     this.headerOffset = this.os.size();
     this.aci = null;
+    this.typeDeferred = false;
   }
 
   PdxWriterImpl(PdxType pt, TypeRegistry tr, PdxOutputStream out) {
@@ -116,6 +122,7 @@ public class PdxWriterImpl implements PdxWriter {
     this.newType = pt; 
     this.headerOffset = this.os.size();
     this.aci = null;
+    this.typeDeferred = false;
   }
 
   public PdxWriterImpl(TypeRegistry tr, Object pdx, AutoClassInfo aci,
@@ -125,6 +132,23 @@ public class PdxWriterImpl implements PdxWriter {
     this.os = os;
     this.headerOffset = this.os.size();
     this.aci = aci;
+    this.typeDeferred = false;
+  }
+
+  /**
+   * Creates a writer whose pdx type is not known until all of its fields have
+   * been written. The type must be given to
+   * {@link #completeByteStreamGeneration(PdxType)}.
+   */
+  public PdxWriterImpl(PdxOutputStream out) {
+    this.tr = null;
+    this.pdx = null;
+    this.os = out;
+    this.headerOffset = this.os.size();
+    this.aci = null;
+    this.typeDeferred = true;
+    // the fields can not be validated without a type
+    this.doExtraValidation = false;
   }
 
   private boolean fieldsWritten() {
@@ -150,6 +174,10 @@ public class PdxWriterImpl implements PdxWriter {
       // PdxInstanceFactoryImpl is using us
       return;
     }
+    if (this.typeDeferred) {
+      // JSONToPdx is using us
+      return;
+    }
     PdxUnreadData ud = initUnreadData();
     if (ud == null && this.pdx != null) {
       if (this.aci != null) {
@@ -314,6 +342,15 @@ public class PdxWriterImpl implements PdxWriter {
     this.os.writeObject(object, onlyPortableObjects);
     return this;
   }
+  /**
+   * Starts an object field whose value the caller then writes directly to
+   * this writer's output stream, for example a nested pdx written by another
+   * PdxWriterImpl on the same stream.
+   */
+  public void startObjectField(String fieldName) {
+    markVariableField();
+    updateMetaData(fieldName, FieldType.OBJECT);
+  }
   public void writeObject(Object object, boolean onlyPortableObjects) {
     markVariableField();
     beforeFieldWrite();
@@ -505,6 +542,16 @@ public class PdxWriterImpl implements PdxWriter {
     return getCurrentOffset() + 1; // +1 for DSCODE.PDX
   }
 
+  /**
+   * Completes a writer created with {@link #PdxWriterImpl(PdxOutputStream)}
+   * using the given type, which must describe the fields that were written.
+   * @return total number of bytes serialized for this pdx
+   */
+  public int completeByteStreamGeneration(PdxType pdxType) {
+    this.existingType = pdxType;
+    return completeByteStreamGeneration();
+  }
+
   /**
    * Returns the pdx type that can be used by the auto serializer
    * to always serialize this class.
@@ -884,7 +931,7 @@ public class PdxWriterImpl implements PdxWriter {
     updateMetaData(ft.getFieldName(), ft.getFieldType(), ft.isIdentityField());
   }
   
-  PdxInstance makePdxInstance() {
+  public PdxInstance makePdxInstance() {
     ByteBuffer bb = this.os.toByteBuffer();
     bb.get(); // skip PDX DSCODE
     int len = bb.getInt();
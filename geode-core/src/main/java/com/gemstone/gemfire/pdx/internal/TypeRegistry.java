@@ -35,6 +35,7 @@ import com.gemstone.gemfire.internal.util.concurrent.CopyOnWriteWeakHashMap;
 import com.gemstone.gemfire.pdx.PdxSerializationException;
 import com.gemstone.gemfire.pdx.PdxSerializer;
 import com.gemstone.gemfire.pdx.ReflectionBasedAutoSerializer;
+import com.gemstone.gemfire.pdx.internal.json.JSONTypeCache;
 
 
 public class TypeRegistry {
@@ -51,6 +52,7 @@ public class TypeRegistry {
   private final Map<Integer, EnumInfo> idToEnum = new CopyOnWriteHashMap<Integer, EnumInfo>();
   private final Map<EnumInfo, Integer> enumInfoToId = new CopyOnWriteHashMap<EnumInfo, Integer>();
   private final Map<Enum<?>, Integer> localEnumIds = new CopyOnWriteWeakHashMap<Enum<?>, Integer>();
+  private final JSONTypeCache jsonTypes = new JSONTypeCache();
   private final TypeRegistration distributedTypeRegistry;
   private final GemFireCacheImpl cache;
   
@@ -76,6 +78,7 @@ public class TypeRegistry {
     this.idToType.clear();
     this.idToEnum.clear();
     this.enumInfoToId.clear();
+    this.jsonTypes.clear();
     distributedTypeRegistry.testClearRegistry();
   }
   public void testClearLocalTypeRegistry() {
@@ -447,6 +450,7 @@ public class TypeRegistry {
       idToEnum.clear();
       enumInfoToId.clear();
       localEnumIds.clear();
+      jsonTypes.clear();
       AutoSerializableManager autoSerializer = getAutoSerializableManager();
       if(autoSerializer != null) {
         autoSerializer.resetCachedTypes();
@@ -455,6 +459,13 @@ public class TypeRegistry {
     
   }
 
+  /**
+   * Returns the cache of the types of JSON documents.
+   */
+  public JSONTypeCache getJSONTypeCache() {
+    return this.jsonTypes;
+  }
+
   /**
    * Returns the currently defined types.
    * @return the types
@@ -16,10 +16,16 @@
  */
 package com.gemstone.gemfire.pdx.internal;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.BitSet;
 import java.util.Date;
 
+import com.gemstone.gemfire.Delta;
 import com.gemstone.gemfire.InternalGemFireException;
+import com.gemstone.gemfire.InvalidDeltaException;
 import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
 import com.gemstone.gemfire.pdx.PdxFieldDoesNotExistException;
 import com.gemstone.gemfire.pdx.PdxFieldTypeMismatchException;
@@ -30,12 +36,30 @@ public class WritablePdxInstanceImpl extends PdxInstanceImpl implements
   private static final long serialVersionUID = 7398999150097596214L;
   private static final Object NULL_TOKEN = new Object();
   private Object[] dirtyFields = null;
+  /**
+   * The fields changed since deltaBase. Null if no field has been changed
+   * since then or if this instance can not have a delta.
+   */
+  private transient BitSet deltaFields = null;
+  /**
+   * The unchanged pdx that deltaFields are relative to. It is only
+   * serialized and checksummed if a delta is actually written.
+   */
+  private transient PdxReaderImpl deltaBase = null;
 
   public WritablePdxInstanceImpl(PdxReaderImpl original) {
     super(original);
   }
 
   private synchronized void dirtyField(PdxField f, Object value) {
+    if (this.deltaFields == null && !PdxDelta.DISABLED && !getPdxType().getHasDeletedField()) {
+      // no writes are pending so this reader sees the unchanged pdx
+      this.deltaBase = getUnmodifiableReader();
+      this.deltaFields = new BitSet(getPdxType().getFieldCount());
+    }
+    if (this.deltaFields != null) {
+      this.deltaFields.set(f.getFieldIndex());
+    }
     if (this.dirtyFields == null) {
       this.dirtyFields = new Object[getPdxType().getFieldCount()];
     }
@@ -111,6 +135,64 @@ public class WritablePdxInstanceImpl extends PdxInstanceImpl implements
     return new PdxReaderImpl(this);
   }
 
+  /**
+   * Returns true if fields have been changed since this instance was created
+   * or since its last {@link #toDelta}.
+   */
+  public synchronized boolean hasDelta() {
+    return this.deltaFields != null;
+  }
+
+  /**
+   * Writes the fields changed since this instance was created or since its
+   * last toDelta as a {@link PdxDelta}. The changes after this call will be
+   * relative to the current value.
+   */
+  public synchronized void toDelta(DataOutput out) throws IOException {
+    PdxReaderImpl ur = getUnmodifiableReader();
+    PdxDelta.write(out, ur, this.deltaBase, this.deltaFields);
+    this.deltaBase = null;
+    this.deltaFields = null;
+  }
+
+  /**
+   * Applies a delta written by {@link #toDelta} to this instance. The
+   * delta must have been made from exactly the pdx this instance has now.
+   * @throws InvalidDeltaException if it was not
+   */
+  public synchronized void fromDelta(DataInput in) throws IOException {
+    byte[] newBytes = PdxDelta.apply(toBytes(), in);
+    ByteBuffer bb = ByteBuffer.wrap(newBytes);
+    bb.position(PdxWriterImpl.HEADER_SIZE);
+    basicSetBuffer(bb.slice());
+    this.deltaBase = null;
+    this.deltaFields = null;
+    clearCachedState();
+  }
+
+  /**
+   * Returns a {@link Delta} that distributes the changes made to this
+   * instance, or null if pdx deltas are disabled. This instance does not
+   * implement Delta itself because a value that does is not stored in
+   * serialized form.
+   */
+  public Delta getDelta() {
+    if (PdxDelta.DISABLED) {
+      return null;
+    }
+    return new Delta() {
+      public boolean hasDelta() {
+        return WritablePdxInstanceImpl.this.hasDelta();
+      }
+      public void toDelta(DataOutput out) throws IOException {
+        WritablePdxInstanceImpl.this.toDelta(out);
+      }
+      public void fromDelta(DataInput in) throws IOException, InvalidDeltaException {
+        WritablePdxInstanceImpl.this.fromDelta(in);
+      }
+    };
+  }
+
   public void setField(String fieldName, Object value) {
     PdxField f = getPdxType().getPdxField(fieldName);
     if (f == null) {
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.pdx.internal.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.gemstone.gemfire.pdx.FieldType;
+import com.gemstone.gemfire.pdx.PdxInstance;
+import com.gemstone.gemfire.pdx.internal.PdxOutputStream;
+import com.gemstone.gemfire.pdx.internal.PdxWriterImpl;
+import com.gemstone.gemfire.pdx.internal.TypeRegistry;
+
+/**
+ * Converts JSON documents into PdxInstances. The pdx bytes of a document
+ * are written as its tokens are parsed, with nested objects written in place
+ * into the bytes of the object containing them. The type of each object is
+ * found from the names and types of its fields using the registry's
+ * {@link JSONTypeCache}.
+ * <p>
+ * JSON objects are converted into PdxInstances and JSON arrays into Lists.
+ * The field types chosen for values are the same as the ones used by
+ * earlier versions of {@link com.gemstone.gemfire.pdx.JSONFormatter}.
+ *
+ * @since 9.0
+ */
+public class JSONToPdx {
+
+  private final TypeRegistry tr;
+
+  public JSONToPdx(TypeRegistry tr) {
+    this.tr = tr;
+  }
+
+  /**
+   * Reads the JSON object that starts at the next token of the parser.
+   */
+  public PdxInstance readDocument(JsonParser jp) throws IOException {
+    JsonToken t = jp.nextToken();
+    if (t != JsonToken.START_OBJECT) {
+      throw new IllegalStateException("Expected a JSON object but found " + t);
+    }
+    return readObject(jp);
+  }
+
+  /**
+   * Reads the JSON array of objects that starts at the next token of the
+   * parser, returning a PdxInstance for each of its objects.
+   */
+  public List<PdxInstance> readDocuments(JsonParser jp) throws IOException {
+    JsonToken t = jp.nextToken();
+    if (t != JsonToken.START_ARRAY) {
+      throw new IllegalStateException("Expected a JSON array but found " + t);
+    }
+    List<PdxInstance> result = new ArrayList<PdxInstance>();
+    while ((t = jp.nextToken()) != JsonToken.END_ARRAY) {
+      if (t != JsonToken.START_OBJECT) {
+        throw new IllegalStateException("Expected a JSON object but found " + t);
+      }
+      result.add(readObject(jp));
+    }
+    return result;
+  }
+
+  /**
+   * Reads an object whose START_OBJECT token has been read.
+   */
+  private PdxInstance readObject(JsonParser jp) throws IOException {
+    PdxOutputStream os = new PdxOutputStream();
+    return writeObject(jp, os).makePdxInstance();
+  }
+
+  /**
+   * Writes an object whose START_OBJECT token has been read to the given
+   * stream.
+   */
+  private PdxWriterImpl writeObject(JsonParser jp, PdxOutputStream os) throws IOException {
+    PdxWriterImpl writer = new PdxWriterImpl(os);
+    JSONTypeCache.Node shape = this.tr.getJSONTypeCache().getRoot();
+    JsonToken t;
+    while ((t = jp.nextToken()) != JsonToken.END_OBJECT) {
+      if (t != JsonToken.FIELD_NAME) {
+        throw new IllegalStateException("Expected a field name but found " + t);
+      }
+      String fieldName = jp.getCurrentName();
+      FieldType fieldType = writeField(jp, jp.nextToken(), fieldName, writer, os);
+      shape = shape.getChild(fieldName, fieldType);
+    }
+    writer.completeByteStreamGeneration(shape.getPdxType(this.tr, writer));
+    return writer;
+  }
+
+  private FieldType writeField(JsonParser jp, JsonToken t, String fieldName,
+      PdxWriterImpl writer, PdxOutputStream os) throws IOException {
+    if (t == null) {
+      throw new IllegalStateException("Unexpected end of the JSON document");
+    }
+    switch (t) {
+    case START_OBJECT:
+      writer.startObjectField(fieldName);
+      writeObject(jp, os);
+      return FieldType.OBJECT;
+    case START_ARRAY:
+      writer.writeObject(fieldName, readList(jp));
+      return FieldType.OBJECT;
+    case VALUE_STRING:
+      writer.writeString(fieldName, jp.getText());
+      return FieldType.STRING;
+    case VALUE_TRUE:
+    case VALUE_FALSE:
+      writer.writeBoolean(fieldName, t == JsonToken.VALUE_TRUE);
+      return FieldType.BOOLEAN;
+    case VALUE_NULL:
+      writer.writeObject(fieldName, null);
+      return FieldType.OBJECT;
+    case VALUE_NUMBER_INT:
+    case VALUE_NUMBER_FLOAT:
+      return writeNumberField(jp, fieldName, writer);
+    default:
+      throw new IllegalStateException("Token not handled " + t);
+    }
+  }
+
+  private FieldType writeNumberField(JsonParser jp, String fieldName, PdxWriterImpl writer) throws IOException {
+    JsonParser.NumberType nt = jp.getNumberType();
+    switch (nt) {
+    case BIG_DECIMAL:
+      writer.writeObject(fieldName, jp.getDecimalValue());
+      return FieldType.OBJECT;
+    case BIG_INTEGER:
+      writer.writeObject(fieldName, jp.getBigIntegerValue());
+      return FieldType.OBJECT;
+    case DOUBLE:
+      writer.writeDouble(fieldName, jp.getDoubleValue());
+      return FieldType.DOUBLE;
+    case FLOAT:
+      writer.writeFloat(fieldName, jp.getFloatValue());
+      return FieldType.FLOAT;
+    case INT: {
+      int val = jp.getIntValue();
+      if (val > Short.MAX_VALUE || val < Short.MIN_VALUE) {
+        writer.writeInt(fieldName, val);
+        return FieldType.INT;
+      } else if (val > Byte.MAX_VALUE || val < Byte.MIN_VALUE) {
+        writer.writeShort(fieldName, (short)val);
+        return FieldType.SHORT;
+      } else {
+        writer.writeByte(fieldName, (byte)val);
+        return FieldType.BYTE;
+      }
+    }
+    case LONG:
+      writer.writeLong(fieldName, jp.getLongValue());
+      return FieldType.LONG;
+    default:
+      throw new IllegalStateException("Unknown number type " + nt);
+    }
+  }
+
+  /**
+   * Reads an array whose START_ARRAY token has been read.
+   */
+  private List<Object> readList(JsonParser jp) throws IOException {
+    List<Object> result = new LinkedList<Object>();
+    JsonToken t;
+    while ((t = jp.nextToken()) != JsonToken.END_ARRAY) {
+      if (t == null) {
+        throw new IllegalStateException("Unexpected end of the JSON document");
+      }
+      switch (t) {
+      case START_OBJECT:
+        result.add(readObject(jp));
+        break;
+      case START_ARRAY:
+        result.add(readList(jp));
+        break;
+      case VALUE_STRING:
+        result.add(jp.getText());
+        break;
+      case VALUE_TRUE:
+      case VALUE_FALSE:
+        result.add(t == JsonToken.VALUE_TRUE);
+        break;
+      case VALUE_NULL:
+        result.add(null);
+        break;
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        result.add(readNumber(jp));
+        break;
+      default:
+        throw new IllegalStateException("Token not handled in list " + t);
+      }
+    }
+    return result;
+  }
+
+  private Object readNumber(JsonParser jp) throws IOException {
+    JsonParser.NumberType nt = jp.getNumberType();
+    switch (nt) {
+    case BIG_DECIMAL:
+      return jp.getDecimalValue();
+    case BIG_INTEGER:
+      return jp.getBigIntegerValue();
+    case DOUBLE:
+      return jp.getDoubleValue();
+    case FLOAT:
+      return jp.getFloatValue();
+    case INT: {
+      int val = jp.getIntValue();
+      if (val > Short.MAX_VALUE || val < Short.MIN_VALUE) {
+        return val;
+      } else if (val > Byte.MAX_VALUE || val < Byte.MIN_VALUE) {
+        return (short)val;
+      } else {
+        return (byte)val;
+      }
+    }
+    case LONG:
+      return jp.getLongValue();
+    default:
+      throw new IllegalStateException("Unknown number type " + nt);
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.pdx.internal.json;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.gemstone.gemfire.pdx.FieldType;
+import com.gemstone.gemfire.pdx.JSONFormatter;
+import com.gemstone.gemfire.pdx.internal.PdxField;
+import com.gemstone.gemfire.pdx.internal.PdxType;
+import com.gemstone.gemfire.pdx.internal.PdxWriterImpl;
+import com.gemstone.gemfire.pdx.internal.TypeRegistry;
+
+/**
+ * Caches the pdx types of JSON documents by their shape: the names and
+ * types of their fields in document order. The shapes form a tree whose
+ * nodes are found with one hash lookup per field, so a document whose shape
+ * has been seen before gets its type without building a PdxType or doing a
+ * lookup of the whole type in the {@link TypeRegistry}.
+ *
+ * @since 9.0
+ */
+public class JSONTypeCache {
+
+  private volatile Node root = new Node(null, null, null);
+
+  /**
+   * Returns the shape of a document with no fields.
+   */
+  public Node getRoot() {
+    return this.root;
+  }
+
+  /**
+   * Forgets all the cached types. Called when the types in the registry
+   * are cleared.
+   */
+  public void clear() {
+    this.root = new Node(null, null, null);
+  }
+
+  /**
+   * The shape of the fields written so far.
+   */
+  public static class Node {
+    private final Node parent;
+    private final String fieldName;
+    private final FieldType fieldType;
+    /**
+     * The children of this node, indexed by field type ordinal.
+     */
+    private final AtomicReferenceArray<ConcurrentHashMap<String, Node>> children =
+        new AtomicReferenceArray<ConcurrentHashMap<String, Node>>(FieldType.values().length);
+    private volatile PdxType pdxType;
+
+    private Node(Node parent, String fieldName, FieldType fieldType) {
+      this.parent = parent;
+      this.fieldName = fieldName;
+      this.fieldType = fieldType;
+    }
+
+    /**
+     * Returns the shape of this shape followed by the given field.
+     */
+    public Node getChild(String fieldName, FieldType fieldType) {
+      int idx = fieldType.ordinal();
+      ConcurrentHashMap<String, Node> map = this.children.get(idx);
+      if (map == null) {
+        this.children.compareAndSet(idx, null, new ConcurrentHashMap<String, Node>());
+        map = this.children.get(idx);
+      }
+      Node result = map.get(fieldName);
+      if (result == null) {
+        Node newNode = new Node(this, fieldName, fieldType);
+        result = map.putIfAbsent(fieldName, newNode);
+        if (result == null) {
+          result = newNode;
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Returns the type of a document with this shape, defining it in the
+     * given registry the first time. The writer must have written the
+     * document's fields.
+     */
+    public PdxType getPdxType(TypeRegistry tr, PdxWriterImpl writer) {
+      PdxType result = this.pdxType;
+      if (result == null) {
+        result = createPdxType(writer);
+        tr.defineType(result);
+        this.pdxType = result;
+      }
+      return result;
+    }
+
+    private PdxType createPdxType(PdxWriterImpl writer) {
+      int fieldCount = 0;
+      for (Node n = this; n.parent != null; n = n.parent) {
+        fieldCount++;
+      }
+      Node[] fields = new Node[fieldCount];
+      int idx = fieldCount;
+      for (Node n = this; n.parent != null; n = n.parent) {
+        fields[--idx] = n;
+      }
+      PdxType result = new PdxType(JSONFormatter.JSON_CLASSNAME, false);
+      // assign variable length ids the same way PdxWriterImpl does
+      int vlfCount = 0;
+      boolean hasSeenFirstVlf = false;
+      for (int i = 0; i < fieldCount; i++) {
+        Node n = fields[i];
+        if (!n.fieldType.isFixedWidth()) {
+          if (!hasSeenFirstVlf) {
+            hasSeenFirstVlf = true;
+          } else {
+            vlfCount++;
+          }
+        }
+        result.addField(new PdxField(n.fieldName, i, vlfCount, n.fieldType, false));
+      }
+      result.initialize(writer);
+      return result;
+    }
+  }
+}
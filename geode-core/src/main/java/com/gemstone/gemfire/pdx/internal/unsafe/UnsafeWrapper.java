@@ -184,4 +184,12 @@ public class UnsafeWrapper {
   public void setMemory(long addr, long size, byte v) {
     this.unsafe.setMemory(addr, size, v);
   }
+
+  /**
+   * Defines a class that is not known to any class loader, and that can
+   * access the private members of the host class.
+   */
+  public Class<?> defineAnonymousClass(Class<?> hostClass, byte[] data) {
+    return this.unsafe.defineAnonymousClass(hostClass, data, null);
+  }
 }
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.EntryDestroyedException;
+import com.gemstone.gemfire.cache.query.NameNotFoundException;
+import com.gemstone.gemfire.cache.query.QueryInvocationTargetException;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.internal.cache.Token;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class AttributeDescriptorJUnitTest {
+
+  public static class Position {
+    public String secId = "IBM";
+    public static String exchange = "NYSE";
+
+    public int getQty() {
+      return 100;
+    }
+
+    public long shares() {
+      return 7;
+    }
+
+    public Object getFailure() throws Exception {
+      throw new Exception("failure");
+    }
+
+    public Object getAssertion() {
+      throw new AssertionError("assertion");
+    }
+
+    public Object getDestroyed() {
+      throw new EntryDestroyedException();
+    }
+
+    public static String getMarket() {
+      return "equities";
+    }
+
+    public String concat(String a, Object b) {
+      return a + b;
+    }
+
+    public long add(long a, int b) {
+      return a + b;
+    }
+  }
+
+  /** A subclass that is not public, read through the public members */
+  static class PrivatePosition extends Position {
+  }
+
+  private static Object read(String attribute, Object target) throws Exception {
+    return new AttributeDescriptor(attribute).read(target);
+  }
+
+  @Test
+  public void testReadsFieldsAndMethods() throws Exception {
+    Position position = new Position();
+    assertEquals("IBM", read("secId", position));
+    assertEquals(Integer.valueOf(100), read("qty", position));
+    assertEquals(Long.valueOf(7), read("shares", position));
+    assertEquals("NYSE", read("exchange", position));
+    assertEquals("equities", read("market", position));
+    assertEquals(Integer.valueOf(100), read("qty", new PrivatePosition()));
+  }
+
+  @Test
+  public void testDescriptorIsReusedAcrossClasses() throws Exception {
+    AttributeDescriptor descriptor = new AttributeDescriptor("secId");
+    assertEquals("IBM", descriptor.read(new Position()));
+    assertEquals("IBM", descriptor.read(new PrivatePosition()));
+    try {
+      descriptor.read("not a position");
+      fail("expected NameNotFoundException");
+    } catch (NameNotFoundException expected) {
+    }
+    assertEquals("IBM", descriptor.read(new Position()));
+  }
+
+  @Test
+  public void testUndefinedTargetsAndValues() throws Exception {
+    assertSame(QueryService.UNDEFINED, read("secId", null));
+    assertSame(QueryService.UNDEFINED, read("secId", QueryService.UNDEFINED));
+    assertSame(QueryService.UNDEFINED, read("secId", Token.DESTROYED));
+    assertSame(QueryService.UNDEFINED, read("destroyed", new Position()));
+  }
+
+  @Test
+  public void testExceptionsAreWrapped() throws Exception {
+    try {
+      read("failure", new Position());
+      fail("expected QueryInvocationTargetException");
+    } catch (QueryInvocationTargetException expected) {
+      assertEquals("failure", expected.getCause().getMessage());
+    }
+    try {
+      read("assertion", new Position());
+      fail("expected QueryInvocationTargetException");
+    } catch (QueryInvocationTargetException expected) {
+      assertTrue(expected.getCause() instanceof AssertionError);
+    }
+  }
+
+  @Test
+  public void testMethodDispatch() throws Exception {
+    MethodDispatch concat = new MethodDispatch(Position.class, "concat",
+        Arrays.asList(new Class[] { String.class, Integer.class }));
+    assertEquals("a1", concat.invoke(new Position(), Arrays.asList(new Object[] { "a", 1 })));
+    MethodDispatch add = new MethodDispatch(Position.class, "add",
+        Arrays.asList(new Class[] { Long.class, Integer.class }));
+    assertEquals(Long.valueOf(3), add.invoke(new Position(), Arrays.asList(new Object[] { 1L, 2 })));
+    MethodDispatch failure = new MethodDispatch(Position.class, "getFailure",
+        Collections.emptyList());
+    try {
+      failure.invoke(new Position(), Collections.emptyList());
+      fail("expected QueryInvocationTargetException");
+    } catch (QueryInvocationTargetException expected) {
+      assertEquals("failure", expected.getCause().getMessage());
+    }
+    MethodDispatch assertion = new MethodDispatch(Position.class, "getAssertion",
+        Collections.emptyList());
+    try {
+      assertion.invoke(new Position(), Collections.emptyList());
+      fail("expected QueryInvocationTargetException");
+    } catch (QueryInvocationTargetException expected) {
+      assertTrue(expected.getCause() instanceof AssertionError);
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.cache.query.CacheUtils;
+import com.gemstone.gemfire.cache.query.Index;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.cache.query.data.Portfolio;
+import com.gemstone.gemfire.internal.cache.CachePerfStats;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+@Category(IntegrationTest.class)
+public class CompiledQueryCacheJUnitTest {
+
+  private static final String QUERY = "SELECT * FROM /portfolios p WHERE p.ID > $1";
+
+  private QueryService queryService;
+
+  private CachePerfStats stats;
+
+  @Before
+  public void setUp() throws Exception {
+    CacheUtils.startCache();
+    Region region = CacheUtils.createRegion("portfolios", Portfolio.class);
+    for (int i = 0; i < 100; i++) {
+      region.put(i, new Portfolio(i));
+    }
+    this.queryService = CacheUtils.getQueryService();
+    this.stats = ((GemFireCacheImpl)CacheUtils.getCache()).getCachePerfStats();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    CacheUtils.closeCache();
+  }
+
+  private CompiledValue compile(String queryString) {
+    return ((DefaultQuery)this.queryService.newQuery(queryString)).getSimpleSelect();
+  }
+
+  @Test
+  public void testNewQueriesShareTheCompiledQuery() throws Exception {
+    long misses = this.stats.getCompiledQueryCacheMisses();
+    long hits = this.stats.getCompiledQueryCacheHits();
+    CompiledValue compiled = compile(QUERY);
+    assertSame(compiled, compile(QUERY));
+    assertNotSame(compiled, compile(QUERY + " ORDER BY p.ID"));
+    assertEquals(misses + 2, this.stats.getCompiledQueryCacheMisses());
+    assertEquals(hits + 1, this.stats.getCompiledQueryCacheHits());
+
+    assertEquals(89, ((SelectResults)this.queryService.newQuery(QUERY)
+        .execute(new Object[] { 10 })).size());
+    assertEquals(49, ((SelectResults)this.queryService.newQuery(QUERY)
+        .execute(new Object[] { 50 })).size());
+  }
+
+  @Test
+  public void testIndexChangesInvalidateCompiledQueries() throws Exception {
+    CompiledValue compiled = compile(QUERY);
+    Index index = this.queryService.createIndex("IDIndex", "p.ID", "/portfolios p");
+    CompiledValue recompiled = compile(QUERY);
+    assertNotSame(compiled, recompiled);
+    assertSame(recompiled, compile(QUERY));
+
+    this.queryService.removeIndex(index);
+    assertNotSame(recompiled, compile(QUERY));
+  }
+
+  @Test
+  public void testCacheIsBounded() {
+    CompiledQueryCache queryCache = new CompiledQueryCache(2, mock(CachePerfStats.class));
+    CompiledValue compiled = mock(CompiledValue.class);
+    queryCache.put("a", compiled, false, queryCache.getIndexVersion());
+    queryCache.put("b", compiled, false, queryCache.getIndexVersion());
+    assertNotNull(queryCache.get("a"));
+    queryCache.put("c", compiled, false, queryCache.getIndexVersion());
+    assertEquals(2, queryCache.size());
+    assertNotNull(queryCache.get("a"));
+    assertNull(queryCache.get("b"));
+
+    // a query compiled before an index change is not cached
+    long version = queryCache.getIndexVersion();
+    queryCache.indexesChanged("/r");
+    queryCache.put("d", compiled, false, version);
+    assertNull(queryCache.get("d"));
+    assertEquals(2, queryCache.size());
+  }
+
+  @Test
+  public void testIndexChangesOnlyInvalidateQueriesOnTheRegion() throws Exception {
+    CacheUtils.createRegion("other", Portfolio.class);
+    String otherQuery = "SELECT * FROM /other o WHERE o.ID > $1";
+    String joinQuery = "SELECT * FROM /other o, /portfolios p WHERE o.ID = p.ID";
+    String bindQuery = "SELECT * FROM $2 o WHERE o.ID > $1";
+    CompiledValue compiled = compile(QUERY);
+    CompiledValue other = compile(otherQuery);
+    CompiledValue join = compile(joinQuery);
+    CompiledValue bind = compile(bindQuery);
+    assertSame(bind, compile(bindQuery));
+
+    this.queryService.createIndex("IDIndex", "p.ID", "/portfolios p");
+    assertNotSame(compiled, compile(QUERY));
+    assertSame(other, compile(otherQuery));
+    assertNotSame(join, compile(joinQuery));
+    assertNotSame(bind, compile(bindQuery));
+  }
+
+  @Test
+  public void testPartitionedRegionIndexChangesInvalidateCompiledQueries() throws Exception {
+    CacheUtils.getCache().createRegionFactory(RegionShortcut.PARTITION).create("pr")
+        .put(1, new Portfolio(1));
+    String prQuery = "SELECT * FROM /pr p WHERE p.ID > $1";
+    CompiledValue compiled = compile(QUERY);
+    CompiledValue pr = compile(prQuery);
+    this.queryService.createIndex("prIndex", "p.ID", "/pr p");
+    assertNotSame(pr, compile(prQuery));
+    assertSame(compiled, compile(QUERY));
+  }
+
+  @Test
+  public void testConcurrentCountQueries() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> counts = new ArrayList<Future<Integer>>();
+      for (int i = 0; i < 40; i++) {
+        final int id = i;
+        counts.add(executor.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws Exception {
+            SelectResults results = (SelectResults)queryService.newQuery(
+                "SELECT COUNT(*) FROM /portfolios p WHERE p.ID >= $1").execute(new Object[] { id });
+            return (Integer)results.asList().get(0);
+          }
+        }));
+      }
+      for (int i = 0; i < counts.size(); i++) {
+        assertEquals(Integer.valueOf(100 - i), counts.get(i).get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
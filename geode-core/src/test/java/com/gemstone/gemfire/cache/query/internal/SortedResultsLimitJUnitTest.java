@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+/**
+ * Tests the sorted results of order by queries that are bounded by a limit.
+ */
+@Category(UnitTest.class)
+public class SortedResultsLimitJUnitTest {
+
+  private static final Comparator<Integer> ASCENDING = new Comparator<Integer>() {
+    @Override
+    public int compare(Integer o1, Integer o2) {
+      return o1.compareTo(o2);
+    }
+  };
+
+  private static final Comparator<Object[]> FIRST_FIELD = new Comparator<Object[]>() {
+    @Override
+    public int compare(Object[] o1, Object[] o2) {
+      return ((Integer)o1[0]).compareTo((Integer)o2[0]);
+    }
+  };
+
+  @Test
+  public void testBagKeepsTheFirstElements() {
+    SortedResultsBag<Integer> bag = new SortedResultsBag<Integer>(ASCENDING, true);
+    bag.setMaxSize(4);
+    for (int i : new int[] { 9, 3, 7, 1, 3, 8, 0, 3, 5 }) {
+      bag.add(i);
+    }
+    assertEquals(4, bag.size());
+    assertEquals(Arrays.asList(0, 1, 3, 3), bag.asList());
+    assertEquals(2, bag.occurrences(3));
+  }
+
+  @Test
+  public void testBagEvictsNullsInSortOrder() {
+    SortedResultsBag<Integer> nullsFirst = new SortedResultsBag<Integer>(ASCENDING, true);
+    SortedResultsBag<Integer> nullsLast = new SortedResultsBag<Integer>(ASCENDING, false);
+    nullsFirst.setMaxSize(2);
+    nullsLast.setMaxSize(2);
+    for (Integer i : new Integer[] { 4, null, 2, null, 3 }) {
+      nullsFirst.add(i);
+      nullsLast.add(i);
+    }
+    assertEquals(Arrays.asList(null, null), nullsFirst.asList());
+    assertEquals(Arrays.asList(2, 3), nullsLast.asList());
+  }
+
+  @Test
+  public void testStructBagAndSets() {
+    SortedStructBag bag = new SortedStructBag(FIRST_FIELD, true);
+    bag.setMaxSize(2);
+    for (int i = 10; i > 0; i--) {
+      bag.addAndGetOccurence(new Object[] { i, "v" + i });
+    }
+    assertEquals(2, bag.size());
+    assertEquals(1, ((Object[])bag.fieldValuesIterator().next())[0]);
+
+    SortedResultSet set = new SortedResultSet(ASCENDING);
+    set.setMaxSize(3);
+    for (int i : new int[] { 5, 1, 5, 4, 2, 1, 6 }) {
+      set.add(i);
+    }
+    assertEquals(Arrays.asList(1, 2, 4), set.asList());
+  }
+}
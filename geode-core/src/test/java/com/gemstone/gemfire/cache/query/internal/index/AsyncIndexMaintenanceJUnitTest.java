@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionFactory;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.cache.query.data.Portfolio;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+@Category(IntegrationTest.class)
+public class AsyncIndexMaintenanceJUnitTest {
+
+  private Cache cache;
+
+  private Region region;
+
+  @Before
+  public void setUp() throws Exception {
+    System.setProperty("gemfire.AsynchIndexMaintenanceThreads", "4");
+    System.setProperty("gemfire.AsynchIndexMaintenanceThreshold", "20");
+    this.cache = new CacheFactory().set("mcast-port", "0").create();
+    RegionFactory rf = this.cache.createRegionFactory(RegionShortcut.REPLICATE);
+    rf.setIndexMaintenanceSynchronous(false);
+    this.region = rf.create("portfolios");
+    this.cache.getQueryService().createIndex("idIndex", "p.ID", "/portfolios p");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    IndexManager.testHook = null;
+    System.clearProperty("gemfire.AsynchIndexMaintenanceThreads");
+    System.clearProperty("gemfire.AsynchIndexMaintenanceThreshold");
+    this.cache.close();
+  }
+
+  private IndexManager getIndexManager() {
+    return ((LocalRegion)this.region).getIndexManager();
+  }
+
+  private int count(String where) throws Exception {
+    QueryService qs = this.cache.getQueryService();
+    return ((SelectResults)qs.newQuery("select * from /portfolios p where " + where)
+        .execute()).size();
+  }
+
+  @Test
+  public void testConcurrentWritersWithBoundedBacklog() throws Exception {
+    Thread[] writers = new Thread[4];
+    for (int t = 0; t < writers.length; t++) {
+      final int offset = t * 250;
+      writers[t] = new Thread() {
+        public void run() {
+          for (int round = 0; round < 5; round++) {
+            for (int i = offset; i < offset + 250; i++) {
+              Portfolio p = new Portfolio(i);
+              p.ID = i + round * 1000;
+              region.put(i, p);
+            }
+          }
+          for (int i = offset; i < offset + 50; i++) {
+            region.destroy(i);
+          }
+        }
+      };
+      writers[t].start();
+    }
+    for (Thread writer : writers) {
+      writer.join(60000);
+      assertFalse(writer.isAlive());
+    }
+    assertTrue(getIndexManager().waitForAsyncIndexUpdates(60000));
+
+    assertEquals(800, this.region.size());
+    assertEquals(800, count("p.ID >= 4000"));
+    assertEquals(0, count("p.ID < 4000"));
+    assertEquals(1, count("p.ID = 4999"));
+  }
+
+  @Test
+  public void testPendingUpdatesOfAnEntryAreMerged() throws Exception {
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    IndexManager.testHook = new IndexManager.TestHook() {
+      public void hook(int spot) {
+        if (spot == 5 && blocked.getCount() > 0) {
+          blocked.countDown();
+          try {
+            release.await(60, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    };
+    IndexManager indexManager = getIndexManager();
+    this.region.put("key", new Portfolio(1));
+    assertTrue(blocked.await(60, TimeUnit.SECONDS));
+    for (int i = 2; i <= 10; i++) {
+      this.region.put("key", new Portfolio(i));
+    }
+    // the first put is being applied, the others are merged into one update
+    assertEquals(2, indexManager.getNumQueuedAsyncUpdates());
+    assertFalse(indexManager.waitForAsyncIndexUpdates(10));
+
+    release.countDown();
+    assertTrue(indexManager.waitForAsyncIndexUpdates(60000));
+    assertEquals(1, count("p.ID = 10"));
+    assertEquals(0, count("p.ID < 10"));
+  }
+}
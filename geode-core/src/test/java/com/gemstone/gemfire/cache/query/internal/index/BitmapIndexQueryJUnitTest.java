@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import static org.junit.Assert.*;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.cache.query.Index;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+@Category(IntegrationTest.class)
+public class BitmapIndexQueryJUnitTest {
+
+  public static class Order implements Serializable {
+    static final AtomicInteger reads = new AtomicInteger();
+
+    private final int id;
+    private final String status;
+    private final String area;
+
+    public Order(int id) {
+      this.id = id;
+      this.status = id / 10 % 2 == 0 ? "open" : "closed";
+      this.area = "area" + id % 10;
+    }
+
+    public int getId() {
+      return this.id;
+    }
+
+    public String getStatus() {
+      reads.incrementAndGet();
+      return this.status;
+    }
+
+    public String getArea() {
+      reads.incrementAndGet();
+      return this.area;
+    }
+  }
+
+  private Cache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    System.setProperty(IndexManager.BITMAP_INDEXES_PROP, "statusIndex, areaIndex");
+    this.cache = new CacheFactory().set("mcast-port", "0").create();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    System.clearProperty(IndexManager.BITMAP_INDEXES_PROP);
+    this.cache.close();
+  }
+
+  private Region createRegion(RegionShortcut shortcut) throws Exception {
+    Region region = this.cache.createRegionFactory(shortcut).create("orders");
+    for (int i = 0; i < 1000; i++) {
+      region.put(i, new Order(i));
+    }
+    QueryService qs = this.cache.getQueryService();
+    qs.createIndex("statusIndex", "o.status", "/orders o");
+    qs.createIndex("areaIndex", "o.area", "/orders o");
+    return region;
+  }
+
+  private int count(String where) throws Exception {
+    QueryService qs = this.cache.getQueryService();
+    return ((SelectResults)qs.newQuery("select * from /orders o where " + where)
+        .execute()).size();
+  }
+
+  @Test
+  public void testAndOnlyReadsTheEntriesOfAllConditions() throws Exception {
+    createRegion(RegionShortcut.REPLICATE);
+    Index index = this.cache.getQueryService().getIndex(this.cache.getRegion("orders"), "statusIndex");
+    assertTrue(((CompactRangeIndex)index).getIndexStorage() instanceof BitmapIndexStore);
+    assertTrue(((CompactRangeIndex)index).getStatistics() instanceof CompactRangeIndex.RangeIndexStatistics);
+    assertTrue(((CompactRangeIndex.RangeIndexStatistics)((CompactRangeIndex)index)
+        .getStatistics()).getBitmapBytes() > 0);
+
+    Order.reads.set(0);
+    assertEquals(50, count("o.status = 'open' AND o.area = 'area2'"));
+    // the condition that is not the filter is only evaluated on the entries
+    // in both bitmaps, instead of the 100 or 500 entries of the filter
+    assertTrue("read " + Order.reads.get() + " values", Order.reads.get() < 100);
+
+    assertEquals(50, count("o.status = 'closed' AND o.area = 'area2'"));
+    assertEquals(150, count("o.status = 'open' AND o.area IN SET('area0', 'area4', 'area6')"));
+    assertEquals(100, count("o.status = 'open' AND o.area IN SET('area2', 'area4') AND o.id >= 0"));
+    assertEquals(150, count("o.status = 'open' AND o.area = 'area2' OR o.area = 'area5'"));
+  }
+
+  @Test
+  public void testUpdatesAndDestroysAreReflected() throws Exception {
+    Region region = createRegion(RegionShortcut.REPLICATE);
+    for (int i = 0; i < 100; i++) {
+      region.put(i, new Order(i + 1));
+    }
+    for (int i = 100; i < 200; i++) {
+      region.destroy(i);
+    }
+    // 0..99 now hold the orders 1..100, and 100..199 are gone
+    assertEquals(45, count("o.status = 'open' AND o.area = 'area2'"));
+    this.cache.getQueryService().removeIndex(
+        this.cache.getQueryService().getIndex(region, "areaIndex"));
+    assertEquals(45, count("o.status = 'open' AND o.area = 'area2'"));
+    assertEquals(900,
+        ((LocalRegion)region).getIndexManager().getEntryOrdinals().size());
+  }
+
+  @Test
+  public void testPartitionedRegion() throws Exception {
+    createRegion(RegionShortcut.PARTITION);
+    assertEquals(50, count("o.status = 'open' AND o.area = 'area2'"));
+    assertEquals(150, count("o.status = 'open' AND o.area IN SET('area0', 'area4', 'area6')"));
+    assertEquals(50, count("o.status = 'closed' AND o.area = 'area2'"));
+  }
+}
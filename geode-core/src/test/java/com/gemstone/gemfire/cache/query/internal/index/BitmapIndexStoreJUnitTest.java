@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.internal.index.AbstractIndex.InternalIndexStatistics;
+import com.gemstone.gemfire.cache.query.internal.index.IndexStore.IndexStoreEntry;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.cache.RegionEntry;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class BitmapIndexStoreJUnitTest {
+
+  Region region;
+  GemFireCacheImpl cache;
+  InternalIndexStatistics mockStats;
+  EntryOrdinals ordinals;
+  BitmapIndexStore store;
+  GemFireCacheImpl actualInstance;
+
+  @Before
+  public void setup() {
+    region = mock(LocalRegion.class);
+    cache = mock(GemFireCacheImpl.class);
+    actualInstance = GemFireCacheImpl.setInstanceForTests(cache);
+    mockStats = mock(AbstractIndex.InternalIndexStatistics.class);
+    ordinals = new EntryOrdinals();
+
+    store = new BitmapIndexStore(region, mockStats, ordinals);
+    store.setIndexOnValues(true);
+  }
+
+  @After
+  public void teardown() {
+    GemFireCacheImpl.setInstanceForTests(actualInstance);
+  }
+
+  @Test
+  public void testKeysMapToTheirEntries() throws Exception {
+    String[] statuses = { "open", "closed", "pending" };
+    for (int i = 0; i < 300; i++) {
+      store.addMapping(statuses[i % 3], createRegionEntry(i, statuses[i % 3]));
+    }
+    assertEquals(3, store.size());
+    assertEquals(100, store.size("open"));
+    assertEquals(100, keys(store.get("closed")).size());
+    assertEquals(0, keys(store.get("unknown")).size());
+    assertEquals(300, ordinals.size());
+
+    List<Object> keys = keys(store.iterator(null));
+    assertEquals(300, keys.size());
+    assertEquals("closed", keys.get(0));
+    assertEquals("pending", keys.get(299));
+    assertEquals(200, keys(store.iterator("open", true, null)).size());
+    assertEquals(100, keys(store.descendingIterator("open", false, null)).size());
+  }
+
+  @Test
+  public void testRemoveAndUpdateReleaseOrdinals() throws Exception {
+    RegionEntry first = createRegionEntry(1, "a");
+    RegionEntry second = createRegionEntry(2, "a");
+    store.addMapping("a", first);
+    store.addMapping("a", second);
+    store.updateMapping("b", "a", first, null);
+    assertEquals(1, store.size("a"));
+    assertEquals(1, store.size("b"));
+    assertEquals(2, ordinals.size());
+
+    store.removeMapping("a", second);
+    assertEquals(0, store.size("a"));
+    assertEquals(1, store.size());
+    assertEquals(1, ordinals.size());
+
+    // the wrong key still finds the entry
+    store.removeMapping("c", first);
+    assertEquals(0, store.size());
+    assertEquals(0, ordinals.size());
+    assertEquals(0, store.getBitmapBytes());
+    verify(mockStats, atLeastOnce()).incBitmapBytes(anyLong());
+  }
+
+  @Test
+  public void testIndexesShareOrdinalsAndMaskLookups() throws Exception {
+    BitmapIndexStore other = new BitmapIndexStore(region, mockStats, ordinals);
+    other.setIndexOnValues(true);
+    RegionEntry[] entries = new RegionEntry[100];
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = createRegionEntry(i, i);
+      store.addMapping(i % 2 == 0 ? "even" : "odd", entries[i]);
+      other.addMapping(i % 5, entries[i]);
+    }
+    assertEquals(100, ordinals.size());
+
+    CompressedBitmap mask = other.getBitmap(0);
+    List<Object> regionKeys = regionKeys(store.get("even", mask));
+    assertEquals(10, regionKeys.size());
+    for (Object key : regionKeys) {
+      assertEquals(0, ((Integer)key) % 10);
+    }
+    assertEquals(50, regionKeys(store.get("even", null)).size());
+
+    store.clear();
+    assertEquals(100, ordinals.size());
+    other.clear();
+    assertEquals(0, ordinals.size());
+  }
+
+  @Test
+  public void testNullAndUndefinedKeysAreOnlyReturnedByGet() throws Exception {
+    store.addMapping(QueryService.UNDEFINED, createRegionEntry(0, null));
+    store.addMapping(IndexManager.NULL, createRegionEntry(1, null));
+    store.addMapping(IndexManager.NULL, createRegionEntry(2, null));
+    store.addMapping("x", createRegionEntry(3, "x"));
+    assertEquals(3, store.size());
+    assertEquals(1, keys(store.get(QueryService.UNDEFINED)).size());
+    assertEquals(2, keys(store.get(IndexManager.NULL)).size());
+    assertEquals(1, keys(store.iterator(null)).size());
+  }
+
+  @Test
+  public void testKeysToRemoveAreSkipped() throws Exception {
+    for (int i = 0; i < 6; i++) {
+      store.addMapping(i % 3, createRegionEntry(i, i));
+    }
+    List<Object> keysToRemove = new ArrayList<Object>();
+    keysToRemove.add(1);
+    List<Object> keys = keys(store.iterator(keysToRemove));
+    assertEquals(4, keys.size());
+    assertFalse(keys.contains(1));
+  }
+
+  private List<Object> keys(Iterator<IndexStoreEntry> iterator) {
+    List<Object> keys = new ArrayList<Object>();
+    while (iterator.hasNext()) {
+      keys.add(iterator.next().getDeserializedKey());
+    }
+    return keys;
+  }
+
+  private List<Object> regionKeys(Iterator<IndexStoreEntry> iterator) {
+    List<Object> keys = new ArrayList<Object>();
+    while (iterator.hasNext()) {
+      keys.add(iterator.next().getDeserializedRegionKey());
+    }
+    return keys;
+  }
+
+  private RegionEntry createRegionEntry(Object key, Object value) {
+    RegionEntry mockEntry = mock(RegionEntry.class);
+    when(mockEntry.getValue(any())).thenReturn(value);
+    when(mockEntry.getKey()).thenReturn(key);
+    return mockEntry;
+  }
+}
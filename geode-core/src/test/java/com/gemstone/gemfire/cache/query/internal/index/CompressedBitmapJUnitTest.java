@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import static org.junit.Assert.*;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class CompressedBitmapJUnitTest {
+
+  @Test
+  public void testAddRemoveAndContains() {
+    CompressedBitmap bitmap = new CompressedBitmap();
+    assertTrue(bitmap.isEmpty());
+    assertTrue(bitmap.add(5));
+    assertFalse(bitmap.add(5));
+    assertTrue(bitmap.add(70000));
+    assertTrue(bitmap.contains(5));
+    assertTrue(bitmap.contains(70000));
+    assertFalse(bitmap.contains(6));
+    assertEquals(2, bitmap.cardinality());
+
+    assertTrue(bitmap.remove(5));
+    assertFalse(bitmap.remove(5));
+    assertFalse(bitmap.remove(8));
+    assertEquals(1, bitmap.cardinality());
+    assertTrue(bitmap.remove(70000));
+    assertTrue(bitmap.isEmpty());
+    assertEquals(-1, bitmap.nextSetBit(0));
+  }
+
+  @Test
+  public void testDenseChunksBecomeBitmapsAndBack() {
+    CompressedBitmap bitmap = new CompressedBitmap();
+    for (int i = 0; i < 10000; i++) {
+      bitmap.add(i);
+    }
+    assertEquals(10000, bitmap.cardinality());
+    // a bitmap chunk takes 8 KB, much less than the 20 KB of an array
+    assertTrue(bitmap.sizeInBytes() < 9000);
+    for (int i = 0; i < 9000; i++) {
+      bitmap.remove(i);
+    }
+    assertEquals(1000, bitmap.cardinality());
+    assertTrue(bitmap.sizeInBytes() < 8000);
+    assertEquals(9000, bitmap.nextSetBit(0));
+    assertEquals(9999, bitmap.nextSetBit(9999));
+    assertEquals(-1, bitmap.nextSetBit(10000));
+  }
+
+  @Test
+  public void testAndOrAndIterationMatchBitSet() {
+    Random random = new Random(7);
+    BitSet first = new BitSet();
+    BitSet second = new BitSet();
+    CompressedBitmap firstBitmap = new CompressedBitmap();
+    CompressedBitmap secondBitmap = new CompressedBitmap();
+    for (int i = 0; i < 50000; i++) {
+      // dense values in the first chunks, sparse values after them
+      int value = i < 40000 ? random.nextInt(140000) : random.nextInt(1000000);
+      first.set(value);
+      firstBitmap.add(value);
+      value = random.nextInt(200000);
+      second.set(value);
+      secondBitmap.add(value);
+    }
+    assertSame(first, firstBitmap);
+    assertSame(second, secondBitmap);
+
+    BitSet and = (BitSet)first.clone();
+    and.and(second);
+    assertSame(and, CompressedBitmap.and(firstBitmap, secondBitmap));
+    BitSet or = (BitSet)first.clone();
+    or.or(second);
+    assertSame(or, CompressedBitmap.or(firstBitmap, secondBitmap));
+
+    // the operands are not changed
+    assertSame(first, firstBitmap);
+    CompressedBitmap copy = firstBitmap.copy();
+    copy.add(2000000);
+    assertFalse(firstBitmap.contains(2000000));
+  }
+
+  private static void assertSame(BitSet expected, CompressedBitmap actual) {
+    assertEquals(expected.cardinality(), actual.cardinality());
+    int value = -1;
+    for (int i = expected.nextSetBit(0); i >= 0; i = expected.nextSetBit(i + 1)) {
+      value = actual.nextSetBit(value + 1);
+      assertEquals(i, value);
+      assertTrue(actual.contains(i));
+    }
+    assertEquals(-1, actual.nextSetBit(value + 1));
+  }
+}
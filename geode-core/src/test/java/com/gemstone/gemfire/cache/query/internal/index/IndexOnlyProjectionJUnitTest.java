@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import static org.junit.Assert.*;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+@Category(IntegrationTest.class)
+public class IndexOnlyProjectionJUnitTest {
+
+  public static class Order implements Serializable {
+    static final AtomicInteger reads = new AtomicInteger();
+
+    private final int id;
+    private final long ts;
+    private final String name;
+
+    public Order(int id) {
+      this.id = id;
+      this.ts = id * 10L;
+      this.name = "name" + id;
+    }
+
+    public int getId() {
+      reads.incrementAndGet();
+      return this.id;
+    }
+
+    public long getTs() {
+      reads.incrementAndGet();
+      return this.ts;
+    }
+
+    public String getName() {
+      reads.incrementAndGet();
+      return this.name;
+    }
+  }
+
+  private Cache cache;
+
+  private Region region;
+
+  @Before
+  public void setUp() throws Exception {
+    this.cache = new CacheFactory().set("mcast-port", "0").create();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.cache.close();
+  }
+
+  private void createRegion(RegionShortcut shortcut) {
+    this.region = this.cache.createRegionFactory(shortcut).create("orders");
+    for (int i = 0; i < 100; i++) {
+      this.region.put(i, new Order(i));
+    }
+  }
+
+  private List<Object> execute(String query) throws Exception {
+    QueryService qs = this.cache.getQueryService();
+    List<Object> results = new ArrayList<Object>();
+    for (Object result : (SelectResults)qs.newQuery(query).execute()) {
+      results.add(String.valueOf(result));
+    }
+    Collections.sort(results, null);
+    return results;
+  }
+
+  /**
+   * Runs the queries without and with the indexes, and checks that they
+   * return the same results, and how many values they read with the indexes.
+   */
+  private void assertReads(String[] queries, int[] reads) throws Exception {
+    List<List<Object>> expected = new ArrayList<List<Object>>();
+    for (String query : queries) {
+      expected.add(execute(query));
+    }
+    QueryService qs = this.cache.getQueryService();
+    qs.createIndex("nameIndex", "o.name", "/orders o");
+    qs.createIndex("tsIndex", "e.value.ts", "/orders.entrySet e");
+    qs.createIndex("keyIndex", "k", "/orders.keySet k");
+    for (int i = 0; i < queries.length; i++) {
+      Order.reads.set(0);
+      assertEquals(queries[i], expected.get(i), execute(queries[i]));
+      assertEquals(queries[i], reads[i], Order.reads.get());
+    }
+  }
+
+  @Test
+  public void testProjectionsOfIndexKeysAndRegionKeysDoNotReadValues() throws Exception {
+    createRegion(RegionShortcut.REPLICATE);
+    assertReads(new String[] {
+        "select o.name from /orders o where o.name > 'name5'",
+        "select distinct o.name from /orders o where o.name >= 'name9'",
+        "select e.key from /orders.entrySet e where e.value.ts > 500L",
+        "select e.getKey(), e.value.ts from /orders.entrySet e where e.value.ts < 100L",
+        "select k from /orders.keySet k where k > 90",
+        // the projection or the other condition need the values
+        "select o.id from /orders o where o.name > 'name5'",
+        "select e.key from /orders.entrySet e where e.value.ts > 500L and e.value.id < 60",
+    }, new int[] { 0, 0, 0, 0, 0, 54, 49 });
+  }
+
+  @Test
+  public void testInvalidAndUpdatedEntries() throws Exception {
+    createRegion(RegionShortcut.REPLICATE);
+    this.cache.getQueryService().createIndex("nameIndex", "o.name", "/orders o");
+    this.region.invalidate(99);
+    this.region.put(98, new Order(990));
+    Order.reads.set(0);
+    List<Object> results = execute("select o.name from /orders o where o.name > 'name97'");
+    assertEquals("[name990]", results.toString());
+    assertEquals(0, Order.reads.get());
+  }
+
+  @Test
+  public void testLongKeyIndexKeysAreNotProjected() throws Exception {
+    Region numbers = this.cache.createRegionFactory(RegionShortcut.REPLICATE).create("numbers");
+    for (int i = 0; i < 10; i++) {
+      numbers.put(i, Integer.valueOf(i));
+    }
+    numbers.put(10, Long.valueOf(10));
+    String oldProperty = System.getProperty(IndexManager.LONG_KEY_INDEXES_PROP);
+    System.setProperty(IndexManager.LONG_KEY_INDEXES_PROP, "numberIndex");
+    try {
+      this.cache.getQueryService().createIndex("numberIndex", "n", "/numbers n");
+    } finally {
+      if (oldProperty == null) {
+        System.clearProperty(IndexManager.LONG_KEY_INDEXES_PROP);
+      } else {
+        System.setProperty(IndexManager.LONG_KEY_INDEXES_PROP, oldProperty);
+      }
+    }
+    SelectResults results = (SelectResults)this.cache.getQueryService()
+        .newQuery("select n from /numbers n where n > 5").execute();
+    assertEquals(5, results.size());
+    for (Object n : results) {
+      assertEquals(n.equals(10L) ? Long.class : Integer.class, n.getClass());
+    }
+  }
+
+  @Test
+  public void testPartitionedRegion() throws Exception {
+    createRegion(RegionShortcut.PARTITION);
+    assertReads(new String[] {
+        "select o.name from /orders o where o.name > 'name5'",
+        "select e.key from /orders.entrySet e where e.value.ts > 500L",
+    }, new int[] { 0, 0 });
+  }
+}
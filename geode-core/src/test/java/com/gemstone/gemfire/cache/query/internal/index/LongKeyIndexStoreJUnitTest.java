@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.index;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.internal.index.AbstractIndex.InternalIndexStatistics;
+import com.gemstone.gemfire.cache.query.internal.index.IndexStore.IndexStoreEntry;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.cache.RegionEntry;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class LongKeyIndexStoreJUnitTest {
+
+  Region region;
+  GemFireCacheImpl cache;
+  InternalIndexStatistics mockStats;
+  LongKeyIndexStore store;
+  GemFireCacheImpl actualInstance;
+
+  @Before
+  public void setup() {
+    region = mock(LocalRegion.class);
+    cache = mock(GemFireCacheImpl.class);
+    actualInstance = GemFireCacheImpl.setInstanceForTests(cache);
+    mockStats = mock(AbstractIndex.InternalIndexStatistics.class);
+
+    store = new LongKeyIndexStore(region, mockStats);
+    store.setIndexOnValues(true);
+  }
+
+  @After
+  public void teardown() {
+    GemFireCacheImpl.setInstanceForTests(actualInstance);
+  }
+
+  @Test
+  public void testIteratesInKeyOrderAcrossRuns() throws Exception {
+    for (int i = 0; i < 1000; i++) {
+      long key = (i * 7919L) % 1000;
+      store.addMapping(key, createRegionEntry(i, key));
+    }
+    assertEquals(1000, store.size());
+    assertTrue(store.getNumRuns() <= 20);
+
+    List<Object> keys = keys(store.iterator(null));
+    assertEquals(1000, keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      assertEquals(Long.valueOf(i), keys.get(i));
+    }
+    keys = keys(store.descendingIterator(null));
+    assertEquals(Long.valueOf(999), keys.get(0));
+    assertEquals(Long.valueOf(0), keys.get(999));
+  }
+
+  @Test
+  public void testRangesAndBoundsOfOtherNumericTypes() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      store.addMapping(i, createRegionEntry(i, i));
+    }
+    assertEquals(3, keys(store.iterator(2, true, 4, true, null)).size());
+    assertEquals(1, keys(store.iterator(2, false, 4, false, null)).size());
+    assertEquals(5, keys(store.iterator(4.5, true, null)).size());
+    assertEquals(4, keys(store.iterator(null, true, 3.5d, false, null)).size());
+    assertEquals(7, keys(store.iterator(3L, true, null)).size());
+    assertEquals(0, keys(store.iterator(20, true, null)).size());
+    assertEquals(0, keys(store.iterator("a", true, null)).size());
+
+    List<Object> keys = keys(store.descendingIterator(2, false, 5, true, null));
+    assertEquals(3, keys.size());
+    assertEquals(Integer.valueOf(5), keys.get(0));
+    assertEquals(Integer.valueOf(3), keys.get(2));
+
+    assertEquals(1, store.size(5));
+    assertEquals(1, store.size(5L));
+    assertEquals(0, store.size(5.5));
+    assertEquals(1, keys(store.get(7L)).size());
+  }
+
+  @Test
+  public void testDuplicateKeysAndRemoval() throws Exception {
+    RegionEntry[] entries = new RegionEntry[6];
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = createRegionEntry(i, i);
+      store.addMapping(i % 2, entries[i]);
+    }
+    assertEquals(2, store.size());
+    assertEquals(3, store.size(0));
+
+    store.removeMapping(0, entries[0]);
+    store.removeMapping(0, entries[2]);
+    assertEquals(1, store.size(0));
+    assertEquals(2, store.size());
+    store.removeMapping(0, entries[4]);
+    assertEquals(0, store.size(0));
+    assertEquals(1, store.size());
+    assertEquals(3, keys(store.iterator(null)).size());
+
+    // the wrong key still finds the entry
+    store.removeMapping(7, entries[1]);
+    assertEquals(2, store.size(1));
+  }
+
+  @Test
+  public void testUpdateMovesTheMapping() throws Exception {
+    RegionEntry entry = createRegionEntry(1, 1L);
+    store.addMapping(1L, entry);
+    store.updateMapping(5L, 1L, entry, null);
+    assertEquals(0, store.size(1L));
+    assertEquals(1, store.size(5L));
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  public void testKeysToRemoveAreSkipped() throws Exception {
+    for (int i = 0; i < 6; i++) {
+      store.addMapping(i % 3, createRegionEntry(i, i));
+    }
+    List<Object> keysToRemove = new ArrayList<Object>();
+    keysToRemove.add(1);
+    List<Object> keys = keys(store.iterator(keysToRemove));
+    assertEquals(4, keys.size());
+    assertFalse(keys.contains(1));
+  }
+
+  @Test
+  public void testNullAndUndefinedKeysAreOnlyReturnedByGet() throws Exception {
+    store.addMapping(QueryService.UNDEFINED, createRegionEntry(0, null));
+    store.addMapping(IndexManager.NULL, createRegionEntry(1, null));
+    store.addMapping(IndexManager.NULL, createRegionEntry(2, null));
+    store.addMapping(3L, createRegionEntry(3, 3L));
+    assertEquals(3, store.size());
+    assertEquals(1, keys(store.get(QueryService.UNDEFINED)).size());
+    assertEquals(2, keys(store.get(IndexManager.NULL)).size());
+    assertEquals(1, keys(store.iterator(null)).size());
+  }
+
+  @Test
+  public void testDateKeys() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      store.addMapping(new Date(1000L * i), createRegionEntry(i, i));
+    }
+    List<Object> keys = keys(store.iterator(new Date(1000L), false, null));
+    assertEquals(3, keys.size());
+    assertEquals(new Date(2000L), keys.get(0));
+    assertEquals(0, keys(store.iterator(1, true, null)).size());
+    try {
+      store.addMapping(7L, createRegionEntry(7, 7L));
+      fail("expected IMQException");
+    } catch (IMQException expected) {
+    }
+  }
+
+  @Test
+  public void testOtherKeyTypesAreRejected() throws Exception {
+    try {
+      store.addMapping("text", createRegionEntry(0, "text"));
+      fail("expected IMQException");
+    } catch (IMQException expected) {
+    }
+    assertEquals(0, store.size());
+  }
+
+  @Test
+  public void testClear() throws Exception {
+    store.addMapping(1, createRegionEntry(1, 1));
+    store.addMapping(IndexManager.NULL, createRegionEntry(2, null));
+    store.clear();
+    assertEquals(0, store.size());
+    assertFalse(store.iterator(null).hasNext());
+    assertFalse(store.get(IndexManager.NULL).hasNext());
+  }
+
+  private List<Object> keys(Iterator<IndexStoreEntry> iterator) {
+    List<Object> keys = new ArrayList<Object>();
+    while (iterator.hasNext()) {
+      keys.add(iterator.next().getDeserializedKey());
+    }
+    return keys;
+  }
+
+  private RegionEntry createRegionEntry(Object key, Object value) {
+    RegionEntry mockEntry = mock(RegionEntry.class);
+    when(mockEntry.getValue(any())).thenReturn(value);
+    when(mockEntry.getKey()).thenReturn(key);
+    return mockEntry;
+  }
+}
@@ -334,5 +334,9 @@ public class MapIndexStoreJUnitTest {
     public boolean isUpdateInProgress() {
       return false;
     }
+
+    public boolean isInvalidOrRemoved() {
+      return false;
+    }
   }
 }
\ No newline at end of file
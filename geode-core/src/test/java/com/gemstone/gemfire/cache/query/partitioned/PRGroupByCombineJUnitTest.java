@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.partitioned;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.cache.query.Struct;
+import com.gemstone.gemfire.cache.query.data.Portfolio;
+import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
+import com.gemstone.gemfire.internal.cache.PRQueryProcessor;
+import com.gemstone.gemfire.internal.cache.PartitionedRegion;
+import com.gemstone.gemfire.internal.cache.PartitionedRegionTestHelper;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Verifies that the group by results of the buckets of a data store are
+ * combined before they are sent to the query node.
+ */
+@Category(IntegrationTest.class)
+public class PRGroupByCombineJUnitTest {
+
+  private static final String PR_NAME = "portfolios";
+
+  private static final String LOCAL_NAME = "localPortfolios";
+
+  private Region region;
+
+  private Region localRegion;
+
+  private QueryService queryService;
+
+  @Before
+  public void setUp() throws Exception {
+    this.region = PartitionedRegionTestHelper.createPartitionedRegion(PR_NAME, "100", 0);
+    this.localRegion = PartitionedRegionTestHelper.createLocalRegion(LOCAL_NAME);
+    for (int j = 0; j < 300; j++) {
+      this.region.put(new Integer(j), new Portfolio(j));
+      this.localRegion.put(new Integer(j), new Portfolio(j));
+    }
+    this.queryService = this.region.getCache().getQueryService();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.region.close();
+    this.localRegion.close();
+  }
+
+  private List execute(String query, String regionName) throws Exception {
+    return ((SelectResults)this.queryService.newQuery(
+        query.replace("$REGION", "/" + regionName)).execute()).asList();
+  }
+
+  @Test
+  public void testResultsMatchLocalRegion() throws Exception {
+    String[] queries = new String[] {
+        "SELECT p.status, COUNT(*), SUM(p.ID), AVG(p.ID), MIN(p.ID), MAX(p.ID) FROM $REGION p GROUP BY p.status",
+        "SELECT p.getType(), COUNT(DISTINCT p.status), SUM(DISTINCT p.ID), AVG(DISTINCT p.ID) FROM $REGION p GROUP BY p.getType()",
+        "SELECT p.status, p.getType(), AVG(p.ID) FROM $REGION p WHERE p.ID > 20 GROUP BY p.status, p.getType()",
+        "SELECT p.getType(), SUM(p.ID) AS total FROM $REGION p GROUP BY p.getType() ORDER BY total DESC",
+        "SELECT p.ID, COUNT(*) FROM $REGION p GROUP BY p.ID",
+    };
+    for (String query : queries) {
+      List expected = execute(query, LOCAL_NAME);
+      List actual = execute(query, PR_NAME);
+      assertEquals(query, expected.size(), actual.size());
+      assertEquals(query, rows(expected), rows(actual));
+    }
+  }
+
+  @Test
+  public void testDataStoreSendsOneRowPerGroup() throws Exception {
+    PartitionedRegion pr = (PartitionedRegion)this.region;
+    List<Integer> buckets = new ArrayList<Integer>(pr.getDataStore().getAllLocalBucketIds());
+    assertTrue(buckets.size() > 3);
+    DefaultQuery query = (DefaultQuery)this.queryService.newQuery("SELECT p.getType(), COUNT(*), AVG(p.ID) FROM /"
+        + PR_NAME + " p GROUP BY p.getType()");
+    List<Collection> resultCollector = new ArrayList<Collection>();
+    new PRQueryProcessor(pr, query, null, buckets).executeQuery(resultCollector);
+
+    int rows = 0;
+    int count = 0;
+    for (Collection results : resultCollector) {
+      for (Object row : results) {
+        Object[] values = ((Struct)row).getFieldValues();
+        count += ((Integer)values[1]).intValue();
+        // the average is sent as the count and sum of the values
+        assertEquals(values[1], ((Object[])values[2])[0]);
+        rows++;
+      }
+    }
+    assertEquals(3, rows);
+    assertEquals(300, count);
+  }
+
+  private static HashSet<List<Object>> rows(List results) {
+    HashSet<List<Object>> rows = new HashSet<List<Object>>();
+    for (Object row : results) {
+      List<Object> values = new ArrayList<Object>();
+      for (Object value : ((Struct)row).getFieldValues()) {
+        values.add(value instanceof Number ? ((Number)value).doubleValue() : value);
+      }
+      rows.add(values);
+    }
+    return rows;
+  }
+}
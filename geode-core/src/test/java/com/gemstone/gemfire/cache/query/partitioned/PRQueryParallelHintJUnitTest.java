@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.partitioned;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.query.Index;
+import com.gemstone.gemfire.cache.query.QueryService;
+import com.gemstone.gemfire.cache.query.SelectResults;
+import com.gemstone.gemfire.cache.query.data.PortfolioData;
+import com.gemstone.gemfire.cache.query.internal.CompiledSelect;
+import com.gemstone.gemfire.cache.query.internal.DefaultQuery;
+import com.gemstone.gemfire.cache.query.internal.QueryObserver;
+import com.gemstone.gemfire.cache.query.internal.QueryObserverAdapter;
+import com.gemstone.gemfire.cache.query.internal.QueryObserverHolder;
+import com.gemstone.gemfire.internal.cache.PartitionedRegionTestHelper;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Verifies queries on a PartitionedRegion that are hinted to run their
+ * buckets in parallel on a single VM.
+ */
+@Category(IntegrationTest.class)
+public class PRQueryParallelHintJUnitTest {
+
+  private static final String REGION_NAME = "portfolios";
+
+  private Region region;
+
+  private QueryService queryService;
+
+  @Before
+  public void setUp() throws Exception {
+    this.region = PartitionedRegionTestHelper.createPartitionedRegion(REGION_NAME, "100", 0);
+    for (int j = 0; j < 200; j++) {
+      this.region.put(new Integer(j), new PortfolioData(j));
+    }
+    this.queryService = this.region.getCache().getQueryService();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.region.close();
+  }
+
+  private SelectResults execute(String hint, String query) throws Exception {
+    return (SelectResults)this.queryService.newQuery(hint + " " + query).execute();
+  }
+
+  /**
+   * Asserts that the results hold the same elements, in any order.
+   */
+  private static void assertSameResults(String query, SelectResults expected, SelectResults actual) {
+    assertEquals(query, expected.size(), actual.size());
+    List remaining = new ArrayList(expected.asList());
+    for (Object o : actual) {
+      assertTrue(query + " returned unexpected " + o, remaining.remove(o));
+    }
+  }
+
+  @Test
+  public void testParseParallelHint() throws Exception {
+    String query = "SELECT * FROM /" + REGION_NAME + " p WHERE p.ID < 5";
+    CompiledSelect cs = ((DefaultQuery)this.queryService.newQuery(query)).getSimpleSelect();
+    assertFalse(cs.isParallelHinted());
+
+    cs = ((DefaultQuery)this.queryService.newQuery("<HINT 'parallel'> " + query)).getSimpleSelect();
+    assertTrue(cs.isParallelHinted());
+    assertEquals(0, cs.getParallelism());
+
+    cs = ((DefaultQuery)this.queryService.newQuery("<HINT 'IDIndex', 'PARALLEL(4)'> " + query)).getSimpleSelect();
+    assertTrue(cs.isParallelHinted());
+    assertEquals(4, cs.getParallelism());
+
+    cs = ((DefaultQuery)this.queryService.newQuery("<HINT 'PARALLEL(x)'> " + query)).getSimpleSelect();
+    assertFalse(cs.isParallelHinted());
+  }
+
+  @Test
+  public void testParallelQueriesMatchSequentialQueries() throws Exception {
+    String[] queries = new String[] {
+        "SELECT * FROM /" + REGION_NAME + " p WHERE p.ID < 50",
+        "SELECT p.ID FROM /" + REGION_NAME + " p WHERE p.ID > 5 AND p.ID <= 150",
+        "SELECT p.ID, p.status FROM /" + REGION_NAME + " p WHERE p.ID < 120",
+        "SELECT DISTINCT p.status FROM /" + REGION_NAME + " p",
+        "SELECT COUNT(*) FROM /" + REGION_NAME + " p WHERE p.ID >= 20",
+        "SELECT p.status, COUNT(*) FROM /" + REGION_NAME + " p GROUP BY p.status",
+        "SELECT p.status, MAX(p.ID) FROM /" + REGION_NAME + " p WHERE p.ID < 77 GROUP BY p.status",
+    };
+    for (String query : queries) {
+      SelectResults expected = execute("", query);
+      assertSameResults(query, expected, execute("<HINT 'PARALLEL'>", query));
+      assertSameResults(query, expected, execute("<HINT 'PARALLEL(3)'>", query));
+      assertSameResults(query, expected, execute("<HINT 'PARALLEL(1000)'>", query));
+    }
+    List count = execute("<HINT 'PARALLEL(7)'>",
+        "SELECT COUNT(*) FROM /" + REGION_NAME + " p WHERE p.ID >= 20").asList();
+    assertEquals(Integer.valueOf(180), count.get(0));
+
+    this.queryService.createIndex("IDIndex", "p.ID", "/" + REGION_NAME + " p");
+    String query = "SELECT * FROM /" + REGION_NAME + " p WHERE p.ID < 50";
+    assertSameResults(query, execute("", query), execute("<HINT 'IDIndex', 'PARALLEL'>", query));
+  }
+
+  @Test
+  public void testIndexNamedParallelCanBeHinted() throws Exception {
+    this.queryService.createIndex("statusIndex", "p.status", "/" + REGION_NAME + " p");
+    this.queryService.createIndex("PARALLEL", "p.ID", "/" + REGION_NAME + " p");
+    String query = "SELECT * FROM /" + REGION_NAME + " p WHERE p.ID < 50 AND p.status = 'active'";
+    SelectResults expected = execute("", query);
+
+    DefaultQuery hinted = (DefaultQuery)this.queryService.newQuery("<HINT 'PARALLEL'> " + query);
+    assertTrue(hinted.getSimpleSelect().isParallelHinted());
+    QueryObserverImpl observer = new QueryObserverImpl();
+    QueryObserver old = QueryObserverHolder.setInstance(observer);
+    try {
+      assertSameResults(query, expected, (SelectResults)hinted.execute());
+    } finally {
+      QueryObserverHolder.setInstance(old);
+    }
+    assertTrue(observer.indexes.contains("PARALLEL"));
+    assertFalse(observer.indexes.contains("statusIndex"));
+  }
+
+  private static class QueryObserverImpl extends QueryObserverAdapter {
+    private final List<String> indexes = new CopyOnWriteArrayList<String>();
+
+    @Override
+    public void beforeIndexLookup(Index index, int oper, Object key) {
+      this.indexes.add(index.getName());
+    }
+  }
+
+  @Test
+  public void testParallelOrderByQuery() throws Exception {
+    List results = execute("<HINT 'PARALLEL(5)'>", "SELECT DISTINCT p.ID FROM /" + REGION_NAME
+        + " p WHERE p.ID >= 10 ORDER BY p.ID DESC LIMIT 25").asList();
+    assertEquals(25, results.size());
+    for (int i = 0; i < results.size(); i++) {
+      assertEquals(Integer.valueOf(199 - i), results.get(i));
+    }
+  }
+}
@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.StatisticDescriptor;
+import com.gemstone.gemfire.Statistics;
+import com.gemstone.gemfire.StatisticsType;
+import com.gemstone.gemfire.internal.IndexedStatArchiveReader.ResourceInstanceInfo;
+import com.gemstone.gemfire.internal.IndexedStatArchiveReader.SeriesHandler;
+import com.gemstone.gemfire.internal.logging.InternalLogWriter;
+import com.gemstone.gemfire.internal.logging.PureLogWriter;
+import com.gemstone.gemfire.internal.statistics.SampleCollector;
+import com.gemstone.gemfire.internal.statistics.StatArchiveDescriptor;
+import com.gemstone.gemfire.internal.statistics.TestStatArchiveWriter;
+import com.gemstone.gemfire.internal.statistics.TestStatisticsManager;
+import com.gemstone.gemfire.internal.statistics.TestStatisticsSampler;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Integration tests for the time blocks and index written by
+ * StatArchiveWriter and read by IndexedStatArchiveReader.
+ *
+ * @since 9.0
+ */
+@Category(IntegrationTest.class)
+public class IndexedStatArchiveReaderJUnitTest {
+
+  private static final String dir = "IndexedStatArchiveReaderJUnitTest";
+
+  private static final int SAMPLES = 40;
+
+  private static final int BLOCK_SAMPLES = 5;
+
+  // the samples that the second instance has values in
+  private static final int CREATE_SAMPLE = 7;
+  private static final int CLOSE_SAMPLE = 23;
+
+  private File archive;
+
+  @Before
+  public void setUp() throws Exception {
+    new File(dir).mkdir();
+    this.archive = new File(dir, "archive.gfs");
+    writeArchive();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    StatisticsTypeFactoryImpl.clear();
+    File[] files = new File(dir).listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    new File(dir).delete();
+  }
+
+  private static long sampleMillis(int sample) {
+    return TestStatArchiveWriter.WRITER_INITIAL_DATE_MILLIS + sample * 1000L;
+  }
+
+  private void writeArchive() throws Exception {
+    final InternalLogWriter log = new PureLogWriter(InternalLogWriter.CONFIG_LEVEL);
+    final TestStatisticsManager manager = new TestStatisticsManager(1,
+        "IndexedStatArchiveReaderJUnitTest",
+        TestStatArchiveWriter.WRITER_INITIAL_DATE_MILLIS);
+    final SampleCollector sampleCollector = new SampleCollector(
+        new TestStatisticsSampler(manager));
+    final StatArchiveDescriptor archiveDescriptor = new StatArchiveDescriptor.Builder()
+        .setArchiveName(this.archive.getPath())
+        .setSystemId(1)
+        .setSystemStartTime(TestStatArchiveWriter.WRITER_INITIAL_DATE_MILLIS)
+        .setSystemDirectoryPath("IndexedStatArchiveReaderJUnitTest")
+        .setProductDescription("IndexedStatArchiveReaderJUnitTest")
+        .build();
+    final StatArchiveWriter writer = new TestStatArchiveWriter(archiveDescriptor, log) {
+      @Override
+      protected int getBlockSampleCount() {
+        return BLOCK_SAMPLES;
+      }
+    };
+    sampleCollector.addSampleHandler(writer);
+
+    final StatisticDescriptor[] descriptors = new StatisticDescriptor[] {
+        manager.createIntCounter("ints", "d1", "u1"),
+        manager.createLongCounter("longs", "d2", "u2"),
+        manager.createDoubleGauge("doubles", "d3", "u3"),
+    };
+    final StatisticsType type = manager.createType("ST1", "ST1", descriptors);
+    final Statistics st1 = manager.createAtomicStatistics(type, "st1", 1);
+    Statistics st2 = null;
+
+    for (int i = 1; i <= SAMPLES; i++) {
+      if (i == CREATE_SAMPLE) {
+        st2 = manager.createAtomicStatistics(type, "st2", 2);
+      } else if (i == CLOSE_SAMPLE) {
+        st2.close();
+        st2 = null;
+      }
+      // some samples change nothing
+      if (i % 4 != 0) {
+        st1.setInt("ints", i);
+        st1.setLong("longs", i * 100000000000L);
+        st1.setDouble("doubles", i * 0.5);
+        if (st2 != null) {
+          st2.setLong("longs", i * 7);
+        }
+      }
+      sampleCollector.sample(TestStatArchiveWriter.WRITER_PREVIOUS_TIMESTAMP_NANOS
+          + i * 1000L * StatArchiveFormat.NANOS_PER_MILLI);
+    }
+    writer.close();
+  }
+
+  /**
+   * Returns the value of a statistic of an instance at a sample.
+   */
+  private static double expectedValue(String instance, String stat, int sample) {
+    // the samples that change nothing keep the previous values
+    int changed = sample % 4 != 0 ? sample : sample - 1;
+    if (instance.equals("st2")) {
+      return stat.equals("longs") && changed >= CREATE_SAMPLE ? changed * 7 : 0;
+    }
+    if (stat.equals("ints")) {
+      return changed;
+    } else if (stat.equals("longs")) {
+      return changed * 100000000000L;
+    } else {
+      return changed * 0.5;
+    }
+  }
+
+  private static List<String> expectedSeries(String instance, String stat,
+      int firstSample, int lastSample) {
+    List<String> expected = new ArrayList<String>();
+    for (int i = firstSample; i <= lastSample; i++) {
+      if (instance.equals("st2") && (i < CREATE_SAMPLE || i >= CLOSE_SAMPLE)) {
+        continue;
+      }
+      expected.add(instance + "@" + sampleMillis(i) + "=" + expectedValue(instance, stat, i));
+    }
+    return expected;
+  }
+
+  private static List<String> readSeries(IndexedStatArchiveReader reader,
+      String instance, String stat, long startMillis, long endMillis) throws IOException {
+    final List<String> series = new ArrayList<String>();
+    reader.readSeries("ST1", instance, stat, startMillis, endMillis, new SeriesHandler() {
+      @Override
+      public void sample(ResourceInstanceInfo instance, long timeMillis, double value) {
+        series.add(instance.getName() + "@" + timeMillis + "=" + value);
+      }
+    });
+    return series;
+  }
+
+  private void assertSeries(IndexedStatArchiveReader reader) throws IOException {
+    assertEquals(2, reader.getResourceInstances().size());
+    assertEquals("st1", reader.getResourceInstances().get(0).getName());
+    assertEquals("ST1", reader.getResourceInstances().get(0).getTypeName());
+    assertEquals(SAMPLES / BLOCK_SAMPLES, reader.getTimeBlockCount());
+    for (String stat : new String[] { "ints", "longs", "doubles" }) {
+      for (String instance : new String[] { "st1", "st2" }) {
+        assertEquals(expectedSeries(instance, stat, 1, SAMPLES),
+            readSeries(reader, instance, stat, 0, Long.MAX_VALUE));
+        // ranges that start and end within blocks
+        assertEquals(expectedSeries(instance, stat, 12, 17),
+            readSeries(reader, instance, stat, sampleMillis(12), sampleMillis(17)));
+        assertEquals(expectedSeries(instance, stat, 26, 26),
+            readSeries(reader, instance, stat, sampleMillis(26), sampleMillis(26)));
+      }
+    }
+    assertEquals(new ArrayList<String>(),
+        readSeries(reader, "st1", "longs", 0, sampleMillis(0)));
+    assertEquals(new ArrayList<String>(),
+        readSeries(reader, "st1", "nosuchstat", 0, Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testReadSeriesWithIndex() throws Exception {
+    IndexedStatArchiveReader reader = new IndexedStatArchiveReader(this.archive);
+    try {
+      assertTrue(reader.isIndexed());
+      assertEquals(StatArchiveFormat.ARCHIVE_VERSION, reader.getArchiveVersion());
+      assertEquals(TestStatArchiveWriter.WRITER_INITIAL_DATE_MILLIS, reader.getStartTimeMillis());
+      assertSeries(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testReadSeriesOfArchiveWithoutIndex() throws Exception {
+    // cut off the index, like for an archive that was not closed
+    RandomAccessFile file = new RandomAccessFile(this.archive, "rw");
+    try {
+      file.seek(file.length() - 12);
+      file.setLength(file.readLong());
+    } finally {
+      file.close();
+    }
+    IndexedStatArchiveReader reader = new IndexedStatArchiveReader(this.archive);
+    try {
+      assertFalse(reader.isIndexed());
+      assertSeries(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testReadSeriesOfCompressedArchive() throws Exception {
+    File compressed = new File(dir, "archive.gfs.gz");
+    InputStream in = new FileInputStream(this.archive);
+    OutputStream out = new GZIPOutputStream(new FileOutputStream(compressed));
+    try {
+      byte[] buffer = new byte[4096];
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        out.write(buffer, 0, n);
+      }
+    } finally {
+      in.close();
+      out.close();
+    }
+    IndexedStatArchiveReader reader = new IndexedStatArchiveReader(compressed);
+    try {
+      assertFalse(reader.isIndexed());
+      assertSeries(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testStatArchiveReaderSkipsBlocksAndIndex() throws Exception {
+    StatArchiveReader reader = new StatArchiveReader(new File[] { this.archive }, null, false);
+    try {
+      StatArchiveReader.StatValue[] values = reader.matchSpec(new StatArchiveReader.StatSpec() {
+        public boolean archiveMatches(File archive) {
+          return true;
+        }
+        public boolean typeMatches(String typeName) {
+          return "ST1".equals(typeName);
+        }
+        public boolean statMatches(String statName) {
+          return "longs".equals(statName);
+        }
+        public boolean instanceMatches(String textId, long numericId) {
+          return "st1".equals(textId);
+        }
+        public int getCombineType() {
+          return StatArchiveReader.StatSpec.NONE;
+        }
+      });
+      assertEquals(1, values.length);
+      double[] snapshots = values[0].getRawSnapshots();
+      assertEquals(SAMPLES, snapshots.length);
+      for (int i = 1; i <= SAMPLES; i++) {
+        assertEquals(expectedValue("st1", "longs", i), snapshots[i - 1], 0);
+      }
+    } finally {
+      reader.close();
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.distributed.internal.DistributionStats;
+import com.gemstone.gemfire.internal.cache.CachePerfStats;
+import com.gemstone.gemfire.internal.cache.DiskStoreStats;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class LogLinearHistogramStatsJUnitTest {
+
+  @Test
+  public void testBucketsCoverTheirValues() {
+    assertEquals(0, LogLinearHistogramStats.getBucket(0));
+    assertEquals(0, LogLinearHistogramStats.getBucket(1023));
+    assertEquals(1, LogLinearHistogramStats.getBucket(1024));
+    assertEquals(LogLinearHistogramStats.BUCKET_COUNT - 1,
+        LogLinearHistogramStats.getBucket(LogLinearHistogramStats.MAX_VALUE));
+    assertEquals(LogLinearHistogramStats.BUCKET_COUNT - 1,
+        LogLinearHistogramStats.getBucket(Long.MAX_VALUE));
+
+    long lowerBound = 0;
+    for (int i = 0; i < LogLinearHistogramStats.BUCKET_COUNT - 1; i++) {
+      long upperBound = LogLinearHistogramStats.getBucketUpperBound(i);
+      assertTrue(upperBound > lowerBound);
+      assertEquals(i, LogLinearHistogramStats.getBucket(lowerBound));
+      assertEquals(i, LogLinearHistogramStats.getBucket(upperBound - 1));
+      if (i > 0) {
+        // the width of a bucket is at most an eighth of its values
+        assertTrue(upperBound - lowerBound <= lowerBound / 8);
+      }
+      lowerBound = upperBound;
+    }
+    assertEquals(LogLinearHistogramStats.MAX_VALUE, lowerBound);
+  }
+
+  @Test
+  public void testHistogramsAreOnlyCreatedWithClockStats() {
+    boolean oldCacheClockStats = CachePerfStats.enableClockStats;
+    boolean oldClockStats = DistributionStats.enableClockStats;
+    DummyStatisticsFactory factory = new DummyStatisticsFactory();
+    try {
+      CachePerfStats.enableClockStats = false;
+      DistributionStats.enableClockStats = false;
+      assertNull(new CachePerfStats(factory).getGetLatencyHistogram());
+      DiskStoreStats diskStats = new DiskStoreStats(factory, "disk");
+      assertNull(diskStats.getWriteLatencyHistogram());
+      diskStats.endWrite(0);
+      diskStats.close();
+
+      CachePerfStats.enableClockStats = true;
+      DistributionStats.enableClockStats = true;
+      assertNotNull(new CachePerfStats(factory).getPutLatencyHistogram());
+      assertNotNull(new DiskStoreStats(factory, "disk").getReadLatencyHistogram());
+    } finally {
+      CachePerfStats.enableClockStats = oldCacheClockStats;
+      DistributionStats.enableClockStats = oldClockStats;
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    LogLinearHistogramStats histogram =
+        new LogLinearHistogramStats(new DummyStatisticsFactory(), "test");
+    assertEquals(0, histogram.getValueAtPercentile(99));
+    for (int i = 1; i <= 1000; i++) {
+      histogram.endOp(i * 1000L);
+    }
+    assertEquals(1000, sum(histogram.getBucketCounts()));
+    assertBetween(500000, histogram.getValueAtPercentile(50));
+    assertBetween(990000, histogram.getValueAtPercentile(99));
+    assertBetween(999000, histogram.getValueAtPercentile(99.9));
+    assertBetween(1000000, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testCountsOfSeveralHistogramsAddUp() {
+    DummyStatisticsFactory factory = new DummyStatisticsFactory();
+    LogLinearHistogramStats first = new LogLinearHistogramStats(factory, "first");
+    LogLinearHistogramStats second = new LogLinearHistogramStats(factory, "second");
+    assertSame(first.getStats().getType(), second.getStats().getType());
+    for (int i = 0; i < 990; i++) {
+      first.endOp(2000);
+    }
+    for (int i = 0; i < 10; i++) {
+      second.endOp(5000000000L);
+    }
+    second.endOp(LogLinearHistogramStats.MAX_VALUE * 2);
+
+    long[] counts = first.getBucketCounts();
+    long[] secondCounts = LogLinearHistogramStats.getBucketCounts(second.getStats());
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += secondCounts[i];
+    }
+    assertBetween(2000, LogLinearHistogramStats.getValueAtPercentile(counts, 98));
+    assertBetween(5000000000L, LogLinearHistogramStats.getValueAtPercentile(counts, 99.9));
+    assertEquals(LogLinearHistogramStats.MAX_VALUE,
+        LogLinearHistogramStats.getValueAtPercentile(counts, 100));
+  }
+
+  private static long sum(long[] counts) {
+    long sum = 0;
+    for (long count : counts) {
+      sum += count;
+    }
+    return sum;
+  }
+
+  /**
+   * Asserts that a percentile is the bound of the bucket of a value.
+   */
+  private static void assertBetween(long value, long percentile) {
+    assertTrue(value + " " + percentile, percentile > value);
+    assertTrue(value + " " + percentile, percentile <= value + value / 8 + 1);
+  }
+}
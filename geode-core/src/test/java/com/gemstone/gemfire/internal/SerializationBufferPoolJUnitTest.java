@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.internal.util.BlobHelper;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+/**
+ * Tests SerializationBufferPool and the pooled HeapDataOutputStreams
+ * that use it.
+ */
+@Category(UnitTest.class)
+public class SerializationBufferPoolJUnitTest {
+
+  @Before
+  public void setUp() {
+    SerializationBufferPool.clear();
+  }
+
+  @After
+  public void tearDown() {
+    SerializationBufferPool.clear();
+  }
+
+  @Test
+  public void testAcquireRoundsUpToSizeClass() {
+    assertEquals(SerializationBufferPool.MIN_BUFFER_SIZE, SerializationBufferPool.acquire(1).capacity());
+    assertEquals(2048, SerializationBufferPool.acquire(1025).capacity());
+    assertEquals(2048, SerializationBufferPool.acquire(2048).capacity());
+    int oversized = SerializationBufferPool.MAX_BUFFER_SIZE + 1;
+    assertEquals(oversized, SerializationBufferPool.acquire(oversized).capacity());
+  }
+
+  @Test
+  public void testReleasedBufferIsReused() {
+    ByteBuffer bb = SerializationBufferPool.acquire(3000);
+    bb.put((byte)1);
+    SerializationBufferPool.release(bb);
+    assertEquals(4096, SerializationBufferPool.getRetainedBytes());
+    ByteBuffer reused = SerializationBufferPool.acquire(4000);
+    assertSame(bb, reused);
+    assertEquals(0, reused.position());
+    assertEquals(reused.capacity(), reused.limit());
+    assertEquals(0, SerializationBufferPool.getRetainedBytes());
+    // a different size class does not reuse it
+    SerializationBufferPool.release(reused);
+    assertNotSame(reused, SerializationBufferPool.acquire(100));
+  }
+
+  @Test
+  public void testBuffersThatAreNotKept() {
+    SerializationBufferPool.release(ByteBuffer.allocate(SerializationBufferPool.MAX_BUFFER_SIZE * 2));
+    SerializationBufferPool.release(ByteBuffer.allocate(3000));
+    SerializationBufferPool.release(ByteBuffer.allocateDirect(1024));
+    SerializationBufferPool.release(ByteBuffer.wrap(new byte[2048], 1, 1024).slice());
+    assertEquals(0, SerializationBufferPool.getRetainedBytes());
+  }
+
+  @Test
+  public void testRetainedBytesAreLimited() {
+    for (int i = 0; i < 100; i++) {
+      SerializationBufferPool.release(ByteBuffer.allocate(SerializationBufferPool.MIN_BUFFER_SIZE));
+    }
+    assertEquals(4 * SerializationBufferPool.MIN_BUFFER_SIZE, SerializationBufferPool.getRetainedBytes());
+    for (int size = SerializationBufferPool.MIN_BUFFER_SIZE; size <= SerializationBufferPool.MAX_BUFFER_SIZE; size *= 2) {
+      for (int i = 0; i < 4; i++) {
+        SerializationBufferPool.release(ByteBuffer.allocate(size));
+      }
+    }
+    assertTrue(SerializationBufferPool.getRetainedBytes() <= SerializationBufferPool.MAX_RETAINED_BYTES);
+  }
+
+  @Test
+  public void testPooledStreamContents() throws Exception {
+    for (int len : new int[] { 0, 10, 1024, 1025, 5000, 100000, SerializationBufferPool.MAX_BUFFER_SIZE * 3 }) {
+      byte[] expected = new byte[len];
+      for (int i = 0; i < len; i++) {
+        expected[i] = (byte)(i * 31);
+      }
+      // twice so that the second stream uses released buffers
+      for (int j = 0; j < 2; j++) {
+        HeapDataOutputStream hdos = HeapDataOutputStream.createPooled(Version.CURRENT);
+        for (int i = 0; i < len; i++) {
+          hdos.writeByte(expected[i]);
+        }
+        byte[] actual = hdos.toByteArray();
+        hdos.release();
+        assertTrue("length " + len, Arrays.equals(expected, actual));
+      }
+    }
+  }
+
+  @Test
+  public void testToByteArrayDoesNotReturnPooledBuffer() throws Exception {
+    HeapDataOutputStream hdos = HeapDataOutputStream.createPooled(Version.CURRENT);
+    for (int i = 0; i < SerializationBufferPool.MIN_BUFFER_SIZE; i++) {
+      hdos.writeByte(7);
+    }
+    byte[] bytes = hdos.toByteArray();
+    hdos.release();
+    ByteBuffer reused = SerializationBufferPool.acquire(SerializationBufferPool.MIN_BUFFER_SIZE);
+    assertNotSame(bytes, reused.array());
+    reused.put(0, (byte)9);
+    assertEquals(7, bytes[0]);
+  }
+
+  @Test
+  public void testSerializeToBlobReusesBuffers() throws Exception {
+    String value = "value";
+    byte[] first = BlobHelper.serializeToBlob(value);
+    assertEquals(SerializationBufferPool.MIN_BUFFER_SIZE, SerializationBufferPool.getRetainedBytes());
+    byte[] second = BlobHelper.serializeToBlob(value);
+    assertNotSame(first, second);
+    assertTrue(Arrays.equals(first, second));
+    assertEquals(value, BlobHelper.deserializeBlob(second));
+    assertEquals(SerializationBufferPool.MIN_BUFFER_SIZE, SerializationBufferPool.getRetainedBytes());
+  }
+}
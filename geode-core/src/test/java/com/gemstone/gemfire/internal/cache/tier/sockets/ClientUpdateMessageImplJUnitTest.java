@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache.tier.sockets;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.internal.Version;
+import com.gemstone.gemfire.internal.cache.EnumListenerEvent;
+import com.gemstone.gemfire.internal.cache.EventID;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.cache.tier.sockets.ClientUpdateMessageImpl.SerializedParts;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class ClientUpdateMessageImplJUnitTest {
+
+  private LocalRegion region;
+
+  private CacheClientProxy proxy;
+
+  private CacheClientNotifierStats stats;
+
+  @Before
+  public void setUp() throws Exception {
+    this.region = mock(LocalRegion.class);
+    when(this.region.getFullPath()).thenReturn("/region");
+    this.stats = mock(CacheClientNotifierStats.class);
+    CacheClientNotifier ccn = mock(CacheClientNotifier.class);
+    when(ccn.getStats()).thenReturn(this.stats);
+    this.proxy = mock(CacheClientProxy.class);
+    when(this.proxy.getCacheClientNotifier()).thenReturn(ccn);
+  }
+
+  private ClientUpdateMessageImpl createMessage(Object key, Object callbackArgument) {
+    return new ClientUpdateMessageImpl(EnumListenerEvent.AFTER_UPDATE, this.region,
+        key, new byte[] { 1 }, (byte)0x01, callbackArgument, null,
+        new EventID(new byte[] { 1, 2, 3 }, 7, 11));
+  }
+
+  @Test
+  public void testPartsMatchSerializedObjects() throws Exception {
+    Long key = Long.valueOf(42);
+    ClientUpdateMessageImpl clientMessage = createMessage(key, "callback");
+    SerializedParts parts = clientMessage.getSerializedParts(this.proxy, Version.CURRENT);
+
+    Message message = new Message(3, Version.CURRENT);
+    parts.addKeyPart(message);
+    parts.addCallbackArgumentPart(message);
+    parts.addEventIdentifierPart(message);
+    Message expected = new Message(3, Version.CURRENT);
+    expected.addStringOrObjPart(key);
+    expected.addObjPart("callback");
+    expected.addObjPart(clientMessage.getEventId());
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(expected.getPart(i).getTypeCode(), message.getPart(i).getTypeCode());
+    }
+    assertEquals(key, message.getPart(0).getObject());
+    assertEquals("callback", message.getPart(1).getObject());
+    assertEquals(clientMessage.getEventId(), message.getPart(2).getObject());
+  }
+
+  @Test
+  public void testStringKeyAndByteArrayCallbackArePlainBytes() throws Exception {
+    byte[] callbackArgument = new byte[] { 5, 6 };
+    SerializedParts parts = createMessage("key", callbackArgument)
+        .getSerializedParts(this.proxy, Version.CURRENT);
+
+    Message message = new Message(2, Version.CURRENT);
+    parts.addKeyPart(message);
+    parts.addCallbackArgumentPart(message);
+    assertFalse(message.getPart(0).isObject());
+    assertEquals("key", message.getPart(0).getStringOrObject());
+    assertFalse(message.getPart(1).isObject());
+    assertTrue(Arrays.equals(callbackArgument, (byte[])message.getPart(1).getObject()));
+  }
+
+  @Test
+  public void testByteArrayKeyIsSerialized() throws Exception {
+    byte[] key = new byte[] { 1, 2, 3 };
+    SerializedParts parts = createMessage(key, null)
+        .getSerializedParts(this.proxy, Version.CURRENT);
+
+    Message message = new Message(1, Version.CURRENT);
+    parts.addKeyPart(message);
+    Message expected = new Message(1, Version.CURRENT);
+    expected.addStringOrObjPart(key);
+    assertEquals(expected.getPart(0).getTypeCode(), message.getPart(0).getTypeCode());
+    assertTrue(message.getPart(0).isObject());
+    assertTrue(Arrays.equals(key, (byte[])message.getPart(0).getObject()));
+  }
+
+  @Test
+  public void testPartsAreSharedByClientsOfTheSameVersion() throws Exception {
+    ClientUpdateMessageImpl clientMessage = createMessage("key", null);
+    SerializedParts parts = clientMessage.getSerializedParts(this.proxy, Version.CURRENT);
+    assertSame(parts, clientMessage.getSerializedParts(this.proxy, Version.CURRENT));
+    verify(this.stats, times(1)).incSharedSerializations();
+    verify(this.stats, times(1)).incSharedSerializationReused(parts.getSize());
+
+    // clients of other versions serialize their own parts
+    SerializedParts older = clientMessage.getSerializedParts(this.proxy, Version.GFE_65);
+    assertNotSame(parts, older);
+    assertSame(parts, clientMessage.getSerializedParts(this.proxy, Version.CURRENT));
+  }
+}
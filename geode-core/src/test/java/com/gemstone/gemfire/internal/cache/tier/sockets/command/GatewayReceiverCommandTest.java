@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache.tier.sockets.command;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.internal.cache.EventID;
+import com.gemstone.gemfire.internal.cache.tier.sockets.command.GatewayReceiverCommand.BatchEvent;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+/**
+ * Tests how {@link GatewayReceiverCommand} splits a batch into lanes that
+ * can be applied concurrently.
+ */
+@Category(UnitTest.class)
+public class GatewayReceiverCommandTest {
+
+  private static final byte[] MEMBER = new byte[] { 1, 2, 3 };
+
+  private final List<BatchEvent> events = new ArrayList<BatchEvent>();
+
+  private BatchEvent addEvent(String regionName, Object key, long threadId) {
+    BatchEvent event = new BatchEvent(0);
+    event.regionName = regionName;
+    event.key = key;
+    event.eventId = new EventID(MEMBER, threadId, this.events.size());
+    event.index = this.events.size();
+    this.events.add(event);
+    return event;
+  }
+
+  @Test
+  public void testIndependentEventsAreSpreadOverLanes() {
+    for (int i = 0; i < 8; i++) {
+      addEvent("/r", "key" + i, i);
+    }
+    List<List<BatchEvent>> lanes = GatewayReceiverCommand.partition(this.events, 4);
+    assertEquals(4, lanes.size());
+    for (List<BatchEvent> lane : lanes) {
+      assertEquals(2, lane.size());
+    }
+  }
+
+  @Test
+  public void testEventsOnSameKeyStayInOrderInOneLane() {
+    BatchEvent first = addEvent("/r", "key", 1);
+    addEvent("/r", "other", 2);
+    BatchEvent second = addEvent("/r", "key", 3);
+    addEvent("/r", "another", 4);
+    BatchEvent third = addEvent("/r", "key", 5);
+
+    List<List<BatchEvent>> lanes = GatewayReceiverCommand.partition(this.events, 4);
+    List<BatchEvent> lane = laneOf(lanes, first);
+    assertSame(lane, laneOf(lanes, second));
+    assertSame(lane, laneOf(lanes, third));
+    assertTrue(lane.indexOf(first) < lane.indexOf(second));
+    assertTrue(lane.indexOf(second) < lane.indexOf(third));
+  }
+
+  @Test
+  public void testSameKeyInDifferentRegionsIsIndependent() {
+    BatchEvent e1 = addEvent("/r1", "key", 1);
+    BatchEvent e2 = addEvent("/r2", "key", 2);
+    List<List<BatchEvent>> lanes = GatewayReceiverCommand.partition(this.events, 4);
+    assertEquals(2, lanes.size());
+    assertNotSame(laneOf(lanes, e1), laneOf(lanes, e2));
+  }
+
+  @Test
+  public void testEventsFromSameThreadStayInOneLane() {
+    BatchEvent e1 = addEvent("/r", "a", 7);
+    addEvent("/r", "b", 8);
+    BatchEvent e2 = addEvent("/r", "c", 7);
+    List<List<BatchEvent>> lanes = GatewayReceiverCommand.partition(this.events, 4);
+    assertEquals(2, lanes.size());
+    assertSame(laneOf(lanes, e1), laneOf(lanes, e2));
+  }
+
+  @Test
+  public void testGroupsAreJoinedTransitively() {
+    // a and b share a thread, b and c share a key
+    BatchEvent a = addEvent("/r", "k1", 1);
+    BatchEvent b = addEvent("/r", "k2", 1);
+    BatchEvent c = addEvent("/r", "k2", 2);
+    addEvent("/r", "k3", 3);
+    List<List<BatchEvent>> lanes = GatewayReceiverCommand.partition(this.events, 4);
+    assertEquals(2, lanes.size());
+    assertSame(laneOf(lanes, a), laneOf(lanes, b));
+    assertSame(laneOf(lanes, a), laneOf(lanes, c));
+  }
+
+  @Test
+  public void testSingleLaneKeepsBatchOrder() {
+    for (int i = 0; i < 5; i++) {
+      addEvent("/r", "key" + i, i);
+    }
+    List<List<BatchEvent>> lanes = GatewayReceiverCommand.partition(this.events, 1);
+    assertEquals(1, lanes.size());
+    assertEquals(this.events, lanes.get(0));
+  }
+
+  @Test
+  public void testNextPartNumber() {
+    BatchEvent event = new BatchEvent(10);
+    event.actionType = 0;
+    assertEquals(18, event.getNextPartNumber());
+    event.callbackArgExists = true;
+    assertEquals(19, event.getNextPartNumber());
+    event.actionType = 2;
+    assertEquals(18, event.getNextPartNumber());
+    event.callbackArgExists = false;
+    event.actionType = 3;
+    assertEquals(17, event.getNextPartNumber());
+  }
+
+  private static List<BatchEvent> laneOf(List<List<BatchEvent>> lanes, BatchEvent event) {
+    for (List<BatchEvent> lane : lanes) {
+      if (lane.contains(event)) {
+        return lane;
+      }
+    }
+    fail("event not assigned to a lane");
+    return null;
+  }
+}
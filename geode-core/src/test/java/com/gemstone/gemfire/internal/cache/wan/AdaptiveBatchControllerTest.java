@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache.wan;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class AdaptiveBatchControllerTest {
+
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private long now = 0;
+
+  /**
+   * Acknowledges one epoch of batches, each taking the given latency.
+   */
+  private void ackEpoch(AdaptiveBatchController controller, long latencyMs, int queueSize) {
+    for (int i = 0; i < AdaptiveBatchController.EPOCH_BATCHES; i++) {
+      this.now += latencyMs * MS;
+      controller.batchAcknowledged(controller.getBatchSize(), latencyMs * MS, queueSize, this.now);
+    }
+  }
+
+  @Test
+  public void testStartsAtMaximum() {
+    AdaptiveBatchController controller = new AdaptiveBatchController(10, 100, 5, 1000, 500, null);
+    assertEquals(100, controller.getBatchSize());
+    assertEquals(1000, controller.getBatchTimeInterval());
+  }
+
+  @Test
+  public void testHighLatencyShrinksBatchToMinimum() {
+    AdaptiveBatchController controller = new AdaptiveBatchController(10, 100, 5, 1000, 500, null);
+    ackEpoch(controller, 800, 1000);
+    assertEquals(75, controller.getBatchSize());
+    assertEquals(5, controller.getBatchTimeInterval());
+    for (int i = 0; i < 20; i++) {
+      ackEpoch(controller, 800, 1000);
+    }
+    assertEquals(10, controller.getBatchSize());
+  }
+
+  @Test
+  public void testBacklogGrowsBatchUpToMaximum() {
+    AdaptiveBatchController controller = new AdaptiveBatchController(10, 100, 5, 1000, 500, null);
+    ackEpoch(controller, 800, 1000);
+    ackEpoch(controller, 800, 1000);
+    int shrunk = controller.getBatchSize();
+    assertTrue(shrunk < 100);
+    // latency drops and a backlog builds up; throughput keeps rising
+    for (int i = 0; i < 10; i++) {
+      ackEpoch(controller, 10, 1000);
+    }
+    assertEquals(100, controller.getBatchSize());
+  }
+
+  @Test
+  public void testNoBacklogKeepsBatchSize() {
+    AdaptiveBatchController controller = new AdaptiveBatchController(10, 100, 5, 1000, 500, null);
+    ackEpoch(controller, 800, 0);
+    assertEquals(75, controller.getBatchSize());
+    ackEpoch(controller, 10, 0);
+    assertEquals(75, controller.getBatchSize());
+    assertEquals(490, controller.getBatchTimeInterval());
+  }
+
+  @Test
+  public void testIntervalIsBoundedByMaximum() {
+    AdaptiveBatchController controller = new AdaptiveBatchController(10, 100, 5, 200, 500, null);
+    ackEpoch(controller, 10, 0);
+    assertEquals(200, controller.getBatchTimeInterval());
+  }
+
+  @Test
+  public void testSetMaximumBatchSizeCapsCurrentSize() {
+    AdaptiveBatchController controller = new AdaptiveBatchController(10, 100, 5, 1000, 500, null);
+    controller.setMaximumBatchSize(40);
+    assertEquals(40, controller.getBatchSize());
+    for (int i = 0; i < 10; i++) {
+      ackEpoch(controller, 10, 1000);
+    }
+    assertEquals(40, controller.getBatchSize());
+    // a batch that is too large shrinks it below the minimum
+    controller.setMaximumBatchSize(4);
+    assertEquals(4, controller.getBatchSize());
+    for (int i = 0; i < 10; i++) {
+      ackEpoch(controller, 800, 1000);
+    }
+    assertEquals(4, controller.getBatchSize());
+    controller.setMaximumBatchSize(0);
+    assertEquals(1, controller.getBatchSize());
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.cache.wan;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.OutOfOffHeapMemoryException;
+import com.gemstone.gemfire.internal.offheap.MemoryAllocator;
+import com.gemstone.gemfire.internal.offheap.MemoryAllocatorImpl;
+import com.gemstone.gemfire.internal.offheap.NullOffHeapMemoryStats;
+import com.gemstone.gemfire.internal.offheap.NullOutOfOffHeapMemoryListener;
+import com.gemstone.gemfire.internal.offheap.OutOfOffHeapMemoryListener;
+import com.gemstone.gemfire.internal.offheap.SlabImpl;
+import com.gemstone.gemfire.internal.offheap.StoredObject;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class GatewaySenderEventImplJUnitTest {
+
+  private MemoryAllocator allocator;
+
+  private GatewaySenderStats stats;
+
+  @Before
+  public void setUp() throws Exception {
+    this.allocator = MemoryAllocatorImpl.createForUnitTest(new NullOutOfOffHeapMemoryListener(),
+        new NullOffHeapMemoryStats(), new SlabImpl[] { new SlabImpl(1024 * 1024) });
+    this.stats = mock(GatewaySenderStats.class);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    MemoryAllocatorImpl.freeOffHeapMemory();
+  }
+
+  private GatewaySenderEventImpl createEvent(byte[] value, byte valueIsObject) {
+    GatewaySenderEventImpl event = new GatewaySenderEventImpl();
+    event.value = value;
+    event.valueIsObject = valueIsObject;
+    return event;
+  }
+
+  @Test
+  public void testStoreValueOffHeapMovesValue() {
+    byte[] bytes = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 };
+    GatewaySenderEventImpl event = createEvent(bytes, (byte)0x00);
+    int heapSize = event.getSizeInBytes();
+
+    assertTrue(event.storeValueOffHeap(this.allocator, this.stats));
+    assertNull(event.value);
+    assertTrue(event.valueObj instanceof StoredObject);
+    verify(this.stats).incEventQueueOffHeapMemory(((StoredObject)event.valueObj).getSizeInBytes());
+    assertTrue(event.getSizeInBytes() < heapSize);
+
+    // reading the value does not bring it back to the heap
+    assertTrue(Arrays.equals(bytes, event.getSerializedValue()));
+    assertNull(event.value);
+    assertTrue(Arrays.equals(bytes, (byte[])event.getValue()));
+
+    // a heap copy is made when the event is peeked
+    GatewaySenderEventImpl copy = event.makeHeapCopyIfOffHeap();
+    assertNotSame(event, copy);
+    assertTrue(Arrays.equals(bytes, copy.value));
+  }
+
+  @Test
+  public void testReleaseFreesOffHeapValue() {
+    GatewaySenderEventImpl event = createEvent(new byte[100], (byte)0x01);
+    long before = this.allocator.getUsedMemory();
+    assertTrue(event.storeValueOffHeap(this.allocator, this.stats));
+    assertTrue(this.allocator.getUsedMemory() > before);
+    int size = ((StoredObject)event.valueObj).getSizeInBytes();
+
+    event.release();
+    assertEquals(before, this.allocator.getUsedMemory());
+    verify(this.stats).decEventQueueOffHeapMemory(size);
+
+    // a second release does not count the memory twice
+    event.release();
+    verify(this.stats, times(1)).decEventQueueOffHeapMemory(anyLong());
+  }
+
+  @Test
+  public void testValuesThatCannotBeMovedStayOnHeap() {
+    GatewaySenderEventImpl delta = createEvent(new byte[10], (byte)0x02);
+    assertFalse(delta.storeValueOffHeap(this.allocator, this.stats));
+
+    GatewaySenderEventImpl nullValue = createEvent(null, (byte)0x01);
+    assertFalse(nullValue.storeValueOffHeap(this.allocator, this.stats));
+
+    GatewaySenderEventImpl moved = createEvent(new byte[10], (byte)0x01);
+    assertTrue(moved.storeValueOffHeap(this.allocator, this.stats));
+    assertFalse(moved.storeValueOffHeap(this.allocator, this.stats));
+    moved.release();
+
+    // leave room for the regions using off-heap memory
+    GatewaySenderEventImpl large = createEvent(new byte[1024 * 1000], (byte)0x01);
+    assertFalse(large.storeValueOffHeap(this.allocator, this.stats));
+    assertNotNull(large.value);
+    verify(this.stats, times(1)).incEventQueueOffHeapMemory(anyLong());
+  }
+
+  @Test
+  public void testFragmentedMemoryKeepsValueOnHeapWithoutReportingOutOfMemory() {
+    MemoryAllocatorImpl.freeOffHeapMemory();
+    OutOfOffHeapMemoryListener listener = mock(OutOfOffHeapMemoryListener.class);
+    this.allocator = MemoryAllocatorImpl.createForUnitTest(listener,
+        new NullOffHeapMemoryStats(), new SlabImpl[] { new SlabImpl(1024 * 1024) });
+    // free every other chunk so that half the memory is free but no large
+    // chunk can be allocated
+    List<StoredObject> chunks = new ArrayList<StoredObject>();
+    while (this.allocator.getFreeMemory() > 2048) {
+      chunks.add(this.allocator.allocate(1000));
+    }
+    for (int i = 0; i < chunks.size(); i += 2) {
+      chunks.get(i).release();
+    }
+    assertTrue(this.allocator.getFreeMemory() > 400 * 1024);
+
+    GatewaySenderEventImpl event = createEvent(new byte[100 * 1024], (byte)0x01);
+    assertFalse(event.storeValueOffHeap(this.allocator, this.stats));
+    assertNotNull(event.value);
+    verify(listener, never()).outOfOffHeapMemory(any(OutOfOffHeapMemoryException.class));
+    verify(this.stats, never()).incEventQueueOffHeapMemory(anyLong());
+  }
+}
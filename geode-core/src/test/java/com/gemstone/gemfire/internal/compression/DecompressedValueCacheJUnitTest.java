@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.compression;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.compression.SnappyCompressor;
+import com.gemstone.gemfire.internal.cache.CachePerfStats;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.cache.compression.DecompressedValueCache;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests the {@link DecompressedValueCache} of compressed regions.
+ */
+@Category(IntegrationTest.class)
+public class DecompressedValueCacheJUnitTest {
+
+  private static final long MAX_BYTES = 10 * 1024;
+
+  private long oldMaxBytes;
+
+  private GemFireCacheImpl gfc;
+
+  @Before
+  public void setUp() {
+    this.oldMaxBytes = DecompressedValueCache.MAX_BYTES;
+    DecompressedValueCache.MAX_BYTES = MAX_BYTES;
+    this.gfc = (GemFireCacheImpl)new CacheFactory().set("mcast-port", "0").set("locators", "").create();
+  }
+
+  @After
+  public void tearDown() {
+    DecompressedValueCache.MAX_BYTES = this.oldMaxBytes;
+    this.gfc.close();
+  }
+
+  private Region<Object, Object> createRegion(String name, RegionShortcut shortcut) {
+    return this.gfc.createRegionFactory(shortcut).setCompressor(new SnappyCompressor()).create(name);
+  }
+
+  @Test
+  public void testRepeatedGetsHit() {
+    Region<Object, Object> r = createRegion("r", RegionShortcut.LOCAL);
+    DecompressedValueCache cache = ((LocalRegion)r).getDecompressedValueCache();
+    assertNotNull(cache);
+    CachePerfStats stats = this.gfc.getCachePerfStats();
+    r.put("k", "value");
+    long hits = stats.getDecompressedValueCacheHits();
+    long misses = stats.getDecompressedValueCacheMisses();
+
+    assertEquals("value", r.get("k"));
+    assertEquals(misses + 1, stats.getDecompressedValueCacheMisses());
+    assertEquals(1, cache.size());
+    assertEquals(1, stats.getDecompressedValueCacheEntries());
+    assertEquals(cache.getBytes(), stats.getDecompressedValueCacheBytes());
+    for (int i = 0; i < 10; i++) {
+      assertEquals("value", r.get("k"));
+    }
+    assertEquals(hits + 10, stats.getDecompressedValueCacheHits());
+    assertEquals(misses + 1, stats.getDecompressedValueCacheMisses());
+  }
+
+  @Test
+  public void testUpdateInvalidates() {
+    Region<Object, Object> r = createRegion("r", RegionShortcut.LOCAL);
+    DecompressedValueCache cache = ((LocalRegion)r).getDecompressedValueCache();
+    r.put("k", "old");
+    assertEquals("old", r.get("k"));
+    assertEquals(1, cache.size());
+    r.put("k", "new");
+    assertEquals(0, cache.size());
+    assertEquals("new", r.get("k"));
+    assertEquals("new", r.get("k"));
+    r.destroy("k");
+    assertEquals(0, cache.size());
+    assertNull(r.get("k"));
+
+    r.put("k", "again");
+    assertEquals("again", r.get("k"));
+    r.clear();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getBytes());
+    assertEquals(0, this.gfc.getCachePerfStats().getDecompressedValueCacheBytes());
+  }
+
+  @Test
+  public void testEvictionBoundsSize() {
+    Region<Object, Object> r = createRegion("r", RegionShortcut.LOCAL);
+    DecompressedValueCache cache = ((LocalRegion)r).getDecompressedValueCache();
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      sb.append("abcdefghij");
+    }
+    String value = sb.toString();
+    for (int i = 0; i < 100; i++) {
+      r.put(i, value + i);
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals(value + i, r.get(i));
+      assertTrue(cache.getBytes() + " > " + MAX_BYTES, cache.getBytes() <= MAX_BYTES);
+    }
+    assertTrue(cache.size() > 0);
+    assertTrue(cache.size() < 100);
+    assertEquals(cache.getBytes(), this.gfc.getCachePerfStats().getDecompressedValueCacheBytes());
+
+    // values larger than the cache are never cached
+    sb.setLength(0);
+    for (int i = 0; i < MAX_BYTES; i++) {
+      sb.append('x');
+    }
+    r.put("big", sb.toString());
+    assertEquals(sb.toString(), r.get("big"));
+    assertTrue(cache.getBytes() <= MAX_BYTES);
+  }
+
+  @Test
+  public void testCachedValuesAreCopiedOnRead() {
+    this.gfc.setCopyOnRead(true);
+    Region<Object, Object> r = createRegion("r", RegionShortcut.LOCAL);
+    r.put("k", new StringBuilder("value"));
+    ((StringBuilder)r.get("k")).append(" changed");
+    assertEquals("value", r.get("k").toString());
+  }
+
+  @Test
+  public void testRegionsWithoutCaches() {
+    LocalRegion uncompressed = (LocalRegion)this.gfc.createRegionFactory(RegionShortcut.LOCAL).create("uncompressed");
+    assertNull(uncompressed.getDecompressedValueCache());
+
+    LocalRegion pr = (LocalRegion)createRegion("pr", RegionShortcut.PARTITION);
+    assertNotNull(pr.getDecompressedValueCache());
+    pr.put("k", "value");
+    assertEquals("value", pr.get("k"));
+    assertEquals("value", pr.get("k"));
+    assertEquals(1, pr.getDecompressedValueCache().size());
+
+    DecompressedValueCache.MAX_BYTES = 0;
+    LocalRegion disabled = (LocalRegion)createRegion("disabled", RegionShortcut.LOCAL);
+    assertNull(disabled.getDecompressedValueCache());
+    disabled.put("k", "value");
+    assertEquals("value", disabled.get("k"));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEvictedFirst() {
+    CachePerfStats stats = this.gfc.getCachePerfStats();
+    DecompressedValueCache cache = new DecompressedValueCache(2 * (100 + 64), stats);
+    Object a = new Object();
+    Object b = new Object();
+    Object c = new Object();
+    byte[] ca = new byte[1];
+    byte[] cb = new byte[1];
+    byte[] cc = new byte[1];
+    cache.put(a, ca, "a", 100);
+    cache.put(b, cb, "b", 100);
+    assertEquals("a", cache.get(a, ca));
+    cache.put(c, cc, "c", 100);
+    assertEquals(2, cache.size());
+    assertNull(cache.get(b, cb));
+    assertEquals("a", cache.get(a, ca));
+    assertEquals("c", cache.get(c, cc));
+    cache.clear();
+    assertEquals(0, cache.getBytes());
+  }
+
+  @Test
+  public void testReplacedValuesAreReleased() {
+    CachePerfStats stats = this.gfc.getCachePerfStats();
+    long statBytes = stats.getDecompressedValueCacheBytes();
+    long statEntries = stats.getDecompressedValueCacheEntries();
+    DecompressedValueCache cache = new DecompressedValueCache(MAX_BYTES, stats);
+    Object k = new Object();
+    for (int i = 0; i < 10000; i++) {
+      byte[] compressed = new byte[1];
+      cache.put(k, compressed, "v", 10);
+      if (i % 3 == 0) {
+        // an update of the entry
+        assertNull(cache.get(k, new byte[1]));
+      } else if (i % 3 == 1) {
+        cache.invalidate(k);
+      }
+    }
+    cache.put(k, new byte[1], "v", 10);
+    assertEquals(1, cache.size());
+    assertEquals(10 + 64, cache.getBytes());
+    assertEquals(statBytes + 10 + 64, stats.getDecompressedValueCacheBytes());
+    assertEquals(statEntries + 1, stats.getDecompressedValueCacheEntries());
+  }
+
+  @Test
+  public void testConcurrentClear() throws Exception {
+    final CachePerfStats stats = this.gfc.getCachePerfStats();
+    final long statBytes = stats.getDecompressedValueCacheBytes();
+    final DecompressedValueCache cache = new DecompressedValueCache(MAX_BYTES, stats);
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 20000; i++) {
+            Integer k = i % 50;
+            byte[] compressed = new byte[1];
+            cache.put(k, compressed, k, 100);
+            cache.get(k, compressed);
+            if (i % 7 == 0) {
+              cache.invalidate(k);
+            }
+            if (i % 101 == 0) {
+              cache.clear();
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(cache.getBytes() <= MAX_BYTES);
+    assertEquals(cache.size() * (100 + 64), cache.getBytes());
+    assertEquals(statBytes + cache.getBytes(), stats.getDecompressedValueCacheBytes());
+    cache.clear();
+    assertEquals(statBytes, stats.getDecompressedValueCacheBytes());
+  }
+}
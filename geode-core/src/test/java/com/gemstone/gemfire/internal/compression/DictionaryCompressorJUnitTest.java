@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.compression;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.StatisticDescriptor;
+import com.gemstone.gemfire.Statistics;
+import com.gemstone.gemfire.cache.Cache;
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.compression.CompressionException;
+import com.gemstone.gemfire.compression.DictionaryCompressor;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.cache.xmlcache.CacheXmlGenerator;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests the {@link DictionaryCompressor}.
+ */
+@Category(IntegrationTest.class)
+public class DictionaryCompressorJUnitTest {
+
+  private GemFireCacheImpl gfc;
+
+  @After
+  public void tearDown() {
+    if (this.gfc != null) {
+      this.gfc.close();
+    }
+  }
+
+  private static byte[] createValue(Random random, int id) {
+    return ("{\"customerId\":" + id + ",\"firstName\":\"first" + random.nextInt(1000)
+        + "\",\"lastName\":\"last" + random.nextInt(1000) + "\",\"status\":\"ACTIVE\","
+        + "\"address\":{\"street\":\"" + random.nextInt(10000) + " Main Street\","
+        + "\"city\":\"Portland\",\"country\":\"United States\"},\"balance\":"
+        + random.nextInt(100000) + "}").getBytes();
+  }
+
+  private static List<byte[]> createValues(int count, long seed) {
+    Random random = new Random(seed);
+    List<byte[]> result = new ArrayList<byte[]>();
+    for (int i = 0; i < count; i++) {
+      result.add(createValue(random, i));
+    }
+    return result;
+  }
+
+  private static int compressedSize(DictionaryCompressor compressor, List<byte[]> values) {
+    int size = 0;
+    for (byte[] value : values) {
+      byte[] compressed = compressor.compress(value);
+      assertTrue(Arrays.equals(value, compressor.decompress(compressed)));
+      size += compressed.length;
+    }
+    return size;
+  }
+
+  @Test
+  public void testSmallValuesCompressBetterWithADictionary() {
+    byte[] dictionary = DictionaryCompressor.trainDictionary(createValues(500, 1), 4096);
+    assertTrue(dictionary.length > 0);
+    assertTrue(dictionary.length <= 4096);
+
+    List<byte[]> values = createValues(200, 2);
+    int uncompressed = 0;
+    for (byte[] value : values) {
+      uncompressed += value.length;
+    }
+    int withoutDictionary = compressedSize(new DictionaryCompressor(), values);
+    int withDictionary = compressedSize(new DictionaryCompressor(dictionary), values);
+    assertTrue(withDictionary + " >= " + uncompressed / 2, withDictionary < uncompressed / 2);
+    assertTrue(withDictionary + " >= " + withoutDictionary, withDictionary < withoutDictionary);
+  }
+
+  @Test
+  public void testRoundTrip() {
+    DictionaryCompressor compressor = new DictionaryCompressor(
+        DictionaryCompressor.trainDictionary(createValues(50, 3), 1024));
+    byte[] empty = new byte[0];
+    assertTrue(Arrays.equals(empty, compressor.decompress(compressor.compress(empty))));
+    byte[] large = new byte[100000];
+    new Random(4).nextBytes(large);
+    assertTrue(Arrays.equals(large, compressor.decompress(compressor.compress(large))));
+    assertEquals(0, DictionaryCompressor.trainDictionary(new ArrayList<byte[]>(), 1024).length);
+  }
+
+  @Test
+  public void testDifferentDictionary() {
+    DictionaryCompressor compressor = new DictionaryCompressor("dictionary one".getBytes());
+    DictionaryCompressor other = new DictionaryCompressor("dictionary two".getBytes());
+    byte[] compressed = compressor.compress("a value".getBytes());
+    try {
+      other.decompress(compressed);
+      fail("expected CompressionException");
+    } catch (CompressionException expected) {
+    }
+    try {
+      compressor.decompress(new byte[] { 1, 2 });
+      fail("expected CompressionException");
+    } catch (CompressionException expected) {
+    }
+
+    // the configuration has the dictionary
+    DictionaryCompressor copy = new DictionaryCompressor();
+    assertFalse(compressor.equals(copy));
+    copy.init(compressor.getConfig());
+    assertEquals(compressor, copy);
+    assertEquals("a value", new String(copy.decompress(compressed)));
+  }
+
+  @Test
+  public void testCorruptLength() {
+    DictionaryCompressor compressor = new DictionaryCompressor("a dictionary".getBytes());
+    byte[] compressed = compressor.compress("a value".getBytes());
+    // the id, a one byte length, then the deflated bytes
+    byte[] deflated = Arrays.copyOfRange(compressed, 5, compressed.length);
+    for (byte[] length : new byte[][] { { -1, -1, -1, -1, 0x07 }, { -1, -1, -1, -1, 0x0f } }) {
+      byte[] corrupt = new byte[4 + length.length + deflated.length];
+      System.arraycopy(compressed, 0, corrupt, 0, 4);
+      System.arraycopy(length, 0, corrupt, 4, length.length);
+      System.arraycopy(deflated, 0, corrupt, 4 + length.length, deflated.length);
+      try {
+        compressor.decompress(corrupt);
+        fail("expected CompressionException");
+      } catch (CompressionException expected) {
+      }
+    }
+
+    // pooled inflaters are still usable after corrupt input
+    byte[] garbage = compressed.clone();
+    Arrays.fill(garbage, 5, garbage.length, (byte)-1);
+    for (int i = 0; i < 100; i++) {
+      try {
+        compressor.decompress(garbage);
+        fail("expected CompressionException");
+      } catch (CompressionException expected) {
+      }
+      assertEquals("a value", new String(compressor.decompress(compressed)));
+    }
+  }
+
+  @Test
+  public void testRegionValuesAndStats() throws Exception {
+    this.gfc = (GemFireCacheImpl)new CacheFactory().set("mcast-port", "0").set("locators", "").create();
+    Region<Object, Object> samples = this.gfc.createRegionFactory(RegionShortcut.LOCAL).create("samples");
+    int i = 0;
+    for (byte[] value : createValues(300, 5)) {
+      samples.put(i++, value);
+    }
+    DictionaryCompressor compressor = DictionaryCompressor.train(samples, 100, DictionaryCompressor.DEFAULT_DICTIONARY_SIZE);
+    assertTrue(compressor.getDictionary().length > 0);
+
+    Region<Object, Object> r = this.gfc.createRegionFactory(RegionShortcut.LOCAL).setCompressor(compressor).create("r");
+    List<byte[]> values = createValues(100, 6);
+    for (i = 0; i < values.size(); i++) {
+      r.put(i, new String(values.get(i)));
+    }
+    for (i = 0; i < values.size(); i++) {
+      assertEquals(new String(values.get(i)), r.get(i));
+    }
+    long sized = 0;
+    for (long count : countBuckets(this.gfc.getCachePerfStats().getCompressedValueSizeHistogram().getStats())) {
+      sized += count;
+    }
+    assertEquals(values.size(), sized);
+    long[] ratios = countBuckets(this.gfc.getCachePerfStats().getCompressionRatioHistogram().getStats());
+    // every value is less than half its size
+    assertEquals(values.size(), ratios[0] + ratios[1] + ratios[2] + ratios[3] + ratios[4]);
+
+    // the dictionary is in the cache xml of the region
+    StringWriter xml = new StringWriter();
+    CacheXmlGenerator.generate((Cache)this.gfc, new PrintWriter(xml), true, false);
+    this.gfc.close();
+    this.gfc = (GemFireCacheImpl)new CacheFactory().set("mcast-port", "0").set("locators", "").create();
+    this.gfc.loadCacheXml(new ByteArrayInputStream(xml.toString().getBytes()));
+    assertEquals(compressor, this.gfc.getRegion("r").getAttributes().getCompressor());
+  }
+
+  private static long[] countBuckets(Statistics stats) {
+    List<Long> counts = new ArrayList<Long>();
+    for (StatisticDescriptor d : stats.getType().getStatistics()) {
+      if (d.getName().startsWith("BucketCount")) {
+        counts.add(stats.get(d).longValue());
+      }
+    }
+    long[] result = new long[counts.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = counts.get(i);
+    }
+    return result;
+  }
+}
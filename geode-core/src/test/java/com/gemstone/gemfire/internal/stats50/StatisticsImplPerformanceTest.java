@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.stats50;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.StatisticDescriptor;
+import com.gemstone.gemfire.Statistics;
+import com.gemstone.gemfire.StatisticsType;
+import com.gemstone.gemfire.StatisticsTypeFactory;
+import com.gemstone.gemfire.internal.LocalStatisticsImpl;
+import com.gemstone.gemfire.internal.StatisticsTypeFactoryImpl;
+import com.gemstone.gemfire.test.junit.categories.PerformanceTest;
+
+/**
+ * Microbenchmark of the atomic statistics implementations, incrementing the
+ * same counters from a growing number of threads, as the hot counters of
+ * CachePerfStats or DistributionStats are.
+ */
+@Category(PerformanceTest.class)
+public class StatisticsImplPerformanceTest {
+
+  private static final int[] THREADS = new int[] {1, 4, 16, 64};
+  private static final int INCREMENTS = 2_000_000;
+  private static final int ROUNDS = 3;
+
+  private static final StatisticsType TYPE;
+  static {
+    StatisticsTypeFactory f = StatisticsTypeFactoryImpl.singleton();
+    TYPE = f.createType("StatisticsImplPerformanceTest", "Benchmarked stats",
+        new StatisticDescriptor[] {
+          f.createLongCounter("puts", "puts", "operations"),
+          f.createLongCounter("putTime", "put time", "nanoseconds"),
+        });
+  }
+
+  private interface StatisticsCreator {
+    Statistics create();
+  }
+
+  @Test
+  public void testLocalStatistics() throws Exception {
+    doTest("LocalStatisticsImpl", new StatisticsCreator() {
+      public Statistics create() {
+        return new LocalStatisticsImpl(TYPE, "stats", 1, 1, true, 0, null);
+      }
+    });
+  }
+
+  @Test
+  public void testAtomic50Statistics() throws Exception {
+    doTest("Atomic50StatisticsImpl", new StatisticsCreator() {
+      public Statistics create() {
+        return new Atomic50StatisticsImpl(TYPE, "stats", 1, 1, null);
+      }
+    });
+  }
+
+  @Test
+  public void testStripedStatistics() throws Exception {
+    doTest("StripedStatisticsImpl", new StatisticsCreator() {
+      public Statistics create() {
+        return new StripedStatisticsImpl(TYPE, "stats", 1, 1, null);
+      }
+    });
+  }
+
+  private void doTest(String name, StatisticsCreator creator) throws Exception {
+    final int putsId = TYPE.nameToId("puts");
+    final int putTimeId = TYPE.nameToId("putTime");
+    for (int round = 0; round < ROUNDS; round++) {
+      for (int numThreads : THREADS) {
+        final Statistics stats = creator.create();
+        final int increments = INCREMENTS / numThreads;
+        // the barrier notes the time all the threads start, then end, at
+        final List<Long> times = new ArrayList<Long>();
+        final CyclicBarrier barrier = new CyclicBarrier(numThreads + 1, new Runnable() {
+          public void run() {
+            times.add(System.nanoTime());
+          }
+        });
+        Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+          threads[i] = new Thread() {
+            public void run() {
+              try {
+                barrier.await();
+                for (int j = 0; j < increments; j++) {
+                  stats.incLong(putsId, 1);
+                  stats.incLong(putTimeId, 10);
+                }
+                barrier.await();
+              } catch (Exception e) {
+                throw new RuntimeException(e);
+              }
+            }
+          };
+          threads[i].start();
+        }
+        barrier.await();
+        barrier.await();
+        long elapsed = times.get(1) - times.get(0);
+        for (Thread thread : threads) {
+          thread.join();
+        }
+        assertEquals((long)increments * numThreads, stats.getLong(putsId));
+        System.out.println(name + " round " + round + ", " + numThreads
+            + " threads: " + (2000L * increments * numThreads / elapsed)
+            + " million increments per second");
+      }
+    }
+  }
+}
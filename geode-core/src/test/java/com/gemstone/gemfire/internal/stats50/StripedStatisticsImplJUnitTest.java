@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.internal.stats50;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.StatisticDescriptor;
+import com.gemstone.gemfire.Statistics;
+import com.gemstone.gemfire.StatisticsType;
+import com.gemstone.gemfire.StatisticsTypeFactory;
+import com.gemstone.gemfire.internal.StatisticsTypeFactoryImpl;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class StripedStatisticsImplJUnitTest {
+
+  static final StatisticsType TYPE;
+  static {
+    StatisticsTypeFactory f = StatisticsTypeFactoryImpl.singleton();
+    TYPE = f.createType("StripedStatisticsImplJUnitTest", "Tests stats",
+        new StatisticDescriptor[] {
+          f.createIntCounter("ints", "int counter", "ops"),
+          f.createLongCounter("longs", "long counter", "ops"),
+          f.createDoubleGauge("doubles", "double gauge", "ops"),
+          f.createIntGauge("intGauge", "int gauge", "ops"),
+          f.createLongGauge("longGauge", "long gauge", "ops"),
+          f.createDoubleCounter("doubleCounter", "double counter", "ops"),
+        });
+  }
+
+  @Test
+  public void testConcurrentIncrementsAreNotLost() throws Exception {
+    final Statistics stats = new StripedStatisticsImpl(TYPE, "stats", 1, 1, null);
+    final int intId = TYPE.nameToId("ints");
+    final int longId = TYPE.nameToId("longs");
+    final int doubleId = TYPE.nameToId("doubles");
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        public void run() {
+          for (int j = 0; j < 100000; j++) {
+            stats.incInt(intId, 1);
+            stats.incLong(longId, 2);
+            stats.incDouble(doubleId, 0.5);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(stats.isAtomic());
+    assertEquals(800000, stats.getInt(intId));
+    assertEquals(1600000L, stats.getLong(longId));
+    assertEquals(400000.0, stats.getDouble(doubleId), 0.0);
+  }
+
+  @Test
+  public void testSetReplacesTheSumOfTheCells() {
+    Statistics stats = new StripedStatisticsImpl(TYPE, "stats", 1, 1, null);
+    stats.incLong("longs", 5);
+    stats.setLong("longs", 3);
+    stats.incLong("longs", 1);
+    assertEquals(4, stats.getLong("longs"));
+
+    // int stats wrap around like an int does
+    stats.setInt("ints", Integer.MAX_VALUE);
+    stats.incInt("ints", 1);
+    assertEquals(Integer.MIN_VALUE, stats.getInt("ints"));
+    stats.setInt("ints", 7);
+    assertEquals(7, stats.getInt("ints"));
+
+    stats.setDouble("doubles", 1.5);
+    stats.incDouble("doubles", 1.0);
+    assertEquals(2.5, stats.getDouble("doubles"), 0.0);
+  }
+
+  @Test
+  public void testGaugesAreSetExactly() {
+    Statistics stats = new StripedStatisticsImpl(TYPE, "stats", 1, 1, null);
+    for (int i = 0; i < 1000; i++) {
+      stats.incDouble("doubles", 0.1);
+    }
+    stats.setDouble("doubles", 1.0);
+    assertEquals(1.0, stats.getDouble("doubles"), 0.0);
+
+    stats.incInt("intGauge", 3);
+    stats.setInt("intGauge", -2);
+    stats.incInt("intGauge", 1);
+    assertEquals(-1, stats.getInt("intGauge"));
+
+    stats.incDouble("doubleCounter", 0.5);
+    stats.setDouble("doubleCounter", 2.0);
+    stats.incDouble("doubleCounter", 0.25);
+    assertEquals(2.25, stats.getDouble("doubleCounter"), 0.0);
+  }
+
+  @Test
+  public void testConcurrentSetsOfAGaugeKeepOneOfTheValues() throws Exception {
+    final Statistics stats = new StripedStatisticsImpl(TYPE, "stats", 1, 1, null);
+    final int longId = TYPE.nameToId("longGauge");
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      final long value = 1000L * (i + 1);
+      threads[i] = new Thread() {
+        public void run() {
+          for (int j = 0; j < 100000; j++) {
+            stats.setLong(longId, value);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long value = stats.getLong(longId);
+    assertTrue(String.valueOf(value), value % 1000 == 0 && value >= 1000 && value <= 8000);
+  }
+}
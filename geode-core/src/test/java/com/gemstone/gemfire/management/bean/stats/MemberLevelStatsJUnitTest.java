@@ -226,6 +226,9 @@ public class MemberLevelStatsJUnitTest extends MBeanStatsTestCase {
     long putsAverageLatency = getPutsAvgLatency();
     
     assertTrue(putsAverageLatency > 0);
+    // a single put, whose bucket bound is above its latency
+    assertTrue(bridge.getPutsLatencyAtPercentile(99) > putsAverageLatency);
+    assertTrue(bridge.getGetsLatencyAtPercentile(99.9) > getsAverageLatency);
     
     print("putsRate is " + new Float(putsRate).toString());
     assertTrue(putsRate > 0);
@@ -18,6 +18,7 @@ package com.gemstone.gemfire.pdx;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -38,6 +39,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -59,8 +61,10 @@ import com.gemstone.gemfire.internal.PdxSerializerObject;
 import com.gemstone.gemfire.internal.Version;
 import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
 import com.gemstone.gemfire.pdx.internal.AutoSerializableManager;
+import com.gemstone.gemfire.pdx.internal.AutoSerializableManager.AutoClassInfo;
 import com.gemstone.gemfire.pdx.internal.PdxField;
 import com.gemstone.gemfire.pdx.internal.PdxInstanceImpl;
+import com.gemstone.gemfire.pdx.internal.PdxType;
 import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
 
 /**
@@ -1020,6 +1024,77 @@ public class AutoSerializableJUnitTest {
     assertNull(result.anEnum);
   }
 
+  public static class OrderedHolder implements PdxSerializerObject {
+    private int i;
+    private String s;
+    private String nullString;
+    private long[] longs;
+    private Object obj;
+    private double d;
+
+    public OrderedHolder() {
+    }
+
+    public OrderedHolder(int i) {
+      this.i = i;
+      this.s = "s" + i;
+      this.longs = new long[] { i, -i };
+      this.obj = new BigHolder(i);
+      this.d = i / 2.0;
+    }
+
+    @Override
+    public int hashCode() {
+      return this.i;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof OrderedHolder)) {
+        return false;
+      }
+      OrderedHolder other = (OrderedHolder)obj;
+      return this.i == other.i && this.s.equals(other.s) && other.nullString == null
+          && Arrays.equals(this.longs, other.longs) && this.obj.equals(other.obj)
+          && this.d == other.d;
+    }
+  }
+
+  /*
+   * Test that an auto serialized class whose blob matches its pdx type is
+   * read in field order by the reflective field wrappers, and that a type
+   * with the same fields in another order is still read by name.
+   */
+  @Test
+  public void testOrderedDeserialization() throws Exception {
+    setupSerializer(false, false, "com.gemstone.gemfire.pdx.AutoSerializableJUnitTest.*Holder");
+    OrderedHolder objOut = new OrderedHolder(7);
+    HeapDataOutputStream out = new HeapDataOutputStream(Version.CURRENT);
+    DataSerializer.writeObject(objOut, out);
+    PdxType pt = this.c.getPdxRegistry().getExistingTypeForClass(OrderedHolder.class);
+    assertNull(pt.getAutoInfo(OrderedHolder.class));
+
+    for (int i = 0; i < 2; i++) {
+      Object dObj = DataSerializer.readObject(new DataInputStream(
+          new ByteArrayInputStream(out.toByteArray())));
+      assertEquals(objOut, dObj);
+      AutoClassInfo ci = pt.getAutoInfo(OrderedHolder.class);
+      assertNotNull(ci);
+      assertNull(ci.getGeneratedSerializer());
+    }
+
+    PdxInstanceFactory f = this.c.createPdxInstanceFactory(OrderedHolder.class.getName());
+    f.writeDouble("d", objOut.d);
+    f.writeObject("obj", objOut.obj);
+    f.writeLongArray("longs", objOut.longs);
+    f.writeString("nullString", null);
+    f.writeString("s", objOut.s);
+    f.writeInt("i", objOut.i);
+    PdxInstanceImpl reversed = (PdxInstanceImpl)f.create();
+    assertEquals(objOut, reversed.getObject());
+    assertNull(reversed.getPdxType().getAutoInfo(OrderedHolder.class));
+  }
+
   /*
    * Test what happens with a class without a zero-arg constructor
    */
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.pdx;
+
+import com.gemstone.gemfire.cache.AttributesFactory;
+import com.gemstone.gemfire.cache.DataPolicy;
+import com.gemstone.gemfire.cache.PartitionAttributesFactory;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.Scope;
+import com.gemstone.gemfire.cache.client.ClientCache;
+import com.gemstone.gemfire.cache.client.ClientCacheFactory;
+import com.gemstone.gemfire.cache.client.ClientRegionShortcut;
+import com.gemstone.gemfire.cache.partition.PartitionRegionHelper;
+import com.gemstone.gemfire.cache.server.CacheServer;
+import com.gemstone.gemfire.cache30.CacheTestCase;
+import com.gemstone.gemfire.internal.AvailablePortHelper;
+import com.gemstone.gemfire.internal.cache.CachePerfStats;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.cache.PartitionedRegion;
+import com.gemstone.gemfire.test.dunit.Host;
+import com.gemstone.gemfire.test.dunit.NetworkUtils;
+import com.gemstone.gemfire.test.dunit.SerializableCallable;
+import com.gemstone.gemfire.test.dunit.SerializableRunnable;
+import com.gemstone.gemfire.test.dunit.VM;
+
+/**
+ * Tests that the fields changed on a {@link WritablePdxInstance} are
+ * distributed as deltas to peers, redundant copies, and from clients to
+ * servers, and that the full value is sent when a delta can not be applied.
+ */
+public class PdxDeltaDUnitTest extends CacheTestCase {
+
+  private static final String REGION_NAME = "testPdxDelta";
+
+  public PdxDeltaDUnitTest(String name) {
+    super(name);
+  }
+
+  public void testPeerUpdate() {
+    Host host = Host.getHost(0);
+    VM vm0 = host.getVM(0);
+    VM vm1 = host.getVM(1);
+    createReplicateRegion(vm0);
+    createReplicateRegion(vm1);
+
+    vm0.invoke(createValue(1));
+    int updates = getDeltaUpdates(vm1);
+    vm0.invoke(updateName(1, "changed"));
+    assertEquals(updates + 1, getDeltaUpdates(vm1));
+    assertEquals(0, getDeltaFailedUpdates(vm1));
+    vm1.invoke(checkName(1, "changed"));
+
+    // a second change is relative to the first
+    vm1.invoke(updateName(1, "changed again"));
+    vm0.invoke(checkName(1, "changed again"));
+  }
+
+  public void testPartitionedRegionSecondary() {
+    Host host = Host.getHost(0);
+    VM vm0 = host.getVM(0);
+    VM vm1 = host.getVM(1);
+    VM vm2 = host.getVM(2);
+    createPartitionedRegion(vm0, 100);
+    createPartitionedRegion(vm1, 100);
+    // an accessor so that both the primary and the secondary get the delta
+    createPartitionedRegion(vm2, 0);
+
+    vm2.invoke(createValue(1));
+    int updates = getDeltaUpdates(vm0) + getDeltaUpdates(vm1);
+    vm2.invoke(updateName(1, "changed"));
+    assertEquals(updates + 2, getDeltaUpdates(vm0) + getDeltaUpdates(vm1));
+    assertEquals(0, getDeltaFailedUpdates(vm0) + getDeltaFailedUpdates(vm1));
+    vm0.invoke(checkLocalName(1, "changed"));
+    vm1.invoke(checkLocalName(1, "changed"));
+  }
+
+  public void testClientUpdate() {
+    Host host = Host.getHost(0);
+    VM vm0 = host.getVM(0);
+    VM vm1 = host.getVM(1);
+    int port = createServerRegion(vm0);
+    createClientRegion(vm1, port);
+
+    vm1.invoke(createValue(1));
+    int updates = getDeltaUpdates(vm0);
+    vm1.invoke(updateName(1, "changed"));
+    assertEquals(updates + 1, getDeltaUpdates(vm0));
+    assertEquals(0, getDeltaFailedUpdates(vm0));
+    vm0.invoke(checkName(1, "changed"));
+  }
+
+  public void testInvalidDeltaSendsFullValue() {
+    Host host = Host.getHost(0);
+    VM vm0 = host.getVM(0);
+    VM vm1 = host.getVM(1);
+    createNormalRegion(vm0);
+    createNormalRegion(vm1);
+
+    vm0.invoke(createValue(1));
+    // the delta can not be applied to an invalid entry
+    vm1.invoke(new SerializableRunnable() {
+      public void run() {
+        Region r = getRootRegion(REGION_NAME);
+        assertNotNull(r.get(1));
+        r.localInvalidate(1);
+      }
+    });
+    int failures = getDeltaFailedUpdates(vm1);
+    int fullValuesSent = (Integer)vm0.invoke(new SerializableCallable() {
+      public Object call() {
+        return getCachePerfStats().getDeltaFullValuesSent();
+      }
+    });
+    vm0.invoke(updateName(1, "changed"));
+    assertEquals(failures + 1, getDeltaFailedUpdates(vm1));
+    assertEquals(fullValuesSent + 1, vm0.invoke(new SerializableCallable() {
+      public Object call() {
+        return getCachePerfStats().getDeltaFullValuesSent();
+      }
+    }));
+    vm1.invoke(checkName(1, "changed"));
+  }
+
+  private CachePerfStats getCachePerfStats() {
+    LocalRegion r = (LocalRegion)getRootRegion(REGION_NAME);
+    if (r instanceof PartitionedRegion) {
+      // the buckets share the stats of the data store
+      return ((PartitionedRegion)r).getDataStore().getCachePerfStats();
+    }
+    return r.getCachePerfStats();
+  }
+
+  private int getDeltaUpdates(VM vm) {
+    return (Integer)vm.invoke(new SerializableCallable() {
+      public Object call() {
+        return getCachePerfStats().getDeltaUpdates();
+      }
+    });
+  }
+
+  private int getDeltaFailedUpdates(VM vm) {
+    return (Integer)vm.invoke(new SerializableCallable() {
+      public Object call() {
+        return getCachePerfStats().getDeltaFailedUpdates();
+      }
+    });
+  }
+
+  private SerializableRunnable createValue(final int key) {
+    return new SerializableRunnable() {
+      public void run() {
+        PdxInstance value = ((GemFireCacheImpl)basicGetCache())
+            .createPdxInstanceFactory("PdxDeltaDUnitTest.Big", false)
+            .writeInt("id", key)
+            .writeString("name", "name" + key)
+            .writeLongArray("payload", new long[1000])
+            .create();
+        getRootRegion(REGION_NAME).put(key, value);
+      }
+    };
+  }
+
+  private SerializableRunnable updateName(final int key, final String name) {
+    return new SerializableRunnable() {
+      public void run() {
+        Region r = getRootRegion(REGION_NAME);
+        WritablePdxInstance writer = ((PdxInstance)r.get(key)).createWriter();
+        writer.setField("name", name);
+        r.put(key, writer);
+      }
+    };
+  }
+
+  private SerializableRunnable checkName(final int key, final String name) {
+    return new SerializableRunnable() {
+      public void run() {
+        PdxInstance value = (PdxInstance)getRootRegion(REGION_NAME).get(key);
+        assertEquals(name, value.getField("name"));
+        assertEquals(key, value.getField("id"));
+      }
+    };
+  }
+
+  private SerializableRunnable checkLocalName(final int key, final String name) {
+    return new SerializableRunnable() {
+      public void run() {
+        Region r = getRootRegion(REGION_NAME);
+        PdxInstance value = (PdxInstance)PartitionRegionHelper.getLocalData(r).get(key);
+        assertEquals(name, value.getField("name"));
+        assertEquals(key, value.getField("id"));
+      }
+    };
+  }
+
+  private void createReplicateRegion(VM vm) {
+    createPeerRegion(vm, DataPolicy.REPLICATE);
+  }
+
+  private void createNormalRegion(VM vm) {
+    createPeerRegion(vm, DataPolicy.NORMAL);
+  }
+
+  private void createPeerRegion(VM vm, final DataPolicy dataPolicy) {
+    vm.invoke(new SerializableRunnable() {
+      public void run() {
+        AttributesFactory af = new AttributesFactory();
+        af.setScope(Scope.DISTRIBUTED_ACK);
+        af.setDataPolicy(dataPolicy);
+        createRootRegion(REGION_NAME, af.create());
+      }
+    });
+  }
+
+  private void createPartitionedRegion(VM vm, final int localMaxMemory) {
+    vm.invoke(new SerializableRunnable() {
+      public void run() {
+        AttributesFactory af = new AttributesFactory();
+        af.setDataPolicy(DataPolicy.PARTITION);
+        af.setPartitionAttributes(new PartitionAttributesFactory()
+            .setRedundantCopies(1).setLocalMaxMemory(localMaxMemory).create());
+        createRootRegion(REGION_NAME, af.create());
+      }
+    });
+  }
+
+  private int createServerRegion(VM vm) {
+    return (Integer)vm.invoke(new SerializableCallable() {
+      public Object call() throws Exception {
+        AttributesFactory af = new AttributesFactory();
+        af.setScope(Scope.DISTRIBUTED_ACK);
+        af.setDataPolicy(DataPolicy.REPLICATE);
+        createRootRegion(REGION_NAME, af.create());
+        CacheServer server = getCache().addCacheServer();
+        int port = AvailablePortHelper.getRandomAvailableTCPPort();
+        server.setPort(port);
+        server.start();
+        return port;
+      }
+    });
+  }
+
+  private void createClientRegion(final VM vm, final int port) {
+    vm.invoke(new SerializableRunnable() {
+      public void run() {
+        ClientCacheFactory cf = new ClientCacheFactory();
+        cf.addPoolServer(NetworkUtils.getServerHostName(vm.getHost()), port);
+        ClientCache cache = getClientCache(cf);
+        cache.createClientRegionFactory(ClientRegionShortcut.PROXY).create(REGION_NAME);
+      }
+    });
+  }
+}
@@ -148,6 +148,25 @@ public class PdxStringJUnitTest {
     str1 = null;
   }
   
+  @Test
+  public void testCompareToString() throws Exception{
+    PdxInstanceFactory pf = PdxInstanceFactoryImpl.newCreator("Portfolio", false);
+    pf.writeString("secId", "abc");
+    PdxInstanceImpl pi = (PdxInstanceImpl) pf.create();
+    PdxString pdx = (PdxString) pi.getRawField("secId");
+    assertEquals(0, pdx.compareTo("abc"));
+    assertEquals("abc".compareTo("ABC"), pdx.compareTo("ABC"));
+    assertEquals("abc".compareTo("abcd"), pdx.compareTo("abcd"));
+    assertEquals("abc".compareTo("ab"), pdx.compareTo("ab"));
+    assertTrue(pdx.compareTo("\u00e9") < 0);
+
+    String utf = "A" + "\u00e9" + "\u00f1";
+    pdx = new PdxString(utf);
+    assertEquals(0, pdx.compareTo(utf));
+    assertEquals(utf.compareTo("A"), pdx.compareTo("A"));
+    assertEquals(utf.compareTo("B"), pdx.compareTo("B"));
+  }
+
   @Test
   public void testToString() throws Exception{
     String s = "abc";
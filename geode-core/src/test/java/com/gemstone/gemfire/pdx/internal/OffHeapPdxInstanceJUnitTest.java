@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.pdx.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.internal.offheap.MemoryAllocatorImpl;
+import com.gemstone.gemfire.internal.offheap.StoredObject;
+import com.gemstone.gemfire.pdx.PdxInstance;
+import com.gemstone.gemfire.pdx.WritablePdxInstance;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests reading PdxInstances directly from off-heap values.
+ */
+@Category(IntegrationTest.class)
+public class OffHeapPdxInstanceJUnitTest {
+
+  private GemFireCacheImpl gfc;
+
+  @Before
+  public void setUp() {
+    Properties props = new Properties();
+    props.setProperty("locators", "");
+    props.setProperty("mcast-port", "0");
+    props.setProperty("off-heap-memory-size", "10m");
+    this.gfc = (GemFireCacheImpl)new CacheFactory(props).create();
+  }
+
+  @After
+  public void tearDown() {
+    this.gfc.close();
+    MemoryAllocatorImpl.freeOffHeapMemory();
+  }
+
+  private PdxInstance createValue(int id) {
+    PdxInstance nested = this.gfc.createPdxInstanceFactory("Nested", false)
+        .writeString("city", "city" + id).create();
+    return this.gfc.createPdxInstanceFactory("Big", false)
+        .writeInt("id", id)
+        .writeString("name", "name" + id)
+        .writeLongArray("payload", new long[10000])
+        .writeObject("nested", nested)
+        .create();
+  }
+
+  private int getObjectCount() {
+    return ((MemoryAllocatorImpl)this.gfc.getOffHeapStore()).getStats().getObjects();
+  }
+
+  @Test
+  public void testReadFieldsWhileRetained() {
+    Region<Object, Object> r = this.gfc.createRegionFactory(RegionShortcut.LOCAL).setOffHeap(true).create("r");
+    r.put("k", createValue(1));
+    StoredObject so = (StoredObject)((LocalRegion)r).getRegionEntry("k")._getValue();
+    assertEquals(1, so.getRefCount());
+
+    OffHeapPdxInstance pi = ((LocalRegion)r).getOffHeapPdxInstance("k");
+    assertNotNull(pi);
+    assertEquals(2, so.getRefCount());
+    assertEquals("Big", pi.getClassName());
+    assertEquals(1, pi.getField("id"));
+    assertEquals("name1", pi.getField("name"));
+    assertEquals(10000, ((long[])pi.getField("payload")).length);
+    assertEquals(createValue(1), pi);
+
+    PdxInstance nested = (PdxInstance)pi.getField("nested");
+    assertFalse(nested instanceof OffHeapPdxInstance);
+
+    // the retain keeps the value after it is destroyed
+    r.destroy("k");
+    assertEquals(1, so.getRefCount());
+    assertEquals("name1", pi.getField("name"));
+    assertEquals(1, getObjectCount());
+
+    pi.release();
+    assertTrue(pi.isReleased());
+    assertEquals(0, getObjectCount());
+    try {
+      pi.getField("name");
+      fail("expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+    }
+    // a second release does nothing
+    pi.release();
+    // the nested instance was copied to the heap
+    assertEquals("city1", nested.getField("city"));
+  }
+
+  @Test
+  public void testWriterIsOnTheHeap() {
+    Region<Object, Object> r = this.gfc.createRegionFactory(RegionShortcut.LOCAL).setOffHeap(true).create("r");
+    r.put("k", createValue(2));
+    OffHeapPdxInstance pi = ((LocalRegion)r).getOffHeapPdxInstance("k");
+    PdxInstance written;
+    try {
+      WritablePdxInstance writer = pi.createWriter();
+      writer.setField("name", "changed");
+      written = writer;
+    } finally {
+      pi.release();
+    }
+    assertEquals("changed", written.getField("name"));
+    assertEquals(2, written.getField("id"));
+    assertEquals("name2", ((PdxInstance)r.get("k")).getField("name"));
+  }
+
+  @Test
+  public void testNoInstanceForOtherValues() {
+    Region<Object, Object> r = this.gfc.createRegionFactory(RegionShortcut.LOCAL).setOffHeap(true).create("r");
+    r.put("string", "value");
+    r.put("bytes", new byte[100]);
+    assertNull(((LocalRegion)r).getOffHeapPdxInstance("string"));
+    assertNull(((LocalRegion)r).getOffHeapPdxInstance("bytes"));
+    assertNull(((LocalRegion)r).getOffHeapPdxInstance("missing"));
+
+    Region<Object, Object> heap = this.gfc.createRegionFactory(RegionShortcut.LOCAL).create("heap");
+    heap.put("k", createValue(3));
+    assertNull(((LocalRegion)heap).getOffHeapPdxInstance("k"));
+  }
+
+  @Test
+  public void testPartitionedRegion() {
+    Region<Object, Object> r = this.gfc.createRegionFactory(RegionShortcut.PARTITION).setOffHeap(true).create("pr");
+    r.put("k", createValue(4));
+    OffHeapPdxInstance pi = ((LocalRegion)r).getOffHeapPdxInstance("k");
+    assertNotNull(pi);
+    try {
+      assertEquals("name4", pi.getField("name"));
+    } finally {
+      pi.release();
+    }
+    assertNull(((LocalRegion)r).getOffHeapPdxInstance("missing"));
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.pdx.internal;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.InvalidDeltaException;
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.cache.Operation;
+import com.gemstone.gemfire.cache.Region;
+import com.gemstone.gemfire.cache.RegionShortcut;
+import com.gemstone.gemfire.internal.HeapDataOutputStream;
+import com.gemstone.gemfire.internal.InternalDataSerializer;
+import com.gemstone.gemfire.internal.Version;
+import com.gemstone.gemfire.internal.cache.EntryEventImpl;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.cache.LocalRegion;
+import com.gemstone.gemfire.pdx.PdxInstance;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests the field level deltas of {@link WritablePdxInstanceImpl}.
+ */
+@Category(IntegrationTest.class)
+public class PdxDeltaJUnitTest {
+
+  private GemFireCacheImpl gfc;
+
+  @Before
+  public void setUp() {
+    this.gfc = (GemFireCacheImpl)new CacheFactory().set("mcast-port", "0").set("locators", "").create();
+  }
+
+  @After
+  public void tearDown() {
+    this.gfc.close();
+  }
+
+  private PdxInstanceImpl createValue(int id) {
+    return (PdxInstanceImpl)this.gfc.createPdxInstanceFactory("Big", false)
+        .writeInt("id", id)
+        .writeString("name", "name" + id)
+        .writeLongArray("payload", new long[1000])
+        .writeObject("list", Arrays.asList("a", "b"))
+        .create();
+  }
+
+  private static byte[] toDelta(WritablePdxInstanceImpl writer) throws Exception {
+    HeapDataOutputStream hdos = new HeapDataOutputStream(Version.CURRENT);
+    writer.toDelta(hdos);
+    return hdos.toByteArray();
+  }
+
+  @Test
+  public void testApply() throws Exception {
+    PdxInstanceImpl base = createValue(1);
+    byte[] baseBytes = base.toBytes();
+    WritablePdxInstanceImpl writer = (WritablePdxInstanceImpl)base.createWriter();
+    assertFalse(writer.hasDelta());
+    writer.setField("name", "a much longer name than before");
+    writer.setField("list", null);
+    assertTrue(writer.hasDelta());
+    byte[] delta = toDelta(writer);
+    assertFalse(writer.hasDelta());
+    assertTrue(PdxDelta.isPdxDelta(delta));
+    assertTrue(delta.length < baseBytes.length / 10);
+
+    byte[] result = PdxDelta.apply(baseBytes, delta);
+    assertTrue(Arrays.equals(writer.toBytes(), result));
+    PdxInstance pi = InternalDataSerializer.readPdxInstance(result, this.gfc);
+    assertEquals("a much longer name than before", pi.getField("name"));
+    assertNull(pi.getField("list"));
+    assertEquals(1, pi.getField("id"));
+  }
+
+  @Test
+  public void testChangesAfterToDeltaAreRelativeToTheCurrentValue() throws Exception {
+    PdxInstanceImpl base = createValue(2);
+    WritablePdxInstanceImpl writer = (WritablePdxInstanceImpl)base.createWriter();
+    writer.setField("id", 20);
+    byte[] first = PdxDelta.apply(base.toBytes(), toDelta(writer));
+    writer.setField("name", "changed");
+    byte[] second = toDelta(writer);
+    byte[] result = PdxDelta.apply(first, second);
+    assertTrue(Arrays.equals(writer.toBytes(), result));
+
+    // the second delta can not be applied to the original value
+    try {
+      PdxDelta.apply(base.toBytes(), second);
+      fail("expected InvalidDeltaException");
+    } catch (InvalidDeltaException expected) {
+    }
+  }
+
+  @Test
+  public void testFromDelta() throws Exception {
+    PdxInstanceImpl base = createValue(6);
+    WritablePdxInstanceImpl writer = (WritablePdxInstanceImpl)base.createWriter();
+    writer.setField("id", 60);
+    writer.setField("name", "changed");
+    HeapDataOutputStream hdos = new HeapDataOutputStream(Version.CURRENT);
+    writer.getDelta().toDelta(hdos);
+    byte[] delta = hdos.toByteArray();
+
+    WritablePdxInstanceImpl receiver = (WritablePdxInstanceImpl)base.createWriter();
+    receiver.getDelta().fromDelta(new DataInputStream(new ByteArrayInputStream(delta)));
+    assertFalse(receiver.hasDelta());
+    assertEquals(writer, receiver);
+    assertEquals(60, receiver.getField("id"));
+    assertTrue(Arrays.equals(writer.toBytes(), receiver.toBytes()));
+
+    // the delta was made from the old value
+    try {
+      receiver.fromDelta(new DataInputStream(new ByteArrayInputStream(delta)));
+      fail("expected InvalidDeltaException");
+    } catch (InvalidDeltaException expected) {
+    }
+    assertEquals("changed", receiver.getField("name"));
+  }
+
+  @Test
+  public void testMismatchedBase() throws Exception {
+    WritablePdxInstanceImpl writer = (WritablePdxInstanceImpl)createValue(3).createWriter();
+    writer.setField("id", 30);
+    byte[] delta = toDelta(writer);
+    // same type and length but different bytes
+    byte[] other = createValue(4).toBytes();
+    try {
+      PdxDelta.apply(other, delta);
+      fail("expected InvalidDeltaException");
+    } catch (InvalidDeltaException expected) {
+    }
+    try {
+      PdxDelta.apply(new byte[] { 1, 2, 3 }, delta);
+      fail("expected InvalidDeltaException");
+    } catch (InvalidDeltaException expected) {
+    }
+    assertFalse(PdxDelta.isPdxDelta(other));
+    assertFalse(PdxDelta.isPdxDelta(new byte[2]));
+  }
+
+  @Test
+  public void testDeltaAppliedToRegionValue() throws Exception {
+    Region<Object, Object> r = this.gfc.createRegionFactory(RegionShortcut.LOCAL).create("r");
+    PdxInstanceImpl base = createValue(5);
+    r.put("k", base);
+    WritablePdxInstanceImpl writer = (WritablePdxInstanceImpl)base.createWriter();
+    writer.setField("name", "changed");
+    byte[] delta = toDelta(writer);
+
+    LocalRegion lr = (LocalRegion)r;
+    EntryEventImpl event = EntryEventImpl.create(lr, Operation.UPDATE, "k", null, null, true, this.gfc.getMyId());
+    try {
+      event.setDeltaBytes(delta);
+      lr.getRegionMap().basicPut(event, System.currentTimeMillis(), false, false, null, false, false);
+    } finally {
+      event.release();
+    }
+    assertEquals(writer, r.get("k"));
+    assertEquals("changed", ((PdxInstance)r.get("k")).getField("name"));
+  }
+}
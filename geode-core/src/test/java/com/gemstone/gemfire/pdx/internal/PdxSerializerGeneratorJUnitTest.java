@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.pdx.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.internal.util.BlobHelper;
+import com.gemstone.gemfire.pdx.ReflectionBasedAutoSerializer;
+import com.gemstone.gemfire.pdx.internal.AutoSerializableManager.AutoClassInfo;
+import com.gemstone.gemfire.pdx.internal.unsafe.UnsafeWrapper;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+@Category(IntegrationTest.class)
+public class PdxSerializerGeneratorJUnitTest {
+
+  public static class Base {
+    private int basePrivate;
+    public long basePublic;
+  }
+
+  public static class AllTypes extends Base {
+    private boolean z;
+    private char c;
+    private byte b;
+    private short s;
+    private int i;
+    private long j;
+    private float f;
+    private double d;
+    private String str;
+    private Date date;
+    private boolean[] za;
+    private char[] ca;
+    private byte[] ba;
+    private short[] sa;
+    private int[] ia;
+    private long[] ja;
+    private float[] fa;
+    private double[] da;
+    private String[] stra;
+    private byte[][] baa;
+    private Object obj;
+    private Object[] objs;
+    private Integer boxed;
+    private final int fin;
+
+    public AllTypes() {
+      this.fin = 0;
+    }
+
+    AllTypes(int n) {
+      ((Base)this).basePrivate = n;
+      this.basePublic = n * 2L;
+      this.z = n % 2 == 0;
+      this.c = (char)('a' + n);
+      this.b = (byte)n;
+      this.s = (short)(n * 3);
+      this.i = n * 1000;
+      this.j = n * 100000000000L;
+      this.f = n * 1.5f;
+      this.d = n * 2.5;
+      this.str = "str" + n;
+      this.date = new Date(1000000L * n);
+      this.za = new boolean[] { true, false };
+      this.ca = new char[] { 'x', (char)n };
+      this.ba = new byte[] { 1, (byte)n };
+      this.sa = new short[] { 2, (short)n };
+      this.ia = new int[] { 3, n };
+      this.ja = new long[] { 4, n };
+      this.fa = new float[] { 5, n };
+      this.da = new double[] { 6, n };
+      this.stra = new String[] { "a", null, "b" + n };
+      this.baa = new byte[][] { { 7 }, null };
+      this.obj = Arrays.asList("list", n);
+      this.objs = new Object[] { "x", n };
+      this.boxed = n;
+      this.fin = n + 1;
+    }
+
+    @Override
+    public String toString() {
+      return ((Base)this).basePrivate + " " + this.basePublic + " " + this.z + " "
+          + this.c + " " + this.b + " " + this.s + " " + this.i + " " + this.j + " "
+          + this.f + " " + this.d + " " + this.str + " " + this.date + " "
+          + Arrays.toString(this.za) + Arrays.toString(this.ca) + Arrays.toString(this.ba)
+          + Arrays.toString(this.sa) + Arrays.toString(this.ia) + Arrays.toString(this.ja)
+          + Arrays.toString(this.fa) + Arrays.toString(this.da) + Arrays.toString(this.stra)
+          + Arrays.deepToString(this.baa) + " " + this.obj + " " + Arrays.toString(this.objs)
+          + " " + this.boxed + " " + this.fin;
+    }
+  }
+
+  /**
+   * Counts the uses of a generated serializer.
+   */
+  private static class CountingSerializer extends GeneratedPdxSerializer {
+    private final GeneratedPdxSerializer generated;
+    int writes;
+    int reads;
+
+    CountingSerializer(GeneratedPdxSerializer generated) {
+      super(null);
+      this.generated = generated;
+    }
+
+    @Override
+    protected void doWrite(PdxWriterImpl writer, Object obj) {
+      this.writes++;
+      this.generated.doWrite(writer, obj);
+    }
+
+    @Override
+    protected void doRead(InternalPdxReader reader, Object obj) {
+      this.reads++;
+      this.generated.doRead(reader, obj);
+    }
+  }
+
+  private GemFireCacheImpl cache;
+
+  private AutoSerializableManager manager;
+
+  @Before
+  public void setUp() throws Exception {
+    System.setProperty("gemfire.auto.serialization.no.hardcoded.excludes", "true");
+    ReflectionBasedAutoSerializer serializer = new ReflectionBasedAutoSerializer(
+        "com.gemstone.gemfire.pdx.internal.PdxSerializerGeneratorJUnitTest.*");
+    this.manager = (AutoSerializableManager)serializer.getManager();
+    this.cache = (GemFireCacheImpl)new CacheFactory().set("mcast-port", "0")
+        .setPdxSerializer(serializer).create();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    System.clearProperty("gemfire.auto.serialization.no.hardcoded.excludes");
+    this.cache.close();
+  }
+
+  @Test
+  public void testGeneratedSerializerWritesTheSameBytes() throws Exception {
+    AutoClassInfo ci = this.manager.getClassInfo(AllTypes.class);
+    GeneratedPdxSerializer generated = PdxSerializerGenerator.generate(
+        new UnsafeWrapper(), AllTypes.class, ci.getFields());
+    assertNotNull(generated);
+
+    // the first serialization defines the pdx type
+    byte[] expected = BlobHelper.serializeToBlob(new AllTypes(5));
+    byte[] bytes = BlobHelper.serializeToBlob(new AllTypes(5));
+    assertArrayEquals(expected, bytes);
+    // read the blobs in order, as if they had matched the class
+    this.cache.getPdxRegistry().getExistingTypeForClass(AllTypes.class).setAutoInfo(ci);
+
+    CountingSerializer counting = new CountingSerializer(generated);
+    ci.setGeneratedSerializer(counting);
+    for (int n = 0; n < 10; n++) {
+      AllTypes obj = new AllTypes(n);
+      bytes = BlobHelper.serializeToBlob(obj);
+      ci.setGeneratedSerializer(null);
+      assertArrayEquals(BlobHelper.serializeToBlob(obj), bytes);
+      assertEquals(obj.toString(), BlobHelper.deserializeBlob(bytes).toString());
+      ci.setGeneratedSerializer(counting);
+      assertEquals(obj.toString(), BlobHelper.deserializeBlob(bytes).toString());
+    }
+    assertEquals(10, counting.writes);
+    assertEquals(10, counting.reads);
+  }
+
+  @Test
+  public void testNoSerializerForTransformedFields() throws Exception {
+    ReflectionBasedAutoSerializer transforming = new ReflectionBasedAutoSerializer(
+        "com.gemstone.gemfire.pdx.internal.PdxSerializerGeneratorJUnitTest.*") {
+      @Override
+      public boolean transformFieldValue(java.lang.reflect.Field f, Class<?> clazz) {
+        return f.getName().equals("i");
+      }
+    };
+    AutoSerializableManager m = (AutoSerializableManager)transforming.getManager();
+    assertNull(PdxSerializerGenerator.generate(new UnsafeWrapper(), AllTypes.class,
+        m.getClassInfo(AllTypes.class).getFields()));
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.pdx.internal.json;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.CacheFactory;
+import com.gemstone.gemfire.internal.cache.GemFireCacheImpl;
+import com.gemstone.gemfire.pdx.JSONFormatter;
+import com.gemstone.gemfire.pdx.JSONFormatterException;
+import com.gemstone.gemfire.pdx.PdxInstance;
+import com.gemstone.gemfire.pdx.internal.PdxInstanceImpl;
+import com.gemstone.gemfire.test.junit.categories.IntegrationTest;
+
+/**
+ * Tests converting JSON documents into PdxInstances with {@link JSONToPdx}.
+ */
+@Category(IntegrationTest.class)
+public class JSONToPdxJUnitTest {
+
+  private GemFireCacheImpl gfc;
+
+  @Before
+  public void setUp() {
+    this.gfc = (GemFireCacheImpl)new CacheFactory().set("mcast-port", "0").set("locators", "").create();
+  }
+
+  @After
+  public void tearDown() {
+    this.gfc.close();
+  }
+
+  @Test
+  public void testSameAsPdxInstanceFactory() {
+    String json = "{\"name\":\"n\",\"b\":1,\"s\":300,\"i\":70000,\"l\":10000000000,\"d\":1.5,"
+        + "\"t\":true,\"f\":false,\"n2\":null,\"big\":100000000000000000000,"
+        + "\"address\":{\"city\":\"c\",\"zip\":{\"code\":5}},"
+        + "\"list\":[1,\"two\",{\"x\":3},[4],null]}";
+    PdxInstance zip = this.gfc.createPdxInstanceFactory(JSONFormatter.JSON_CLASSNAME, false)
+        .writeByte("code", (byte)5).create();
+    PdxInstance address = this.gfc.createPdxInstanceFactory(JSONFormatter.JSON_CLASSNAME, false)
+        .writeString("city", "c").writeObject("zip", zip).create();
+    PdxInstance x = this.gfc.createPdxInstanceFactory(JSONFormatter.JSON_CLASSNAME, false)
+        .writeByte("x", (byte)3).create();
+    List<Object> inner = new LinkedList<Object>();
+    inner.add((byte)4);
+    List<Object> list = new LinkedList<Object>(Arrays.asList((byte)1, "two", x, inner, null));
+    PdxInstance expected = this.gfc.createPdxInstanceFactory(JSONFormatter.JSON_CLASSNAME, false)
+        .writeString("name", "n")
+        .writeByte("b", (byte)1)
+        .writeShort("s", (short)300)
+        .writeInt("i", 70000)
+        .writeLong("l", 10000000000L)
+        .writeDouble("d", 1.5)
+        .writeBoolean("t", true)
+        .writeBoolean("f", false)
+        .writeObject("n2", null)
+        .writeObject("big", new BigInteger("100000000000000000000"))
+        .writeObject("address", address)
+        .writeObject("list", list)
+        .create();
+
+    PdxInstance actual = JSONFormatter.fromJSON(json);
+    assertEquals(expected, actual);
+    assertTrue(Arrays.equals(((PdxInstanceImpl)expected).toBytes(), ((PdxInstanceImpl)actual).toBytes()));
+    assertEquals(actual, JSONFormatter.fromJSON(json.getBytes()));
+  }
+
+  @Test
+  public void testTypesAreCachedByShape() {
+    PdxInstanceImpl first = (PdxInstanceImpl)JSONFormatter.fromJSON("{\"a\":1,\"b\":\"x\",\"c\":{\"d\":true}}");
+    int typeCount = this.gfc.getPdxRegistry().typeMap().size();
+    PdxInstanceImpl second = (PdxInstanceImpl)JSONFormatter.fromJSON("{\"a\":2,\"b\":\"y\",\"c\":{\"d\":false}}");
+    assertSame(first.getPdxType(), second.getPdxType());
+    assertEquals(typeCount, this.gfc.getPdxRegistry().typeMap().size());
+    assertEquals((byte)2, second.getField("a"));
+    assertEquals(false, ((PdxInstance)second.getField("c")).getField("d"));
+
+    // a different field type, name, or order is a different shape
+    assertNotSame(first.getPdxType(), ((PdxInstanceImpl)JSONFormatter.fromJSON("{\"a\":1000,\"b\":\"x\",\"c\":{}}")).getPdxType());
+    assertNotSame(first.getPdxType(), ((PdxInstanceImpl)JSONFormatter.fromJSON("{\"b\":\"x\",\"a\":1,\"c\":{\"d\":true}}")).getPdxType());
+    PdxInstanceImpl prefix = (PdxInstanceImpl)JSONFormatter.fromJSON("{\"a\":1,\"b\":\"x\"}");
+    assertEquals(Arrays.asList("a", "b"), prefix.getFieldNames());
+
+    // the cache is cleared with the registry
+    this.gfc.getPdxRegistry().testClearTypeRegistry();
+    PdxInstanceImpl third = (PdxInstanceImpl)JSONFormatter.fromJSON("{\"a\":3,\"b\":\"z\",\"c\":{\"d\":true}}");
+    assertNotSame(first.getPdxType(), third.getPdxType());
+    assertEquals(third.getPdxType(), this.gfc.getPdxRegistry().getType(third.getPdxType().getTypeId()));
+  }
+
+  @Test
+  public void testFromJSONArray() {
+    String[] docs = { "{\"id\":1,\"name\":\"a\"}", "{\"id\":2,\"name\":\"b\"}", "{}", "{\"other\":[1,2]}" };
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < docs.length; i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(docs[i]);
+    }
+    sb.append(']');
+    List<PdxInstance> batch = JSONFormatter.fromJSONArray(sb.toString());
+    assertEquals(docs.length, batch.size());
+    for (int i = 0; i < docs.length; i++) {
+      assertEquals(JSONFormatter.fromJSON(docs[i]), batch.get(i));
+    }
+    assertEquals(batch, JSONFormatter.fromJSONArray(sb.toString().getBytes()));
+    assertTrue(JSONFormatter.fromJSONArray("[]").isEmpty());
+  }
+
+  @Test
+  public void testInvalidDocuments() {
+    for (String json : new String[] { "", "[]", "5", "{\"a\":", "{\"a\":1,\"a\":2}" }) {
+      try {
+        JSONFormatter.fromJSON(json);
+        fail("expected JSONFormatterException for " + json);
+      } catch (JSONFormatterException expected) {
+      }
+    }
+    for (String json : new String[] { "{}", "[{}, 5]", "[{}" }) {
+      try {
+        JSONFormatter.fromJSONArray(json);
+        fail("expected JSONFormatterException for " + json);
+      } catch (JSONFormatterException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void testRoundTripOfSampleDocuments() throws Exception {
+    File dir = new File(getClass().getResource("/com/gemstone/gemfire/pdx/jsonStrings/json1.txt").toURI()).getParentFile();
+    int count = 0;
+    for (File f : dir.listFiles()) {
+      if (!f.getName().endsWith(".txt")) {
+        continue;
+      }
+      byte[] json = Files.readAllBytes(f.toPath());
+      PdxInstance pdx = JSONFormatter.fromJSON(json);
+      assertEquals(f.getName(), pdx, JSONFormatter.fromJSON(JSONFormatter.toJSON(pdx)));
+      count++;
+    }
+    assertTrue(count > 0);
+  }
+}
@@ -0,0 +1,513 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.cq;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.gemstone.gemfire.cache.query.internal.CompiledComparison;
+import com.gemstone.gemfire.cache.query.internal.CompiledID;
+import com.gemstone.gemfire.cache.query.internal.CompiledIteratorDef;
+import com.gemstone.gemfire.cache.query.internal.CompiledJunction;
+import com.gemstone.gemfire.cache.query.internal.CompiledLiteral;
+import com.gemstone.gemfire.cache.query.internal.CompiledPath;
+import com.gemstone.gemfire.cache.query.internal.CompiledSelect;
+import com.gemstone.gemfire.cache.query.internal.CompiledValue;
+import com.gemstone.gemfire.cache.query.internal.PathUtils;
+import com.gemstone.gemfire.cache.query.internal.parse.OQLLexerTokenTypes;
+import com.gemstone.gemfire.cache.query.types.ObjectType;
+import com.gemstone.gemfire.pdx.internal.PdxString;
+
+/**
+ * Indexes the simple predicates of the CQs registered on a region so that an
+ * event value is only evaluated against the CQs that can match it.
+ * <p>
+ * A CQ is indexed on one conjunct of its where clause that compares a top
+ * level attribute of the iterator with a String or integral literal, for
+ * example <code>p.status = 'active'</code> or <code>price &gt; 100</code>.
+ * Equality conjuncts are preferred over range conjuncts. An indexed CQ is a
+ * candidate for a value unless the attribute of the value is known to make
+ * the conjunct false, so the query of every candidate still has to be
+ * evaluated. CQs that cannot be indexed are always candidates.
+ * <p>
+ * CQs are added and removed as they are registered and closed. A CQ that was
+ * registered after the candidates of a value were computed is treated as a
+ * candidate for that value.
+ *
+ * @since 9.0
+ */
+public class CqPredicateIndex {
+
+  /**
+   * The indexable conjunct of a CQ's where clause, in the form
+   * <code>attribute operator key</code>.
+   */
+  static final class Predicate {
+    final String attribute;
+    final int operator;
+    /** A String, or a Long for integral literals */
+    final Comparable key;
+
+    Predicate(String attribute, int operator, Comparable key) {
+      this.attribute = attribute;
+      this.operator = operator;
+      this.key = key;
+    }
+
+    @Override
+    public String toString() {
+      return this.attribute + " " + this.operator + " " + this.key;
+    }
+  }
+
+  /** The index of the CQs whose predicate is on one attribute */
+  private static final class AttributeIndex {
+    final String attribute;
+    final Set<String> allCqs = new HashSet<String>();
+    final KeyIndex strings = new KeyIndex();
+    final KeyIndex integrals = new KeyIndex();
+
+    AttributeIndex(String attribute) {
+      this.attribute = attribute;
+    }
+
+    void add(String cqName, Predicate predicate) {
+      this.allCqs.add(cqName);
+      keyIndex(predicate).add(cqName, predicate);
+    }
+
+    void remove(String cqName, Predicate predicate) {
+      this.allCqs.remove(cqName);
+      keyIndex(predicate).remove(cqName, predicate);
+    }
+
+    boolean isEmpty() {
+      return this.allCqs.isEmpty();
+    }
+
+    private KeyIndex keyIndex(Predicate predicate) {
+      return predicate.key instanceof String ? this.strings : this.integrals;
+    }
+
+    void addCandidates(Object value, Set<String> candidates) {
+      Object attributeValue;
+      try {
+        attributeValue = PathUtils.evaluateAttribute(value, this.attribute);
+      } catch (Exception e) {
+        // let the query decide
+        candidates.addAll(this.allCqs);
+        return;
+      }
+      if (attributeValue instanceof String) {
+        this.strings.addCandidates((String)attributeValue, candidates, true);
+        this.integrals.addRangeCqs(candidates);
+      } else if (attributeValue instanceof PdxString) {
+        // PdxStrings are ordered by their encoded bytes
+        this.strings.addCandidates(attributeValue.toString(), candidates, false);
+        this.strings.addRangeCqs(candidates);
+        this.integrals.addRangeCqs(candidates);
+      } else if (isIntegral(attributeValue)) {
+        this.integrals.addCandidates(Long.valueOf(((Number)attributeValue).longValue()),
+            candidates, true);
+        this.strings.addRangeCqs(candidates);
+      } else {
+        // nulls, UNDEFINED and other types are compared by the query
+        candidates.addAll(this.allCqs);
+      }
+    }
+  }
+
+  /**
+   * The CQs whose predicate compares an attribute with keys of one type.
+   * Comparing an attribute with a key of another type is false for equality
+   * but fails for a range, so such range CQs remain candidates.
+   */
+  private static final class KeyIndex {
+    final Map<Comparable, List<String>> eq = new HashMap<Comparable, List<String>>();
+    /** CQs by key for predicates 'attribute &gt; key' */
+    final TreeMap<Comparable, List<String>> gt = new TreeMap<Comparable, List<String>>();
+    final TreeMap<Comparable, List<String>> ge = new TreeMap<Comparable, List<String>>();
+    final TreeMap<Comparable, List<String>> lt = new TreeMap<Comparable, List<String>>();
+    final TreeMap<Comparable, List<String>> le = new TreeMap<Comparable, List<String>>();
+    final Set<String> rangeCqs = new HashSet<String>();
+
+    void add(String cqName, Predicate predicate) {
+      Map<Comparable, List<String>> map = map(predicate);
+      if (map != this.eq) {
+        this.rangeCqs.add(cqName);
+      }
+      List<String> cqs = map.get(predicate.key);
+      if (cqs == null) {
+        cqs = new ArrayList<String>(1);
+        map.put(predicate.key, cqs);
+      }
+      cqs.add(cqName);
+    }
+
+    void remove(String cqName, Predicate predicate) {
+      Map<Comparable, List<String>> map = map(predicate);
+      this.rangeCqs.remove(cqName);
+      List<String> cqs = map.get(predicate.key);
+      if (cqs != null) {
+        cqs.remove(cqName);
+        if (cqs.isEmpty()) {
+          map.remove(predicate.key);
+        }
+      }
+    }
+
+    private Map<Comparable, List<String>> map(Predicate predicate) {
+      switch (predicate.operator) {
+        case OQLLexerTokenTypes.TOK_EQ:
+          return this.eq;
+        case OQLLexerTokenTypes.TOK_GT:
+          return this.gt;
+        case OQLLexerTokenTypes.TOK_GE:
+          return this.ge;
+        case OQLLexerTokenTypes.TOK_LT:
+          return this.lt;
+        case OQLLexerTokenTypes.TOK_LE:
+          return this.le;
+        default:
+          throw new IllegalArgumentException(String.valueOf(predicate.operator));
+      }
+    }
+
+    void addCandidates(Comparable value, Set<String> candidates, boolean useRanges) {
+      addAll(this.eq.get(value), candidates);
+      if (useRanges) {
+        // value > key, value >= key, value < key, value <= key
+        addAll(this.gt.headMap(value, false), candidates);
+        addAll(this.ge.headMap(value, true), candidates);
+        addAll(this.lt.tailMap(value, false), candidates);
+        addAll(this.le.tailMap(value, true), candidates);
+      }
+    }
+
+    void addRangeCqs(Set<String> candidates) {
+      candidates.addAll(this.rangeCqs);
+    }
+
+    private static void addAll(NavigableMap<Comparable, List<String>> map,
+        Set<String> candidates) {
+      for (List<String> cqs : map.values()) {
+        candidates.addAll(cqs);
+      }
+    }
+
+    private static void addAll(List<String> cqs, Set<String> candidates) {
+      if (cqs != null) {
+        candidates.addAll(cqs);
+      }
+    }
+  }
+
+  /** An indexed CQ and the modification of the index that added it */
+  private static final class IndexedCq {
+    final Object cq;
+    final Predicate predicate;
+    final long version;
+
+    IndexedCq(Object cq, Predicate predicate, long version) {
+      this.cq = cq;
+      this.predicate = predicate;
+      this.version = version;
+    }
+  }
+
+  /**
+   * The indexed CQs that may match an event value, as of a version of the
+   * index.
+   */
+  public static final class Candidates {
+    final Set<String> cqNames;
+    final long version;
+
+    Candidates(Set<String> cqNames, long version) {
+      this.cqNames = cqNames;
+      this.version = version;
+    }
+  }
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // The following are guarded by lock
+  private final Map<String, AttributeIndex> attributeIndexes = new HashMap<String, AttributeIndex>();
+
+  private final Map<String, IndexedCq> indexedCqs = new HashMap<String, IndexedCq>();
+
+  /** Incremented by each change of the index */
+  private long version;
+
+  /**
+   * Creates an empty index.
+   */
+  public CqPredicateIndex() {
+  }
+
+  /**
+   * Creates an index of the given CQs.
+   *
+   * @param cqs a server CQ name to {@link ServerCQImpl} map
+   */
+  public CqPredicateIndex(Map<?, ?> cqs) {
+    for (Map.Entry<?, ?> entry : cqs.entrySet()) {
+      add((String)entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Indexes a CQ that has been registered, replacing any CQ indexed with the
+   * same name. CQs that are not {@link ServerCQImpl}s or have no indexable
+   * predicate are not indexed, which makes them candidates for every value.
+   */
+  public void add(String serverCqName, Object cq) {
+    Predicate predicate = null;
+    if (cq instanceof ServerCQImpl) {
+      predicate = ((ServerCQImpl)cq).getIndexablePredicate();
+    }
+    this.lock.writeLock().lock();
+    try {
+      removeIndexed(serverCqName);
+      if (predicate == null) {
+        return;
+      }
+      AttributeIndex index = this.attributeIndexes.get(predicate.attribute);
+      if (index == null) {
+        index = new AttributeIndex(predicate.attribute);
+        this.attributeIndexes.put(predicate.attribute, index);
+      }
+      index.add(serverCqName, predicate);
+      this.indexedCqs.put(serverCqName, new IndexedCq(cq, predicate, ++this.version));
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a CQ that has been closed.
+   */
+  public void remove(String serverCqName) {
+    this.lock.writeLock().lock();
+    try {
+      removeIndexed(serverCqName);
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  private void removeIndexed(String serverCqName) {
+    IndexedCq indexed = this.indexedCqs.remove(serverCqName);
+    if (indexed == null) {
+      return;
+    }
+    this.version++;
+    AttributeIndex index = this.attributeIndexes.get(indexed.predicate.attribute);
+    index.remove(serverCqName, indexed.predicate);
+    if (index.isEmpty()) {
+      this.attributeIndexes.remove(indexed.predicate.attribute);
+    }
+  }
+
+  /**
+   * Returns the number of CQs in this index.
+   */
+  public int getIndexedCqCount() {
+    this.lock.readLock().lock();
+    try {
+      return this.indexedCqs.size();
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns whether the given CQ may match an event value.
+   *
+   * @param cqName the server CQ name
+   * @param cq the CQ registered with that name
+   * @param candidates the candidates for the value, as returned by
+   *        {@link #getCandidates}
+   */
+  public boolean isCandidate(String cqName, Object cq, Candidates candidates) {
+    IndexedCq indexed;
+    this.lock.readLock().lock();
+    try {
+      indexed = this.indexedCqs.get(cqName);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+    if (indexed == null || indexed.cq != cq || indexed.version > candidates.version) {
+      return true;
+    }
+    return candidates.cqNames.contains(cqName);
+  }
+
+  /**
+   * Returns the indexed CQs that may match the given value.
+   */
+  public Candidates getCandidates(Object value) {
+    Set<String> candidates = new HashSet<String>();
+    this.lock.readLock().lock();
+    try {
+      for (AttributeIndex index : this.attributeIndexes.values()) {
+        index.addCandidates(value, candidates);
+      }
+      return new Candidates(candidates, this.version);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the conjunct of the given CQ query to index the CQ on, or null if
+   * the query has none.
+   */
+  static Predicate getIndexablePredicate(CompiledSelect select) {
+    if (select == null || select.getIterators().size() != 1) {
+      return null;
+    }
+    CompiledIteratorDef iterator = (CompiledIteratorDef)select.getIterators().get(0);
+    ObjectType elementType = iterator.getElementType();
+    if (elementType != null && elementType.resolveClass() != Object.class) {
+      return null;
+    }
+    CompiledValue where = select.getWhereClause();
+    if (where == null) {
+      return null;
+    }
+    List<Predicate> predicates = new ArrayList<Predicate>();
+    collectPredicates(where, iterator.getName(), predicates);
+    Predicate result = null;
+    for (Predicate predicate : predicates) {
+      if (predicate.operator == OQLLexerTokenTypes.TOK_EQ) {
+        return predicate;
+      }
+      if (result == null) {
+        result = predicate;
+      }
+    }
+    return result;
+  }
+
+  private static void collectPredicates(CompiledValue value, String iteratorName,
+      List<Predicate> predicates) {
+    if (value instanceof CompiledJunction) {
+      CompiledJunction junction = (CompiledJunction)value;
+      if (junction.getOperator() == OQLLexerTokenTypes.LITERAL_and) {
+        for (Object operand : junction.getChildren()) {
+          collectPredicates((CompiledValue)operand, iteratorName, predicates);
+        }
+      }
+    } else if (value instanceof CompiledComparison) {
+      CompiledComparison comparison = (CompiledComparison)value;
+      List children = comparison.getChildren();
+      CompiledValue left = (CompiledValue)children.get(0);
+      CompiledValue right = (CompiledValue)children.get(1);
+      int operator = comparison.getOperator();
+      if (left instanceof CompiledLiteral) {
+        CompiledValue tmp = left;
+        left = right;
+        right = tmp;
+        operator = reverse(operator);
+      }
+      if (operator == OQLLexerTokenTypes.TOK_NE || !(right instanceof CompiledLiteral)) {
+        return;
+      }
+      String attribute = getAttribute(left, iteratorName);
+      Comparable key = getKey((CompiledLiteral)right);
+      if (attribute != null && key != null) {
+        predicates.add(new Predicate(attribute, operator, key));
+      }
+    }
+  }
+
+  /**
+   * Returns the attribute name if the value is a top level attribute of the
+   * iterator.
+   */
+  private static String getAttribute(CompiledValue value, String iteratorName) {
+    if (value instanceof CompiledPath) {
+      CompiledPath path = (CompiledPath)value;
+      CompiledValue receiver = path.getReceiver();
+      if (iteratorName != null && receiver instanceof CompiledID
+          && iteratorName.equals(((CompiledID)receiver).getId())) {
+        return path.getTailID();
+      }
+    } else if (value instanceof CompiledID && iteratorName == null) {
+      return ((CompiledID)value).getId();
+    }
+    return null;
+  }
+
+  private static Comparable getKey(CompiledLiteral literal) {
+    Object key;
+    try {
+      key = literal.evaluate(null);
+    } catch (Exception e) {
+      return null;
+    }
+    if (key instanceof String) {
+      return (String)key;
+    }
+    if (isIntegral(key)) {
+      return Long.valueOf(((Number)key).longValue());
+    }
+    return null;
+  }
+
+  private static boolean isIntegral(Object value) {
+    return value instanceof Integer || value instanceof Long
+        || value instanceof Short || value instanceof Byte;
+  }
+
+  private static int reverse(int operator) {
+    switch (operator) {
+      case OQLLexerTokenTypes.TOK_LT:
+        return OQLLexerTokenTypes.TOK_GT;
+      case OQLLexerTokenTypes.TOK_LE:
+        return OQLLexerTokenTypes.TOK_GE;
+      case OQLLexerTokenTypes.TOK_GT:
+        return OQLLexerTokenTypes.TOK_LT;
+      case OQLLexerTokenTypes.TOK_GE:
+        return OQLLexerTokenTypes.TOK_LE;
+      default:
+        return operator;
+    }
+  }
+
+  /**
+   * Returns the attributes CQs are indexed on, for tests and debugging.
+   */
+  Collection<String> getIndexedAttributes() {
+    this.lock.readLock().lock();
+    try {
+      return new ArrayList<String>(this.attributeIndexes.keySet());
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+}
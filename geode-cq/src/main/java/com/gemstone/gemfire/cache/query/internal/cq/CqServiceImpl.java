@@ -23,6 +23,8 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.logging.log4j.Logger;
@@ -97,6 +99,13 @@ public final class CqServiceImpl implements CqService  {
   public static boolean EXECUTE_QUERY_DURING_INIT = 
       Boolean.valueOf(System.getProperty("gemfire.cq.EXECUTE_QUERY_DURING_INIT", "true")).booleanValue(); 
 
+  /**
+   * System property to index the simple predicates of the CQs on a region so
+   * that only the CQs an event value may match are evaluated.
+   */
+  public static boolean USE_PREDICATE_INDEX = 
+      Boolean.valueOf(System.getProperty("gemfire.cq.USE_PREDICATE_INDEX", "true")).booleanValue();
+
   private static final String CQ_NAME_PREFIX = "GfCq";
   
   private final Cache cache;
@@ -132,6 +141,9 @@ public final class CqServiceImpl implements CqService  {
   // With query as key and Set of CQs as values.
   private final HashMap<String, HashSet<String>> matchingCqMap;
 
+  // Predicate index of the CQs of each filter profile, updated as CQs are added and removed.
+  private final Map<FilterProfile, CqPredicateIndex> predicateIndexes = new WeakHashMap<FilterProfile, CqPredicateIndex>();
+
   // CQ Service statistics
   public final CqServiceStatisticsImpl cqServiceStats;
   public final CqServiceVsdStats stats;
@@ -1386,6 +1398,10 @@ public final class CqServiceImpl implements CqService  {
       }
 
       Map cqs = pf.getCqMap();
+      CqPredicateIndex predicateIndex = null;
+      if (USE_PREDICATE_INDEX) {
+        predicateIndex = getPredicateIndex(pf);
+      }
       
       if (isDebugEnabled) {
         logger.debug("Profile for {} processing {} CQs", cf.peerMemberId, cqs.size());
@@ -1404,6 +1420,14 @@ public final class CqServiceImpl implements CqService  {
           cqUnfilteredEventsSet_newValue.add(newValue);
         }
       }
+
+      // The CQs each value may match, null if all CQs need to be evaluated.
+      CqPredicateIndex.Candidates newValueCandidates = null;
+      CqPredicateIndex.Candidates oldValueCandidates = null;
+      if (predicateIndex != null && predicateIndex.getIndexedCqCount() > 0
+          && !cqUnfilteredEventsSet_newValue.isEmpty()) {
+        newValueCandidates = predicateIndex.getCandidates(cqUnfilteredEventsSet_newValue.iterator().next());
+      }
       
       HashMap<Long, Integer> cqInfo = new HashMap<Long, Integer>();
       Iterator cqIter = cqs.entrySet().iterator();
@@ -1445,12 +1469,16 @@ public final class CqServiceImpl implements CqService  {
           synchronized (cQuery) {
             try {
               // Apply query on new value.
-              if (!cqUnfilteredEventsSet_newValue.isEmpty()) {
+              if (!cqUnfilteredEventsSet_newValue.isEmpty()
+                  && isCandidate(predicateIndex, newValueCandidates, cqName, cQuery)) {
                 executionStartTime = this.stats.startCqQueryExecution();
 
                 b_cqResults_newValue = evaluateQuery(cQuery, 
                     new Object[] {cqUnfilteredEventsSet_newValue});
                 this.stats.endCqQueryExecution(executionStartTime);
+                if (b_cqResults_newValue) {
+                  this.stats.incCqQueryMatches();
+                }
               }
 
               // In case of Update, destroy and invalidate.
@@ -1482,12 +1510,23 @@ public final class CqServiceImpl implements CqService  {
                     }
                   }
                   
+                  if (oldValueCandidates == null && predicateIndex != null
+                      && predicateIndex.getIndexedCqCount() > 0
+                      && !cqUnfilteredEventsSet_oldValue.isEmpty()) {
+                    oldValueCandidates = predicateIndex.getCandidates(cqUnfilteredEventsSet_oldValue.iterator().next());
+                  }
+
                   // Apply query on old value.
                   if (!cqUnfilteredEventsSet_oldValue.isEmpty()) {
-                    executionStartTime = this.stats.startCqQueryExecution();
-                    b_cqResults_oldValue = evaluateQuery(cQuery, 
-                        new Object[] {cqUnfilteredEventsSet_oldValue});
-                    this.stats.endCqQueryExecution(executionStartTime);
+                    if (isCandidate(predicateIndex, oldValueCandidates, cqName, cQuery)) {
+                      executionStartTime = this.stats.startCqQueryExecution();
+                      b_cqResults_oldValue = evaluateQuery(cQuery, 
+                          new Object[] {cqUnfilteredEventsSet_oldValue});
+                      this.stats.endCqQueryExecution(executionStartTime);
+                      if (b_cqResults_oldValue) {
+                        this.stats.incCqQueryMatches();
+                      }
+                    }
                   } else {
                     if (isDebugEnabled) {
                       logger.debug("old value for event with key {} is null - query execution not performed", eventKey);
@@ -1985,6 +2024,61 @@ public final class CqServiceImpl implements CqService  {
     return status;
   }
 
+  /**
+   * Returns the predicate index of the CQs registered in the given filter
+   * profile. The index is created from the profile's CQs when it is first
+   * needed and is then kept up to date by {@link #cqAdded} and
+   * {@link #cqRemoved}.
+   */
+  private CqPredicateIndex getPredicateIndex(FilterProfile pf) {
+    synchronized (this.predicateIndexes) {
+      CqPredicateIndex index = this.predicateIndexes.get(pf);
+      if (index == null) {
+        index = new CqPredicateIndex(pf.getCqMap());
+        this.predicateIndexes.put(pf, index);
+      }
+      return index;
+    }
+  }
+
+  @Override
+  public void cqAdded(FilterProfile profile, String serverCqName, ServerCQ cq) {
+    if (USE_PREDICATE_INDEX) {
+      getPredicateIndex(profile).add(serverCqName, cq);
+    }
+  }
+
+  @Override
+  public void cqRemoved(FilterProfile profile, String serverCqName) {
+    CqPredicateIndex index;
+    synchronized (this.predicateIndexes) {
+      index = this.predicateIndexes.get(profile);
+    }
+    if (index != null) {
+      index.remove(serverCqName);
+    }
+  }
+
+  /**
+   * Returns whether the given CQ has to be evaluated on an event value.
+   *
+   * @param candidates the CQs the predicate index found the value may match,
+   *        or null if all CQs have to be evaluated
+   */
+  private boolean isCandidate(CqPredicateIndex index, CqPredicateIndex.Candidates candidates,
+      String cqName, ServerCQImpl cq) {
+    if (index == null) {
+      return true;
+    }
+    if (candidates == null || index.isCandidate(cqName, cq, candidates)) {
+      this.stats.incCqIndexCandidates();
+      return true;
+    }
+    this.stats.incCqIndexSkipped();
+    return false;
+  }
+
+
   @Override
   public UserAttributes getUserAttributes(String cqName) {
     return this.cqNameToUserAttributesMap.get(cqName);
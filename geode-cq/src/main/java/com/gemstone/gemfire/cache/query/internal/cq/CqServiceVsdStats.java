@@ -82,6 +82,15 @@ public class CqServiceVsdStats
 
   /** Unique CQs, number of different CQ queries */
   protected static final String UNIQUE_CQ_QUERY = "numUniqueCqQuery";
+
+  /** CQ evaluations the CQ predicate index could not rule out */
+  protected static final String CQ_INDEX_CANDIDATES = "cqIndexCandidates";
+
+  /** CQ evaluations the CQ predicate index ruled out */
+  protected static final String CQ_INDEX_SKIPPED = "cqIndexSkipped";
+
+  /** CQ evaluations that matched the event value */
+  protected static final String CQ_QUERY_MATCHES = "cqQueryMatches";
   
   /** Id of the CQs created statistic */
   private static final int _numCqsCreatedId;
@@ -113,6 +122,15 @@ public class CqServiceVsdStats
   /** Id for unique CQs, difference in CQ queries */
   private static final int _numUniqueCqQuery;
 
+  /** Id for CQ evaluations the CQ predicate index could not rule out */
+  private static final int _cqIndexCandidatesId;
+
+  /** Id for CQ evaluations the CQ predicate index ruled out */
+  private static final int _cqIndexSkippedId;
+
+  /** Id for CQ evaluations that matched the event value */
+  private static final int _cqQueryMatchesId;
+
   /**
    * Static initializer to create and initialize the <code>StatisticsType</code>
    */
@@ -131,6 +149,9 @@ public class CqServiceVsdStats
         f.createLongCounter(CQ_QUERY_EXECUTIONS_COMPLETED, "Number of CQ Query Executions.", "operations"),
         f.createIntGauge(CQ_QUERY_EXECUTION_IN_PROGRESS, "CQ Query Execution In Progress.", "operations"),
         f.createIntGauge(UNIQUE_CQ_QUERY, "Number of Unique CQ Querys.", "Queries"),
+        f.createLongCounter(CQ_INDEX_CANDIDATES, "Number of CQ evaluations of event values that the CQ predicate index could not rule out.", "operations"),
+        f.createLongCounter(CQ_INDEX_SKIPPED, "Number of CQ evaluations of event values that the CQ predicate index ruled out.", "operations"),
+        f.createLongCounter(CQ_QUERY_MATCHES, "Number of CQ evaluations of event values that matched the CQ query.", "operations"),
 
     });
 
@@ -145,6 +166,9 @@ public class CqServiceVsdStats
     _cqQueryExecutionsCompletedId = _type.nameToId(CQ_QUERY_EXECUTIONS_COMPLETED);
     _cqQueryExecutionInProgressId = _type.nameToId(CQ_QUERY_EXECUTION_IN_PROGRESS);
     _numUniqueCqQuery = _type.nameToId(UNIQUE_CQ_QUERY);
+    _cqIndexCandidatesId = _type.nameToId(CQ_INDEX_CANDIDATES);
+    _cqIndexSkippedId = _type.nameToId(CQ_INDEX_SKIPPED);
+    _cqQueryMatchesId = _type.nameToId(CQ_QUERY_MATCHES);
     
   }
 
@@ -354,6 +378,54 @@ public class CqServiceVsdStats
   {
     this._stats.incInt(_numUniqueCqQuery, -1);
   }
+
+  /**
+   * Increments the "cqIndexCandidates" stat by 1.
+   */
+  public void incCqIndexCandidates()
+  {
+    this._stats.incLong(_cqIndexCandidatesId, 1);
+  }
+
+  /**
+   * Returns the current value of the "cqIndexCandidates" stat.
+   */
+  public long getCqIndexCandidates()
+  {
+    return this._stats.getLong(_cqIndexCandidatesId);
+  }
+
+  /**
+   * Increments the "cqIndexSkipped" stat by 1.
+   */
+  public void incCqIndexSkipped()
+  {
+    this._stats.incLong(_cqIndexSkippedId, 1);
+  }
+
+  /**
+   * Returns the current value of the "cqIndexSkipped" stat.
+   */
+  public long getCqIndexSkipped()
+  {
+    return this._stats.getLong(_cqIndexSkippedId);
+  }
+
+  /**
+   * Increments the "cqQueryMatches" stat by 1.
+   */
+  public void incCqQueryMatches()
+  {
+    this._stats.incLong(_cqQueryMatchesId, 1);
+  }
+
+  /**
+   * Returns the current value of the "cqQueryMatches" stat.
+   */
+  public long getCqQueryMatches()
+  {
+    return this._stats.getLong(_cqQueryMatchesId);
+  }
   
   
   /**
@@ -103,6 +103,11 @@ public class ServerCQImpl extends CqQueryImpl implements DataSerializable, Serve
   
   /** identifier assigned to this query for FilterRoutingInfos */
   private Long filterID;
+
+  /** The conjunct of the query the CQ is indexed on, see {@link CqPredicateIndex} */
+  private volatile CqPredicateIndex.Predicate indexablePredicate;
+
+  private volatile boolean indexablePredicateInitialized = false;
   
   public ServerCQImpl(CqServiceImpl cqService, String cqName, String queryString, boolean isDurable, String serverCqName)  {
     super(cqService, cqName, queryString, isDurable);
@@ -350,6 +355,22 @@ public class ServerCQImpl extends CqQueryImpl implements DataSerializable, Serve
       return this.cqResultKeys.containsKey(key);
     }
   }
+
+  /**
+   * Returns the conjunct of this CQ's query it can be indexed on, or null if
+   * the query has none.
+   */
+  CqPredicateIndex.Predicate getIndexablePredicate() {
+    if (!this.indexablePredicateInitialized) {
+      Query q = this.query;
+      if (q == null) {
+        return null;
+      }
+      this.indexablePredicate = CqPredicateIndex.getIndexablePredicate(((DefaultQuery)q).getSimpleSelect());
+      this.indexablePredicateInitialized = true;
+    }
+    return this.indexablePredicate;
+  }
     
   /* (non-Javadoc)
    * @see com.gemstone.gemfire.cache.query.internal.InternalCqQuery2#addToCqResultKeys(java.lang.Object)
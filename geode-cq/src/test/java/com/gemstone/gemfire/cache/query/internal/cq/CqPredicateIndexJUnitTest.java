@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gemstone.gemfire.cache.query.internal.cq;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.gemstone.gemfire.cache.query.internal.CompiledSelect;
+import com.gemstone.gemfire.cache.query.internal.QCompiler;
+import com.gemstone.gemfire.cache.query.internal.parse.OQLLexerTokenTypes;
+import com.gemstone.gemfire.test.junit.categories.UnitTest;
+
+@Category(UnitTest.class)
+public class CqPredicateIndexJUnitTest {
+
+  public static class Trade {
+    private final String status;
+    private final Object price;
+
+    public Trade(String status, Object price) {
+      this.status = status;
+      this.price = price;
+    }
+
+    public String getStatus() {
+      return this.status;
+    }
+
+    public Object getPrice() {
+      return this.price;
+    }
+  }
+
+  private final Map<String, ServerCQImpl> cqs = new HashMap<String, ServerCQImpl>();
+
+  private static CqPredicateIndex.Predicate predicate(String query) {
+    CompiledSelect select = (CompiledSelect)new QCompiler().compileQuery(query);
+    return CqPredicateIndex.getIndexablePredicate(select);
+  }
+
+  private ServerCQImpl addCq(String name, String query) {
+    ServerCQImpl cq = mock(ServerCQImpl.class);
+    CqPredicateIndex.Predicate predicate = predicate(query);
+    when(cq.getIndexablePredicate()).thenReturn(predicate);
+    when(cq.getServerCqName()).thenReturn(name);
+    this.cqs.put(name, cq);
+    return cq;
+  }
+
+  @Test
+  public void testIndexablePredicates() {
+    CqPredicateIndex.Predicate p = predicate("SELECT * FROM /r p WHERE p.status = 'open'");
+    assertEquals("status", p.attribute);
+    assertEquals(OQLLexerTokenTypes.TOK_EQ, p.operator);
+    assertEquals("open", p.key);
+
+    // the literal on the left mirrors the operator
+    p = predicate("SELECT * FROM /r p WHERE 10 < p.price");
+    assertEquals("price", p.attribute);
+    assertEquals(OQLLexerTokenTypes.TOK_GT, p.operator);
+    assertEquals(Long.valueOf(10), p.key);
+
+    // equality is preferred in a conjunction
+    p = predicate("SELECT * FROM /r p WHERE p.price > 10 AND p.status = 'open'");
+    assertEquals("status", p.attribute);
+
+    p = predicate("SELECT * FROM /r WHERE status = 'open'");
+    assertEquals("status", p.attribute);
+  }
+
+  @Test
+  public void testUnindexablePredicates() {
+    assertNull(predicate("SELECT * FROM /r p WHERE p.status != 'open'"));
+    assertNull(predicate("SELECT * FROM /r p WHERE p.status = 'open' OR p.price > 10"));
+    assertNull(predicate("SELECT * FROM /r p WHERE p.price > 10.5"));
+    assertNull(predicate("SELECT * FROM /r p WHERE p.owner.name = 'x'"));
+    assertNull(predicate("SELECT * FROM /r p WHERE p.status = p.price"));
+    assertNull(predicate("SELECT * FROM /r p"));
+  }
+
+  @Test
+  public void testEqualityCandidates() {
+    addCq("open", "SELECT * FROM /r p WHERE p.status = 'open'");
+    addCq("closed", "SELECT * FROM /r p WHERE p.status = 'closed'");
+    addCq("unindexed", "SELECT * FROM /r p WHERE p.status = 'open' OR p.price > 1");
+    CqPredicateIndex index = new CqPredicateIndex(this.cqs);
+    assertEquals(2, index.getIndexedCqCount());
+
+    CqPredicateIndex.Candidates candidates = index.getCandidates(new Trade("open", 5));
+    assertTrue(index.isCandidate("open", this.cqs.get("open"), candidates));
+    assertFalse(index.isCandidate("closed", this.cqs.get("closed"), candidates));
+    assertTrue(index.isCandidate("unindexed", this.cqs.get("unindexed"), candidates));
+
+    candidates = index.getCandidates(new Trade("pending", 5));
+    assertFalse(index.isCandidate("open", this.cqs.get("open"), candidates));
+    assertFalse(index.isCandidate("closed", this.cqs.get("closed"), candidates));
+  }
+
+  @Test
+  public void testRangeCandidates() {
+    addCq("gt10", "SELECT * FROM /r p WHERE p.price > 10");
+    addCq("ge10", "SELECT * FROM /r p WHERE p.price >= 10");
+    addCq("lt10", "SELECT * FROM /r p WHERE p.price < 10");
+    addCq("le10", "SELECT * FROM /r p WHERE p.price <= 10");
+    addCq("eq10", "SELECT * FROM /r p WHERE p.price = 10");
+    CqPredicateIndex index = new CqPredicateIndex(this.cqs);
+
+    CqPredicateIndex.Candidates candidates = index.getCandidates(new Trade("open", Integer.valueOf(10)));
+    assertFalse(index.isCandidate("gt10", this.cqs.get("gt10"), candidates));
+    assertTrue(index.isCandidate("ge10", this.cqs.get("ge10"), candidates));
+    assertFalse(index.isCandidate("lt10", this.cqs.get("lt10"), candidates));
+    assertTrue(index.isCandidate("le10", this.cqs.get("le10"), candidates));
+    assertTrue(index.isCandidate("eq10", this.cqs.get("eq10"), candidates));
+
+    candidates = index.getCandidates(new Trade("open", Long.valueOf(11)));
+    assertTrue(index.isCandidate("gt10", this.cqs.get("gt10"), candidates));
+    assertTrue(index.isCandidate("ge10", this.cqs.get("ge10"), candidates));
+    assertFalse(index.isCandidate("lt10", this.cqs.get("lt10"), candidates));
+    assertFalse(index.isCandidate("eq10", this.cqs.get("eq10"), candidates));
+  }
+
+  @Test
+  public void testValuesTheIndexCannotDecideAreCandidates() {
+    addCq("gt10", "SELECT * FROM /r p WHERE p.price > 10");
+    addCq("eq10", "SELECT * FROM /r p WHERE p.price = 10");
+    CqPredicateIndex index = new CqPredicateIndex(this.cqs);
+
+    for (Object price : new Object[] { null, Double.valueOf(3.5), "10" }) {
+      CqPredicateIndex.Candidates candidates = index.getCandidates(new Trade("open", price));
+      assertTrue(index.isCandidate("gt10", this.cqs.get("gt10"), candidates));
+    }
+    // an integral literal never equals a String
+    assertFalse(index.isCandidate("eq10", this.cqs.get("eq10"), index.getCandidates(new Trade("open", "10"))));
+    // values without the attribute are left to the query
+    CqPredicateIndex.Candidates candidates = index.getCandidates("not a trade");
+    assertTrue(index.isCandidate("gt10", this.cqs.get("gt10"), candidates));
+    assertTrue(index.isCandidate("eq10", this.cqs.get("eq10"), candidates));
+  }
+  @Test
+  public void testAddAndRemove() {
+    CqPredicateIndex index = new CqPredicateIndex();
+    ServerCQImpl open = addCq("open", "SELECT * FROM /r p WHERE p.status = 'open'");
+    index.add("open", open);
+    ServerCQImpl gt10 = addCq("gt10", "SELECT * FROM /r p WHERE p.price > 10");
+    index.add("gt10", gt10);
+    index.add("unindexed", addCq("unindexed", "SELECT * FROM /r p"));
+    assertEquals(2, index.getIndexedCqCount());
+
+    CqPredicateIndex.Candidates candidates = index.getCandidates(new Trade("closed", 5));
+    assertFalse(index.isCandidate("open", open, candidates));
+    assertFalse(index.isCandidate("gt10", gt10, candidates));
+
+    // a CQ added after the candidates were computed is a candidate
+    ServerCQImpl closed = addCq("closed", "SELECT * FROM /r p WHERE p.status = 'open'");
+    index.add("closed", closed);
+    assertTrue(index.isCandidate("closed", closed, candidates));
+    assertFalse(index.isCandidate("closed", closed, index.getCandidates(new Trade("closed", 5))));
+
+    index.remove("gt10");
+    index.remove("open");
+    index.remove("unindexed");
+    assertEquals(1, index.getIndexedCqCount());
+    assertEquals(1, index.getIndexedAttributes().size());
+    candidates = index.getCandidates(new Trade("open", 11));
+    assertTrue(index.isCandidate("gt10", gt10, candidates));
+    index.remove("closed");
+    assertEquals(0, index.getIndexedCqCount());
+    assertTrue(index.getIndexedAttributes().isEmpty());
+  }
+
+  @Test
+  public void testReplacedCqIsACandidate() {
+    CqPredicateIndex index = new CqPredicateIndex();
+    ServerCQImpl first = addCq("cq", "SELECT * FROM /r p WHERE p.status = 'open'");
+    index.add("cq", first);
+    CqPredicateIndex.Candidates candidates = index.getCandidates(new Trade("closed", 5));
+    assertFalse(index.isCandidate("cq", first, candidates));
+
+    // the map may already hold a new CQ with the same name
+    ServerCQImpl second = addCq("cq", "SELECT * FROM /r p WHERE p.status = 'closed'");
+    assertTrue(index.isCandidate("cq", second, candidates));
+    index.add("cq", second);
+    candidates = index.getCandidates(new Trade("closed", 5));
+    assertTrue(index.isCandidate("cq", second, candidates));
+    assertFalse(index.isCandidate("cq", second, index.getCandidates(new Trade("open", 5))));
+  }
+}
@@ -206,25 +206,10 @@ public abstract class AbstractBaseController {
   }
   
   protected Collection<PdxInstance> convertJsonArrayIntoPdxCollection(final String jsonArray) {
-    JSONArray jsonArr = null;
     try {
-      jsonArr = new JSONArray(jsonArray);
-      Collection<PdxInstance> pdxInstances = new ArrayList<PdxInstance>();
-      
-      
-      for(int index=0; index < jsonArr.length(); index++){
-        //String element = jsonArr.getJSONObject(i).toString();
-        //String element  = jsonArr.getString(i);
-        Object object= jsonArr.get(index);
-        String element = object.toString();
-        
-        PdxInstance pi = convert(element);
-        pdxInstances.add(pi);
-      }
-      return pdxInstances;
-    
-    } catch (JSONException je) {
-      throw new MalformedJsonException("Json document specified in request body is not valid!", je);
+      return JSONFormatter.fromJSONArray(jsonArray);
+    } catch (JSONFormatterException jpe) {
+      throw new MalformedJsonException("Json document specified in request body is not valid!", jpe);
     }
   }
   
@@ -723,14 +708,14 @@ public abstract class AbstractBaseController {
   
   public ResponseEntity<String> updateMultipleKeys(final String region, final String[] keys, final String json){
     
-    JSONArray jsonArr = null;
+    List<PdxInstance> pdxObjs;
     try {
-      jsonArr = new JSONArray(json);  
-    } catch (JSONException e) {
+      pdxObjs = JSONFormatter.fromJSONArray(json);
+    } catch (JSONFormatterException e) {
       throw new MalformedJsonException("JSON document specified in the request is incorrect", e);
     }
   
-    if(jsonArr.length() != keys.length){
+    if(pdxObjs.size() != keys.length){
       throw new MalformedJsonException("Each key must have corresponding value (JSON document) specified in the request");
     }
     
@@ -739,13 +724,7 @@ public abstract class AbstractBaseController {
       if (logger.isDebugEnabled()) {
         logger.debug("Updating (put) Json document ({}) having key ({}) in Region ({})", json, keys[i], region);
       }
-        
-      try {
-        PdxInstance pdxObj = convert( jsonArr.getJSONObject(i).toString());    
-        map.put(keys[i], pdxObj);
-      } catch (JSONException e) {
-        throw new MalformedJsonException(String.format("JSON document at index (%1$s) in the request body is incorrect", i), e);
-      }
+      map.put(keys[i], pdxObjs.get(i));
     }
      
     if(!CollectionUtils.isEmpty(map)){ 